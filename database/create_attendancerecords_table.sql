@@ -37,6 +37,10 @@ CREATE INDEX IF NOT EXISTS idx_attendancerecords_studentid
 CREATE INDEX IF NOT EXISTS idx_attendancerecords_status 
     ON attendancerecords(status);
 
+-- Keyset pagination of the attendance history, newest first
+CREATE INDEX IF NOT EXISTS idx_attendancerecords_timestamp_id 
+    ON attendancerecords(timestamp DESC NULLS FIRST, id DESC);
+
 -- Add comments to columns
 COMMENT ON TABLE attendancerecords IS 'Stores attendance records for students in sessions';
 COMMENT ON COLUMN attendancerecords.id IS 'Primary key, auto-incrementing';
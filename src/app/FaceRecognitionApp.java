@@ -3,12 +3,13 @@ package app;
 import java.io.File;
 
 import javax.swing.JOptionPane;
-import javax.swing.SwingUtilities;
 
 import config.AppConfig;
 import config.AppLogger;
 import gui.FullScreenUtil;
 import gui.recognition.LiveRecognitionViewer;
+import service.attendance.AttendanceWriteBehind;
+import service.recognition.RecognitionWarmup;
 
 /**
  * Entry point for the Face Recognition system.
@@ -35,9 +36,13 @@ public class FaceRecognitionApp {
         // Start up Live Recognition Viewer
         AppLogger.info("Live Recognition Viewer Starting!");
         
+        // Replay attendance marks journalled by an earlier run that never reached the database
+        AttendanceWriteBehind.startInBackground();
+        
         boolean launchedFromDashboard = "true".equals(System.getProperty("launched.from.dashboard"));
         
-        SwingUtilities.invokeLater(() -> {
+        // Open the viewer once models are warm so the first frame runs at steady-state latency
+        RecognitionWarmup.whenReady(() -> {
             try {
                 LiveRecognitionViewer viewer = new LiveRecognitionViewer();
                 // Make the recognition viewer fullscreen (windowed fullscreen) by default
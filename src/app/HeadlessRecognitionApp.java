@@ -0,0 +1,329 @@
+package app;
+
+import config.AppConfig;
+import config.AppLogger;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.opencv.core.Rect;
+import service.camera.CameraService;
+import service.camera.CameraSources;
+import service.detection.FaceDetector;
+import service.recognition.HeadlessRecognitionEngine;
+import service.recognition.LiveRecognitionService;
+import service.recognition.RecognitionWarmup;
+import util.LatencyRecorder;
+import util.MatPool;
+import util.PipelineMetrics;
+import util.ModuleLoader;
+
+/**
+ * Command-line entry point that runs the recognition pipeline without any
+ * window, for sizing hardware and reproducing issues from recordings.
+ *
+ * Recognition events are written as JSON lines (stdout by default), followed by
+ * a {@code "type":"summary"} line; a readable FPS / latency table is printed at
+ * the end. Application logging still goes to logs/ as usual.
+ *
+ * Usage:
+ * <pre>
+ * java -cp "compiled:lib/*" app.HeadlessRecognitionApp [--source SPEC] [--fast] [--loop]
+ *      [--frames N] [--seconds S] [--every N] [--events FILE] [--no-warmup] [--gallery DIR]
+ * </pre>
+ * SPEC uses the {@code camera.source} syntax, e.g. {@code video:clips/room1.mp4},
+ * {@code images:data/replay}, {@code synthetic:1280x720}. {@code --gallery}
+ * loads enrolled embeddings from DIR instead of {@code database.storage_path}
+ * for this run, e.g. a gallery written by {@link SyntheticGalleryApp}.
+ */
+public class HeadlessRecognitionApp {
+    // How long Ctrl+C waits for the run to wind down before the JVM exits anyway
+    private static final long SHUTDOWN_WAIT_MS = 5000;
+
+    public static void main(String[] args) {
+        // AppLogger redirects System.out/err into the log file, so write to the real descriptors
+        PrintStream stdout = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        PrintStream stderr = new PrintStream(new FileOutputStream(FileDescriptor.err), true, StandardCharsets.UTF_8);
+
+        AppConfig config = AppConfig.getInstance();
+        String sourceSpec = config.getCameraSource();
+        boolean realTime = config.isCameraSourceRealTime();
+        boolean loop = config.isCameraSourceLoop();
+        long maxFrames = 0;
+        long maxSeconds = 0;
+        int every = 0;
+        String eventsPath = null;
+        boolean warmup = true;
+        String galleryPath = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--source":
+                        sourceSpec = args[++i];
+                        break;
+                    case "--fast":
+                        realTime = false;
+                        break;
+                    case "--realtime":
+                        realTime = true;
+                        break;
+                    case "--loop":
+                        loop = true;
+                        break;
+                    case "--frames":
+                        maxFrames = Long.parseLong(args[++i]);
+                        break;
+                    case "--seconds":
+                        maxSeconds = Long.parseLong(args[++i]);
+                        break;
+                    case "--every":
+                        every = Integer.parseInt(args[++i]);
+                        break;
+                    case "--events":
+                        eventsPath = args[++i];
+                        break;
+                    case "--no-warmup":
+                        warmup = false;
+                        break;
+                    case "--gallery":
+                        galleryPath = args[++i];
+                        break;
+                    case "--help":
+                    case "-h":
+                        printUsage(stderr);
+                        return;
+                    default:
+                        stderr.println("Unknown option: " + args[i]);
+                        printUsage(stderr);
+                        System.exit(2);
+                        return;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            stderr.println("Invalid arguments: " + e.getMessage());
+            printUsage(stderr);
+            System.exit(2);
+            return;
+        }
+
+        if (galleryPath != null) {
+            // Not saved, so the configured gallery is back on the next start
+            config.setDatabaseStoragePath(galleryPath);
+        }
+        ModuleLoader.ensureOpenCVLoaded();
+        if (warmup) {
+            // Measure steady state, not model loading
+            long t0 = System.currentTimeMillis();
+            RecognitionWarmup.start().exceptionally(error -> null).join();
+            stderr.println("Warm-up finished in " + (System.currentTimeMillis() - t0) + " ms");
+        }
+
+        FaceDetector detector = FaceDetector.getInstance();
+        if (!detector.isAvailable()) {
+            stderr.println("Face detector model files not found; see detection.model_* in app.properties");
+            System.exit(1);
+            return;
+        }
+
+        CameraService source = CameraSources.open(sourceSpec, realTime, loop);
+        if (!source.isCameraAvailable()) {
+            stderr.println("Cannot open frame source: " + sourceSpec);
+            source.release();
+            System.exit(1);
+            return;
+        }
+
+        LiveRecognitionService recognitionService = new LiveRecognitionService();
+        HeadlessRecognitionEngine engine = new HeadlessRecognitionEngine(source, detector, recognitionService);
+        engine.setMaxFrames(maxFrames);
+        engine.setMaxDurationMs(maxSeconds * 1000L);
+        engine.setRecognitionInterval(every);
+        PrintStream events = stdout;
+        PrintStream report = stderr;
+        try {
+            if (eventsPath != null && !"-".equals(eventsPath)) {
+                events = new PrintStream(new FileOutputStream(eventsPath), false, StandardCharsets.UTF_8);
+                report = stdout;
+            }
+        } catch (IOException e) {
+            stderr.println("Cannot open events file " + eventsPath + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        // On Ctrl+C the JVM exits once the hooks return, so the hook stops the
+        // run and writes the report itself rather than leaving it to main
+        RunReport runReport = new RunReport(report);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            engine.stop();
+            runReport.awaitAndPrint(SHUTDOWN_WAIT_MS);
+        }, "HeadlessRecognitionShutdown"));
+
+        stderr.println("Running headless recognition on " + source.getDescription()
+                + (realTime ? " (real-time)" : " (as fast as possible)"));
+        AppLogger.info("Headless recognition started on " + source.getDescription());
+
+        PrintStream eventStream = events;
+        HeadlessRecognitionEngine.RunStats stats = null;
+        try {
+            stats = engine.run(event -> eventStream.println(toJson(event)));
+            eventStream.println(toJson(stats, source.getDescription()));
+        } finally {
+            eventStream.flush();
+            if (eventStream != stdout) {
+                eventStream.close();
+            }
+            source.release();
+            recognitionService.release();
+            runReport.complete(stats);
+        }
+        runReport.print();
+    }
+
+    /**
+     * The end-of-run report, written once by whichever of main and the
+     * shutdown hook gets there first.
+     */
+    private static final class RunReport {
+        private final PrintStream out;
+        private final CountDownLatch finished = new CountDownLatch(1);
+        // Guarded by "this"
+        private HeadlessRecognitionEngine.RunStats stats;
+        private boolean printed;
+
+        private RunReport(PrintStream out) {
+            this.out = out;
+        }
+
+        private synchronized void complete(HeadlessRecognitionEngine.RunStats stats) {
+            this.stats = stats;
+            finished.countDown();
+        }
+
+        private void awaitAndPrint(long timeoutMs) {
+            try {
+                if (!finished.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    AppLogger.warn("Headless recognition did not stop within " + timeoutMs + " ms; no report written");
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            print();
+        }
+
+        private synchronized void print() {
+            if (printed || stats == null) {
+                return;
+            }
+            printed = true;
+            printReport(out, stats);
+            out.flush();
+            AppLogger.info(String.format(Locale.ROOT,
+                    "Headless recognition finished: %d frames, %.1f fps, %.1f faces/s",
+                    stats.getFrames(), stats.getFps(), stats.getFacesPerSecond()));
+        }
+    }
+
+    private static void printReport(PrintStream out, HeadlessRecognitionEngine.RunStats stats) {
+        out.println();
+        out.println(String.format(Locale.ROOT, "Frames:        %d in %.2f s (%d read failures)",
+                stats.getFrames(), stats.getElapsedNanos() / 1e9, stats.getReadFailures()));
+        out.println(String.format(Locale.ROOT, "Throughput:    %.1f fps", stats.getFps()));
+        out.println(String.format(Locale.ROOT, "Faces:         %d detected, %d recognised (%d accepted), %.1f faces/s",
+                stats.getFacesDetected(), stats.getFacesRecognized(), stats.getFacesAccepted(),
+                stats.getFacesPerSecond()));
+        out.println("Stage latency:");
+        for (LatencyRecorder stage : stats.getStages()) {
+            out.println("  " + stage);
+        }
+        out.println("Recognition stages:");
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        for (PipelineMetrics.Stage stage : PipelineMetrics.Stage.values()) {
+            if (stage.ordinal() >= PipelineMetrics.Stage.CROP.ordinal()) {
+                out.println("  " + metrics.stage(stage));
+            }
+        }
+        out.println("Mat pool:      " + MatPool.getInstance().snapshot());
+    }
+
+    private static String toJson(HeadlessRecognitionEngine.RecognitionEvent event) {
+        Rect r = event.getRect();
+        return String.format(Locale.ROOT,
+                "{\"type\":\"recognition\",\"frame\":%d,\"ts\":%d,\"track\":%s,\"box\":[%d,%d,%d,%d],"
+                        + "\"studentId\":%s,\"confidence\":%.4f,\"recognized\":%b,\"latencyMs\":%.3f}",
+                event.getFrameIndex(), event.getTimestampMs(), jsonString(event.getTrackId()),
+                r.x, r.y, r.width, r.height, jsonString(event.getStudentId()), event.getConfidence(),
+                event.isRecognized(), event.getLatencyNanos() / 1e6);
+    }
+
+    private static String toJson(HeadlessRecognitionEngine.RunStats stats, String source) {
+        StringBuilder json = new StringBuilder();
+        json.append(String.format(Locale.ROOT,
+                "{\"type\":\"summary\",\"source\":%s,\"frames\":%d,\"elapsedMs\":%.1f,\"fps\":%.2f,"
+                        + "\"facesDetected\":%d,\"facesRecognized\":%d,\"facesAccepted\":%d,\"facesPerSec\":%.2f,"
+                        + "\"stages\":{",
+                jsonString(source), stats.getFrames(), stats.getElapsedNanos() / 1e6, stats.getFps(),
+                stats.getFacesDetected(), stats.getFacesRecognized(), stats.getFacesAccepted(),
+                stats.getFacesPerSecond()));
+        boolean first = true;
+        for (LatencyRecorder stage : stats.getStages()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(String.format(Locale.ROOT,
+                    "%s:{\"n\":%d,\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p95Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                    jsonString(stage.getName()), stage.getCount(), stage.getMeanMillis(),
+                    stage.percentileMillis(50), stage.percentileMillis(95), stage.percentileMillis(99),
+                    stage.getMaxMillis()));
+        }
+        return json.append("}}").toString();
+    }
+
+    private static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder escaped = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"':
+                    escaped.append("\\\"");
+                    break;
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        escaped.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        escaped.append(c);
+                    }
+            }
+        }
+        return escaped.append('"').toString();
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: app.HeadlessRecognitionApp [--source SPEC] [--fast|--realtime] [--loop]");
+        out.println("         [--frames N] [--seconds S] [--every N] [--events FILE] [--no-warmup]");
+        out.println("         [--gallery DIR]");
+        out.println("  SPEC: camera | camera:<index> | video:<file> | images:<dir> | synthetic[:WxH]");
+    }
+}
@@ -0,0 +1,120 @@
+package app;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import service.recognition.RecognitionBenchmarks;
+import util.MicroBenchmark;
+import util.ModuleLoader;
+
+/**
+ * Command-line entry point for the recognition micro-benchmarks
+ * ({@link RecognitionBenchmarks}). Prints a score table and writes the
+ * results as JMH-format JSON, so runs can be diffed with the usual JMH tools.
+ *
+ * Usage:
+ * <pre>
+ * java -Xmx4g -cp "compiled:lib/*" app.RecognitionBenchmarkApp [--profiles 10,100,1000,10000]
+ *      [--exemplars 20] [--reload-max 1000] [--warmup 3] [--iterations 5] [--time-ms 1000]
+ *      [--filter REGEX] [--json FILE]
+ * </pre>
+ * The 10k-profile gallery needs about 0.5 GB of heap with 512-d float embeddings.
+ */
+public class RecognitionBenchmarkApp {
+
+    public static void main(String[] args) {
+        // AppLogger redirects System.out/err into the log file, so write to the real descriptors
+        PrintStream stdout = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        PrintStream stderr = new PrintStream(new FileOutputStream(FileDescriptor.err), true, StandardCharsets.UTF_8);
+
+        int[] profiles = { 10, 100, 1000, 10000 };
+        int exemplars = 20;
+        int reloadMax = 1000;
+        int warmup = 3;
+        int iterations = 5;
+        long timeMs = 1000;
+        Pattern filter = null;
+        String jsonPath = "benchmark-results.json";
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--profiles":
+                        profiles = Arrays.stream(args[++i].split(",")).map(String::trim)
+                                .mapToInt(Integer::parseInt).toArray();
+                        break;
+                    case "--exemplars":
+                        exemplars = Integer.parseInt(args[++i]);
+                        break;
+                    case "--reload-max":
+                        reloadMax = Integer.parseInt(args[++i]);
+                        break;
+                    case "--warmup":
+                        warmup = Integer.parseInt(args[++i]);
+                        break;
+                    case "--iterations":
+                        iterations = Integer.parseInt(args[++i]);
+                        break;
+                    case "--time-ms":
+                        timeMs = Long.parseLong(args[++i]);
+                        break;
+                    case "--filter":
+                        filter = Pattern.compile(args[++i]);
+                        break;
+                    case "--json":
+                        jsonPath = args[++i];
+                        break;
+                    case "--help":
+                    case "-h":
+                        printUsage(stderr);
+                        return;
+                    default:
+                        stderr.println("Unknown option: " + args[i]);
+                        printUsage(stderr);
+                        System.exit(2);
+                        return;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            stderr.println("Invalid arguments: " + e.getMessage());
+            printUsage(stderr);
+            System.exit(2);
+            return;
+        }
+
+        // The embedding generator decides the on-disk format (float with the deep model)
+        ModuleLoader.ensureOpenCVLoaded();
+        MicroBenchmark harness = new MicroBenchmark(warmup, iterations, timeMs);
+        RecognitionBenchmarks benchmarks = new RecognitionBenchmarks(harness, profiles, exemplars, reloadMax,
+                filter, stdout);
+        List<MicroBenchmark.Result> results;
+        try {
+            results = benchmarks.runAll();
+        } catch (Exception e) {
+            stderr.println("Benchmark failed: " + e);
+            System.exit(1);
+            return;
+        }
+
+        try {
+            Files.write(Paths.get(jsonPath), MicroBenchmark.toJson(results).getBytes(StandardCharsets.UTF_8));
+            stderr.println("Wrote " + results.size() + " results to " + jsonPath);
+        } catch (IOException e) {
+            stderr.println("Cannot write " + jsonPath + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: app.RecognitionBenchmarkApp [--profiles N,N,...] [--exemplars N] [--reload-max N]");
+        out.println("         [--warmup N] [--iterations N] [--time-ms MS] [--filter REGEX] [--json FILE]");
+        out.println("  Benchmarks: similarity, decode, historySmoothing, tightness, score, scoreSmoothed, reload");
+    }
+}
@@ -0,0 +1,173 @@
+package app;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+import service.embedding.FaceEmbeddingGenerator;
+import service.recognition.SyntheticGallery;
+import util.ModuleLoader;
+
+/**
+ * Command-line entry point that writes a {@link SyntheticGallery} to disk,
+ * optionally with a query stream and its ground truth, for scale and soak
+ * testing. Point {@code database.storage_path} (or
+ * {@code HeadlessRecognitionApp --gallery}) at the output to load it.
+ *
+ * Usage:
+ * <pre>
+ * java -cp "compiled:lib/*" app.SyntheticGalleryApp --out DIR [--persons 10000] [--exemplars 20]
+ *      [--intra 0.56] [--inter 0.25] [--seed 42] [--format auto|float|double]
+ *      [--queries N] [--impostor-rate 0.1] [--queries-out DIR]
+ * </pre>
+ * {@code auto} writes whichever format the embedding generator produces on
+ * this machine. The output directory must be new or empty, so a real gallery
+ * is never mixed with synthetic persons.
+ */
+public class SyntheticGalleryApp {
+
+    public static void main(String[] args) {
+        // AppLogger redirects System.out/err into the log file, so write to the real descriptors
+        PrintStream stderr = new PrintStream(new FileOutputStream(FileDescriptor.err), true, StandardCharsets.UTF_8);
+
+        String outPath = null;
+        int persons = 10000;
+        int exemplars = 20;
+        double intra = SyntheticGallery.DEFAULT_INTRA_SIMILARITY;
+        double inter = SyntheticGallery.DEFAULT_INTER_SIMILARITY;
+        long seed = 42L;
+        String format = "auto";
+        int queryCount = 0;
+        double impostorRate = 0.1;
+        String queriesPath = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--out":
+                        outPath = args[++i];
+                        break;
+                    case "--persons":
+                        persons = Integer.parseInt(args[++i]);
+                        break;
+                    case "--exemplars":
+                        exemplars = Integer.parseInt(args[++i]);
+                        break;
+                    case "--intra":
+                        intra = Double.parseDouble(args[++i]);
+                        break;
+                    case "--inter":
+                        inter = Double.parseDouble(args[++i]);
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong(args[++i]);
+                        break;
+                    case "--format":
+                        format = args[++i];
+                        break;
+                    case "--queries":
+                        queryCount = Integer.parseInt(args[++i]);
+                        break;
+                    case "--impostor-rate":
+                        impostorRate = Double.parseDouble(args[++i]);
+                        break;
+                    case "--queries-out":
+                        queriesPath = args[++i];
+                        break;
+                    case "--help":
+                    case "-h":
+                        printUsage(stderr);
+                        return;
+                    default:
+                        stderr.println("Unknown option: " + args[i]);
+                        printUsage(stderr);
+                        System.exit(2);
+                        return;
+                }
+            }
+            if (outPath == null) {
+                throw new IllegalArgumentException("--out is required");
+            }
+            if (!format.equals("auto") && !format.equals("float") && !format.equals("double")) {
+                throw new IllegalArgumentException("--format must be auto, float or double");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            stderr.println("Invalid arguments: " + e.getMessage());
+            printUsage(stderr);
+            System.exit(2);
+            return;
+        }
+
+        boolean floatFormat;
+        if (format.equals("auto")) {
+            ModuleLoader.ensureOpenCVLoaded();
+            floatFormat = new FaceEmbeddingGenerator().isDeepLearningAvailable();
+        } else {
+            floatFormat = format.equals("float");
+        }
+
+        SyntheticGallery gallery;
+        try {
+            gallery = new SyntheticGallery(persons, exemplars, intra, inter, seed, floatFormat);
+        } catch (IllegalArgumentException e) {
+            stderr.println("Invalid arguments: " + e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        Path out = Paths.get(outPath).toAbsolutePath().normalize();
+        Path queriesOut = queriesPath != null ? Paths.get(queriesPath).toAbsolutePath().normalize()
+                : out.resolveSibling(out.getFileName() + "-queries");
+        try {
+            if (!isNewOrEmpty(out) || (queryCount > 0 && !isNewOrEmpty(queriesOut))) {
+                stderr.println("Refusing to write into a non-empty directory: " + out
+                        + (queryCount > 0 ? " / " + queriesOut : ""));
+                System.exit(1);
+                return;
+            }
+            long t0 = System.currentTimeMillis();
+            int files = gallery.writeTo(out);
+            stderr.printf("Wrote %d persons, %d %s embeddings (dim %d) to %s in %d ms%n", persons, files,
+                    floatFormat ? "float" : "double", gallery.getDimension(), out, System.currentTimeMillis() - t0);
+            if (queryCount > 0) {
+                List<SyntheticGallery.Query> queries = gallery.queries(queryCount, impostorRate);
+                gallery.writeQueries(queriesOut, queries);
+                long impostors = queries.stream().filter(query -> !query.isEnrolled()).count();
+                stderr.printf("Wrote %d queries (%d impostors) and ground_truth.csv to %s%n", queries.size(),
+                        impostors, queriesOut);
+            }
+        } catch (IOException e) {
+            stderr.println("Cannot write synthetic gallery: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static boolean isNewOrEmpty(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return true;
+        }
+        if (!Files.isDirectory(directory)) {
+            return false;
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.findAny().isEmpty();
+        }
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: app.SyntheticGalleryApp --out DIR [--persons N] [--exemplars N] [--intra COS]");
+        out.println("         [--inter COS] [--seed N] [--format auto|float|double]");
+        out.println("         [--queries N] [--impostor-rate P] [--queries-out DIR]");
+        out.println("  --intra: expected cosine between two embeddings of one person (default "
+                + SyntheticGallery.DEFAULT_INTRA_SIMILARITY + ")");
+        out.println("  --inter: expected cosine between two person centres (default "
+                + SyntheticGallery.DEFAULT_INTER_SIMILARITY + ")");
+        out.println("  Queries default to DIR-queries/ with ground_truth.csv (empty expected = impostor)");
+    }
+}
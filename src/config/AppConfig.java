@@ -13,6 +13,10 @@ public class AppConfig {
     public final static String KEY_CASCADE_PATH = "cascade.path";
     public final static String KEY_LOG_FILE_NAME = "log.file.name";
     public final static String KEY_CAMERA_INDEX = "camera.index";
+    public final static String KEY_CAMERA_SOURCE = "camera.source";
+    public final static String KEY_CAMERA_SOURCE_PACING = "camera.source.pacing";
+    public final static String KEY_CAMERA_SOURCE_LOOP = "camera.source.loop";
+    public final static String KEY_CAMERA_SOURCES = "camera.sources";
     public final static String KEY_DETECTION_SCALE_FACTOR = "detection.scale_factor";
     public final static String KEY_DETECTION_MIN_NEIGHBORS = "detection.min.neighbors";
     public final static String KEY_DETECTION_MIN_SIZE_PX = "detection.min_size_px";
@@ -44,6 +48,11 @@ public class AppConfig {
     public final static String KEY_DATABASE_URL = "database.URL";
     public final static String KEY_DATABASE_USER = "database.user";
     public final static String KEY_DATABASE_PASSWORD = "database.password";
+    public final static String KEY_DATABASE_POOL_MAX_SIZE = "database.pool.max_size";
+    public final static String KEY_DATABASE_POOL_CONNECTION_TIMEOUT_MS = "database.pool.connection_timeout_ms";
+    public final static String KEY_DATABASE_POOL_IDLE_TIMEOUT_S = "database.pool.idle_timeout_s";
+    public final static String KEY_DATABASE_POOL_MAX_LIFETIME_S = "database.pool.max_lifetime_s";
+    public final static String KEY_ATTENDANCE_JOURNAL_PATH = "attendance.journal_path";
 
     // detection model files (alternate keys present in app.properties)
     public final static String KEY_DETECTION_MODEL_CONFIG = "detection.model_configuration_path";
@@ -78,6 +87,11 @@ public class AppConfig {
     public final static String KEY_RECOGNITION_COHORT_SIZE = "recognition.cohort.size";
     public final static String KEY_RECOGNITION_COHORT_Z_MIN = "recognition.cohort.z_min";
     public final static String KEY_RECOGNITION_MIN_FACE_WIDTH_PX = "recognition.min.face.width.px";
+    public final static String KEY_RECOGNITION_LATENCY_TARGET_MS = "recognition.latency_target_ms";
+
+    // pipeline metrics
+    public final static String KEY_METRICS_SNAPSHOT_PATH = "metrics.snapshot_path";
+    public final static String KEY_METRICS_SNAPSHOT_INTERVAL_S = "metrics.snapshot_interval_s";
 
     // platform / native libs
     public final static String KEY_OPERATING_SYSTEM = "operating.system";
@@ -269,6 +283,41 @@ public class AppConfig {
         }
     }
 
+    // KEY_CAMERA_SOURCE = "camera.source"; a JVM system property of the same name wins
+    // Values: camera, camera:<index>, video:<file>, images:<directory>, synthetic[:<width>x<height>]
+    public String getCameraSource() {
+        return System.getProperty(KEY_CAMERA_SOURCE, properties.getProperty(KEY_CAMERA_SOURCE, "camera")).trim();
+    }
+
+    // KEY_CAMERA_SOURCES = "camera.sources"; ';'-separated specs for multi-camera attendance.
+    // Falls back to the single camera.source when unset.
+    public java.util.List<String> getCameraSources() {
+        String configured = System.getProperty(KEY_CAMERA_SOURCES, properties.getProperty(KEY_CAMERA_SOURCES, ""));
+        java.util.List<String> sources = new java.util.ArrayList<>();
+        for (String spec : configured.split(";")) {
+            if (!spec.isBlank()) {
+                sources.add(spec.trim());
+            }
+        }
+        if (sources.isEmpty()) {
+            sources.add(getCameraSource());
+        }
+        return sources;
+    }
+
+    // KEY_CAMERA_SOURCE_PACING = "camera.source.pacing"; "realtime" or "fast" (replay sources only)
+    public boolean isCameraSourceRealTime() {
+        String pacing = System.getProperty(KEY_CAMERA_SOURCE_PACING,
+                properties.getProperty(KEY_CAMERA_SOURCE_PACING, "realtime"));
+        return !"fast".equalsIgnoreCase(pacing.trim());
+    }
+
+    // KEY_CAMERA_SOURCE_LOOP = "camera.source.loop"; restart replay sources when they run out
+    public boolean isCameraSourceLoop() {
+        return Boolean.parseBoolean(System.getProperty(KEY_CAMERA_SOURCE_LOOP,
+                properties.getProperty(KEY_CAMERA_SOURCE_LOOP, "false")).trim());
+    }
+
     // KEY_DETECTION_SCALE_FACTOR = "detection.scale_factor";
     public double getDetectionScaleFactor() {
         String indexStr = properties.getProperty(KEY_DETECTION_SCALE_FACTOR, "1.05"); // Default value "0"
@@ -544,6 +593,38 @@ public class AppConfig {
         }
     }
 
+    // KEY_RECOGNITION_LATENCY_TARGET_MS = "recognition.latency_target_ms"
+    // End-to-end per-frame budget the live pipelines schedule detection/recognition against
+    public int getRecognitionLatencyTargetMs() {
+        String s = properties.getProperty(KEY_RECOGNITION_LATENCY_TARGET_MS, "200");
+        try {
+            return Math.max(20, Integer.parseInt(s.trim()));
+        } catch (NumberFormatException ex) {
+            AppLogger.error("Config error: Invalid number format for " + KEY_RECOGNITION_LATENCY_TARGET_MS, ex);
+            return 200;
+        }
+    }
+
+    /**
+     * File the pipeline metrics snapshot is rewritten to; empty disables it.
+     */
+    public String getMetricsSnapshotPath() {
+        return properties.getProperty(KEY_METRICS_SNAPSHOT_PATH, "logs/metrics.json").trim();
+    }
+
+    /**
+     * Seconds between metrics snapshots; zero or less disables them.
+     */
+    public int getMetricsSnapshotIntervalSeconds() {
+        String s = properties.getProperty(KEY_METRICS_SNAPSHOT_INTERVAL_S, "30");
+        try {
+            return Integer.parseInt(s.trim());
+        } catch (NumberFormatException ex) {
+            AppLogger.error("Config error: Invalid number format for " + KEY_METRICS_SNAPSHOT_INTERVAL_S, ex);
+            return 30;
+        }
+    }
+
     public int getRecognitionMinFaceWidthPx() {
         String s = properties.getProperty(KEY_RECOGNITION_MIN_FACE_WIDTH_PX, "96");
         try {
@@ -613,6 +694,68 @@ public class AppConfig {
         AppLogger.info(KEY_DATABASE_PASSWORD + " has been changed.");
     }
 
+    /**
+     * Upper bound on open database connections, idle and borrowed.
+     */
+    public int getDatabasePoolMaxSize() {
+        String s = properties.getProperty(KEY_DATABASE_POOL_MAX_SIZE, "10");
+        try {
+            return Math.max(1, Integer.parseInt(s.trim()));
+        } catch (NumberFormatException ex) {
+            AppLogger.error("Config error: Invalid number format for " + KEY_DATABASE_POOL_MAX_SIZE, ex);
+            return 10;
+        }
+    }
+
+    /**
+     * How long a caller waits for a free connection before getting an SQLException.
+     */
+    public long getDatabasePoolConnectionTimeoutMs() {
+        String s = properties.getProperty(KEY_DATABASE_POOL_CONNECTION_TIMEOUT_MS, "10000");
+        try {
+            return Math.max(250L, Long.parseLong(s.trim()));
+        } catch (NumberFormatException ex) {
+            AppLogger.error("Config error: Invalid number format for " + KEY_DATABASE_POOL_CONNECTION_TIMEOUT_MS, ex);
+            return 10000L;
+        }
+    }
+
+    /**
+     * Seconds an unused connection stays open; zero keeps idle connections.
+     */
+    public int getDatabasePoolIdleTimeoutSeconds() {
+        String s = properties.getProperty(KEY_DATABASE_POOL_IDLE_TIMEOUT_S, "300");
+        try {
+            return Math.max(0, Integer.parseInt(s.trim()));
+        } catch (NumberFormatException ex) {
+            AppLogger.error("Config error: Invalid number format for " + KEY_DATABASE_POOL_IDLE_TIMEOUT_S, ex);
+            return 300;
+        }
+    }
+
+    /**
+     * Seconds after which a connection is retired once returned; keep it below
+     * the server or pooler's own connection lifetime. Zero disables it.
+     */
+    public int getDatabasePoolMaxLifetimeSeconds() {
+        String s = properties.getProperty(KEY_DATABASE_POOL_MAX_LIFETIME_S, "1800");
+        try {
+            return Math.max(0, Integer.parseInt(s.trim()));
+        } catch (NumberFormatException ex) {
+            AppLogger.error("Config error: Invalid number format for " + KEY_DATABASE_POOL_MAX_LIFETIME_S, ex);
+            return 1800;
+        }
+    }
+
+    /**
+     * Local append-only journal of attendance marks not yet known to be in the
+     * database; replayed on start-up.
+     */
+    public String getAttendanceJournalPath() {
+        String configured = properties.getProperty(KEY_ATTENDANCE_JOURNAL_PATH, "data/attendance/attendance.journal");
+        return Paths.get(configured).toAbsolutePath().normalize().toString();
+    }
+
     // detection.model_configuration_path & detection.model_weights
     public String getDetectionModelConfigurationPath() {
         return properties.getProperty(KEY_DETECTION_MODEL_CONFIG, "data/resources/opencv_face_detector.pbtxt");
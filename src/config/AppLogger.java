@@ -86,6 +86,11 @@ public class AppLogger {
 
     // --- Public Facade Methods ---
 
+    /** Logs a diagnostic message; below the default INFO level, so normally not written. */
+    public static void debug(String message) {
+        rootLogger.log(Level.FINE, message);
+    }
+
     /** Logs an informational message. Used for successful events. */
     public static void info(String message) {
         rootLogger.log(Level.INFO, message);
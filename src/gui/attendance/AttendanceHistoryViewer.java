@@ -7,14 +7,24 @@ import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 import javax.swing.BorderFactory;
 import javax.swing.SwingUtilities;
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -32,6 +42,8 @@ import entity.AttendanceRecord;
 import entity.Roster;
 import entity.Session;
 import entity.Student;
+import repository.AsyncRepository;
+import repository.AttendanceRecordPage;
 import repository.AttendanceRecordRepository;
 import repository.AttendanceRecordRepositoryInstance;
 import repository.RosterRepository;
@@ -51,9 +63,13 @@ public class AttendanceHistoryViewer extends JFrame {
         ROSTERS, SESSIONS, ATTENDANCE_RECORDS
     }
 
-    private final AttendanceRecordRepository attendanceRecordRepository;
-    private final RosterRepository rosterRepository;
-    private final SessionRepositoryInstance sessionRepository;
+    private final AsyncRepository<AttendanceRecordRepository> attendanceRecordRepository;
+    private final AsyncRepository<RosterRepository> rosterRepository;
+    private final AsyncRepository<SessionRepositoryInstance> sessionRepository;
+
+    // EDT only: queries of the load in progress, and a count of loads started
+    private final List<CompletableFuture<?>> pendingLoads = new ArrayList<>();
+    private int loadGeneration;
     
     private DefaultTableModel tableModel;
     private JTable dataTable;
@@ -80,11 +96,18 @@ public class AttendanceHistoryViewer extends JFrame {
         "Status", "Timestamp", "Method", "Confidence Level", "Notes"
     };
 
+    private static final String[] FULL_EXPORT_COLUMNS = {
+        "Session ID", "Session Name", "Date", "Student ID", "Student Name",
+        "Status", "Timestamp", "Method", "Confidence Level", "Notes"
+    };
+    private static final String FULL_EXPORT_TITLE = "AttendanceHistoryAll";
+    private static final int FULL_EXPORT_PAGE_SIZE = 1000;
+
     public AttendanceHistoryViewer() {
         super("Attendance History");
-        this.attendanceRecordRepository = new AttendanceRecordRepositoryInstance();
-        this.rosterRepository = new RosterRepositoryInstance();
-        this.sessionRepository = new SessionRepositoryInstance();
+        this.attendanceRecordRepository = new AsyncRepository<>(new AttendanceRecordRepositoryInstance());
+        this.rosterRepository = new AsyncRepository<>(new RosterRepositoryInstance());
+        this.sessionRepository = new AsyncRepository<>(new SessionRepositoryInstance());
 
         setSize(1400, 800);
         setLocationRelativeTo(null);
@@ -141,6 +164,10 @@ public class AttendanceHistoryViewer extends JFrame {
         JButton exportButton = UIComponents.createAccentButton("📤 Export Options", ColourTheme.PRIMARY_COLOR);
         exportButton.addActionListener(e -> exportCurrentView());
         exportPanel.add(exportButton);
+        JButton exportAllButton = UIComponents.createAccentButton("📥 Export All Records", ColourTheme.PRIMARY_COLOR);
+        exportAllButton.setToolTipText("Save every attendance record, across all rosters, as CSV");
+        exportAllButton.addActionListener(e -> exportAllRecords());
+        exportPanel.add(exportAllButton);
         topPanel.add(exportPanel, BorderLayout.EAST);
 
         searchField.addActionListener(e -> performSearch());
@@ -243,65 +270,56 @@ public class AttendanceHistoryViewer extends JFrame {
     }
 
     private void loadRosters() {
-        statusLabel.setText("Loading rosters...");
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-        
-        new Thread(() -> {
+        int load = beginLoad("Loading rosters...");
+        CompletableFuture<List<Roster>> rostersLoad = track(rosterRepository.query("findAll", RosterRepository::findAll));
+
+        rostersLoad.whenComplete((rosters, error) -> SwingUtilities.invokeLater(() -> {
+            if (!isCurrentLoad(load, error, "rosters")) {
+                return;
+            }
             try {
-                List<Roster> rosters = rosterRepository.findAll();
+                updateTableColumns(ROSTER_COLUMNS);
+                tableModel.setRowCount(0);
                 
-                SwingUtilities.invokeLater(() -> {
-                    try {
-                        updateTableColumns(ROSTER_COLUMNS);
-                        tableModel.setRowCount(0);
-                        
-                        for (Roster roster : rosters) {
-                            Object[] row = {
-                                roster.getRosterId(),
-                                roster.getCourseCode(),
-                                roster.getLocation(),
-                                roster.getStartTime() != null ? roster.getStartTime().toString() : "-",
-                                roster.getEndTime() != null ? roster.getEndTime().toString() : "-"
-                            };
-                            tableModel.addRow(row);
-                        }
-                        
-                        statusLabel.setText("Loaded " + rosters.size() + " rosters. Double-click a row to view sessions.");
-                        AppLogger.info("Loaded " + rosters.size() + " rosters for history viewer");
-                    } finally {
-                        setCursor(Cursor.getDefaultCursor());
-                    }
-                });
-            } catch (Exception e) {
-                AppLogger.error("Error loading rosters: " + e.getMessage(), e);
-                SwingUtilities.invokeLater(() -> {
-                    setCursor(Cursor.getDefaultCursor());
-                    statusLabel.setText("Error loading rosters");
-                    JOptionPane.showMessageDialog(this,
-                            "Error loading rosters: " + e.getMessage(),
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
-                });
+                for (Roster roster : rosters) {
+                    Object[] row = {
+                        roster.getRosterId(),
+                        roster.getCourseCode(),
+                        roster.getLocation(),
+                        roster.getStartTime() != null ? roster.getStartTime().toString() : "-",
+                        roster.getEndTime() != null ? roster.getEndTime().toString() : "-"
+                    };
+                    tableModel.addRow(row);
+                }
+                
+                statusLabel.setText("Loaded " + rosters.size() + " rosters. Double-click a row to view sessions.");
+                AppLogger.info("Loaded " + rosters.size() + " rosters for history viewer");
+            } finally {
+                setCursor(Cursor.getDefaultCursor());
             }
-        }, "RosterLoader").start();
+        }));
     }
 
     private void loadSessionsForRoster(String rosterId) {
-        statusLabel.setText("Loading sessions...");
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-        
-        new Thread(() -> {
-            try {
-                // Find the roster
-                Roster roster = rosterRepository.findById(rosterId);
+        int load = beginLoad("Loading sessions...");
+        // The roster and the sessions don't depend on each other, so fetch them together
+        CompletableFuture<Roster> rosterLoad = track(rosterRepository.query("findById:" + rosterId,
+                repo -> repo.findById(rosterId)));
+        CompletableFuture<List<Session>> sessionsLoad = track(sessionRepository.query("findAll",
+                SessionRepositoryInstance::findAll));
+
+        rosterLoad.thenAcceptBoth(sessionsLoad, (roster, allSessions) -> { })
+            .whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+                if (!isCurrentLoad(load, error, "sessions")) {
+                    return;
+                }
+                Roster roster = rosterLoad.join();
                 if (roster == null) {
-                    SwingUtilities.invokeLater(() -> {
-                        setCursor(Cursor.getDefaultCursor());
-                        JOptionPane.showMessageDialog(this,
-                                "Roster not found: " + rosterId,
-                                "Error",
-                                JOptionPane.ERROR_MESSAGE);
-                    });
+                    setCursor(Cursor.getDefaultCursor());
+                    JOptionPane.showMessageDialog(this,
+                            "Roster not found: " + rosterId,
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
                     return;
                 }
                 
@@ -311,138 +329,168 @@ public class AttendanceHistoryViewer extends JFrame {
                 // Since sessions don't have course code, we'll match by location or get all sessions
                 // For now, we'll get all sessions and let the user see them
                 // TODO: If sessions have course code in DB, filter by that
-                List<Session> allSessions = sessionRepository.findAll();
+                List<Session> allSessions = sessionsLoad.join();
                 List<Session> matchingSessions = allSessions.stream()
                     .filter(s -> s.getLocation() != null && s.getLocation().equals(roster.getLocation()))
                     .collect(Collectors.toList());
                 
                 // If no sessions match by location, show all sessions
-                if (matchingSessions.isEmpty()) {
-                    matchingSessions = allSessions;
-                }
-                
-                final List<Session> sessionsToShow = matchingSessions;
+                List<Session> sessionsToShow = matchingSessions.isEmpty() ? allSessions : matchingSessions;
                 
-                SwingUtilities.invokeLater(() -> {
-                    try {
-                        currentLevel = ViewLevel.SESSIONS;
-                        backButton.setVisible(true); // Show back button when viewing sessions
-                        updateTableColumns(SESSION_COLUMNS);
-                        tableModel.setRowCount(0);
-                        
-                        for (Session session : sessionsToShow) {
-                            Object[] row = {
-                                session.getSessionId(),
-                                session.getName(),
-                                roster.getCourseCode(), // Use roster's course code
-                                session.getDate() != null ? session.getDate().toString() : "-",
-                                session.getStartTime() != null ? session.getStartTime().toString() : "-",
-                                session.getEndTime() != null ? session.getEndTime().toString() : "-"
-                            };
-                            tableModel.addRow(row);
-                        }
-                        
-                        statusLabel.setText("Loaded " + sessionsToShow.size() + " sessions for course " + roster.getCourseCode() + ". Double-click a row to view attendance records.");
-                        AppLogger.info("Loaded " + sessionsToShow.size() + " sessions for roster " + rosterId);
-                    } finally {
-                        setCursor(Cursor.getDefaultCursor());
+                try {
+                    currentLevel = ViewLevel.SESSIONS;
+                    backButton.setVisible(true); // Show back button when viewing sessions
+                    updateTableColumns(SESSION_COLUMNS);
+                    tableModel.setRowCount(0);
+                    
+                    for (Session session : sessionsToShow) {
+                        Object[] row = {
+                            session.getSessionId(),
+                            session.getName(),
+                            roster.getCourseCode(), // Use roster's course code
+                            session.getDate() != null ? session.getDate().toString() : "-",
+                            session.getStartTime() != null ? session.getStartTime().toString() : "-",
+                            session.getEndTime() != null ? session.getEndTime().toString() : "-"
+                        };
+                        tableModel.addRow(row);
                     }
-                });
-            } catch (Exception e) {
-                AppLogger.error("Error loading sessions: " + e.getMessage(), e);
-                SwingUtilities.invokeLater(() -> {
+                    
+                    statusLabel.setText("Loaded " + sessionsToShow.size() + " sessions for course " + roster.getCourseCode() + ". Double-click a row to view attendance records.");
+                    AppLogger.info("Loaded " + sessionsToShow.size() + " sessions for roster " + rosterId);
+                } finally {
                     setCursor(Cursor.getDefaultCursor());
-                    statusLabel.setText("Error loading sessions");
-                    JOptionPane.showMessageDialog(this,
-                            "Error loading sessions: " + e.getMessage(),
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
-                });
-            }
-        }, "SessionLoader").start();
+                }
+            }));
     }
 
     private void loadAttendanceRecordsForSession(String sessionId) {
-        statusLabel.setText("Loading attendance records...");
-        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-        
-        new Thread(() -> {
-            try {
-                Session session = sessionRepository.findById(sessionId);
+        int load = beginLoad("Loading attendance records...");
+        CompletableFuture<Session> sessionLoad = track(sessionRepository.query("findById:" + sessionId,
+                repo -> repo.findById(sessionId)));
+        CompletableFuture<List<AttendanceRecord>> recordsLoad = track(attendanceRecordRepository.query(
+                "findBySessionId:" + sessionId, repo -> repo.findBySessionId(sessionId)));
+
+        sessionLoad.thenAcceptBoth(recordsLoad, (session, records) -> { })
+            .whenComplete((ignored, error) -> SwingUtilities.invokeLater(() -> {
+                if (!isCurrentLoad(load, error, "attendance records")) {
+                    return;
+                }
+                Session session = sessionLoad.join();
                 if (session == null) {
-                    SwingUtilities.invokeLater(() -> {
-                        setCursor(Cursor.getDefaultCursor());
-                        JOptionPane.showMessageDialog(this,
-                                "Session not found: " + sessionId,
-                                "Error",
-                                JOptionPane.ERROR_MESSAGE);
-                    });
+                    setCursor(Cursor.getDefaultCursor());
+                    JOptionPane.showMessageDialog(this,
+                            "Session not found: " + sessionId,
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
                     return;
                 }
                 
                 selectedSession = session;
+                List<AttendanceRecord> records = recordsLoad.join();
                 
-                List<AttendanceRecord> records = attendanceRecordRepository.findBySessionId(sessionId);
-                
-                SwingUtilities.invokeLater(() -> {
-                    try {
-                        currentLevel = ViewLevel.ATTENDANCE_RECORDS;
-                        backButton.setVisible(true); // Show back button when viewing attendance records
-                        updateTableColumns(ATTENDANCE_COLUMNS);
-                        tableModel.setRowCount(0);
+                try {
+                    currentLevel = ViewLevel.ATTENDANCE_RECORDS;
+                    backButton.setVisible(true); // Show back button when viewing attendance records
+                    updateTableColumns(ATTENDANCE_COLUMNS);
+                    tableModel.setRowCount(0);
+                    
+                    String courseCode = selectedRoster != null ? selectedRoster.getCourseCode() : "-";
+                    
+                    for (AttendanceRecord record : records) {
+                        if (record == null || record.getStudent() == null || record.getSession() == null) {
+                            continue;
+                        }
                         
-                        String courseCode = selectedRoster != null ? selectedRoster.getCourseCode() : "-";
+                        Student student = record.getStudent();
                         
-                        for (AttendanceRecord record : records) {
-                            if (record == null || record.getStudent() == null || record.getSession() == null) {
-                                continue;
-                            }
-                            
-                            Student student = record.getStudent();
-                            
-                            String timestampStr = record.getTimestamp() != null ?
-                                    record.getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : "-";
-                            
-                            String confidenceStr = record.getConfidence() != null ?
-                                    String.format("%.1f%%", record.getConfidence() * 100) : "-";
-                            
-                            String dateStr = session.getDate() != null ?
-                                    session.getDate().toString() : "-";
-                            
-                            Object[] row = {
-                                session.getSessionId(),
-                                session.getName(),
-                                courseCode,
-                                dateStr,
-                                student.getStudentId(),
-                                student.getName(),
-                                record.getStatus().toString(),
-                                timestampStr,
-                                record.getMarkingMethod() != null ? record.getMarkingMethod().toString() : "-",
-                                confidenceStr,
-                                record.getNotes() != null ? record.getNotes() : ""
-                            };
-                            tableModel.addRow(row);
-                        }
+                        String timestampStr = record.getTimestamp() != null ?
+                                record.getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) : "-";
                         
-                        statusLabel.setText("Loaded " + records.size() + " attendance records for session " + session.getName());
-                        AppLogger.info("Loaded " + records.size() + " attendance records for session " + sessionId);
-                    } finally {
-                        setCursor(Cursor.getDefaultCursor());
+                        String confidenceStr = record.getConfidence() != null ?
+                                String.format("%.1f%%", record.getConfidence() * 100) : "-";
+                        
+                        String dateStr = session.getDate() != null ?
+                                session.getDate().toString() : "-";
+                        
+                        Object[] row = {
+                            session.getSessionId(),
+                            session.getName(),
+                            courseCode,
+                            dateStr,
+                            student.getStudentId(),
+                            student.getName(),
+                            record.getStatus().toString(),
+                            timestampStr,
+                            record.getMarkingMethod() != null ? record.getMarkingMethod().toString() : "-",
+                            confidenceStr,
+                            record.getNotes() != null ? record.getNotes() : ""
+                        };
+                        tableModel.addRow(row);
                     }
-                });
-            } catch (Exception e) {
-                AppLogger.error("Error loading attendance records: " + e.getMessage(), e);
-                SwingUtilities.invokeLater(() -> {
+                    
+                    statusLabel.setText("Loaded " + records.size() + " attendance records for session " + session.getName());
+                    AppLogger.info("Loaded " + records.size() + " attendance records for session " + sessionId);
+                } finally {
                     setCursor(Cursor.getDefaultCursor());
-                    statusLabel.setText("Error loading attendance records");
-                    JOptionPane.showMessageDialog(this,
-                            "Error loading attendance records: " + e.getMessage(),
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
-                });
-            }
-        }, "AttendanceRecordLoader").start();
+                }
+            }));
+    }
+
+    /**
+     * Starts a new load on the EDT, abandoning the queries of the one before
+     * it so a quick double-click or Back doesn't leave stale results racing in.
+     *
+     * @return the load's number, for {@link #isCurrentLoad}
+     */
+    private int beginLoad(String status) {
+        cancelPendingLoads();
+        statusLabel.setText(status);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        return ++loadGeneration;
+    }
+
+    private <T> CompletableFuture<T> track(CompletableFuture<T> query) {
+        pendingLoads.add(query);
+        return query;
+    }
+
+    private void cancelPendingLoads() {
+        for (CompletableFuture<?> query : pendingLoads) {
+            query.cancel(true);
+        }
+        pendingLoads.clear();
+    }
+
+    /**
+     * On the EDT: whether a finished load should update the table. Reports
+     * a failure the way the viewer always has; a superseded load is dropped.
+     */
+    private boolean isCurrentLoad(int load, Throwable error, String what) {
+        if (load != loadGeneration) {
+            return false;
+        }
+        pendingLoads.clear();
+        if (error == null) {
+            return true;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        setCursor(Cursor.getDefaultCursor());
+        if (cause instanceof CancellationException) {
+            return false;
+        }
+        AppLogger.error("Error loading " + what + ": " + cause.getMessage(), cause);
+        statusLabel.setText("Error loading " + what);
+        JOptionPane.showMessageDialog(this,
+                "Error loading " + what + ": " + cause.getMessage(),
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+        return false;
+    }
+
+    @Override
+    public void dispose() {
+        cancelPendingLoads();
+        super.dispose();
     }
 
     private void updateTableColumns(String[] columns) {
@@ -563,4 +611,95 @@ public class AttendanceHistoryViewer extends JFrame {
                     JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    /**
+     * Saves every attendance record as CSV, newest first. Records are read a
+     * page at a time on a repository worker and written as they arrive, so a
+     * long history is neither held in memory nor read on the EDT.
+     */
+    private void exportAllRecords() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Choose where to save your CSV file");
+        fileChooser.setSelectedFile(new File(FULL_EXPORT_TITLE + ".csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            AppLogger.info("CSV export cancelled by user.");
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        statusLabel.setText("Exporting all attendance records...");
+        attendanceRecordRepository.execute(repo -> writeAllRecords(repo, file))
+            .whenComplete((rows, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    statusLabel.setText("Export of all attendance records failed");
+                    JOptionPane.showMessageDialog(this,
+                            "Failed to export attendance records: " + error.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                report.ReportManager.addReportLog(report.ReportManager.getModifiedTitle(FULL_EXPORT_TITLE), rows);
+                statusLabel.setText("Exported " + rows + " attendance records to " + file.getName());
+                AppLogger.info("Exported " + rows + " attendance records to " + file.getAbsolutePath());
+                JOptionPane.showMessageDialog(this,
+                        "Exported " + rows + " attendance records.",
+                        "Export Complete",
+                        JOptionPane.INFORMATION_MESSAGE);
+            }));
+    }
+
+    private static int writeAllRecords(AttendanceRecordRepository repo, File file) {
+        DateTimeFormatter timestampFormat = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        int rows = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.append(String.join(",", FULL_EXPORT_COLUMNS)).append("\n");
+            AttendanceRecordPage page = null;
+            do {
+                page = repo.findPage(page, FULL_EXPORT_PAGE_SIZE);
+                if (page == null) {
+                    throw new IllegalStateException("could not read attendance records; "
+                            + rows + " were written before the error");
+                }
+                for (AttendanceRecord record : page.getRecords()) {
+                    if (record.getStudent() == null || record.getSession() == null) {
+                        continue;
+                    }
+                    Session session = record.getSession();
+                    Student student = record.getStudent();
+                    String[] fields = {
+                        session.getSessionId(),
+                        session.getName(),
+                        session.getDate() != null ? session.getDate().toString() : "",
+                        student.getStudentId(),
+                        student.getName(),
+                        record.getStatus() != null ? record.getStatus().toString() : "",
+                        record.getTimestamp() != null ? record.getTimestamp().format(timestampFormat) : "",
+                        record.getMarkingMethod() != null ? record.getMarkingMethod().toString() : "",
+                        record.getConfidence() != null ? String.format("%.1f%%", record.getConfidence() * 100) : "",
+                        record.getNotes()
+                    };
+                    for (int i = 0; i < fields.length; i++) {
+                        if (i > 0) {
+                            writer.append(',');
+                        }
+                        writer.append(csvField(fields[i]));
+                    }
+                    writer.append("\n");
+                    rows++;
+                }
+            } while (page.hasNext());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return rows;
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
 }
@@ -1,5 +1,6 @@
 package gui.attendance;
 
+import config.AppConfig;
 import config.AppLogger;
 import entity.AttendanceRecord;
 import entity.Session;
@@ -8,25 +9,47 @@ import gui.recognition.CameraPanel;
 import org.opencv.core.Mat;
 import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
-import org.opencv.videoio.VideoCapture;
 import service.attendance.AutoMarker;
+import service.camera.CameraService;
+import service.camera.CameraSources;
+import service.camera.FramePool;
 import service.detection.FaceDetector;
+import service.recognition.FaceTracker;
+import service.recognition.FrameQualityReservoir;
+import service.recognition.LatencyBudgetScheduler;
 import service.recognition.LiveRecognitionService;
 import service.student.StudentManager;
+import util.FrameContext;
+import util.MatPool;
+import util.PipelineMetrics;
 import javax.swing.*;
-import javax.swing.Timer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages camera capture, face detection, and recognition processing for
  * attendance marking.
+ *
+ * One or more cameras can cover a session. Each camera ({@link CameraChannel})
+ * has its own capture thread, frame pool, preview panel and overlay state, while
+ * detection and recognition for every camera run on one shared, bounded worker
+ * pool over the same {@link LiveRecognitionService} gallery. Marks from all
+ * cameras land in the same record map; a student seen by two cameras at once is
+ * marked only once.
+ *
+ * Per camera, a {@link LatencyBudgetScheduler} decides which frames get
+ * detection and which tracked faces get recognised right after it, against
+ * {@code recognition.latency_target_ms}.
  */
 public class AttendanceRecognitionManager {
     
@@ -37,36 +60,36 @@ public class AttendanceRecognitionManager {
         void onCameraError(String errorMessage);
     }
 
-    private static final int RECOGNITION_INTERVAL_MS = 500; // Process recognition every 500ms
     private static final int CAMERA_FPS_TARGET = 15; // Target FPS for camera display (minimum 15)
     private static final long RECOGNITION_CACHE_TIMEOUT_MS = 1000; // Recognition cache valid for 1 second
     private static final int MAX_CONSECUTIVE_FRAME_FAILURES = 30; // ~2 seconds at 15fps
-    
-    // Camera error tracking
-    private int consecutiveFrameFailures = 0;
+    private static final double TRACKING_DISTANCE_THRESHOLD = 80.0;
+    private static final int TRACK_MISS_TOLERANCE = 10;
+    // Latest slot + detection + the frame being captured, plus one spare (recognition
+    // works on reservoir crops and holds no frame)
+    private static final int FRAME_POOL_SIZE = 4;
+    // Shared detection/recognition workers; defaults to one per camera per stage, capped by CPU count
+    private static final int CONFIGURED_WORKERS = Integer.getInteger("app.attendanceWorkers", 0);
+    private static final String WORKER_QUEUE_GAUGE = "attendance.worker_queue";
+    private static final String WORKER_ACTIVE_GAUGE = "attendance.workers_active";
+    // How long stop() waits for each camera thread, then for in-flight
+    // detection/recognition, before releasing cameras
+    private static final long CAMERA_STOP_TIMEOUT_MS = 1000;
+    private static final long WORKER_SHUTDOWN_TIMEOUT_MS = 2000;
+
     private CameraErrorCallback cameraErrorCallback;
 
     private final Session session;
     private final LiveRecognitionService recognitionService;
     private final StudentManager studentManager;
     private final FaceDetector faceDetector;
-    private final FaceOverlayRenderer overlayRenderer;
-    private final CameraPanel cameraPanel;
     private final Map<String, AttendanceRecord> recordMap;
     private final AttendanceRecordSyncHandler syncHandler;
 
-    private VideoCapture capture;
-    private Timer recognitionTimer;
-    private Thread cameraThread;
-    private Mat currentFrame;
-    private final Object frameLock = new Object();
-    private final Map<String, FaceOverlayRenderer.FaceRecognitionInfo> recognitionCache;
-    private final ExecutorService detectionExecutor;
-    private final ExecutorService recognitionExecutor;
-    private final AtomicBoolean detectionTaskRunning = new AtomicBoolean(false);
-    private final AtomicBoolean recognitionTaskRunning = new AtomicBoolean(false);
-    private volatile List<Rect> latestDetectedFaces = Collections.emptyList();
-    private boolean isRunning = false;
+    private final List<CameraChannel> channels = new ArrayList<>();
+    private final AtomicInteger liveChannels = new AtomicInteger();
+    private ThreadPoolExecutor workerPool;
+    private volatile boolean isRunning = false;
 
     public AttendanceRecognitionManager(
             Session session,
@@ -76,259 +99,267 @@ public class AttendanceRecognitionManager {
             CameraPanel cameraPanel,
             Map<String, AttendanceRecord> recordMap,
             AttendanceRecordSyncHandler syncHandler) {
+        this(session, recognitionService, studentManager, faceDetector, cameraPanel, recordMap, syncHandler, null);
+    }
+
+    /**
+     * @param frameSource frames to process; {@code null} opens the source configured
+     *                    by {@code camera.source} when started. The manager releases
+     *                    the source on {@link #stop()}.
+     */
+    public AttendanceRecognitionManager(
+            Session session,
+            LiveRecognitionService recognitionService,
+            StudentManager studentManager,
+            FaceDetector faceDetector,
+            CameraPanel cameraPanel,
+            Map<String, AttendanceRecord> recordMap,
+            AttendanceRecordSyncHandler syncHandler,
+            CameraService frameSource) {
+        this(session, recognitionService, studentManager, faceDetector, recordMap, syncHandler);
+        addCamera(frameSource, cameraPanel);
+    }
+
+    /**
+     * Creates a manager without cameras; add them with {@link #addCamera} before
+     * {@link #start()}.
+     */
+    public AttendanceRecognitionManager(
+            Session session,
+            LiveRecognitionService recognitionService,
+            StudentManager studentManager,
+            FaceDetector faceDetector,
+            Map<String, AttendanceRecord> recordMap,
+            AttendanceRecordSyncHandler syncHandler) {
         this.session = session;
         this.recognitionService = recognitionService;
         this.studentManager = studentManager;
         this.faceDetector = faceDetector;
-        this.cameraPanel = cameraPanel;
         this.recordMap = recordMap;
         this.syncHandler = syncHandler;
-        this.recognitionCache = new ConcurrentHashMap<>();
-        this.overlayRenderer = new FaceOverlayRenderer(studentManager, recognitionCache);
-        this.detectionExecutor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "AttendanceDetectionWorker");
-            t.setDaemon(true);
-            return t;
-        });
-        this.recognitionExecutor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "AttendanceRecognitionWorker");
-            t.setDaemon(true);
-            return t;
-        });
+    }
+
+    /**
+     * Adds a camera covering this session. {@code source} may be {@code null} to
+     * open the configured default source on start. Must be called before
+     * {@link #start()}.
+     */
+    public void addCamera(CameraService source, CameraPanel panel) {
+        addChannel(new CameraChannel(channels.size(), source, null, panel));
+    }
+
+    /**
+     * Adds a camera by {@link CameraSources} spec (e.g. {@code camera:1},
+     * {@code video:clips/hall.mp4}); the source is opened on start.
+     */
+    public void addCamera(String sourceSpec, CameraPanel panel) {
+        addChannel(new CameraChannel(channels.size(), null, sourceSpec, panel));
+    }
+
+    private void addChannel(CameraChannel channel) {
+        if (isRunning) {
+            throw new IllegalStateException("Cameras must be added before the manager is started");
+        }
+        channels.add(channel);
+    }
+
+    public int getCameraCount() {
+        return channels.size();
     }
 
     /**
      * Starts camera capture and recognition processing.
      */
     public void start() {
-        // Initialize camera
-        capture = new VideoCapture(0);
-        if (!capture.isOpened()) {
+        // Open every camera; cameras that fail to open are skipped
+        List<String> failed = new ArrayList<>();
+        for (CameraChannel channel : channels) {
+            if (!channel.open()) {
+                failed.add(channel.describe());
+            }
+        }
+        liveChannels.set(0);
+        for (CameraChannel channel : channels) {
+            if (channel.isOpen()) {
+                liveChannels.incrementAndGet();
+            }
+        }
+        if (liveChannels.get() == 0) {
             JOptionPane.showMessageDialog(null, "Failed to open camera!", "Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
+        if (!failed.isEmpty()) {
+            AppLogger.warn("Attendance cameras failed to open: " + String.join(", ", failed));
+        }
 
-        // Set camera resolution for better performance
-        capture.set(org.opencv.videoio.Videoio.CAP_PROP_FRAME_WIDTH, 640);
-        capture.set(org.opencv.videoio.Videoio.CAP_PROP_FRAME_HEIGHT, 480);
+        int workers = CONFIGURED_WORKERS > 0
+                ? CONFIGURED_WORKERS
+                : Math.max(2, Math.min(Runtime.getRuntime().availableProcessors(), liveChannels.get() * 2));
+        AtomicInteger workerCounter = new AtomicInteger();
+        // Each camera has at most one detection and one recognition task in flight,
+        // so the queue only needs room for those
+        workerPool = new ThreadPoolExecutor(workers, workers, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(2, channels.size() * 2)), r -> {
+                    Thread t = new Thread(r, "AttendanceWorker-" + workerCounter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        workerPool.allowCoreThreadTimeOut(true);
+        ThreadPoolExecutor pool = workerPool;
+        PipelineMetrics.getInstance().registerGauge(WORKER_QUEUE_GAUGE, () -> pool.getQueue().size());
+        PipelineMetrics.getInstance().registerGauge(WORKER_ACTIVE_GAUGE, pool::getActiveCount);
+        AppLogger.info("Attendance recognition started with " + liveChannels.get() + " camera(s) and "
+                + workers + " shared workers");
 
         isRunning = true;
-
-        // Start camera capture thread for smooth video display at 15+ FPS
-        cameraThread = new Thread(() -> {
-            Mat frame = new Mat();
-            long lastFrameTime = System.currentTimeMillis();
-            long frameInterval = 1000 / CAMERA_FPS_TARGET; // Target frame interval in ms (66ms for 15fps)
-
-            while (isRunning && capture.isOpened()) {
-                long currentTime = System.currentTimeMillis();
-
-                // Control frame rate to maintain minimum 15 FPS
-                if (currentTime - lastFrameTime < frameInterval) {
-                    try {
-                        Thread.sleep(frameInterval - (currentTime - lastFrameTime));
-                    } catch (InterruptedException e) {
-                        break;
-                    }
-                }
-                lastFrameTime = System.currentTimeMillis();
-
-                if (capture.read(frame) && !frame.empty()) {
-                    // Reset failure counter on successful read
-                    consecutiveFrameFailures = 0;
-                    
-                    scheduleDetection(frame);
-
-                    List<Rect> facesSnapshot = latestDetectedFaces;
-                    Mat displayFrame = overlayRenderer.drawFrameWithBoxes(frame.clone(), facesSnapshot,
-                            RECOGNITION_CACHE_TIMEOUT_MS);
-
-                    synchronized (frameLock) {
-                        if (currentFrame != null) {
-                            currentFrame.release();
-                        }
-                        currentFrame = frame.clone();
-                    }
-
-                    // Display frame immediately
-                    cameraPanel.displayMat(displayFrame);
-                    displayFrame.release();
-                } else {
-                    // Failed to read frame
-                    consecutiveFrameFailures++;
-                    AppLogger.warn("Failed to read camera frame (" + consecutiveFrameFailures + "/" + MAX_CONSECUTIVE_FRAME_FAILURES + ")");
-                    
-                    if (consecutiveFrameFailures >= MAX_CONSECUTIVE_FRAME_FAILURES) {
-                        AppLogger.error("Camera failed after " + MAX_CONSECUTIVE_FRAME_FAILURES + " consecutive failures");
-                        isRunning = false;
-                        
-                        // Notify callback on EDT
-                        if (cameraErrorCallback != null) {
-                            SwingUtilities.invokeLater(() -> {
-                                cameraErrorCallback.onCameraError(
-                                    "Camera stopped responding after multiple failed frame reads.\n" +
-                                    "The camera may have been disconnected or is being used by another application.");
-                            });
-                        }
-                        break;
-                    }
-                }
+        for (CameraChannel channel : channels) {
+            if (channel.isOpen()) {
+                channel.startCapture();
             }
+        }
+    }
 
-            frame.release();
-            AppLogger.info("Camera thread stopped");
-        }, "CameraCaptureThread");
-        cameraThread.setDaemon(true);
-        cameraThread.start();
-
-        // Recognition timer - processes recognition periodically on separate thread
-        recognitionTimer = new Timer(RECOGNITION_INTERVAL_MS, e -> {
-            if (!isRunning) {
-                return;
-            }
+    /**
+     * Stops camera capture and recognition processing. Only signals the camera
+     * threads and workers to stop; waiting for them and releasing cameras,
+     * frames and recognition state happens on a background thread, so this is
+     * safe to call on the EDT.
+     * @return completes once everything has been released
+     */
+    public CompletableFuture<Void> stop() {
+        isRunning = false;
 
-            if (!recognitionTaskRunning.compareAndSet(false, true)) {
-                return;
+        // Interrupt camera threads and in-flight detection and recognition
+        List<Thread> cameraThreads = new ArrayList<>();
+        for (CameraChannel channel : channels) {
+            Thread thread = channel.stopCapture();
+            if (thread != null) {
+                cameraThreads.add(thread);
             }
+        }
+        ThreadPoolExecutor pool = workerPool;
+        workerPool = null;
+        if (pool != null) {
+            pool.shutdownNow();
+            PipelineMetrics.getInstance().removeGauge(WORKER_QUEUE_GAUGE);
+            PipelineMetrics.getInstance().removeGauge(WORKER_ACTIVE_GAUGE);
+        }
 
-            Mat frameToProcess = null;
-            List<Rect> facesSnapshot = latestDetectedFaces;
-            synchronized (frameLock) {
-                if (currentFrame != null && !currentFrame.empty()) {
-                    frameToProcess = currentFrame.clone();
+        CompletableFuture<Void> stopped = new CompletableFuture<>();
+        Thread releaser = new Thread(() -> {
+            try {
+                awaitStopped(cameraThreads, pool);
+                // Release pooled frames, recognition state and frame sources
+                for (CameraChannel channel : channels) {
+                    channel.close();
                 }
+                AppLogger.info("Native Mat pool after attendance session: " + MatPool.getInstance().snapshot());
+            } catch (RuntimeException e) {
+                AppLogger.error("Error releasing attendance cameras: " + e.getMessage(), e);
+            } finally {
+                stopped.complete(null);
             }
-
-            if (frameToProcess == null) {
-                recognitionTaskRunning.set(false);
-                return;
-            }
-
-            final Mat processingFrame = frameToProcess;
-            recognitionExecutor.submit(() -> {
-                try {
-                    List<Rect> facesForProcessing = facesSnapshot;
-                    if (facesForProcessing == null || facesForProcessing.isEmpty()) {
-                        facesForProcessing = detectFaces(processingFrame);
-                        latestDetectedFaces = facesForProcessing != null ? new ArrayList<>(facesForProcessing)
-                                : Collections.emptyList();
-                    }
-                    processRecognition(processingFrame, facesForProcessing);
-                } catch (Exception ex) {
-                    AppLogger.error("Error processing recognition: " + ex.getMessage(), ex);
-                } finally {
-                    try {
-                        processingFrame.release();
-                    } catch (Exception releaseEx) {
-                        AppLogger.warn("Failed to release processing frame: " + releaseEx.getMessage());
-                    }
-                    recognitionTaskRunning.set(false);
-                }
-            });
-        });
-        recognitionTimer.start();
+        }, "AttendanceRecognitionStop");
+        releaser.setDaemon(true);
+        releaser.start();
+        return stopped;
     }
 
     /**
-     * Stops camera capture and recognition processing.
+     * Waits for the camera threads and in-flight detection and recognition, so
+     * their channels' frames and recognition state are not released under them.
      */
-    public void stop() {
-        isRunning = false;
-
-        // Stop camera thread
-        if (cameraThread != null && cameraThread.isAlive()) {
-            try {
-                cameraThread.interrupt();
-                cameraThread.join(1000); // Wait up to 1 second for thread to finish
-            } catch (InterruptedException e) {
-                AppLogger.warn("Interrupted while waiting for camera thread to stop");
+    private static void awaitStopped(List<Thread> cameraThreads, ThreadPoolExecutor pool) {
+        try {
+            for (Thread thread : cameraThreads) {
+                thread.join(CAMERA_STOP_TIMEOUT_MS);
+                if (thread.isAlive()) {
+                    AppLogger.warn(thread.getName() + " still running " + CAMERA_STOP_TIMEOUT_MS
+                            + " ms after stop");
+                }
             }
+            if (pool != null && !pool.awaitTermination(WORKER_SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                AppLogger.warn("Attendance workers still busy " + WORKER_SHUTDOWN_TIMEOUT_MS
+                        + " ms after stop; releasing cameras anyway");
+            }
+        } catch (InterruptedException e) {
+            AppLogger.warn("Interrupted while waiting for attendance threads to stop");
+            Thread.currentThread().interrupt();
         }
+    }
 
-        if (recognitionTimer != null) {
-            recognitionTimer.stop();
-            recognitionTimer = null;
+    private boolean submitWork(Runnable task) {
+        ThreadPoolExecutor pool = workerPool;
+        if (pool == null || !isRunning) {
+            return false;
         }
-
-        recognitionTaskRunning.set(false);
-        detectionTaskRunning.set(false);
-        detectionExecutor.shutdownNow();
-        recognitionExecutor.shutdownNow();
-
-        // Release frame resources
-        synchronized (frameLock) {
-            if (currentFrame != null) {
-                currentFrame.release();
-                currentFrame = null;
-            }
+        try {
+            pool.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            PipelineMetrics.getInstance().increment(PipelineMetrics.WORK_REJECTED);
+            return false;
         }
+    }
 
-        // Clear recognition cache
-        recognitionCache.clear();
+    private void onChannelFailed(CameraChannel channel) {
+        int remaining = liveChannels.decrementAndGet();
+        if (remaining > 0) {
+            AppLogger.warn(channel.describe() + " stopped; " + remaining + " camera(s) still running");
+            return;
+        }
+        isRunning = false;
 
-        if (capture != null && capture.isOpened()) {
-            capture.release();
-            capture = null;
+        // Notify callback on EDT
+        if (cameraErrorCallback != null) {
+            SwingUtilities.invokeLater(() -> {
+                cameraErrorCallback.onCameraError(
+                    "Camera stopped responding after multiple failed frame reads.\n" +
+                    "The camera may have been disconnected or is being used by another application.");
+            });
         }
     }
 
     /**
-     * Processes recognition for faces in a frame and updates the recognition cache.
-     * This runs less frequently to avoid blocking the video feed.
+     * Recognises one face from a crop kept by its track's reservoir, updates
+     * the recognition cache and marks attendance. Returns {@code null} when the
+     * face was not usable.
      */
-    private void processRecognition(Mat frame, List<Rect> faces) {
+    private LiveRecognitionService.DetailedRecognitionResult recognizeFace(FrameQualityReservoir.Candidate best,
+            String recognitionKey, FaceOverlayRenderer overlayRenderer,
+            Map<String, FaceOverlayRenderer.FaceRecognitionInfo> recognitionCache) {
         try {
-            if (frame == null || frame.empty()) {
-                return; // No valid frame to process
-            }
+            Rect faceRect = best.faceRect();
 
-            if (faces == null || faces.isEmpty()) {
-                return; // No faces detected - do nothing
+            // Additional validation: face must be reasonable size (at least 50x50 pixels)
+            if (faceRect.width < 50 || faceRect.height < 50) {
+                return null;
             }
 
-            // Process each detected face for recognition
-            for (Rect faceRect : faces) {
-                // Strict validation: ensure face rectangle is valid and reasonable
-                if (faceRect == null) {
-                    continue;
-                }
+            // Recognize with detailed confidence info
+            LiveRecognitionService.DetailedRecognitionResult result =
+                    recognitionService.analyzeFaceDetailed(best, recognitionKey);
 
-                // Validate face rectangle bounds and size
-                if (faceRect.width <= 0 || faceRect.height <= 0 ||
-                        faceRect.x < 0 || faceRect.y < 0 ||
-                        faceRect.x + faceRect.width > frame.width() ||
-                        faceRect.y + faceRect.height > frame.height()) {
-                    continue;
-                }
-
-                // Additional validation: face must be reasonable size (at least 50x50 pixels)
-                if (faceRect.width < 50 || faceRect.height < 50) {
-                    continue;
-                }
-
-                // Recognize with detailed confidence info
-                LiveRecognitionService.DetailedRecognitionResult result = recognitionService.analyzeFaceDetailed(frame,
-                        faceRect, session.getSessionId());
-
-                // Only proceed if we have a valid result
-                if (result == null) {
-                    continue; // No recognition result - skip
-                }
+            // Only proceed if we have a valid result
+            if (result == null) {
+                return null;
+            }
 
-                // Get color and label based on confidence
-                Scalar boxColor = FaceOverlayRenderer.getColorForConfidence(result.getConfidence());
-                String displayLabel = overlayRenderer.getDisplayLabel(result);
+            // Get color and label based on confidence
+            Scalar boxColor = FaceOverlayRenderer.getColorForConfidence(result.getConfidence());
+            String displayLabel = overlayRenderer.getDisplayLabel(result);
 
-                // Store in recognition cache (always cache for display purposes)
-                String cacheKey = faceRect.x + "," + faceRect.y + "," + faceRect.width + "," + faceRect.height;
-                recognitionCache.put(cacheKey, new FaceOverlayRenderer.FaceRecognitionInfo(
-                        faceRect.clone(), boxColor, displayLabel));
+            // Store in recognition cache (always cache for display purposes)
+            String cacheKey = faceRect.x + "," + faceRect.y + "," + faceRect.width + "," + faceRect.height;
+            recognitionCache.put(cacheKey, new FaceOverlayRenderer.FaceRecognitionInfo(
+                    faceRect.clone(), boxColor, displayLabel));
 
-                // Process attendance marking
-                processAttendanceMarking(result, faceRect);
-            }
+            // Process attendance marking
+            processAttendanceMarking(result, faceRect);
+            return result;
         } catch (Exception e) {
             AppLogger.error("Error processing recognition: " + e.getMessage(), e);
+            return null;
         }
     }
 
@@ -369,77 +400,371 @@ public class AttendanceRecognitionManager {
             }
 
             AttendanceRecord record = recordMap.get(studentId);
-
-            if (record != null && record.getStatus() == AttendanceRecord.Status.PENDING) {
-                // Create AutoMarker with recognition result
-                Student student = studentManager.findStudentById(studentId);
-                if (student != null) {
-                    AutoMarker.RecognitionResult recResult = new AutoMarker.RecognitionResult(
-                            student, result.getConfidence(), result.isRecognized());
-                    AutoMarker autoMarker = new AutoMarker(recResult);
-
-                    if (autoMarker.markAttendance(record)) {
-                        // Sync to SessionStudent
-                        syncHandler.syncToSessionStudent(record);
-
-                        // Log that attendance was marked
-                        AppLogger.info(String.format(
-                                "Auto-marked attendance: Student=%s, Status=%s, Timestamp=%s, Method=%s, Confidence=%.2f, Recognized=%b",
-                                studentId, record.getStatus(), record.getTimestamp(), record.getMarkingMethod(),
-                                result.getConfidence(), result.isRecognized()));
-
-                        // Notify listener to update table
-                        if (onAttendanceMarked != null) {
-                            onAttendanceMarked.onMarked(studentId, record);
-                        }
-                    }
-                } else {
-                    AppLogger.warn("Student not found for ID: " + studentId);
-                }
-            } else if (record != null) {
-                // Record exists but status is not PENDING - skip silently
-                // (This is expected behavior when attendance is already marked)
-            } else {
+            if (record == null) {
                 // Record not found in map - this shouldn't happen for enrolled students
                 AppLogger.warn("AttendanceRecord not found for studentId: " + studentId);
+                return;
+            }
+
+            // Several cameras may recognise the same student at once; the first mark wins
+            synchronized (record) {
+                markIfPending(studentId, record, result);
+            }
+        }
+    }
+
+    private void markIfPending(String studentId, AttendanceRecord record,
+            LiveRecognitionService.DetailedRecognitionResult result) {
+        if (record.getStatus() != AttendanceRecord.Status.PENDING) {
+            // Record exists but status is not PENDING - skip silently
+            // (expected when attendance is already marked, possibly by another camera)
+            return;
+        }
+
+        // Create AutoMarker with recognition result
+        Student student = studentManager.findStudentCached(studentId);
+        if (student == null) {
+            AppLogger.warn("Student not found for ID: " + studentId);
+            return;
+        }
+
+        AutoMarker.RecognitionResult recResult = new AutoMarker.RecognitionResult(
+                student, result.getConfidence(), result.isRecognized());
+        AutoMarker autoMarker = new AutoMarker(recResult);
+
+        if (autoMarker.markAttendance(record)) {
+            // Sync to SessionStudent; the database write is queued, not done on this thread
+            syncHandler.syncToSessionStudent(record);
+
+            // Log that attendance was marked
+            AppLogger.info(String.format(
+                    "Auto-marked attendance: Student=%s, Status=%s, Timestamp=%s, Method=%s, Confidence=%.2f, Recognized=%b",
+                    studentId, record.getStatus(), record.getTimestamp(), record.getMarkingMethod(),
+                    result.getConfidence(), result.isRecognized()));
+
+            // Notify listener to update table
+            if (onAttendanceMarked != null) {
+                onAttendanceMarked.onMarked(studentId, record);
             }
         }
     }
 
-    private List<Rect> detectFaces(Mat frame) {
+    private List<Rect> detectFaces(FrameContext context) {
         if (faceDetector == null) {
             return new ArrayList<>();
         }
-        return faceDetector.detectFaces(frame);
+        return faceDetector.detectFaces(context);
     }
 
-    private void scheduleDetection(Mat frame) {
-        if (!detectionTaskRunning.compareAndSet(false, true)) {
-            return;
+    /**
+     * One camera covering the session: capture thread, frame pool, preview
+     * panel and per-camera overlay state. Detection and recognition tasks are
+     * submitted to the manager's shared worker pool, at most one of each in
+     * flight per camera.
+     */
+    private final class CameraChannel {
+        private final int index;
+        private final CameraService providedSource;
+        private final String sourceSpec;
+        private final CameraPanel cameraPanel;
+        private final String recognitionKeyPrefix;
+        private final FramePool framePool = new FramePool(FRAME_POOL_SIZE);
+        private final Map<String, FaceOverlayRenderer.FaceRecognitionInfo> recognitionCache = new ConcurrentHashMap<>();
+        private final FaceOverlayRenderer overlayRenderer;
+        private final AtomicBoolean detectionTaskRunning = new AtomicBoolean(false);
+        private final AtomicBoolean recognitionTaskRunning = new AtomicBoolean(false);
+        // Guarded by itself: detection updates it, recognition reads and marks tracks
+        private final FaceTracker<Void> tracker =
+                new FaceTracker<>(TRACKING_DISTANCE_THRESHOLD, TRACK_MISS_TOLERANCE);
+        private final LatencyBudgetScheduler scheduler =
+                new LatencyBudgetScheduler(AppConfig.getInstance().getRecognitionLatencyTargetMs());
+        private final FrameQualityReservoir frameReservoir = new FrameQualityReservoir();
+        private volatile List<Rect> latestDetectedFaces = Collections.emptyList();
+        private CameraService frameSource;
+        private Thread cameraThread;
+        private int consecutiveFrameFailures = 0;
+
+        private CameraChannel(int index, CameraService providedSource, String sourceSpec, CameraPanel cameraPanel) {
+            this.index = index;
+            this.providedSource = providedSource;
+            this.sourceSpec = sourceSpec;
+            this.cameraPanel = cameraPanel;
+            // Per-camera, per-track recognition history so smoothing never mixes
+            // two views or two people
+            this.recognitionKeyPrefix = session.getSessionId() + "#cam" + index + "#";
+            this.overlayRenderer = new FaceOverlayRenderer(studentManager, recognitionCache);
         }
 
-        if (frame == null || frame.empty()) {
-            detectionTaskRunning.set(false);
-            return;
+        private String recognitionKey(FaceTracker.Track<?> track) {
+            return recognitionKeyPrefix + track.id();
         }
 
-        Mat frameForDetection = frame.clone();
+        private String describe() {
+            String source = frameSource != null ? frameSource.getDescription()
+                    : sourceSpec != null ? sourceSpec : "default source";
+            return "Camera " + (index + 1) + " (" + source + ")";
+        }
 
-        detectionExecutor.submit(() -> {
-            try {
-                List<Rect> detectedFaces = detectFaces(frameForDetection);
-                latestDetectedFaces = detectedFaces != null ? new ArrayList<>(detectedFaces) : Collections.emptyList();
-            } catch (Exception ex) {
-                AppLogger.error("Error during face detection: " + ex.getMessage(), ex);
-            } finally {
+        private boolean open() {
+            if (providedSource != null) {
+                frameSource = providedSource;
+            } else if (sourceSpec != null) {
+                AppConfig config = AppConfig.getInstance();
+                frameSource = CameraSources.open(sourceSpec, config.isCameraSourceRealTime(),
+                        config.isCameraSourceLoop());
+            } else {
+                // CameraSources requests 640x480 from devices
+                frameSource = CameraSources.fromConfig();
+            }
+            if (!frameSource.isCameraAvailable()) {
+                AppLogger.error("Failed to open " + describe());
+                frameSource.release();
+                frameSource = null;
+                return false;
+            }
+            return true;
+        }
+
+        private boolean isOpen() {
+            return frameSource != null;
+        }
+
+        private void startCapture() {
+            CameraService source = frameSource;
+            PipelineMetrics metrics = PipelineMetrics.getInstance();
+            // Capture thread for smooth video display at 15+ FPS
+            cameraThread = new Thread(() -> {
+                Mat overflowFrame = new Mat();
+                long lastFrameTime = System.currentTimeMillis();
+                long frameInterval = 1000 / CAMERA_FPS_TARGET; // Target frame interval in ms (66ms for 15fps)
+                boolean failed = false;
+
+                while (isRunning && source.isCameraAvailable()) {
+                    long currentTime = System.currentTimeMillis();
+
+                    // Control frame rate to maintain minimum 15 FPS
+                    if (currentTime - lastFrameTime < frameInterval) {
+                        try {
+                            Thread.sleep(frameInterval - (currentTime - lastFrameTime));
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                    }
+                    lastFrameTime = System.currentTimeMillis();
+
+                    // Read straight into a pooled frame; if consumers still hold every
+                    // frame, read into a scratch Mat for display only and drop it
+                    FramePool.Frame pooled = framePool.acquireForWrite();
+                    Mat frame = pooled != null ? pooled.mat() : overflowFrame;
+
+                    long captureStart = System.nanoTime();
+                    if (source.readFrame(frame)) {
+                        // Reset failure counter on successful read
+                        consecutiveFrameFailures = 0;
+                        metrics.record(PipelineMetrics.Stage.CAPTURE, System.nanoTime() - captureStart);
+                        metrics.increment(PipelineMetrics.FRAMES_CAPTURED);
+
+                        List<Rect> facesSnapshot = latestDetectedFaces;
+                        Mat displayFrame = overlayRenderer.drawFrameWithBoxes(frame, facesSnapshot,
+                                RECOGNITION_CACHE_TIMEOUT_MS);
+
+                        if (pooled != null) {
+                            framePool.publish(pooled);
+                            scheduleDetection();
+                        }
+
+                        // Display frame immediately
+                        if (cameraPanel != null) {
+                            cameraPanel.displayMat(displayFrame);
+                        }
+                        displayFrame.release();
+                    } else {
+                        if (pooled != null) {
+                            pooled.close();
+                        }
+                        if (source.isEndOfStream()) {
+                            AppLogger.info("Frame source finished: " + source.getDescription());
+                            break;
+                        }
+                        // Failed to read frame
+                        consecutiveFrameFailures++;
+                        AppLogger.warn("Failed to read frame from " + describe() + " (" + consecutiveFrameFailures
+                                + "/" + MAX_CONSECUTIVE_FRAME_FAILURES + ")");
+
+                        if (consecutiveFrameFailures >= MAX_CONSECUTIVE_FRAME_FAILURES) {
+                            AppLogger.error(describe() + " failed after " + MAX_CONSECUTIVE_FRAME_FAILURES
+                                    + " consecutive failures");
+                            failed = true;
+                            break;
+                        }
+                    }
+                }
+
+                overflowFrame.release();
+                AppLogger.info("Camera thread stopped: " + describe());
+                if (failed && isRunning) {
+                    onChannelFailed(this);
+                }
+            }, "CameraCaptureThread-" + (index + 1));
+            cameraThread.setDaemon(true);
+            cameraThread.start();
+        }
+
+        /**
+         * Runs detection on the newest published frame when the scheduler wants
+         * this frame detected and no detection pass is already in flight, then
+         * hands the updated tracks to recognition.
+         */
+        private void scheduleDetection() {
+            if (!detectionTaskRunning.compareAndSet(false, true)) {
+                return;
+            }
+            if (!scheduler.shouldDetect()) {
+                detectionTaskRunning.set(false);
+                return;
+            }
+
+            boolean submitted = submitWork(() -> {
+                FramePool.Frame frameForDetection = framePool.latest();
+                long detectStart = System.nanoTime();
                 try {
-                    frameForDetection.release();
-                } catch (Exception releaseEx) {
-                    AppLogger.warn("Failed to release detection frame: " + releaseEx.getMessage());
+                    if (frameForDetection == null || frameForDetection.mat().empty()) {
+                        return;
+                    }
+                    List<Rect> detectedFaces;
+                    try (FrameContext context = new FrameContext(frameForDetection.mat())) {
+                        detectedFaces = detectFaces(context);
+                        if (detectedFaces == null) {
+                            detectedFaces = Collections.emptyList();
+                        }
+                        long detectNanos = System.nanoTime() - detectStart;
+                        scheduler.recordDetection(detectNanos);
+                        PipelineMetrics metrics = PipelineMetrics.getInstance();
+                        metrics.record(PipelineMetrics.Stage.DETECT, detectNanos);
+                        metrics.add(PipelineMetrics.FACES_DETECTED, detectedFaces.size());
+                        List<FaceTracker.Track<Void>> tracks;
+                        List<FaceTracker.Track<Void>> stale;
+                        long trackStart = System.nanoTime();
+                        synchronized (tracker) {
+                            tracks = tracker.update(detectedFaces);
+                            stale = tracker.removeStaleTracks();
+                        }
+                        metrics.record(PipelineMetrics.Stage.TRACK, System.nanoTime() - trackStart);
+                        for (int i = 0; i < tracks.size(); i++) {
+                            frameReservoir.offer(tracks.get(i).id(), context, detectedFaces.get(i));
+                        }
+                        for (FaceTracker.Track<Void> track : stale) {
+                            frameReservoir.discard(track.id());
+                            recognitionService.discardSession(recognitionKey(track));
+                        }
+                    }
+                    latestDetectedFaces = new ArrayList<>(detectedFaces);
+                } catch (Exception ex) {
+                    AppLogger.error("Error during face detection: " + ex.getMessage(), ex);
+                } finally {
+                    if (frameForDetection != null) {
+                        frameForDetection.close();
+                    }
+                    detectionTaskRunning.set(false);
                 }
+                scheduleRecognition(detectStart);
+            });
+            if (!submitted) {
                 detectionTaskRunning.set(false);
             }
-        });
+        }
+
+        /**
+         * Recognises the tracks the scheduler picks for the budget left since
+         * {@code frameStartNanos}, unless a recognition pass is already in flight.
+         */
+        private void scheduleRecognition(long frameStartNanos) {
+            if (!isOpen() || !recognitionTaskRunning.compareAndSet(false, true)) {
+                return;
+            }
+
+            List<FaceTracker.Track<Void>> selected;
+            synchronized (tracker) {
+                selected = scheduler.selectForRecognition(tracker.visibleTracks(),
+                        scheduler.remainingBudgetNanos(frameStartNanos));
+            }
+            if (selected.isEmpty()) {
+                recognitionTaskRunning.set(false);
+                return;
+            }
+
+            // Recognition uses the crops detection kept in the reservoir: the track's
+            // rect belongs to the frame it was detected on, not to the newest frame.
+            // A track with no crop left waits for the next detection pass
+            boolean submitted = submitWork(() -> {
+                try {
+                    for (FaceTracker.Track<Void> track : selected) {
+                        FrameQualityReservoir.Candidate best = frameReservoir.takeBest(track.id());
+                        if (best == null) {
+                            continue;
+                        }
+                        long recognizeStart = System.nanoTime();
+                        LiveRecognitionService.DetailedRecognitionResult result;
+                        try {
+                            result = recognizeFace(best, recognitionKey(track), overlayRenderer, recognitionCache);
+                        } finally {
+                            best.release();
+                        }
+                        scheduler.recordRecognition(System.nanoTime() - recognizeStart);
+                        synchronized (tracker) {
+                            track.markRecognized(result != null && result.isRecognized(),
+                                    result != null ? result.getConfidence() : 0.0, System.currentTimeMillis());
+                        }
+                    }
+                } catch (Exception ex) {
+                    AppLogger.error("Error processing recognition: " + ex.getMessage(), ex);
+                } finally {
+                    recognitionTaskRunning.set(false);
+                }
+            });
+            if (!submitted) {
+                recognitionTaskRunning.set(false);
+            }
+        }
+
+        /**
+         * Interrupts the capture thread and returns it, for the caller to join.
+         */
+        private Thread stopCapture() {
+            Thread thread = cameraThread;
+            cameraThread = null;
+            if (thread == null || !thread.isAlive()) {
+                return null;
+            }
+            thread.interrupt();
+            return thread;
+        }
+
+        private void close() {
+            recognitionTaskRunning.set(false);
+            detectionTaskRunning.set(false);
+
+            // Frames still held by a worker are freed when it finishes
+            if (framePool.getDroppedFrames() > 0) {
+                AppLogger.info(describe() + " dropped " + framePool.getDroppedFrames()
+                        + " frames while all pooled frames were busy");
+            }
+            framePool.close();
+
+            // Clear recognition cache and tracks
+            recognitionCache.clear();
+            synchronized (tracker) {
+                tracker.clear();
+            }
+            frameReservoir.clear();
+            scheduler.reset();
+            recognitionService.discardSessionsWithPrefix(recognitionKeyPrefix);
+
+            if (frameSource != null) {
+                frameSource.release();
+                frameSource = null;
+            }
+        }
     }
 
     // Callback interface for attendance marking events
@@ -17,6 +17,8 @@ import java.util.Map;
  */
 public class AttendanceRecordManager {
     
+    private static final long PERSIST_FLUSH_TIMEOUT_MS = 10_000;
+    
     private final Session session;
     private final AttendanceRecordRepository attendanceRecordRepository;
     private final AttendanceRecordSyncHandler syncHandler;
@@ -112,46 +114,94 @@ public class AttendanceRecordManager {
     }
     
     /**
-     * Marks all pending students as absent.
-     * @return Number of students marked as absent
+     * Marks all pending students as absent in memory, for the table to show
+     * straight away; {@link #closePendingAsAbsent} then writes them.
+     * @param closedAt Timestamp for the ABSENT records
+     * @return The records that were pending
      */
-    public int markPendingAsAbsent() {
-        LocalDateTime now = LocalDateTime.now();
-        int markedCount = 0;
+    public List<AttendanceRecord> markPendingAsAbsent(LocalDateTime closedAt) {
+        List<AttendanceRecord> marked = new ArrayList<>();
         
         for (AttendanceRecord record : attendanceRecords) {
             if (record.getStatus() == AttendanceRecord.Status.PENDING) {
                 record.setStatus(AttendanceRecord.Status.ABSENT);
-                record.setTimestamp(now);
+                record.setTimestamp(closedAt);
                 record.setMarkingMethod(AttendanceRecord.MarkingMethod.AUTOMATIC);
-                markedCount++;
-                
-                // Sync to SessionStudent
+                marked.add(record);
+            }
+        }
+        return marked;
+    }
+    
+    /**
+     * Writes the marks from {@link #markPendingAsAbsent}. The database is
+     * updated with one close-session statement; if that is not possible the
+     * marks go through the write-behind queue instead. Waits for the queue,
+     * so must not be called on the EDT.
+     * @return Number of students marked as absent
+     */
+    public int closePendingAsAbsent(List<AttendanceRecord> marked, LocalDateTime closedAt) {
+        if (marked.isEmpty()) {
+            return 0;
+        }
+        
+        // Queued marks must reach the roster first, or the close would still see those students as pending
+        int closedCount = syncHandler.flush(PERSIST_FLUSH_TIMEOUT_MS)
+                ? attendanceRecordRepository.closeSession(session.getSessionId(), closedAt)
+                : -1;
+        for (AttendanceRecord record : marked) {
+            if (closedCount >= 0) {
+                syncHandler.syncInMemory(record);
+            } else {
                 syncHandler.syncToSessionStudent(record);
             }
         }
         
-        if (markedCount > 0) {
-            AppLogger.info("Auto-marked " + markedCount + " students as ABSENT at session end");
+        if (closedCount >= 0 && closedCount != marked.size()) {
+            AppLogger.warn("Session close marked " + closedCount + " students ABSENT in the database, "
+                    + marked.size() + " were pending here");
         }
+        AppLogger.info("Auto-marked " + marked.size() + " students as ABSENT at session end");
         
-        return markedCount;
+        return marked.size();
+    }
+    
+    /**
+     * Persists all attendance records to the database, with notes as edited
+     * in the table. See {@link #persistAllRecords()}.
+     */
+    public boolean persistAllRecords(javax.swing.table.DefaultTableModel tableModel) {
+        syncNotesFromTable(tableModel);
+        return persistAllRecords();
+    }
+    
+    /**
+     * Copies the notes column of the table into the records. Call on the EDT.
+     */
+    public void syncNotesFromTable(javax.swing.table.DefaultTableModel tableModel) {
+        for (AttendanceRecord record : attendanceRecords) {
+            try {
+                syncNotesFromTable(record, tableModel);
+            } catch (Exception e) {
+                AppLogger.error("Error syncing notes for " + 
+                              record.getStudent().getStudentId() + ": " + e.getMessage(), e);
+            }
+        }
     }
     
     /**
      * Persists all attendance records to the database.
-     * Uses save or update based on whether the record already exists in the database.
+     * Every record is queued for an upsert and the queue is flushed, so the
+     * rows are in the database when this returns (or the flush timed out).
+     * Waits for the queue, so must not be called on the EDT.
+     * @return true if every record reached the database, false if some are still queued
      */
-    public void persistAllRecords(javax.swing.table.DefaultTableModel tableModel) {
-        int savedCount = 0;
-        int updatedCount = 0;
+    public boolean persistAllRecords() {
+        int queuedCount = 0;
         int errorCount = 0;
         
         for (AttendanceRecord record : attendanceRecords) {
             try {
-                // Ensure notes from table are synced to record before persisting
-                syncNotesFromTable(record, tableModel);
-                
                 // Log what we're about to persist
                 String notesToPersist = record.getNotes() != null ? record.getNotes() : "";
                 AppLogger.info(String.format(
@@ -161,36 +211,9 @@ public class AttendanceRecordManager {
                     notesToPersist
                 ));
                 
-                // Sync to SessionStudent before persisting
+                // Sync to SessionStudent and queue both rows
                 syncHandler.syncToSessionStudent(record);
-                
-                // Check if record already exists in database
-                AttendanceRecord existing = attendanceRecordRepository.findBySessionAndStudent(
-                    session.getSessionId(), 
-                    record.getStudent().getStudentId()
-                );
-                
-                if (existing != null) {
-                    // Update existing record
-                    boolean success = attendanceRecordRepository.update(record);
-                    if (success) {
-                        updatedCount++;
-                        AppLogger.info("Updated attendance record for " + record.getStudent().getStudentId());
-                    } else {
-                        errorCount++;
-                        AppLogger.error("Failed to update attendance record for " + record.getStudent().getStudentId());
-                    }
-                } else {
-                    // Save new record
-                    boolean success = attendanceRecordRepository.save(record);
-                    if (success) {
-                        savedCount++;
-                        AppLogger.info("Saved attendance record for " + record.getStudent().getStudentId());
-                    } else {
-                        errorCount++;
-                        AppLogger.error("Failed to save attendance record for " + record.getStudent().getStudentId());
-                    }
-                }
+                queuedCount++;
             } catch (Exception e) {
                 errorCount++;
                 AppLogger.error("Error persisting attendance record for " + 
@@ -198,10 +221,17 @@ public class AttendanceRecordManager {
             }
         }
         
+        boolean flushed = syncHandler.flush(PERSIST_FLUSH_TIMEOUT_MS);
+        if (!flushed) {
+            AppLogger.error("Attendance records still queued after " + PERSIST_FLUSH_TIMEOUT_MS
+                    + " ms; they are retried in the background");
+        }
+        
         AppLogger.info(String.format(
-            "Persisted attendance records: %d saved, %d updated, %d errors (Total: %d)",
-            savedCount, updatedCount, errorCount, attendanceRecords.size()
+            "Persisted attendance records: %d queued, %d errors, flushed: %s (Total: %d)",
+            queuedCount, errorCount, flushed, attendanceRecords.size()
         ));
+        return flushed;
     }
     
     private void syncNotesFromTable(AttendanceRecord record, javax.swing.table.DefaultTableModel tableModel) {
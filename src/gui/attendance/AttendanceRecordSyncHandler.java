@@ -4,74 +4,106 @@ import config.AppLogger;
 import entity.AttendanceRecord;
 import entity.Session;
 import entity.SessionStudent;
-import repository.SessStuRepositoryInstance;
+import service.attendance.AttendanceWriteBehind;
 
 /**
  * Handles synchronization between AttendanceRecord and SessionStudent entities.
+ * The in-memory roster is updated at once; the database rows are written by
+ * {@link AttendanceWriteBehind}.
  */
 public class AttendanceRecordSyncHandler {
     
     private final Session session;
-    private final SessStuRepositoryInstance sessStuRepository;
+    private final AttendanceWriteBehind writeBehind;
     
-    public AttendanceRecordSyncHandler(Session session, SessStuRepositoryInstance sessStuRepository) {
+    public AttendanceRecordSyncHandler(Session session, AttendanceWriteBehind writeBehind) {
         this.session = session;
-        this.sessStuRepository = sessStuRepository;
+        this.writeBehind = writeBehind;
     }
     
     /**
      * Synchronizes AttendanceRecord status and notes to the corresponding SessionStudent.
-     * Updates both the in-memory SessionStudent object and the database.
+     * Updates the in-memory SessionStudent object and queues the attendance
+     * record and SessionStudent rows for writing; see {@link #flush(long)}.
      * 
      * @param record The AttendanceRecord to sync
      */
     public void syncToSessionStudent(AttendanceRecord record) {
-        if (record == null || record.getStudent() == null || record.getSession() == null) {
-            AppLogger.warn("Cannot sync AttendanceRecord to SessionStudent: record, student, or session is null");
+        SessionStudent sessionStudent = syncInMemory(record);
+        if (sessionStudent == null) {
             return;
         }
         
         try {
-            // Find the SessionStudent in the session's roster
-            SessionStudent sessionStudent = null;
-            for (SessionStudent ss : session.getStudentRoster()) {
-                if (ss.getStudent().getStudentId().equals(record.getStudent().getStudentId())) {
-                    sessionStudent = ss;
-                    break;
-                }
-            }
-            
-            if (sessionStudent == null) {
-                AppLogger.warn("SessionStudent not found for student " + record.getStudent().getStudentId() + 
-                             " in session " + record.getSession().getSessionId());
-                return;
-            }
-            
-            // Map AttendanceRecord.Status enum to SessionStudent status string
-            String statusString = mapStatusEnumToString(record.getStatus());
-            String notes = record.getNotes() != null ? record.getNotes() : "";
-            
-            // Update SessionStudent
-            sessionStudent.setStatus(statusString);
-            sessionStudent.setNotes(notes);
-            
-            // Update in database
-            boolean success = sessStuRepository.update(sessionStudent);
-            if (success) {
-                AppLogger.info(String.format(
-                    "Synced AttendanceRecord to SessionStudent - Student: %s, Status: %s, Notes: '%s'",
-                    record.getStudent().getStudentId(), statusString, notes
-                ));
-            } else {
-                AppLogger.error("Failed to update SessionStudent in database for student " + 
-                              record.getStudent().getStudentId());
-            }
-            
+            // Queue both rows for the database; this does not block on JDBC
+            writeBehind.enqueue(record, sessionStudent);
+            AppLogger.info(String.format(
+                "Queued AttendanceRecord sync - Student: %s, Status: %s, Notes: '%s'",
+                record.getStudent().getStudentId(), sessionStudent.getStatus(), sessionStudent.getNotes()
+            ));
         } catch (Exception e) {
             AppLogger.error("Error syncing AttendanceRecord to SessionStudent: " + e.getMessage(), e);
         }
     }
     
+    /**
+     * Copies AttendanceRecord status and notes to the in-memory SessionStudent
+     * only, for changes that were already written to the database in bulk.
+     * 
+     * @param record The AttendanceRecord to sync
+     * @return The updated SessionStudent, or null if it was not found
+     */
+    public SessionStudent syncInMemory(AttendanceRecord record) {
+        if (record == null || record.getStudent() == null || record.getSession() == null) {
+            AppLogger.warn("Cannot sync AttendanceRecord to SessionStudent: record, student, or session is null");
+            return null;
+        }
+        
+        // Find the SessionStudent in the session's roster
+        SessionStudent sessionStudent = null;
+        for (SessionStudent ss : session.getStudentRoster()) {
+            if (ss.getStudent().getStudentId().equals(record.getStudent().getStudentId())) {
+                sessionStudent = ss;
+                break;
+            }
+        }
+        
+        if (sessionStudent == null) {
+            AppLogger.warn("SessionStudent not found for student " + record.getStudent().getStudentId() + 
+                         " in session " + record.getSession().getSessionId());
+            return null;
+        }
+        
+        // Map AttendanceRecord.Status enum to SessionStudent status string
+        sessionStudent.setStatus(mapStatusEnumToString(record.getStatus()));
+        sessionStudent.setNotes(record.getNotes() != null ? record.getNotes() : "");
+        return sessionStudent;
+    }
+    
+    /**
+     * Waits for queued writes to reach the database.
+     * 
+     * @param timeoutMs How long to wait at most
+     * @return true if nothing was left queued
+     */
+    public boolean flush(long timeoutMs) {
+        return writeBehind.flush(timeoutMs);
+    }
+    
+    /**
+     * Number of writes still queued or in flight.
+     */
+    public int pendingWrites() {
+        return writeBehind.depth();
+    }
+    
+    /**
+     * Whether queued writes are journalled and so survive a restart.
+     */
+    public boolean isJournalled() {
+        return writeBehind.isJournalled();
+    }
+    
     /**
      * Maps AttendanceRecord.Status enum to SessionStudent status string.
      * 
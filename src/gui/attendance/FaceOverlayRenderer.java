@@ -139,7 +139,7 @@ public class FaceOverlayRenderer {
         // Show result even if not "recognized" (decision.accepted() == false)
         // but has a student ID and confidence > 0
         if (result.getStudentId() != null && result.getConfidence() > 0) {
-            Student student = studentManager.findStudentById(result.getStudentId());
+            Student student = studentManager.findStudentCached(result.getStudentId());
             if (student != null) {
                 // Format: "Name (Confidence%)"
                 int confidencePercent = (int) (result.getConfidence() * 100);
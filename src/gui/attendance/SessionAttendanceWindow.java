@@ -1,12 +1,19 @@
 package gui.attendance;
 
+import config.AppConfig;
 import config.AppLogger;
+import entity.AttendanceRecord;
 import entity.Session;
+import entity.SessionStudent;
+import entity.Student;
 import gui.recognition.CameraPanel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.Timer;
 import javax.swing.border.TitledBorder;
@@ -37,9 +44,9 @@ public class SessionAttendanceWindow extends JFrame {
     private final FaceDetector faceDetector;
     private final SessionManager sessionManager;
     private final repository.AttendanceRecordRepository attendanceRecordRepository;
-    private final repository.SessStuRepositoryInstance sessStuRepository;
 
-    private CameraPanel cameraPanel;
+    private final List<String> cameraSources = AppConfig.getInstance().getCameraSources();
+    private final List<CameraPanel> cameraPanels = new ArrayList<>();
     private Timer sessionEndTimer;
 
     public SessionAttendanceWindow(Session session) {
@@ -50,16 +57,22 @@ public class SessionAttendanceWindow extends JFrame {
         this.recognitionService = new LiveRecognitionService();
         this.studentManager = new StudentManager();
         this.manualMarker = new ManualMarker();
-        this.faceDetector = new FaceDetector();
+        this.faceDetector = FaceDetector.getInstance();
         this.sessionManager = new SessionManager();
         this.attendanceRecordRepository = new repository.AttendanceRecordRepositoryInstance();
-        this.sessStuRepository = new repository.SessStuRepositoryInstance();
         // Initialize sync handler
-        this.syncHandler = new AttendanceRecordSyncHandler(session, sessStuRepository);
+        this.syncHandler = new AttendanceRecordSyncHandler(session,
+                service.attendance.AttendanceWriteBehind.getInstance());
 
         // Initialize record manager
         this.recordManager = new AttendanceRecordManager(session, attendanceRecordRepository, syncHandler);
         recordManager.initializeRecords();
+        // Recognised faces resolve their student from memory, not a query per frame
+        List<Student> roster = new ArrayList<>();
+        for (SessionStudent sessionStudent : session.getStudentRoster()) {
+            roster.add(sessionStudent.getStudent());
+        }
+        studentManager.preloadStudents(roster);
 
         // Initialize table controller
         this.tableController = new AttendanceTableController(
@@ -70,15 +83,17 @@ public class SessionAttendanceWindow extends JFrame {
         // Initialize UI
         initializeUI();
 
-        // Initialize recognition manager
+        // Initialize recognition manager; several configured sources share one gallery and worker pool
         this.recognitionManager = new AttendanceRecognitionManager(
                 session,
                 recognitionService,
                 studentManager,
                 faceDetector,
-                cameraPanel,
                 recordManager.getRecordMap(),
                 syncHandler);
+        for (int i = 0; i < cameraSources.size(); i++) {
+            recognitionManager.addCamera(cameraSources.get(i), cameraPanels.get(i));
+        }
 
         // Set up attendance marking callback
         recognitionManager.setAttendanceMarkedListener((studentId, record) -> {
@@ -90,10 +105,6 @@ public class SessionAttendanceWindow extends JFrame {
             });
         });
 
-        // Reload recognition dataset to ensure latest faces are included
-        recognitionService.reloadDataset();
-        AppLogger.info("Recognition dataset reloaded for attendance window");
-
         // Set camera error callback to handle camera failures
         recognitionManager.setCameraErrorCallback(errorMessage -> {
             SwingUtilities.invokeLater(() -> {
@@ -126,16 +137,22 @@ public class SessionAttendanceWindow extends JFrame {
             }
         });
 
-        // Camera panel on top
-        cameraPanel = new CameraPanel();
-        cameraPanel.setPreferredSize(new Dimension(640, 480));
-        cameraPanel.setBorder(BorderFactory.createTitledBorder(
-                BorderFactory.createLineBorder(Color.GRAY),
-                "Live Camera Feed",
-                TitledBorder.CENTER,
-                TitledBorder.TOP,
-                new Font("SansSerif", Font.BOLD, 14)));
-        add(cameraPanel, BorderLayout.NORTH);
+        // Camera panel(s) on top, side by side when several cameras cover the session
+        int cameraCount = cameraSources.size();
+        JPanel cameraGrid = new JPanel(new GridLayout(1, cameraCount, 5, 0));
+        for (int i = 0; i < cameraCount; i++) {
+            CameraPanel cameraPanel = new CameraPanel();
+            cameraPanel.setPreferredSize(new Dimension(cameraCount > 1 ? 1200 / cameraCount : 640, 480));
+            cameraPanel.setBorder(BorderFactory.createTitledBorder(
+                    BorderFactory.createLineBorder(Color.GRAY),
+                    cameraCount > 1 ? "Camera " + (i + 1) : "Live Camera Feed",
+                    TitledBorder.CENTER,
+                    TitledBorder.TOP,
+                    new Font("SansSerif", Font.BOLD, 14)));
+            cameraPanels.add(cameraPanel);
+            cameraGrid.add(cameraPanel);
+        }
+        add(cameraGrid, BorderLayout.NORTH);
 
         // Attendance table at bottom
         JPanel tablePanel = new JPanel(new BorderLayout());
@@ -177,22 +194,48 @@ public class SessionAttendanceWindow extends JFrame {
     }
 
     private void markPendingAsAbsent() {
-        int markedCount = recordManager.markPendingAsAbsent();
-
-        if (markedCount > 0) {
+        LocalDateTime closedAt = LocalDateTime.now();
+        List<AttendanceRecord> marked = recordManager.markPendingAsAbsent(closedAt);
+        if (!marked.isEmpty()) {
             tableController.refreshTable(recordManager.getAttendanceRecords());
+        }
+        recordManager.syncNotesFromTable(tableController.getTableModel());
 
-            // Persist all attendance records to database
-            recordManager.persistAllRecords(tableController.getTableModel());
+        // Writing the marks waits on the write-behind queue, so it runs off the EDT
+        SwingWorker<Integer, Void> closeWorker = new SwingWorker<Integer, Void>() {
+            private boolean saved;
 
-            JOptionPane.showMessageDialog(this,
-                    markedCount + " students marked as ABSENT (session ended).",
-                    "Session Ended",
-                    JOptionPane.INFORMATION_MESSAGE);
-        } else {
-            // Even if no one was marked absent, persist all records
-            recordManager.persistAllRecords(tableController.getTableModel());
-        }
+            @Override
+            protected Integer doInBackground() {
+                int markedCount = recordManager.closePendingAsAbsent(marked, closedAt);
+                // Persist all attendance records to database, even if no one was marked absent
+                saved = recordManager.persistAllRecords();
+                return markedCount;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    int markedCount = get();
+                    if (markedCount > 0) {
+                        JOptionPane.showMessageDialog(SessionAttendanceWindow.this,
+                                markedCount + " students marked as ABSENT (session ended).",
+                                "Session Ended",
+                                JOptionPane.INFORMATION_MESSAGE);
+                    }
+                    if (!saved) {
+                        showUnsavedMarksWarning("Session ended, but ");
+                    }
+                } catch (Exception e) {
+                    AppLogger.error("Error saving attendance at session end: " + e.getMessage(), e);
+                    JOptionPane.showMessageDialog(SessionAttendanceWindow.this,
+                            "Error saving attendance at session end: " + e.getMessage(),
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        closeWorker.execute();
     }
 
     private void closeWindow() {
@@ -204,8 +247,9 @@ public class SessionAttendanceWindow extends JFrame {
                 JOptionPane.QUESTION_MESSAGE);
 
         if (choice == JOptionPane.YES_OPTION) {
-            // Stop recognition manager
-            recognitionManager.stop();
+            // Stop recognition; shared models go back to the registry once the
+            // cameras and workers have been released in the background
+            recognitionManager.stop().whenComplete((ignored, error) -> recognitionService.release());
 
             // Stop session end timer
             if (sessionEndTimer != null) {
@@ -220,40 +264,74 @@ public class SessionAttendanceWindow extends JFrame {
                         "Session is already closed.",
                         "Session Already Closed",
                         JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                // Close the session
-                try {
-                    // Persist all attendance records before closing session
-                    recordManager.persistAllRecords(tableController.getTableModel());
+                disposeWindow();
+                return;
+            }
 
+            // Notes are read from the table here; saving waits on the write-behind
+            // queue and closing the session is a database update, so both run off the EDT
+            recordManager.syncNotesFromTable(tableController.getTableModel());
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            SwingWorker<Boolean, Void> closeWorker = new SwingWorker<Boolean, Void>() {
+                @Override
+                protected Boolean doInBackground() {
+                    // Persist all attendance records before closing session
+                    boolean saved = recordManager.persistAllRecords();
                     sessionManager.closeSession(session);
                     AppLogger.info("Session " + session.getSessionId() + " closed from attendance window");
-                    JOptionPane.showMessageDialog(
-                            this,
-                            "Session closed successfully. All attendance records have been saved.",
-                            "Session Closed",
-                            JOptionPane.INFORMATION_MESSAGE);
-                } catch (Exception e) {
-                    AppLogger.error("Error closing session: " + e.getMessage(), e);
-                    JOptionPane.showMessageDialog(
-                            this,
-                            "Error closing session: " + e.getMessage(),
-                            "Error",
-                            JOptionPane.ERROR_MESSAGE);
+                    return saved;
                 }
-            }
 
-            // Always close the window, regardless of session close status
-            // Use invokeLater to ensure it happens after dialogs are dismissed
-            SwingUtilities.invokeLater(() -> {
-                try {
-                    setVisible(false);
-                    dispose();
-                    AppLogger.info("Attendance window closed");
-                } catch (Exception e) {
-                    AppLogger.error("Error disposing window: " + e.getMessage(), e);
+                @Override
+                protected void done() {
+                    setCursor(Cursor.getDefaultCursor());
+                    try {
+                        if (get()) {
+                            JOptionPane.showMessageDialog(
+                                    SessionAttendanceWindow.this,
+                                    "Session closed successfully. All attendance records have been saved.",
+                                    "Session Closed",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                        } else {
+                            showUnsavedMarksWarning("Session closed, but ");
+                        }
+                    } catch (Exception e) {
+                        AppLogger.error("Error closing session: " + e.getMessage(), e);
+                        JOptionPane.showMessageDialog(
+                                SessionAttendanceWindow.this,
+                                "Error closing session: " + e.getMessage(),
+                                "Error",
+                                JOptionPane.ERROR_MESSAGE);
+                    }
+                    // Always close the window, regardless of session close status
+                    disposeWindow();
                 }
-            });
+            };
+            closeWorker.execute();
         }
     }
+
+    private void showUnsavedMarksWarning(String lead) {
+        int pending = syncHandler.pendingWrites();
+        String notSaved = lead + pending + " attendance mark(s) could not be written to the database yet.\n";
+        String message = syncHandler.isJournalled()
+                ? notSaved + "They are saved on this computer and will be written automatically once the database "
+                        + "is reachable again, including after a restart."
+                : notSaved + "They are only held in memory: keep the application open until the database is "
+                        + "reachable again, or they will be lost.";
+        JOptionPane.showMessageDialog(this, message, "Attendance Not Yet Saved", JOptionPane.WARNING_MESSAGE);
+    }
+
+    private void disposeWindow() {
+        // Use invokeLater to ensure it happens after dialogs are dismissed
+        SwingUtilities.invokeLater(() -> {
+            try {
+                setVisible(false);
+                dispose();
+                AppLogger.info("Attendance window closed");
+            } catch (Exception e) {
+                AppLogger.error("Error disposing window: " + e.getMessage(), e);
+            }
+        });
+    }
 }
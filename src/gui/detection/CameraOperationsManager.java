@@ -3,8 +3,6 @@ package gui.detection;
 import config.AppLogger;
 import entity.Student;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -12,6 +10,7 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import gui.recognition.FrameRenderer;
 import javax.swing.*;
 import model.FaceCaptureResult;
 import org.opencv.core.Mat;
@@ -48,6 +47,12 @@ public class CameraOperationsManager {
     private static final int DETECTION_INTERVAL = 5;
     private FaceDetectionService.FaceDetectionResult lastDetectionResult = null;
 
+    // Preview rendering: frames are copied into reusable buffers, repaints coalesced
+    private final FrameRenderer frameRenderer = new FrameRenderer(this::renderPreview);
+    private volatile FaceDetectionService.FaceDetectionResult detectionForUi = null;
+    private Icon frameIcon;
+    private JLabel frameIconHost;
+
     // Capture state
     private Student currentStudent;
     private int targetImages;
@@ -144,6 +149,8 @@ public class CameraOperationsManager {
         });
 
         lastDetectionResult = null;
+        detectionForUi = null;
+        frameRenderer.clear();
         AppLogger.info("Preview scheduler stopped");
     }
 
@@ -176,12 +183,8 @@ public class CameraOperationsManager {
                     ? faceDetectionService.drawFaceOverlay(frame, lastDetectionResult)
                     : frame.clone();
 
-            BufferedImage bufferedImage = matToBufferedImage(displayFrame);
-            FaceDetectionService.FaceDetectionResult detectionForUi = lastDetectionResult;
-
-            if (bufferedImage != null) {
-                SwingUtilities.invokeLater(() -> renderPreview(bufferedImage, detectionForUi));
-            }
+            detectionForUi = lastDetectionResult;
+            frameRenderer.render(displayFrame);
         } catch (Exception e) {
             AppLogger.error("Preview update failed: " + e.getMessage(), e);
         } finally {
@@ -194,22 +197,24 @@ public class CameraOperationsManager {
         }
     }
 
-    private void renderPreview(BufferedImage bufferedImage, FaceDetectionService.FaceDetectionResult detectionResult) {
+    private void renderPreview() {
         if (!previewActive.get()) {
             return;
         }
 
-        if (videoLabel != null && bufferedImage != null) {
-            int displayWidth = videoLabel.getWidth();
-            int displayHeight = videoLabel.getHeight();
-            Image imageToShow;
-            if (displayWidth > 0 && displayHeight > 0) {
-                imageToShow = bufferedImage.getScaledInstance(displayWidth, displayHeight, Image.SCALE_FAST);
+        FaceDetectionService.FaceDetectionResult detectionResult = detectionForUi;
+        if (videoLabel != null && frameRenderer.hasFrame()) {
+            // The icon paints the renderer's front buffer stretched to the label
+            if (frameIconHost != videoLabel) {
+                frameIcon = frameRenderer.asIcon(videoLabel);
+                frameIconHost = videoLabel;
+            }
+            if (videoLabel.getIcon() != frameIcon) {
+                videoLabel.setIcon(frameIcon);
+                videoLabel.setText("");
             } else {
-                imageToShow = bufferedImage;
+                videoLabel.repaint();
             }
-            videoLabel.setIcon(new ImageIcon(imageToShow));
-            videoLabel.setText("");
         }
 
         if (!isCapturing && detectionResult != null && qualityLabel != null) {
@@ -414,27 +419,6 @@ public class CameraOperationsManager {
         return "<html>" + escaped + "</html>";
     }
 
-    /**
-     * Convert OpenCV Mat to BufferedImage
-     */
-    private BufferedImage matToBufferedImage(Mat mat) {
-        try {
-            if (mat.empty()) return null;
-
-            int type = mat.channels() == 1 ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_3BYTE_BGR;
-            byte[] buffer = new byte[(int) (mat.total() * mat.elemSize())];
-            mat.get(0, 0, buffer);
-
-            BufferedImage image = new BufferedImage(mat.cols(), mat.rows(), type);
-            final byte[] targetPixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
-            System.arraycopy(buffer, 0, targetPixels, 0, buffer.length);
-            return image;
-        } catch (Exception e) {
-            AppLogger.error("Mat to BufferedImage conversion failed: " + e.getMessage(), e);
-            return null;
-        }
-    }
-
     // ===== GETTERS =====
 
     public boolean isCapturing() { return isCapturing; }
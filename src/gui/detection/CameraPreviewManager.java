@@ -2,8 +2,7 @@ package gui.detection;
 
 import config.AppLogger;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
+import gui.recognition.FrameRenderer;
 import javax.swing.*;
 import org.opencv.core.Mat;
 import service.detection.FaceDetection;
@@ -24,6 +23,11 @@ public class CameraPreviewManager {
     private static final int CAPTURE_DETECTION_INTERVAL = 8;
     private FaceDetection.FaceDetectionResult lastDetectionResult = null;
     private long lastDetectionTimestampMs = 0L;
+    // Preview rendering: frames are copied into reusable buffers, repaints coalesced
+    private final FrameRenderer frameRenderer = new FrameRenderer(this::renderPreview);
+    private volatile FaceDetection.FaceDetectionResult detectionForUi = null;
+    private Icon frameIcon;
+    private JLabel frameIconHost;
     private JLabel videoLabel;
     private JLabel statusLabel;
     private JLabel qualityLabel;
@@ -89,6 +93,8 @@ public class CameraPreviewManager {
         });
 
         lastDetectionResult = null;
+        detectionForUi = null;
+        frameRenderer.clear();
         AppLogger.info("Preview scheduler stopped");
     }
 
@@ -117,17 +123,15 @@ public class CameraPreviewManager {
                 lastDetectionTimestampMs = System.currentTimeMillis();
             }
 
-            FaceDetection.FaceDetectionResult detectionForUi =
+            FaceDetection.FaceDetectionResult freshDetection =
                     (lastDetectionResult != null && isDetectionFresh()) ? lastDetectionResult : null;
 
-            displayFrame = (detectionForUi != null)
-                    ? faceDetection.drawFaceOverlay(frame, detectionForUi)
+            displayFrame = (freshDetection != null)
+                    ? faceDetection.drawFaceOverlay(frame, freshDetection)
                     : frame.clone();
 
-            BufferedImage bufferedImage = matToBufferedImage(displayFrame);
-            if (bufferedImage != null) {
-                SwingUtilities.invokeLater(() -> renderPreview(bufferedImage, detectionForUi));
-            }
+            detectionForUi = freshDetection;
+            frameRenderer.render(displayFrame);
         } catch (Exception e) {
             AppLogger.error("Preview update failed: " + e.getMessage(), e);
         } finally {
@@ -140,22 +144,24 @@ public class CameraPreviewManager {
         }
     }
 
-    private void renderPreview(BufferedImage bufferedImage, FaceDetection.FaceDetectionResult detectionResult) {
+    private void renderPreview() {
         if (!previewActive.get()) {
             return;
         }
 
-        if (videoLabel != null && bufferedImage != null) {
-            int displayWidth = videoLabel.getWidth();
-            int displayHeight = videoLabel.getHeight();
-            Image imageToShow;
-            if (displayWidth > 0 && displayHeight > 0) {
-                imageToShow = bufferedImage.getScaledInstance(displayWidth, displayHeight, Image.SCALE_FAST);
+        FaceDetection.FaceDetectionResult detectionResult = detectionForUi;
+        if (videoLabel != null && frameRenderer.hasFrame()) {
+            // The icon paints the renderer's front buffer stretched to the label
+            if (frameIconHost != videoLabel) {
+                frameIcon = frameRenderer.asIcon(videoLabel);
+                frameIconHost = videoLabel;
+            }
+            if (videoLabel.getIcon() != frameIcon) {
+                videoLabel.setIcon(frameIcon);
+                videoLabel.setText("");
             } else {
-                imageToShow = bufferedImage;
+                videoLabel.repaint();
             }
-            videoLabel.setIcon(new ImageIcon(imageToShow));
-            videoLabel.setText("");
         }
 
         if (!isCapturing && detectionResult != null) {
@@ -188,35 +194,6 @@ public class CameraPreviewManager {
         }
     }
 
-    private BufferedImage matToBufferedImage(Mat mat) {
-        try {
-            if (mat.empty()) {
-                System.err.println(" Cannot convert empty Mat to BufferedImage");
-                return null;
-            }
-            int type;
-            int channels = mat.channels();
-            if (channels == 1) {
-                type = BufferedImage.TYPE_BYTE_GRAY;
-            } else if (channels == 3) {
-                type = BufferedImage.TYPE_3BYTE_BGR;
-            } else {
-                System.err.println(" Unsupported number of channels: " + channels);
-                return null;
-            }
-            byte[] buffer = new byte[(int) (mat.total() * mat.elemSize())];
-            mat.get(0, 0, buffer);
-            BufferedImage image = new BufferedImage(mat.cols(), mat.rows(), type);
-            final byte[] targetPixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
-            System.arraycopy(buffer, 0, targetPixels, 0, buffer.length);
-            return image;
-        } catch (Exception e) {
-            System.err.println(" Mat to BufferedImage conversion failed: " + e.getMessage());
-            e.printStackTrace();
-            return null;
-        }
-    }
-
     private boolean isDetectionFresh() {
         if (lastDetectionTimestampMs <= 0) {
             return false;
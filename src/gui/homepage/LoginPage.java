@@ -91,6 +91,8 @@ public class LoginPage extends JFrame{
     }
 
     public static void main(String[] args) {
+        // Replay attendance marks journalled by an earlier run that never reached the database
+        service.attendance.AttendanceWriteBehind.startInBackground();
         SwingUtilities.invokeLater(new Runnable(){
             @Override
             public void run(){
@@ -9,6 +9,7 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import javax.swing.border.Border;
+import service.recognition.RecognitionWarmup;
 import service.session.SessionManager;
 import gui.FullScreenUtil;
 import service.roster.RosterManager;
@@ -130,6 +131,10 @@ public class MainDashboard extends JFrame {
                 // Touch ModuleLoader to trigger static initialization and collect status
                 String status = ModuleLoader.getModuleStatusSummary();
                 AppLogger.info("Module preload summary:\n" + status);
+                if (ModuleLoader.isOpenCVLoaded()) {
+                    // Load detector, ArcFace and gallery in the background so the first frame is fast
+                    RecognitionWarmup.start();
+                }
             } catch (Throwable t) {
                 AppLogger.error("Module preload failed: " + t.getMessage(), t);
             }
@@ -183,7 +188,7 @@ public class MainDashboard extends JFrame {
             
             final boolean[] windowFound = {false};
             final int[] checkCount = {0};
-            final int MAX_CHECKS = 50; // 5 seconds max (50 * 100ms)
+            final int MAX_CHECKS = 150; // 15 seconds max (150 * 100ms), covers waiting on model warm-up
             
             // Create a timer to detect when the recognition window appears and attach our listener
             Timer findWindowTimer = new Timer(100, null);
@@ -213,7 +218,7 @@ public class MainDashboard extends JFrame {
                 // If window not found after max checks, assume error and show dashboard
                 if (!windowFound[0] && checkCount[0] >= MAX_CHECKS) {
                     findWindowTimer.stop();
-                    AppLogger.warn("Recognition window did not appear after 5 seconds - returning to dashboard");
+                    AppLogger.warn("Recognition window did not appear after 15 seconds - returning to dashboard");
                     MainDashboard.this.setVisible(true);
                 }
             });
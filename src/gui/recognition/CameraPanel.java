@@ -1,16 +1,13 @@
 package gui.recognition;
 
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import javax.swing.*;
 import org.opencv.core.Mat;
-import org.opencv.highgui.HighGui;
 
-// Assuming HighGui.toBufferedImage is available (common in modern OpenCV)
 public class CameraPanel extends JPanel {
 
-    // The image that will be drawn onto the panel
-    private BufferedImage image; 
+    // Double-buffered image the camera thread writes into and paintComponent draws
+    private final FrameRenderer renderer = new FrameRenderer(this::repaint);
     
     // --- CONSTRUCTOR ---
     public CameraPanel() {
@@ -20,8 +17,9 @@ public class CameraPanel extends JPanel {
     }
 
     /**
-     * Converts an OpenCV Mat frame into a BufferedImage and requests a repaint.
-     * This method is called from the camera thread (startCameraLoop).
+     * Copies an OpenCV Mat frame into the panel's back buffer and requests a repaint.
+     * This method is called from the camera thread (startCameraLoop). The Mat is
+     * not retained, so the caller may release or reuse it immediately.
      * * @param mat The frame captured from the webcam.
      */
     public void displayMat(Mat mat) {
@@ -29,15 +27,8 @@ public class CameraPanel extends JPanel {
             return;
         }
 
-        // Convert the Mat to a BufferedImage using OpenCV's utility.
-        // NOTE: This utility often requires the Mat to be BGR, which your camera frame 'frame' is.
-    image = (BufferedImage) HighGui.toBufferedImage(mat);
-
-        // Schedule a repaint call on the Event Dispatch Thread (EDT) 
-        // as all Swing drawing must happen on the EDT.
-        if (image != null) {
-            SwingUtilities.invokeLater(this::repaint);
-        }
+        // Repaints are coalesced on the EDT by the renderer
+        renderer.render(mat);
     }
 
     /**
@@ -47,19 +38,21 @@ public class CameraPanel extends JPanel {
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         
-        if (image != null) {
+        int imageWidth = renderer.getFrameWidth();
+        int imageHeight = renderer.getFrameHeight();
+        if (imageWidth > 0 && imageHeight > 0) {
             // Calculate scale to fit the image into the panel while maintaining aspect ratio
-            double scaleX = (double) getWidth() / image.getWidth();
-            double scaleY = (double) getHeight() / image.getHeight();
+            double scaleX = (double) getWidth() / imageWidth;
+            double scaleY = (double) getHeight() / imageHeight;
             double scale = Math.min(scaleX, scaleY);
             
-            int width = (int) (scale * image.getWidth());
-            int height = (int) (scale * image.getHeight());
+            int width = (int) (scale * imageWidth);
+            int height = (int) (scale * imageHeight);
             int x = (getWidth() - width) / 2;
             int y = (getHeight() - height) / 2;
 
             // Draw the image
-            g.drawImage(image, x, y, width, height, this);
+            renderer.paint(g, x, y, width, height, this);
         } else {
             // Draw placeholder text if no frame has been received yet
             g.setColor(Color.WHITE);
@@ -67,10 +60,3 @@ public class CameraPanel extends JPanel {
         }
     }
 }
-
-
-
-
-
-
-
@@ -0,0 +1,162 @@
+package gui.recognition;
+
+import config.AppLogger;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.Icon;
+import javax.swing.SwingUtilities;
+import org.opencv.core.Mat;
+
+/**
+ * Double-buffered Mat to Swing renderer.
+ *
+ * The camera thread copies each frame's bytes straight into the raster of a
+ * preallocated {@code TYPE_3BYTE_BGR} (or {@code TYPE_BYTE_GRAY}) image and
+ * swaps it to the front; the EDT always paints the front image. Buffers are
+ * only reallocated when the frame size or channel count changes, and at most
+ * one repaint is queued on the EDT at a time, so a slow EDT coalesces frames
+ * instead of accumulating {@code invokeLater} calls.
+ */
+public final class FrameRenderer {
+
+    private final Runnable onFrameReady;
+    private final AtomicBoolean repaintPending = new AtomicBoolean(false);
+    private final Object swapLock = new Object();
+
+    private BufferedImage front;
+    private BufferedImage back;
+
+    /**
+     * @param onFrameReady run on the EDT after a new frame is swapped in
+     *                     (typically the owning component's {@code repaint})
+     */
+    public FrameRenderer(Runnable onFrameReady) {
+        this.onFrameReady = onFrameReady;
+    }
+
+    /**
+     * Copies {@code mat} into the back buffer and schedules a repaint. Safe to
+     * call from any thread; the Mat is not retained.
+     *
+     * @return false if the Mat is empty or has an unsupported channel count
+     */
+    public boolean render(Mat mat) {
+        if (mat == null || mat.empty()) {
+            return false;
+        }
+
+        int imageType;
+        switch (mat.channels()) {
+            case 1:
+                imageType = BufferedImage.TYPE_BYTE_GRAY;
+                break;
+            case 3:
+                imageType = BufferedImage.TYPE_3BYTE_BGR;
+                break;
+            default:
+                AppLogger.warn("FrameRenderer: unsupported channel count " + mat.channels());
+                return false;
+        }
+
+        BufferedImage target;
+        synchronized (swapLock) {
+            target = back;
+            back = null;
+        }
+        if (target == null || target.getWidth() != mat.cols() || target.getHeight() != mat.rows()
+                || target.getType() != imageType) {
+            target = new BufferedImage(mat.cols(), mat.rows(), imageType);
+        }
+
+        byte[] pixels = ((DataBufferByte) target.getRaster().getDataBuffer()).getData();
+        if (mat.isContinuous()) {
+            mat.get(0, 0, pixels);
+        } else {
+            Mat continuous = mat.clone();
+            continuous.get(0, 0, pixels);
+            continuous.release();
+        }
+
+        synchronized (swapLock) {
+            back = front;
+            front = target;
+        }
+
+        if (repaintPending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(() -> {
+                repaintPending.set(false);
+                onFrameReady.run();
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Paints the newest frame scaled into the given rectangle. Holds the swap
+     * lock so the producer cannot recycle the image mid-paint. Returns false if
+     * no frame has been rendered yet.
+     */
+    public boolean paint(Graphics g, int x, int y, int width, int height, Component observer) {
+        synchronized (swapLock) {
+            if (front == null) {
+                return false;
+            }
+            g.drawImage(front, x, y, width, height, observer);
+            return true;
+        }
+    }
+
+    public int getFrameWidth() {
+        synchronized (swapLock) {
+            return front != null ? front.getWidth() : 0;
+        }
+    }
+
+    public int getFrameHeight() {
+        synchronized (swapLock) {
+            return front != null ? front.getHeight() : 0;
+        }
+    }
+
+    public boolean hasFrame() {
+        synchronized (swapLock) {
+            return front != null;
+        }
+    }
+
+    /**
+     * Drops both buffers; the next {@link #render} reallocates them.
+     */
+    public void clear() {
+        synchronized (swapLock) {
+            front = null;
+            back = null;
+        }
+    }
+
+    /**
+     * An {@link Icon} that paints the newest frame stretched to the size of
+     * {@code host}, for components such as {@code JLabel} that display icons.
+     */
+    public Icon asIcon(Component host) {
+        return new Icon() {
+            @Override
+            public void paintIcon(Component c, Graphics g, int x, int y) {
+                paint(g, x, y, getIconWidth(), getIconHeight(), c);
+            }
+
+            @Override
+            public int getIconWidth() {
+                return host.getWidth() > 0 ? host.getWidth() : getFrameWidth();
+            }
+
+            @Override
+            public int getIconHeight() {
+                return host.getHeight() > 0 ? host.getHeight() : getFrameHeight();
+            }
+        };
+    }
+}
@@ -6,34 +6,31 @@ import config.IConfigChangeListener;
 import gui.config.FaceCropSettingsPanel;
 import java.awt.BorderLayout;
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
-import javax.swing.SwingUtilities;
-import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Point;
 import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
-import org.opencv.core.Size;
-import org.opencv.dnn.Dnn;
-import org.opencv.dnn.Net;
 import org.opencv.imgproc.Imgproc;
-import org.opencv.videoio.VideoCapture;
+import service.camera.CameraService;
+import service.camera.CameraSources;
+import service.detection.FaceDetector;
+import service.recognition.FaceTracker;
+import service.recognition.FrameQualityReservoir;
+import service.recognition.LatencyBudgetScheduler;
 import service.recognition.LiveRecognitionService;
 import service.recognition.LiveRecognitionService.RecognitionOutcome;
+import service.recognition.RecognitionWarmup;
+import util.FrameContext;
+import util.PipelineMetrics;
 
 /**
  * Swing UI that renders the live recognition feed and delegates recognition
  * logic to {@link LiveRecognitionService}.
  */
 public class LiveRecognitionViewer extends JFrame implements IConfigChangeListener {
-    private static final Size DNN_INPUT_SIZE = new Size(300, 300);
-    private static final Scalar DNN_MEAN_SUBTRACTION = new Scalar(104.0, 117.0, 123.0);
     private static final double MIN_ASPECT_RATIO = 0.7;
     private static final double TRACKING_DISTANCE_THRESHOLD = 80.0;
     private static final int TRACK_MISS_TOLERANCE = 10;
@@ -45,15 +42,17 @@ public class LiveRecognitionViewer extends JFrame implements IConfigChangeListen
         Math.min(260, AppConfig.getInstance().getDetectionMinSize()));
     private volatile int minRecognitionWidthPx = Math.max(minDetectionSizePx,
         Math.max(32, Math.min(260, AppConfig.getInstance().getRecognitionMinFaceWidthPx())));
-    private final Map<String, TrackedFace> activeTracks = new HashMap<>();
-    private int nextTrackId = 0;
+    private final FaceTracker<RecognitionOutcome> faceTracker =
+            new FaceTracker<>(TRACKING_DISTANCE_THRESHOLD, TRACK_MISS_TOLERANCE);
 
-    private VideoCapture capture;
-    private Net dnnFaceDetector;
+    private CameraService frameSource;
+    private FaceDetector faceDetector;
     private final Mat webcamFrame = new Mat();
     private volatile boolean running = true;
     private Thread recognitionThread;
-    private int frameCounter = 0;
+    private final FrameQualityReservoir frameReservoir = new FrameQualityReservoir();
+    private final LatencyBudgetScheduler scheduler =
+            new LatencyBudgetScheduler(AppConfig.getInstance().getRecognitionLatencyTargetMs());
 
     static {
         // Load OpenCV library if not already loaded
@@ -88,229 +87,37 @@ public class LiveRecognitionViewer extends JFrame implements IConfigChangeListen
         startRecognitionLoop();
     }
 
-    private List<Rect> detectFacesWithDNN(Mat frame) {
-        List<Rect> faces = new java.util.ArrayList<>();
-
-        if (dnnFaceDetector == null || frame.empty()) {
-            return faces;
-        }
-
-        try {
-            Mat blob = Dnn.blobFromImage(frame, 1.0, DNN_INPUT_SIZE, DNN_MEAN_SUBTRACTION);
-
-            dnnFaceDetector.setInput(blob);
-            Mat detections = dnnFaceDetector.forward();
-
-            Mat detectionsFloat = new Mat();
-            detections.convertTo(detectionsFloat, CvType.CV_32F);
-
-            int numDetections = (int) detectionsFloat.size(2);
-            int dims = (int) detectionsFloat.size(3);
-
-            int detectionMin = Math.max(20, minDetectionSizePx);
-
-            for (int i = 0; i < numDetections; i++) {
-                float[] detection = new float[dims];
-                detectionsFloat.get(new int[] { 0, 0, i, 0 }, detection);
-
-                float confidence = detection[2];
-                double threshold = Math.max(0.05, Math.min(0.99, dnnConfidenceThreshold));
-                if (confidence < threshold) {
-                    continue;
-                }
-
-                int x1 = (int) Math.round(detection[3] * frame.cols());
-                int y1 = (int) Math.round(detection[4] * frame.rows());
-                int x2 = (int) Math.round(detection[5] * frame.cols());
-                int y2 = (int) Math.round(detection[6] * frame.rows());
-
-                x1 = Math.max(0, Math.min(x1, frame.cols() - 1));
-                y1 = Math.max(0, Math.min(y1, frame.rows() - 1));
-                x2 = Math.max(0, Math.min(x2, frame.cols() - 1));
-                y2 = Math.max(0, Math.min(y2, frame.rows() - 1));
-
-                if (x2 <= x1 || y2 <= y1) {
-                    continue;
-                }
-
-                int width = x2 - x1;
-                int height = y2 - y1;
-
-                if (width < detectionMin || height < detectionMin) {
-                    continue;
-                }
-
-                if (width < minRecognitionWidthPx) {
-                    continue;
-                }
-
-                double aspect = (double) width / Math.max(1, height);
-                if (aspect < MIN_ASPECT_RATIO) {
-                    continue;
-                }
-
-                faces.add(new Rect(x1, y1, width, height));
-            }
-
-            blob.release();
-            detections.release();
-            detectionsFloat.release();
-
-        } catch (Exception e) {
-            AppLogger.error("DNN face detection failed: " + e.getMessage(), e);
+    private List<Rect> detectFacesWithDNN(FrameContext context) {
+        if (faceDetector == null || context.frame().empty()) {
+            return new java.util.ArrayList<>();
         }
 
-        return faces;
+        int detectionMin = Math.max(20, minDetectionSizePx);
+        double threshold = Math.max(0.05, Math.min(0.99, dnnConfidenceThreshold));
+        return faceDetector.detectRecognizableFaces(context, threshold, detectionMin,
+                minRecognitionWidthPx, MIN_ASPECT_RATIO);
     }
 
     private void initializeOpenCV() {
         try {
-            String modelConfiguration = "data/resources/opencv_face_detector.pbtxt";
-            String modelWeights = "data/resources/opencv_face_detector_uint8.pb";
-
-            if (new File(modelConfiguration).exists() && new File(modelWeights).exists()) {
-                dnnFaceDetector = Dnn.readNetFromTensorflow(modelWeights, modelConfiguration);
-                AppLogger.info("DNN face detector loaded successfully for recognition");
-            } else {
-                AppLogger.error("DNN model files not found; face detection unavailable");
-                throw new RuntimeException("Cannot find DNN model files for face detection");
-            }
+            faceDetector = FaceDetector.getInstance();
         } catch (Exception e) {
             AppLogger.error("Failed to load DNN face detector: " + e.getMessage(), e);
             throw new RuntimeException("Failed to initialize DNN face detector", e);
         }
 
-        capture = openCameraWithFallback();
-        if (!capture.isOpened()) {
-            AppLogger.error("Error opening webcam with all backends!");
-            throw new RuntimeException("Camera Initialization failed.");
-        }
-
-        configureCamera(capture);
-        AppLogger.info("Camera initialized successfully");
-    }
-
-    private VideoCapture openCameraWithFallback() {
-        // Suppress OpenCV native errors during probing - they're expected when cameras don't exist
-        AppLogger.info("Starting camera detection...");
-        
-        // Try only camera index 0 first (most common case)
-        // Use CAP_ANY to let OpenCV choose the best backend automatically
-        VideoCapture cap = new VideoCapture(0, org.opencv.videoio.Videoio.CAP_ANY);
-        
-        if (cap.isOpened()) {
-            Mat testFrame = new Mat();
-            boolean canRead = false;
-
-            try {
-                // Wait a bit for camera to initialize
-                Thread.sleep(300);
-                
-                // Try to read a test frame
-                for (int attempt = 0; attempt < 3; attempt++) {
-                    if (cap.read(testFrame) && !testFrame.empty()) {
-                        canRead = true;
-                        break;
-                    }
-                    Thread.sleep(100);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                AppLogger.warn("Camera initialization interrupted");
-            } finally {
-                testFrame.release();
-            }
-
-            if (canRead) {
-                AppLogger.info("Camera detected and working at index 0");
-                // Re-enable logging for runtime errors
-                return cap;
-            } else {
-                AppLogger.warn("Camera at index 0 opened but cannot read frames");
-                cap.release();
-            }
-        } else {
-            AppLogger.warn("No camera detected at index 0");
-            cap.release();
-        }
-        
-        // If index 0 failed, try index 1 as fallback
-        AppLogger.info("Trying camera index 1 as fallback...");
-        cap = new VideoCapture(1, org.opencv.videoio.Videoio.CAP_ANY);
-        
-        if (cap.isOpened()) {
-            Mat testFrame = new Mat();
-            boolean canRead = false;
-
-            try {
-                Thread.sleep(300);
-                for (int attempt = 0; attempt < 3; attempt++) {
-                    if (cap.read(testFrame) && !testFrame.empty()) {
-                        canRead = true;
-                        break;
-                    }
-                    Thread.sleep(100);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            } finally {
-                testFrame.release();
-            }
-
-            if (canRead) {
-                AppLogger.info("Camera detected and working at index 1");
-                return cap;
-            } else {
-                AppLogger.warn("Camera at index 1 opened but cannot read frames");
-                cap.release();
-            }
-        }
-        
-        // Re-enable logging before failing
-        AppLogger.error("No working camera found. Please check:\n" +
-            "  • Camera is connected\n" +
-            "  • Camera is not in use by another application\n" +
-            "  • Camera permissions are granted\n" +
-            "  • Camera drivers are installed");
-        return new VideoCapture();
-    }
-
-    private void configureCamera(VideoCapture cap) {
-        if (cap == null || !cap.isOpened()) {
-            AppLogger.warn("Cannot configure camera: capture is null or not opened");
-            return;
+        if (!faceDetector.isAvailable()) {
+            AppLogger.error("DNN model files not found; face detection unavailable");
+            throw new RuntimeException("Cannot find DNN model files for face detection");
         }
 
-        try {
-            boolean widthSet = cap.set(org.opencv.videoio.Videoio.CAP_PROP_FRAME_WIDTH, 640);
-            boolean heightSet = cap.set(org.opencv.videoio.Videoio.CAP_PROP_FRAME_HEIGHT, 480);
-            boolean fpsSet = cap.set(org.opencv.videoio.Videoio.CAP_PROP_FPS, 30);
-
-            boolean codecSet = cap.set(org.opencv.videoio.Videoio.CAP_PROP_FOURCC,
-                    VideoWriter_fourcc('M', 'J', 'P', 'G'));
-
-            if (!codecSet) {
-                AppLogger.info("MJPEG codec not supported, using default codec");
-            }
-
-            double actualWidth = cap.get(org.opencv.videoio.Videoio.CAP_PROP_FRAME_WIDTH);
-            double actualHeight = cap.get(org.opencv.videoio.Videoio.CAP_PROP_FRAME_HEIGHT);
-            double actualFps = cap.get(org.opencv.videoio.Videoio.CAP_PROP_FPS);
-
-            AppLogger.info(String.format("Camera configured: %.0fx%.0f @ %.0ffps (MJPEG: %s)",
-                    actualWidth, actualHeight, actualFps, codecSet ? "yes" : "no"));
-
-            if (actualWidth <= 0 || actualHeight <= 0) {
-                AppLogger.warn("Camera reported invalid resolution, configuration may have failed");
-            }
-
-        } catch (Exception e) {
-            AppLogger.warn("Camera configuration failed (non-critical): " + e.getMessage());
+        frameSource = CameraSources.fromConfig();
+        if (!frameSource.isCameraAvailable()) {
+            AppLogger.error("Error opening frame source: " + frameSource.getDescription());
+            frameSource.release();
+            throw new RuntimeException("Camera Initialization failed.");
         }
-    }
-
-    private static int VideoWriter_fourcc(char c1, char c2, char c3, char c4) {
-        return ((int) c1) | (((int) c2) << 8) | (((int) c3) << 16) | (((int) c4) << 24);
+        AppLogger.info("Camera initialized successfully");
     }
 
     private void setupFrameAndListener() {
@@ -327,48 +134,95 @@ public class LiveRecognitionViewer extends JFrame implements IConfigChangeListen
     }
 
     private void startRecognitionLoop() {
+        CameraService source = frameSource;
         recognitionThread = new Thread(() -> {
-            while (running && capture.read(webcamFrame)) {
-                frameCounter++;
-
-                int frameSkip = recognitionService.getAdaptiveFrameSkip();
-                boolean shouldProcess = (frameCounter % frameSkip == 0);
-
-                List<Rect> detectedFaces = detectFacesWithDNN(webcamFrame);
-
-                incrementTrackMissCounters();
-                Set<String> matchedTrackIds = new HashSet<>();
-
-                for (Rect rect : detectedFaces) {
-                    TrackedFace track = findOrCreateTrack(rect, matchedTrackIds);
-                    matchedTrackIds.add(track.id);
+            PipelineMetrics metrics = PipelineMetrics.getInstance();
+            while (running) {
+                long captureStart = System.nanoTime();
+                if (!source.readFrame(webcamFrame)) {
+                    break;
+                }
+                long frameStart = System.nanoTime();
+                metrics.record(PipelineMetrics.Stage.CAPTURE, frameStart - captureStart);
+                metrics.increment(PipelineMetrics.FRAMES_CAPTURED);
+
+                List<FaceTracker.Track<RecognitionOutcome>> tracks;
+                long detectionNanos = 0;
+                long recognitionNanos = 0;
+                // Detection and recognition share one set of derived images; it is
+                // released before the overlay is drawn onto the frame
+                try (FrameContext context = new FrameContext(webcamFrame)) {
+                    if (scheduler.shouldDetect()) {
+                        long detectStart = System.nanoTime();
+                        List<Rect> detectedFaces = detectFacesWithDNN(context);
+                        detectionNanos = System.nanoTime() - detectStart;
+                        scheduler.recordDetection(detectionNanos);
+                        metrics.record(PipelineMetrics.Stage.DETECT, detectionNanos);
+                        metrics.add(PipelineMetrics.FACES_DETECTED, detectedFaces.size());
+                        long trackStart = System.nanoTime();
+                        tracks = faceTracker.update(detectedFaces);
+                        metrics.record(PipelineMetrics.Stage.TRACK, System.nanoTime() - trackStart);
+                        for (FaceTracker.Track<RecognitionOutcome> track : tracks) {
+                            frameReservoir.offer(track.id(), context, track.rect());
+                        }
+                    } else {
+                        // Track-only frame: keep drawing the boxes from the last detection
+                        tracks = faceTracker.visibleTracks();
+                    }
 
-                    if (shouldProcess) {
-                        RecognitionOutcome outcome = recognitionService.analyzeFace(webcamFrame, rect, track.id);
-                        track.lastOutcome = outcome;
+                    long recognitionBudget = scheduler.remainingBudgetNanos(frameStart);
+                    for (FaceTracker.Track<RecognitionOutcome> track
+                            : scheduler.selectForRecognition(tracks, recognitionBudget)) {
+                        long recognizeStart = System.nanoTime();
+                        RecognitionOutcome outcome;
+                        FrameQualityReservoir.Candidate best = frameReservoir.takeBest(track.id());
+                        if (best != null) {
+                            outcome = recognitionService.analyzeFace(best, track.id());
+                            best.release();
+                        } else {
+                            outcome = recognitionService.analyzeFace(context, track.rect(), track.id());
+                        }
+                        long elapsed = System.nanoTime() - recognizeStart;
+                        scheduler.recordRecognition(elapsed);
+                        recognitionNanos += elapsed;
+                        track.setState(outcome);
+                        track.markRecognized(outcome != null && outcome.accepted(),
+                                outcome != null ? outcome.confidence() : 0.0, System.currentTimeMillis());
                     }
+                }
 
-                    if (track.lastOutcome == null) {
-                        track.lastOutcome = LiveRecognitionService.RecognitionOutcome.rejected();
+                for (FaceTracker.Track<RecognitionOutcome> track : tracks) {
+                    if (track.getState() == null) {
+                        track.setState(LiveRecognitionService.RecognitionOutcome.rejected());
                     }
 
-                    Scalar color = track.lastOutcome.displayColor();
+                    Rect rect = track.rect();
+                    RecognitionOutcome outcome = track.getState();
+                    Scalar color = outcome.displayColor();
                     Imgproc.rectangle(webcamFrame, new Point(rect.x, rect.y),
                             new Point(rect.x + rect.width, rect.y + rect.height),
                             color, 2);
 
-                    Imgproc.putText(webcamFrame, track.lastOutcome.displayText(),
+                    Imgproc.putText(webcamFrame, outcome.displayText(),
                             new Point(rect.x, Math.max(20, rect.y - 10)),
                             Imgproc.FONT_HERSHEY_SIMPLEX, 0.9, color, 2);
                 }
 
-                cleanupStaleTracks();
+                for (FaceTracker.Track<RecognitionOutcome> stale : faceTracker.removeStaleTracks()) {
+                    recognitionService.discardSession(stale.id());
+                    frameReservoir.discard(stale.id());
+                }
                 cameraPanel.displayMat(webcamFrame);
-                try {
-                    Thread.sleep(30);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
+
+                scheduler.recordFrameOverhead(System.nanoTime() - frameStart - detectionNanos - recognitionNanos);
+                long idleNanos = scheduler.idleNanos(frameStart);
+                if (idleNanos > 0) {
+                    try {
+                        Thread.sleep(idleNanos / 1_000_000L, (int) (idleNanos % 1_000_000L));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
                 }
             }
 
@@ -392,16 +246,17 @@ public class LiveRecognitionViewer extends JFrame implements IConfigChangeListen
             }
         }
 
-        if (capture != null && capture.isOpened()) {
-            capture.release();
+        if (frameSource != null) {
+            frameSource.release();
         }
 
         webcamFrame.release();
         recognitionService.release();
-        activeTracks.clear();
+        faceTracker.clear();
+        frameReservoir.clear();
 
         recognitionThread = null;
-        capture = null;
+        frameSource = null;
     }
 
     @Override
@@ -457,6 +312,7 @@ public class LiveRecognitionViewer extends JFrame implements IConfigChangeListen
             config.setRecognitionMinFaceWidthPx(persistedRecognitionWidth);
             config.save();
             applyConfigFromAppConfig();
+            recognitionService.reloadDataset();
             AppLogger.info("Configuration saved and runtime settings refreshed.");
         } catch (Exception e) {
             AppLogger.error("Failed to persist configuration changes: " + e.getMessage(), e);
@@ -468,7 +324,7 @@ public class LiveRecognitionViewer extends JFrame implements IConfigChangeListen
 
         AppConfig.getInstance();
 
-        SwingUtilities.invokeLater(() -> {
+        RecognitionWarmup.whenReady(() -> {
             try {
                 new LiveRecognitionViewer();
             } catch (Exception e) {
@@ -486,104 +342,5 @@ public class LiveRecognitionViewer extends JFrame implements IConfigChangeListen
         minDetectionSizePx = Math.max(20, Math.min(260, config.getDetectionMinSize()));
         int configuredRecognitionWidth = Math.max(32, Math.min(260, config.getRecognitionMinFaceWidthPx()));
         minRecognitionWidthPx = Math.max(minDetectionSizePx, configuredRecognitionWidth);
-        recognitionService.reloadDataset();
-    }
-
-    private void incrementTrackMissCounters() {
-        for (TrackedFace track : activeTracks.values()) {
-            track.framesSinceSeen++;
-        }
-    }
-
-    private TrackedFace findOrCreateTrack(Rect rect, Set<String> matchedTrackIds) {
-        TrackedFace bestMatch = null;
-        double bestDistance = Double.MAX_VALUE;
-
-        double rectCenterX = rect.x + rect.width / 2.0;
-        double rectCenterY = rect.y + rect.height / 2.0;
-
-        for (TrackedFace candidate : activeTracks.values()) {
-            if (matchedTrackIds.contains(candidate.id)) {
-                continue;
-            }
-
-            double distance = candidate.distanceTo(rectCenterX, rectCenterY);
-            double dynamicThreshold = Math.max(TRACKING_DISTANCE_THRESHOLD, candidate.averageSize() * 0.6);
-
-            if (distance < dynamicThreshold && distance < bestDistance) {
-                bestDistance = distance;
-                bestMatch = candidate;
-            }
-        }
-
-        if (bestMatch == null) {
-            bestMatch = new TrackedFace(generateTrackId(), rect);
-            activeTracks.put(bestMatch.id, bestMatch);
-        } else {
-            bestMatch.updateRect(rect);
-        }
-
-        bestMatch.framesSinceSeen = 0;
-        return bestMatch;
-    }
-
-    private void cleanupStaleTracks() {
-        Set<String> toRemove = new HashSet<>();
-        for (Map.Entry<String, TrackedFace> entry : activeTracks.entrySet()) {
-            if (entry.getValue().framesSinceSeen > TRACK_MISS_TOLERANCE) {
-                toRemove.add(entry.getKey());
-            }
-        }
-
-        for (String trackId : toRemove) {
-            activeTracks.remove(trackId);
-            recognitionService.discardSession(trackId);
-        }
-    }
-
-    private String generateTrackId() {
-        nextTrackId++;
-        return "track-" + nextTrackId;
-    }
-
-    private static final class TrackedFace {
-        private final String id;
-        private Rect lastRect;
-        private int framesSinceSeen = 0;
-        private RecognitionOutcome lastOutcome = LiveRecognitionService.RecognitionOutcome.rejected();
-
-        private TrackedFace(String id, Rect rect) {
-            this.id = id;
-            this.lastRect = new Rect(rect.x, rect.y, rect.width, rect.height);
-        }
-
-        private void updateRect(Rect rect) {
-            this.lastRect = new Rect(rect.x, rect.y, rect.width, rect.height);
-        }
-
-        private double centerX() {
-            return lastRect.x + lastRect.width / 2.0;
-        }
-
-        private double centerY() {
-            return lastRect.y + lastRect.height / 2.0;
-        }
-
-        private double distanceTo(double x, double y) {
-            double dx = centerX() - x;
-            double dy = centerY() - y;
-            return Math.hypot(dx, dy);
-        }
-
-        private double averageSize() {
-            return (lastRect.width + lastRect.height) / 2.0;
-        }
     }
 }
-
-
-
-
-
-
-
@@ -4,6 +4,7 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.GridLayout;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 
@@ -17,11 +18,13 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
 import javax.swing.table.DefaultTableModel;
 
 import entity.Roster;
+import config.AppLogger;
 import entity.RosterStudent;
 import entity.Student;
 import gui.homepage.UIComponents;
@@ -29,6 +32,8 @@ import gui.student.AddStudentDialog;
 import report.CSVGenerator;
 import report.ExcelGenerator;
 import report.PDFGenerator;
+import repository.AsyncRepository;
+import repository.RosterStuRepositoryInstance;
 import repository.StudentRepositoryInstance;
 import service.roster.RosterManager;
 
@@ -42,6 +47,7 @@ public class RosterDetailsManagement extends JDialog {
     private JTable studentTable;
     private JButton addButton, removeButton, editButton;
     private ArrayList<Student> allStudents;
+    private int refreshGeneration; // EDT only
     private JLabel courseCodeLabel, timeLabel, locationLabel;
 
     // Export buttons
@@ -52,7 +58,6 @@ public class RosterDetailsManagement extends JDialog {
         this.parent = parent;
         this.manager = manager;
         this.roster = roster;
-        this.allStudents = new StudentRepositoryInstance().findAll();
 
         setTitle("Roster Management - " + roster.getCourseCode());
         setSize(700, 550);
@@ -117,10 +122,9 @@ public class RosterDetailsManagement extends JDialog {
             addStudent();
             refreshTable();
         });
-        removeButton.addActionListener(e -> {
-            removeStudent();
-            refreshTable();
-        });
+        loadAllStudents();
+        // Refreshes once the removal has reached the database
+        removeButton.addActionListener(e -> removeStudent());
 
         // ===== Export buttons =====
         exportCSVButton = UIComponents.createAccentButton("Export CSV", ColourTheme.PRIMARY_COLOR);
@@ -143,23 +147,82 @@ public class RosterDetailsManagement extends JDialog {
         refreshTable();
     }
 
+    // Reads the roster off the EDT and fills the table when it arrives; a refresh
+    // started later wins over one still in flight
     private void refreshTable() {
-        tableModel.setRowCount(0);
-        manager.loadRosterStudent(roster);
-        for (RosterStudent rs : roster.getStudents()) {
-            Student s = rs.getStudent();
-            tableModel.addRow(new Object[]{
-                    s.getStudentId(),
-                    s.getName(),
-                    s.getPhone() != null ? s.getPhone() : "N/A"
-            });
-        }
+        int generation = ++refreshGeneration;
+        int rosterId = Integer.parseInt(roster.getRosterId());
+        new AsyncRepository<>(new RosterStuRepositoryInstance())
+            .execute(repo -> repo.findByRosterId(rosterId))
+            .whenComplete((students, error) -> SwingUtilities.invokeLater(() -> {
+                if (generation != refreshGeneration) {
+                    return;
+                }
+                if (error != null || students == null) {
+                    AppLogger.warn("Students unavailable for roster " + roster.getRosterId()
+                            + (error != null ? ": " + error.getMessage() : ""));
+                    return;
+                }
+                roster.setStudents(students);
+                tableModel.setRowCount(0);
+                for (RosterStudent rs : roster.getStudents()) {
+                    Student s = rs.getStudent();
+                    tableModel.addRow(new Object[]{
+                            s.getStudentId(),
+                            s.getName(),
+                            s.getPhone() != null ? s.getPhone() : "N/A"
+                    });
+                }
+            }));
     }
 
     private void addStudent() {
+        if (allStudents == null) {
+            // The last load failed and the retry was declined; try again now
+            loadAllStudents();
+            return;
+        }
         new AddStudentDialog(parent, manager, roster, allStudents).setVisible(true);
     }
 
+    // Fetch the students off the EDT; adding stays disabled until they arrive, and a failed load offers a retry
+    private void loadAllStudents() {
+        addButton.setEnabled(false);
+        new AsyncRepository<>(new StudentRepositoryInstance())
+            .query("loadAll", RosterDetailsManagement::loadStudents)
+            .whenComplete((students, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    AppLogger.warn("Student list unavailable for roster " + roster.getRosterId() + ": " + error.getMessage());
+                    if (!isDisplayable()) {
+                        return;
+                    }
+                    int choice = JOptionPane.showConfirmDialog(this,
+                            "Could not load the list of students, so none can be added yet.\n"
+                                    + error.getMessage() + "\n\nTry again?",
+                            "Error", JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE);
+                    if (choice == JOptionPane.YES_OPTION) {
+                        loadAllStudents();
+                    } else {
+                        addButton.setToolTipText("Student list not loaded; click to try again");
+                        addButton.setEnabled(true);
+                    }
+                    return;
+                }
+                allStudents = students;
+                addButton.setToolTipText(null);
+                addButton.setEnabled(true);
+            }));
+    }
+
+    // A failed query must reach the retry above rather than look like an empty student table
+    private static ArrayList<Student> loadStudents(StudentRepositoryInstance repo) {
+        try {
+            return repo.loadAll();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
     private void removeStudent() {
         int selectedRow = studentTable.getSelectedRow();
         if (selectedRow >= 0) {
@@ -171,17 +234,26 @@ public class RosterDetailsManagement extends JDialog {
                     .orElse(null);
 
             if (selected != null) {
-                boolean removed = manager.removeStudentFromRoster(roster, selected);
-                if (removed) {
-                    tableModel.removeRow(selectedRow);
-                    JOptionPane.showMessageDialog(this,
-                            "Student " + selected.getName() + " removed from the roster successfully.",
-                            "Success", JOptionPane.INFORMATION_MESSAGE);
-                } else {
-                    JOptionPane.showMessageDialog(this,
-                            "Failed to remove student from the roster (database error).",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                // Delete the student-roster relation off the EDT, then update the roster and table
+                removeButton.setEnabled(false);
+                new AsyncRepository<>(new RosterStuRepositoryInstance())
+                    .execute(repo -> repo.delete(new RosterStudent(roster, selected)))
+                    .whenComplete((deleted, error) -> SwingUtilities.invokeLater(() -> {
+                        removeButton.setEnabled(true);
+                        if (error == null && Boolean.TRUE.equals(deleted)) {
+                            AppLogger.info("Removed student " + selected.getName() + " from roster " + roster.getCourseCode());
+                            roster.removeStudent(selected);
+                            refreshTable();
+                            JOptionPane.showMessageDialog(this,
+                                    "Student " + selected.getName() + " removed from the roster successfully.",
+                                    "Success", JOptionPane.INFORMATION_MESSAGE);
+                        } else {
+                            AppLogger.error("Failed to remove student " + selected.getName() + " from roster " + roster.getCourseCode());
+                            JOptionPane.showMessageDialog(this,
+                                    "Failed to remove student from the roster (database error).",
+                                    "Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }));
             }
         } else {
             JOptionPane.showMessageDialog(this, "Please click on a student (row) to remove.", "No student selected", JOptionPane.WARNING_MESSAGE);
@@ -4,6 +4,7 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.GridLayout;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
 
@@ -31,6 +32,9 @@ import gui.student.AddStudentDialog;
 import report.CSVGenerator;
 import report.ExcelGenerator;
 import report.PDFGenerator;
+import repository.AsyncRepository;
+import repository.SessStuRepositoryInstance;
+import repository.SessionRepositoryInstance;
 import repository.StudentRepositoryInstance;
 import service.roster.RosterManager;
 import service.session.SessionManager;
@@ -45,6 +49,7 @@ public class SessionRosterManagement extends JDialog {
     private JTable studentTable;
     private JButton addButton, removeButton, markAttendanceButton, editButton;
     private ArrayList<Student> allStudents; // required to add students to a session
+    private int refreshGeneration; // EDT only
     private JLabel nameLabel, dateLabel, timeLabel, locationLabel;
 
     // Export buttons
@@ -55,7 +60,6 @@ public class SessionRosterManagement extends JDialog {
         this.parent = parent;
         this.manager = manager;
         this.session = session;
-        this.allStudents = new StudentRepositoryInstance().findAll();   //fetch students from db
 
         // GUI setup
         setTitle("Session Roster Management - " + session.getName());
@@ -133,7 +137,9 @@ public class SessionRosterManagement extends JDialog {
         removeButton = UIComponents.createAccentButton("Remove Student", ColourTheme.DANGER);
 
         addButton.addActionListener(e -> { addStudent(); refreshTable(); });
-        removeButton.addActionListener(e -> { removeStudent(); refreshTable(); });
+        loadAllStudents();
+        // Refreshes once the removal has reached the database
+        removeButton.addActionListener(e -> removeStudent());
 
         // ===== Export buttons =====
         exportCSVButton = UIComponents.createAccentButton("Export CSV", ColourTheme.PRIMARY_COLOR);
@@ -173,16 +179,54 @@ public class SessionRosterManagement extends JDialog {
         if (session.isActive() && !currentDate.equals(sessionDate)) {
             AppLogger.info("Auto-closing session " + session.getSessionId() + " - current date (" + 
                          currentDate + ") doesn't match session date (" + sessionDate + ")");
-            // Close the session (updates both in-memory state and database)
-            manager.closeSession(session);
-            AppLogger.info("Session " + session.getSessionId() + " has been closed due to date mismatch");
+            // Close the session in memory now, so the buttons below are set up for a
+            // closed session, and write it to the database off the EDT
+            session.close();
+            new AsyncRepository<>(new SessionRepositoryInstance())
+                .execute(repo -> repo.update(session))
+                .whenComplete((updated, error) -> {
+                    if (error != null || !Boolean.TRUE.equals(updated)) {
+                        AppLogger.warn("Could not save auto-closed session " + session.getSessionId()
+                                + (error != null ? ": " + error.getMessage() : ""));
+                    } else {
+                        AppLogger.info("Session " + session.getSessionId() + " has been closed due to date mismatch");
+                    }
+                });
         }
     }
 
     private void refreshTable() {
+        refreshTable(null);
+    }
+
+    // Reads the roster off the EDT and fills the table when it arrives; a refresh
+    // started later wins over one still in flight. andThen runs once the read is
+    // over, whether or not it succeeded, as the old roster stays usable
+    private void refreshTable(Runnable andThen) {
         AppLogger.info("Refreshing roster table");
+        int generation = ++refreshGeneration;
+        int sessionId = Integer.parseInt(session.getSessionId());
+        new AsyncRepository<>(new SessStuRepositoryInstance())
+            .execute(repo -> repo.findBySessionId(sessionId))
+            .whenComplete((roster, error) -> SwingUtilities.invokeLater(() -> {
+                if (generation == refreshGeneration) {
+                    showRoster(roster, error);
+                }
+                if (andThen != null && isDisplayable()) {
+                    andThen.run();
+                }
+            }));
+    }
+
+    private void showRoster(ArrayList<SessionStudent> roster, Throwable error) {
+        if (error != null || roster == null) {
+            AppLogger.warn("Roster unavailable for session " + session.getSessionId()
+                    + (error != null ? ": " + error.getMessage() : ""));
+            return;
+        }
+        session.setStudentRoster(roster);
+        AppLogger.info("Loaded " + roster.size() + " students into session " + session.getName());
         tableModel.setRowCount(0);
-        manager.loadSessionRoster(session);
         for (SessionStudent ss : session.getStudentRoster()) {
             Student s = ss.getStudent();
             tableModel.addRow(new Object[]{
@@ -211,11 +255,15 @@ public class SessionRosterManagement extends JDialog {
             return;
         }
         
-        // Load session roster from database
-        manager.loadSessionRoster(session);
-        
-        // Open attendance marking window
-        SwingUtilities.invokeLater(() -> {
+        // Load session roster from database, then open the attendance marking
+        // window once recognition models are warm
+        markAttendanceButton.setEnabled(false);
+        refreshTable(this::openAttendanceWindow);
+    }
+
+    private void openAttendanceWindow() {
+        markAttendanceButton.setEnabled(true);
+        service.recognition.RecognitionWarmup.whenReady(() -> {
             gui.attendance.SessionAttendanceWindow attendanceWindow = 
                 new gui.attendance.SessionAttendanceWindow(session);
             
@@ -254,9 +302,52 @@ public class SessionRosterManagement extends JDialog {
 
     // Open a GUI dialog 'AddStudentDialog' to add students from a table of existing students.
     private void addStudent() {
+        if (allStudents == null) {
+            // The last load failed and the retry was declined; try again now
+            loadAllStudents();
+            return;
+        }
         new AddStudentDialog(parent, manager, session, allStudents).setVisible(true);
     }
 
+    // Fetch the students off the EDT; adding stays disabled until they arrive, and a failed load offers a retry
+    private void loadAllStudents() {
+        addButton.setEnabled(false);
+        new AsyncRepository<>(new StudentRepositoryInstance())
+            .query("loadAll", SessionRosterManagement::loadStudents)
+            .whenComplete((students, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    AppLogger.warn("Student list unavailable for session " + session.getSessionId() + ": " + error.getMessage());
+                    if (!isDisplayable()) {
+                        return;
+                    }
+                    int choice = JOptionPane.showConfirmDialog(this,
+                            "Could not load the list of students, so none can be added yet.\n"
+                                    + error.getMessage() + "\n\nTry again?",
+                            "Error", JOptionPane.YES_NO_OPTION, JOptionPane.ERROR_MESSAGE);
+                    if (choice == JOptionPane.YES_OPTION) {
+                        loadAllStudents();
+                    } else {
+                        addButton.setToolTipText("Student list not loaded; click to try again");
+                        addButton.setEnabled(true);
+                    }
+                    return;
+                }
+                allStudents = students;
+                addButton.setToolTipText(null);
+                addButton.setEnabled(true);
+            }));
+    }
+
+    // A failed query must reach the retry above rather than look like an empty student table
+    private static ArrayList<Student> loadStudents(StudentRepositoryInstance repo) {
+        try {
+            return repo.loadAll();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
     private void removeStudent() {
         int selectedRow = studentTable.getSelectedRow();
         if (selectedRow >= 0) {
@@ -267,18 +358,26 @@ public class SessionRosterManagement extends JDialog {
                     .findFirst()
                     .orElse(null);
             if (selected != null) {
-                // Send data to SessionManager to remove student from session
-                boolean removed = manager.removeStudentFromSession(session, selected);
-                if (removed) {
-                    tableModel.removeRow(selectedRow);
-                    JOptionPane.showMessageDialog(this,
-                            "Student " + selected.getName() + " removed from the session successfully.",
-                            "Success", JOptionPane.INFORMATION_MESSAGE);
-                } else {
-                    JOptionPane.showMessageDialog(this,
-                            "Failed to remove student from the session (database error).",
-                            "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                // Delete the student-session relation off the EDT, then update the session and table
+                removeButton.setEnabled(false);
+                new AsyncRepository<>(new SessStuRepositoryInstance())
+                    .execute(repo -> repo.delete(new SessionStudent(session, selected)))
+                    .whenComplete((deleted, error) -> SwingUtilities.invokeLater(() -> {
+                        removeButton.setEnabled(true);
+                        if (error == null && Boolean.TRUE.equals(deleted)) {
+                            AppLogger.info("Removed student " + selected.getName() + " from session " + session.getName());
+                            session.removeStudent(selected);
+                            refreshTable();
+                            JOptionPane.showMessageDialog(this,
+                                    "Student " + selected.getName() + " removed from the session successfully.",
+                                    "Success", JOptionPane.INFORMATION_MESSAGE);
+                        } else {
+                            AppLogger.error("Failed to remove student " + selected.getName() + " from session " + session.getName());
+                            JOptionPane.showMessageDialog(this,
+                                    "Failed to remove student from the session (database error).",
+                                    "Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }));
             }
         } else {
             JOptionPane.showMessageDialog(this, "Please click on a student (row) to remove.", "No student selected", JOptionPane.WARNING_MESSAGE);
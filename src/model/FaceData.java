@@ -18,11 +18,10 @@ public class FaceData {
     public FaceData(String studentId, String studentName) {
         this.studentId = studentId;
         this.studentName = studentName != null ? studentName : "";
-        this.images = new ArrayList<>();
         this.isValid = false;
 
+        // Images are read from FaceFolderIndex on first use, not here
         initializeStudentFolder();
-        loadExistingImages();
     }
 
     private void initializeStudentFolder() {
@@ -36,21 +35,16 @@ public class FaceData {
         this.studentFolder = preferred;
     }
 
-    private void loadExistingImages() {
-        if (studentFolder == null) {
-            return;
-        }
-        File folder = studentFolder.toFile();
-        if (folder.exists() && folder.isDirectory()) {
-            File[] files = folder.listFiles(
-                    (dir, name) -> name.toLowerCase().endsWith(".jpg") || name.toLowerCase().endsWith(".png"));
-            if (files != null) {
-                for (File file : files) {
-                    FaceImage faceImage = new FaceImage(file.getAbsolutePath(), null);
-                    images.add(faceImage);
+    private List<FaceImage> images() {
+        if (images == null) {
+            images = new ArrayList<>();
+            if (studentFolder != null) {
+                for (String path : FaceFolderIndex.getInstance().imagesIn(studentFolder)) {
+                    images.add(new FaceImage(path, null));
                 }
             }
         }
+        return images;
     }
 
     private String buildFolderName(String id, String name) {
@@ -87,15 +81,15 @@ public class FaceData {
 
         int existingIndex = indexOfImagePath(faceImage.getImagePath());
         if (existingIndex >= 0) {
-            images.set(existingIndex, faceImage);
+            images().set(existingIndex, faceImage);
             validateImages();
             return true;
         }
 
-        if (images.size() >= 30) {
+        if (images().size() >= 30) {
             return false;
         }
-        images.add(faceImage);
+        images().add(faceImage);
         validateImages();
         return true;
     }
@@ -104,8 +98,8 @@ public class FaceData {
         if (path == null)
             return -1;
         String target = normalizePath(path);
-        for (int i = 0; i < images.size(); i++) {
-            FaceImage img = images.get(i);
+        for (int i = 0; i < images().size(); i++) {
+            FaceImage img = images().get(i);
             if (img != null && img.getImagePath() != null) {
                 if (normalizePath(img.getImagePath()).equals(target)) {
                     return i;
@@ -124,7 +118,7 @@ public class FaceData {
     }
 
     public boolean validateImages() {
-        if (images.size() >= 10) {
+        if (images().size() >= 10) {
             this.isValid = true;
         } else {
             this.isValid = false;
@@ -155,7 +149,7 @@ public class FaceData {
     }
 
     public List<FaceImage> getImages() {
-        return images;
+        return images();
     }
 
     public boolean isValid() {
@@ -163,20 +157,20 @@ public class FaceData {
     }
 
     public int getImageCount() {
-        return images.size();
+        return images().size();
     }
 
     public boolean hasImages() {
-        return images != null && !images.isEmpty();
+        return !images().isEmpty();
     }
 
     public void clearImages() {
-        images.clear();
+        images = new ArrayList<>();
         isValid = false;
     }
 
     public boolean removeImage(FaceImage image) {
-        boolean removed = images.remove(image);
+        boolean removed = images().remove(image);
         if (removed) {
             validateImages();
         }
@@ -186,7 +180,7 @@ public class FaceData {
     @Override
     public String toString() {
         return String.format("FaceData{studentId='%s', studentName='%s', folder='%s', imageCount=%d, isValid=%b}",
-                studentId, studentName, studentFolder, images.size(), isValid);
+                studentId, studentName, studentFolder, images().size(), isValid);
     }
 }
 
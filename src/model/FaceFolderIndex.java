@@ -0,0 +1,141 @@
+package model;
+
+import config.AppConfig;
+import config.AppLogger;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * FaceFolderIndex - Snapshot of the face image files under the face data
+ * storage path, keyed by student folder, so {@link FaceData} handles read
+ * their images from memory instead of listing a directory each.
+ *
+ * The whole storage root is scanned once, on the first lookup after the index
+ * was invalidated, the storage path changed or {@link #MAX_AGE_MS} passed.
+ * Code that adds, moves or deletes face images calls {@link #invalidate(Path)}
+ * (or {@link #invalidateAll()}) so the next lookup sees the change. Folders
+ * outside the storage root are listed directly.
+ */
+public final class FaceFolderIndex {
+    private static final long MAX_AGE_MS = 60_000L;
+
+    private static FaceFolderIndex instance = null;
+
+    private Path root;
+    private Map<String, List<String>> imagesByFolder;
+    private long builtAtMs;
+    private long generation;
+
+    private FaceFolderIndex() {
+    }
+
+    public static synchronized FaceFolderIndex getInstance() {
+        if (instance == null) {
+            instance = new FaceFolderIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Absolute paths of the .jpg / .png files directly inside {@code folder};
+     * empty when the folder does not exist.
+     */
+    public List<String> imagesIn(Path folder) {
+        Path normalized = folder.toAbsolutePath().normalize();
+        Path parent = normalized.getParent();
+        Path storageRoot = Paths.get(AppConfig.getInstance().getDatabaseStoragePath());
+        if (parent == null || !parent.equals(storageRoot)) {
+            return listImages(normalized);
+        }
+        synchronized (this) {
+            if (imagesByFolder == null || !storageRoot.equals(root)
+                    || System.currentTimeMillis() - builtAtMs > MAX_AGE_MS) {
+                rebuild(storageRoot);
+            }
+            List<String> images = imagesByFolder.get(normalized.getFileName().toString());
+            return images != null ? images : Collections.emptyList();
+        }
+    }
+
+    /**
+     * Drops what is known about one folder; it is listed again on next use.
+     */
+    public synchronized void invalidate(Path folder) {
+        if (folder == null) {
+            return;
+        }
+        generation++;
+        if (imagesByFolder == null) {
+            return;
+        }
+        Path normalized = folder.toAbsolutePath().normalize();
+        if (normalized.getParent() != null && normalized.getParent().equals(root)) {
+            String name = normalized.getFileName().toString();
+            List<String> images = listImages(normalized);
+            if (images.isEmpty() && !Files.isDirectory(normalized)) {
+                imagesByFolder.remove(name);
+            } else {
+                imagesByFolder.put(name, images);
+            }
+        }
+    }
+
+    /**
+     * Forces a full rescan on the next lookup.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        imagesByFolder = null;
+    }
+
+    /**
+     * Counts invalidations, so callers caching something derived from the
+     * face data (such as the recognition gallery) can tell it changed.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    private void rebuild(Path storageRoot) {
+        Map<String, List<String>> index = new HashMap<>();
+        if (Files.isDirectory(storageRoot)) {
+            try (DirectoryStream<Path> folders = Files.newDirectoryStream(storageRoot, Files::isDirectory)) {
+                for (Path folder : folders) {
+                    index.put(folder.getFileName().toString(), listImages(folder));
+                }
+            } catch (IOException e) {
+                AppLogger.warn("Failed to index face data under " + storageRoot + ": " + e.getMessage());
+            }
+        }
+        root = storageRoot;
+        imagesByFolder = index;
+        builtAtMs = System.currentTimeMillis();
+    }
+
+    private static List<String> listImages(Path folder) {
+        if (!Files.isDirectory(folder)) {
+            return Collections.emptyList();
+        }
+        List<String> images = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+                if (name.endsWith(".jpg") || name.endsWith(".png")) {
+                    images.add(file.toAbsolutePath().toString());
+                }
+            }
+        } catch (IOException e) {
+            AppLogger.warn("Failed to list face images in " + folder + ": " + e.getMessage());
+        }
+        return Collections.unmodifiableList(images);
+    }
+}
@@ -0,0 +1,210 @@
+package repository;
+
+import config.AppConfig;
+import config.AppLogger;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import util.PipelineMetrics;
+
+/**
+ * AsyncRepository - Wraps a repository so its calls run off the calling thread
+ * and return {@link CompletableFuture}s; Swing code completes them back on
+ * the EDT instead of blocking it on JDBC.
+ *
+ * All wrappers share one executor: a virtual thread per call on JVMs that
+ * have them (Java 21+), where the connection pool bounds how many calls reach
+ * the database at once; otherwise a pool of daemon threads no larger than
+ * {@code database.pool.max_size}, whose queue holds the calls beyond that. Reads
+ * issued through {@link #query} with the same key while one is in flight
+ * share its result. Cancelling a returned future detaches that caller only;
+ * the call itself is interrupted once every caller sharing it has cancelled.
+ *
+ * @param <R> the wrapped repository type
+ */
+public final class AsyncRepository<R> {
+    private static final PipelineMetrics METRICS = PipelineMetrics.getInstance();
+    private static final ExecutorService EXECUTOR = createExecutor();
+    private static final Map<String, Call<?>> IN_FLIGHT = new ConcurrentHashMap<>();
+
+    static {
+        METRICS.registerGauge("repository.async.in_flight", IN_FLIGHT::size);
+    }
+
+    private final R repository;
+    private final String name;
+
+    public AsyncRepository(R repository) {
+        this.repository = repository;
+        this.name = repository.getClass().getName();
+    }
+
+    public R getRepository() {
+        return repository;
+    }
+
+    /**
+     * Runs a read. Calls on the same repository type with an equal
+     * {@code key} share one execution while it is in flight, so the key must
+     * identify the query and its arguments, e.g. {@code "findById:" + id}.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> CompletableFuture<V> query(String key, Function<? super R, ? extends V> query) {
+        String callKey = name + "#" + key;
+        while (true) {
+            Call<V> existing = (Call<V>) IN_FLIGHT.get(callKey);
+            if (existing != null) {
+                CompletableFuture<V> shared = existing.subscribe();
+                if (shared != null) {
+                    METRICS.increment("repository.async.deduplicated");
+                    return shared;
+                }
+                // Every caller of that one cancelled; it is on its way out of the map
+                IN_FLIGHT.remove(callKey, existing);
+                continue;
+            }
+            Call<V> call = new Call<>(callKey, () -> query.apply(repository));
+            if (IN_FLIGHT.putIfAbsent(callKey, call) == null) {
+                CompletableFuture<V> result = call.subscribe();
+                call.start();
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Runs a call that is never shared, such as a write.
+     */
+    public <V> CompletableFuture<V> execute(Function<? super R, ? extends V> call) {
+        Call<V> task = new Call<>(null, () -> call.apply(repository));
+        CompletableFuture<V> result = task.subscribe();
+        task.start();
+        return result;
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Looked up reflectively so the code still builds and runs on Java 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // More platform threads than connections would only park on the pool's borrow timeout
+            int workers = AppConfig.getInstance().getDatabasePoolMaxSize();
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "RepositoryWorker-" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            METRICS.registerGauge("repository.async.queued", () -> pool.getQueue().size());
+            return pool;
+        }
+    }
+
+    private interface Body<V> {
+        V run();
+    }
+
+    /**
+     * One execution of a repository call and the callers waiting for it.
+     */
+    private static final class Call<V> {
+        private final String key;
+        private final Body<V> body;
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        // Guarded by "this"
+        private int subscribers;
+        private boolean abandoned;
+        private Future<?> running;
+
+        private Call(String key, Body<V> body) {
+            this.key = key;
+            this.body = body;
+        }
+
+        private void start() {
+            METRICS.increment("repository.async.calls");
+            Future<?> submitted = EXECUTOR.submit(() -> {
+                try {
+                    result.complete(body.run());
+                } catch (Throwable t) {
+                    if (!abandoned()) {
+                        AppLogger.error("Repository call failed: " + t.getMessage(), t);
+                    }
+                    result.completeExceptionally(t);
+                } finally {
+                    if (key != null) {
+                        IN_FLIGHT.remove(key, this);
+                    }
+                }
+            });
+            synchronized (this) {
+                running = submitted;
+                if (abandoned) {
+                    submitted.cancel(true);
+                }
+            }
+        }
+
+        /**
+         * A future for one more caller, or null if the call was abandoned.
+         */
+        private synchronized CompletableFuture<V> subscribe() {
+            if (abandoned) {
+                return null;
+            }
+            subscribers++;
+            CompletableFuture<V> caller = new CompletableFuture<>();
+            result.whenComplete((value, error) -> {
+                if (error == null) {
+                    caller.complete(value);
+                } else {
+                    caller.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                }
+            });
+            caller.whenComplete((value, error) -> {
+                if (error instanceof CancellationException && caller.isCancelled()) {
+                    unsubscribe();
+                }
+            });
+            return caller;
+        }
+
+        private void unsubscribe() {
+            Future<?> toCancel;
+            synchronized (this) {
+                subscribers--;
+                if (subscribers > 0 || result.isDone()) {
+                    return;
+                }
+                abandoned = true;
+                toCancel = running;
+            }
+            METRICS.increment("repository.async.cancelled");
+            if (key != null) {
+                IN_FLIGHT.remove(key, this);
+            }
+            // Not yet submitted: start() cancels it as soon as it is
+            if (toCancel != null) {
+                toCancel.cancel(true);
+            }
+            result.cancel(false);
+        }
+
+        private synchronized boolean abandoned() {
+            return abandoned;
+        }
+    }
+}
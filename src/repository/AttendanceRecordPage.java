@@ -0,0 +1,38 @@
+package repository;
+
+import entity.AttendanceRecord;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * AttendanceRecordPage - One page of attendance records, newest first, from
+ * {@link AttendanceRecordRepository#findPage}. Pass it back to get the next
+ * page: it remembers the (timestamp, id) of its last row, so the next query
+ * seeks past it instead of skipping an OFFSET, and pages stay cheap however
+ * deep the history goes.
+ */
+public final class AttendanceRecordPage {
+    private final List<AttendanceRecord> records;
+    private final boolean hasNext;
+    final LocalDateTime lastTimestamp;
+    final int lastId;
+
+    AttendanceRecordPage(List<AttendanceRecord> records, boolean hasNext, LocalDateTime lastTimestamp, int lastId) {
+        this.records = Collections.unmodifiableList(records);
+        this.hasNext = hasNext;
+        this.lastTimestamp = lastTimestamp;
+        this.lastId = lastId;
+    }
+
+    public List<AttendanceRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * Whether more records follow this page.
+     */
+    public boolean hasNext() {
+        return hasNext;
+    }
+}
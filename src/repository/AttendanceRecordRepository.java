@@ -1,7 +1,11 @@
 package repository;
 
 import entity.AttendanceRecord;
+import entity.SessionStudent;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for AttendanceRecord persistence operations.
@@ -36,5 +40,51 @@ public interface AttendanceRecordRepository extends Repository<AttendanceRecord>
      * @return true if successful, false otherwise
      */
     boolean update(AttendanceRecord record);
+    
+    /**
+     * Inserts or updates attendance records with multi-row statements, keyed
+     * by (student, session); the last record for a key wins. Up to 1000 rows
+     * go in one statement, which is atomic on its own; more are written in
+     * chunks inside one transaction.
+     * @param records The attendance records to write
+     * @return true if every record was written, false otherwise
+     */
+    boolean upsertAll(List<AttendanceRecord> records);
+    
+    /**
+     * Upserts attendance records like {@link #upsertAll(List)} and updates
+     * their session roster rows, all in one transaction. Unlike the other
+     * methods it throws, so a caller can tell a lost connection apart from
+     * a row the database rejects.
+     * @param records The attendance records to write
+     * @param rosterRows The session roster rows to update
+     * @throws SQLException if the transaction was rolled back
+     */
+    void writeMarks(List<AttendanceRecord> records, List<SessionStudent> rosterRows) throws SQLException;
+    
+    /**
+     * Marks every student still pending in the session roster ABSENT and
+     * writes their attendance records, in a single statement.
+     * @param sessionId The session ID
+     * @param closedAt Timestamp for the ABSENT records
+     * @return Number of students marked absent, or -1 on error
+     */
+    int closeSession(String sessionId, LocalDateTime closedAt);
+    
+    /**
+     * Streams every attendance record, newest first. Rows are read a page at a
+     * time as the stream is consumed, so memory use does not grow with the
+     * size of the history; a read error ends the stream early.
+     * @return Lazily loaded stream of attendance records
+     */
+    Stream<AttendanceRecord> streamAll();
+    
+    /**
+     * Loads the page of attendance records that follows {@code previous},
+     * newest first, by keyset rather than OFFSET.
+     * @param previous The page before, or null for the first page
+     * @param limit Maximum number of records on the page
+     * @return The page, or null on error
+     */
+    AttendanceRecordPage findPage(AttendanceRecordPage previous, int limit);
 }
-
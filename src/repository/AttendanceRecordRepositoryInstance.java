@@ -3,16 +3,43 @@ package repository;
 import config.AppLogger;
 import entity.AttendanceRecord;
 import entity.Session;
+import entity.SessionStudent;
 import entity.Student;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import util.PipelineEvents;
 
 /**
  * Implementation of AttendanceRecordRepository for database persistence.
  */
 public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepository {
     
+    // 7 parameters a row; keeps a statement well under PostgreSQL's 32767 bind parameters
+    private static final int MAX_ROWS_PER_UPSERT = 1000;
+    private static final int STREAM_PAGE_SIZE = 500;
+    
+    // Each row carries its session and student, so listing needs no query per record
+    private static final String SELECT_WITH_PARENTS =
+        "SELECT ar.id, ar.studentid, ar.sessionid, ar.status, ar.timestamp, ar.markingmethod, ar.confidence, ar.notes, " +
+        "se.id AS session_id, se.sessionname, se.sessiondate, se.starttime, se.endtime, se.location, se.active, " +
+        "st.id AS student_id, st.name AS student_name, st.email AS student_email, st.phone AS student_phone " +
+        "FROM attendancerecords ar " +
+        "LEFT JOIN sessions se ON se.id = ar.sessionid " +
+        "LEFT JOIN students st ON st.id = ar.studentid ";
+    
     @Override
     public boolean save(AttendanceRecord record) {
         if (record == null || record.getStudent() == null || record.getSession() == null) {
@@ -20,6 +47,8 @@ public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepos
             return false;
         }
         
+        PipelineEvents.AttendanceWrite event = new PipelineEvents.AttendanceWrite();
+        event.begin();
         String sql = "INSERT INTO attendancerecords " +
                      "(studentid, sessionid, status, timestamp, markingmethod, confidence, notes) " +
                      "VALUES (?, ?, ?, ?, ?, ?, ?)";
@@ -53,6 +82,7 @@ public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepos
             ps.setString(7, notes);
             
             int rowsAffected = ps.executeUpdate();
+            completeWrite(event, "insert", record, rowsAffected > 0);
             if (rowsAffected > 0) {
                 AppLogger.info(String.format(
                     "Saved attendance record for student %s in session %s - Notes: '%s'",
@@ -65,6 +95,7 @@ public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepos
             return false;
             
         } catch (SQLException e) {
+            completeWrite(event, "insert", record, false);
             AppLogger.error("Error while inserting attendance record: " + e.getMessage(), e);
             return false;
         }
@@ -77,6 +108,8 @@ public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepos
             return false;
         }
         
+        PipelineEvents.AttendanceWrite event = new PipelineEvents.AttendanceWrite();
+        event.begin();
         String sql = "UPDATE attendancerecords SET " +
                      "status = ?, timestamp = ?, markingmethod = ?, confidence = ?, notes = ? " +
                      "WHERE studentid = ? AND sessionid = ?";
@@ -110,6 +143,7 @@ public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepos
             ps.setInt(7, Integer.parseInt(record.getSession().getSessionId()));
             
             int rowsAffected = ps.executeUpdate();
+            completeWrite(event, "update", record, rowsAffected > 0);
             if (rowsAffected > 0) {
                 AppLogger.info(String.format(
                     "Updated attendance record for student %s in session %s - Notes: '%s'",
@@ -122,11 +156,194 @@ public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepos
             return false;
             
         } catch (SQLException e) {
+            completeWrite(event, "update", record, false);
             AppLogger.error("Error while updating attendance record: " + e.getMessage(), e);
             return false;
         }
     }
     
+    @Override
+    public boolean upsertAll(List<AttendanceRecord> records) {
+        List<AttendanceRecord> rows = latestPerKey(records);
+        if (rows.isEmpty()) {
+            return true;
+        }
+
+        List<PipelineEvents.AttendanceWrite> events = beginWrites(rows.size());
+        // A single statement needs no transaction of its own, and saves the COMMIT round trip
+        boolean chunked = rows.size() > MAX_ROWS_PER_UPSERT;
+        try (Connection con = DBConnection.getConnection()) {
+            if (chunked) {
+                con.setAutoCommit(false);
+            }
+            upsertRows(con, rows);
+            if (chunked) {
+                con.commit();
+            }
+            completeWrites(events, "upsert", rows, true);
+            return true;
+
+        } catch (SQLException | RuntimeException e) {
+            completeWrites(events, "upsert", rows, false);
+            AppLogger.error("Error while upserting " + rows.size() + " attendance records: " + e.getMessage(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public void writeMarks(List<AttendanceRecord> records, List<SessionStudent> rosterRows) throws SQLException {
+        List<AttendanceRecord> rows = latestPerKey(records);
+        if (rows.isEmpty() && rosterRows.isEmpty()) {
+            return;
+        }
+
+        List<PipelineEvents.AttendanceWrite> events = beginWrites(rows.size());
+        boolean written = false;
+        try (Connection con = DBConnection.getConnection()) {
+            con.setAutoCommit(false);
+            upsertRows(con, rows);
+            if (!rosterRows.isEmpty()) {
+                try (PreparedStatement ps = con.prepareStatement(
+                        "UPDATE sessionstudents SET status = ?, notes = ? WHERE sessionid = ? AND studentid = ?")) {
+                    for (SessionStudent sessStu : rosterRows) {
+                        ps.setString(1, sessStu.getStatus());
+                        ps.setString(2, sessStu.getNotes());
+                        ps.setInt(3, Integer.parseInt(sessStu.getSession().getSessionId()));
+                        ps.setString(4, sessStu.getStudent().getStudentId());
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                }
+            }
+            con.commit();
+            written = true;
+        } finally {
+            completeWrites(events, "upsert", rows, written);
+        }
+    }
+
+    /**
+     * One record per (student, session), the last one given winning: a
+     * statement may not update the same row twice.
+     */
+    private static List<AttendanceRecord> latestPerKey(List<AttendanceRecord> records) {
+        Map<String, AttendanceRecord> latest = new LinkedHashMap<>();
+        for (AttendanceRecord record : records) {
+            latest.put(record.getSession().getSessionId() + "|" + record.getStudent().getStudentId(), record);
+        }
+        return new ArrayList<>(latest.values());
+    }
+
+    private static void upsertRows(Connection con, List<AttendanceRecord> rows) throws SQLException {
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_UPSERT) {
+            List<AttendanceRecord> chunk = rows.subList(from, Math.min(rows.size(), from + MAX_ROWS_PER_UPSERT));
+            try (PreparedStatement ps = con.prepareStatement(upsertSql(chunk.size()))) {
+                int index = 1;
+                for (AttendanceRecord record : chunk) {
+                    index = bindRow(ps, index, record);
+                }
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    @Override
+    public int closeSession(String sessionId, LocalDateTime closedAt) {
+        // Flip the roster rows and write their attendance records in one statement
+        String sql = "WITH absent AS (" +
+                     "  UPDATE sessionstudents SET status = 'Absent' " +
+                     "  WHERE sessionid = ? AND COALESCE(LOWER(status), 'pending') IN ('pending', '') " +
+                     "  RETURNING studentid, sessionid, notes" +
+                     ") " +
+                     "INSERT INTO attendancerecords " +
+                     "(studentid, sessionid, status, timestamp, markingmethod, confidence, notes) " +
+                     // Casts, since parameters in a SELECT list are not typed from the target columns
+                     "SELECT studentid, sessionid, CAST(? AS VARCHAR), CAST(? AS TIMESTAMP), CAST(? AS VARCHAR), " +
+                     "CAST(NULL AS DOUBLE PRECISION), COALESCE(notes, '') FROM absent " +
+                     "ON CONFLICT (studentid, sessionid) DO UPDATE SET " +
+                     "status = EXCLUDED.status, timestamp = EXCLUDED.timestamp, " +
+                     "markingmethod = EXCLUDED.markingmethod, confidence = NULL";
+
+        PipelineEvents.AttendanceWrite event = new PipelineEvents.AttendanceWrite();
+        event.begin();
+        try (Connection con = DBConnection.getConnection();
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            ps.setInt(1, Integer.parseInt(sessionId));
+            ps.setString(2, AttendanceRecord.Status.ABSENT.toString());
+            ps.setTimestamp(3, Timestamp.valueOf(closedAt));
+            ps.setString(4, AttendanceRecord.MarkingMethod.AUTOMATIC.toString());
+            int marked = ps.executeUpdate();
+            event.complete("close-session", null, sessionId, AttendanceRecord.Status.ABSENT.toString(), true);
+            AppLogger.info("Closed session " + sessionId + ": " + marked + " pending students marked ABSENT");
+            return marked;
+
+        } catch (SQLException | RuntimeException e) {
+            event.complete("close-session", null, sessionId, AttendanceRecord.Status.ABSENT.toString(), false);
+            AppLogger.error("Error while closing attendance for session " + sessionId + ": " + e.getMessage(), e);
+            return -1;
+        }
+    }
+
+    private static String upsertSql(int rows) {
+        StringBuilder sql = new StringBuilder(160 + rows * 24);
+        sql.append("INSERT INTO attendancerecords ")
+           .append("(studentid, sessionid, status, timestamp, markingmethod, confidence, notes) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?)");
+        }
+        sql.append(" ON CONFLICT (studentid, sessionid) DO UPDATE SET ")
+           .append("status = EXCLUDED.status, timestamp = EXCLUDED.timestamp, ")
+           .append("markingmethod = EXCLUDED.markingmethod, confidence = EXCLUDED.confidence, ")
+           .append("notes = EXCLUDED.notes");
+        return sql.toString();
+    }
+
+    private static int bindRow(PreparedStatement ps, int index, AttendanceRecord record) throws SQLException {
+        ps.setString(index++, record.getStudent().getStudentId());
+        ps.setInt(index++, Integer.parseInt(record.getSession().getSessionId()));
+        ps.setString(index++, record.getStatus().toString());
+        if (record.getTimestamp() != null) {
+            ps.setTimestamp(index++, Timestamp.valueOf(record.getTimestamp()));
+        } else {
+            ps.setNull(index++, Types.TIMESTAMP);
+        }
+        if (record.getMarkingMethod() != null) {
+            ps.setString(index++, record.getMarkingMethod().toString());
+        } else {
+            ps.setNull(index++, Types.VARCHAR);
+        }
+        if (record.getConfidence() != null) {
+            ps.setDouble(index++, record.getConfidence());
+        } else {
+            ps.setNull(index++, Types.DOUBLE);
+        }
+        ps.setString(index++, record.getNotes() != null ? record.getNotes() : "");
+        return index;
+    }
+
+    private static List<PipelineEvents.AttendanceWrite> beginWrites(int count) {
+        List<PipelineEvents.AttendanceWrite> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PipelineEvents.AttendanceWrite event = new PipelineEvents.AttendanceWrite();
+            event.begin();
+            events.add(event);
+        }
+        return events;
+    }
+
+    private static void completeWrites(List<PipelineEvents.AttendanceWrite> events, String operation,
+            List<AttendanceRecord> records, boolean succeeded) {
+        for (int i = 0; i < records.size(); i++) {
+            completeWrite(events.get(i), operation, records.get(i), succeeded);
+        }
+    }
+
+    private static void completeWrite(PipelineEvents.AttendanceWrite event, String operation,
+            AttendanceRecord record, boolean succeeded) {
+        event.complete(operation, record.getStudent().getStudentId(), record.getSession().getSessionId(),
+                String.valueOf(record.getStatus()), succeeded);
+    }
+
     @Override
     public boolean delete(String id) {
         // For attendance records, we typically delete by composite key
@@ -162,56 +379,92 @@ public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepos
     
     @Override
     public List<AttendanceRecord> findAll() {
-        List<AttendanceRecord> records = new ArrayList<>();
-        // Try optimized JOIN query first (much faster than N+1 queries)
-        try {
-            String sql = "SELECT ar.id, ar.studentid, ar.sessionid, ar.status, ar.timestamp, " +
-                         "ar.markingmethod, ar.confidence, ar.notes, " +
-                         "s.id as s_id, s.name as student_name, " +
-                         "sess.id as sess_id, sess.name as session_name, sess.date as session_date, " +
-                         "sess.starttime as session_starttime, sess.endtime as session_endtime, " +
-                         "sess.location as session_location " +
-                         "FROM attendancerecords ar " +
-                         "LEFT JOIN students s ON ar.studentid = s.id " +
-                         "LEFT JOIN sessions sess ON ar.sessionid = sess.id " +
-                         "ORDER BY ar.timestamp DESC";
-            
-            try (Connection con = DBConnection.getConnection();
-                 PreparedStatement ps = con.prepareStatement(sql);
-                 ResultSet rs = ps.executeQuery()) {
-                
-                while (rs.next()) {
-                    AttendanceRecord record = mapResultSetToAttendanceRecordWithJoins(rs);
-                    if (record != null) {
-                        records.add(record);
+        List<AttendanceRecord> records = streamAll().collect(Collectors.toCollection(ArrayList::new));
+        AppLogger.info("Loaded " + records.size() + " attendance records");
+        return records;
+    }
+    
+    @Override
+    public Stream<AttendanceRecord> streamAll() {
+        Spliterator<AttendanceRecord> pages = new Spliterators.AbstractSpliterator<AttendanceRecord>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private AttendanceRecordPage page;
+            private Iterator<AttendanceRecord> current = Collections.emptyIterator();
+            private boolean lastPage;
+            
+            @Override
+            public boolean tryAdvance(Consumer<? super AttendanceRecord> action) {
+                while (!current.hasNext()) {
+                    if (lastPage) {
+                        return false;
                     }
+                    page = findPage(page, STREAM_PAGE_SIZE);
+                    if (page == null) {
+                        return false;
+                    }
+                    current = page.getRecords().iterator();
+                    lastPage = !page.hasNext();
                 }
-                
-                AppLogger.info("Successfully loaded " + records.size() + " attendance records using JOIN query");
-                return records;
+                action.accept(current.next());
+                return true;
             }
-        } catch (SQLException e) {
-            AppLogger.error("Error with JOIN query, falling back to original method: " + e.getMessage(), e);
-            // Fall back to original method if JOIN fails
+        };
+        return StreamSupport.stream(pages, false);
+    }
+    
+    @Override
+    public AttendanceRecordPage findPage(AttendanceRecordPage previous, int limit) {
+        // Newest first, as findAll always listed them; records not marked yet have no timestamp and come first.
+        // The row-value seek matches idx_attendancerecords_timestamp_id, so each page is an index range scan
+        String after = "";
+        if (previous != null) {
+            after = previous.lastTimestamp != null
+                    ? "WHERE (ar.timestamp, ar.id) < (?, ?) "
+                    : "WHERE (ar.timestamp IS NULL AND ar.id < ?) OR ar.timestamp IS NOT NULL ";
         }
+        String sql = SELECT_WITH_PARENTS + after + "ORDER BY ar.timestamp DESC NULLS FIRST, ar.id DESC LIMIT ?";
         
-        // Fallback: Use original method (slower but more reliable)
-        String sql = "SELECT * FROM attendancerecords";
         try (Connection con = DBConnection.getConnection();
-             PreparedStatement ps = con.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-            
-            while (rs.next()) {
-                AttendanceRecord record = mapResultSetToAttendanceRecord(rs);
-                if (record != null) {
-                    records.add(record);
+             PreparedStatement ps = con.prepareStatement(sql)) {
+            int index = 1;
+            if (previous != null) {
+                if (previous.lastTimestamp != null) {
+                    ps.setTimestamp(index++, Timestamp.valueOf(previous.lastTimestamp));
+                }
+                ps.setInt(index++, previous.lastId);
+            }
+            // One extra row tells whether another page follows
+            ps.setInt(index, limit + 1);
+            
+            List<AttendanceRecord> records = new ArrayList<>(limit);
+            Map<String, Session> sessions = new HashMap<>();
+            Map<String, Student> students = new HashMap<>();
+            int rows = 0;
+            boolean hasNext = false;
+            LocalDateTime lastTimestamp = previous != null ? previous.lastTimestamp : null;
+            int lastId = previous != null ? previous.lastId : 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (records.size() == limit) {
+                        hasNext = true;
+                        break;
+                    }
+                    rows++;
+                    Timestamp timestamp = rs.getTimestamp("timestamp");
+                    lastTimestamp = timestamp != null ? timestamp.toLocalDateTime() : null;
+                    lastId = rs.getInt("id");
+                    AttendanceRecord record = mapJoinedRow(rs, sessions, students);
+                    if (record != null) {
+                        records.add(record);
+                    }
                 }
             }
-            AppLogger.info("Loaded " + records.size() + " attendance records using fallback method");
+            // Skipped rows may have used up the extra one
+            return new AttendanceRecordPage(records, hasNext || rows > limit, lastTimestamp, lastId);
         } catch (SQLException e) {
-            AppLogger.error("Error while retrieving all attendance records: " + e.getMessage(), e);
+            AppLogger.error("Error while reading a page of attendance records: " + e.getMessage(), e);
+            return null;
         }
-        return records;
     }
     
     @Override
@@ -295,45 +548,7 @@ public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepos
             }
             
             AttendanceRecord record = new AttendanceRecord(student, session);
-            
-            // Set status
-            String statusStr = rs.getString("status");
-            if (statusStr != null) {
-                try {
-                    record.setStatus(AttendanceRecord.Status.valueOf(statusStr));
-                } catch (IllegalArgumentException e) {
-                    AppLogger.warn("Invalid status value: " + statusStr);
-                }
-            }
-            
-            // Set timestamp
-            Timestamp timestamp = rs.getTimestamp("timestamp");
-            if (timestamp != null) {
-                record.setTimestamp(timestamp.toLocalDateTime());
-            }
-            
-            // Set marking method
-            String methodStr = rs.getString("markingmethod");
-            if (methodStr != null) {
-                try {
-                    record.setMarkingMethod(AttendanceRecord.MarkingMethod.valueOf(methodStr));
-                } catch (IllegalArgumentException e) {
-                    AppLogger.warn("Invalid marking method value: " + methodStr);
-                }
-            }
-            
-            // Set confidence
-            double confidence = rs.getDouble("confidence");
-            if (!rs.wasNull()) {
-                record.setConfidence(confidence);
-            }
-            
-            // Set notes
-            String notes = rs.getString("notes");
-            if (notes != null) {
-                record.setNotes(notes);
-            }
-            
+            readRecordColumns(record, rs);
             return record;
             
         } catch (SQLException e) {
@@ -343,116 +558,77 @@ public class AttendanceRecordRepositoryInstance implements AttendanceRecordRepos
     }
     
     /**
-     * Maps a ResultSet row to an AttendanceRecord object using JOIN data.
-     * This is much faster than making separate queries for each student and session.
-     * Used by findAll() to avoid N+1 query problem.
+     * Copies the attendancerecords columns of the current row onto {@code record}.
      */
-    private AttendanceRecord mapResultSetToAttendanceRecordWithJoins(ResultSet rs) throws SQLException {
-        try {
-            // Extract student data from JOIN
-            String studentId = rs.getString("studentid");
-            String studentName = rs.getString("student_name");
-            
-            // If JOIN didn't return student name, fall back to loading from repository
-            Student student;
-            if (studentId == null) {
-                AppLogger.warn("Student ID is null in attendance record, skipping");
-                return null;
+    private static void readRecordColumns(AttendanceRecord record, ResultSet rs) throws SQLException {
+        // Set status
+        String statusStr = rs.getString("status");
+        if (statusStr != null) {
+            try {
+                record.setStatus(AttendanceRecord.Status.valueOf(statusStr));
+            } catch (IllegalArgumentException e) {
+                AppLogger.warn("Invalid status value: " + statusStr);
             }
-            
-            if (studentName == null) {
-                // Fall back to loading student from repository
-                AppLogger.warn("Student name not found in JOIN for studentId: " + studentId + ", loading from repository");
-                StudentRepositoryInstance studentRepo = new StudentRepositoryInstance();
-                student = studentRepo.findById(studentId);
-                if (student == null) {
-                    AppLogger.warn("Could not load student from repository for ID: " + studentId);
-                    return null;
-                }
-            } else {
-                // Create student object from JOIN data (avoiding separate query)
-                student = new Student(studentId, studentName);
-            }
-            
-            // Extract session data from JOIN
-            int sessionIdInt = rs.getInt("sessionid");
-            String sessionId = String.valueOf(sessionIdInt);
-            String sessionName = rs.getString("session_name");
-            java.sql.Date sessionDate = rs.getDate("session_date");
-            java.sql.Time sessionStartTime = rs.getTime("session_starttime");
-            java.sql.Time sessionEndTime = rs.getTime("session_endtime");
-            
-            // If JOIN didn't return session name, fall back to loading from repository
-            Session session;
-            if (sessionName == null) {
-                // Fall back to loading session from repository
-                AppLogger.warn("Session name not found in JOIN for sessionId: " + sessionId + ", loading from repository");
-                SessionRepositoryInstance sessionRepo = new SessionRepositoryInstance();
-                session = sessionRepo.findById(sessionId);
-                if (session == null) {
-                    AppLogger.warn("Could not load session from repository for ID: " + sessionId);
-                    return null;
-                }
-            } else {
-                // Create session object from JOIN data (avoiding separate query)
-                // Session constructor: (String nextId, String name, LocalDate date, LocalTime startTime, LocalTime endTime, String location)
-                java.time.LocalDate date = sessionDate != null ? sessionDate.toLocalDate() : java.time.LocalDate.now();
-                java.time.LocalTime startTime = sessionStartTime != null ? sessionStartTime.toLocalTime() : java.time.LocalTime.now();
-                java.time.LocalTime endTime = sessionEndTime != null ? sessionEndTime.toLocalTime() : java.time.LocalTime.now();
-                String location = rs.getString("session_location");
-                if (location == null) {
-                    location = ""; // Default to empty string if location is null
-                }
-                
-                session = new Session(sessionId, sessionName, date, startTime, endTime, location);
-            }
-            
-            AttendanceRecord record = new AttendanceRecord(student, session);
-            
-            // Set status
-            String statusStr = rs.getString("status");
-            if (statusStr != null) {
-                try {
-                    record.setStatus(AttendanceRecord.Status.valueOf(statusStr));
-                } catch (IllegalArgumentException e) {
-                    AppLogger.warn("Invalid status value: " + statusStr);
-                }
-            }
-            
-            // Set timestamp
-            Timestamp timestamp = rs.getTimestamp("timestamp");
-            if (timestamp != null) {
-                record.setTimestamp(timestamp.toLocalDateTime());
-            }
-            
-            // Set marking method
-            String methodStr = rs.getString("markingmethod");
-            if (methodStr != null) {
-                try {
-                    record.setMarkingMethod(AttendanceRecord.MarkingMethod.valueOf(methodStr));
-                } catch (IllegalArgumentException e) {
-                    AppLogger.warn("Invalid marking method value: " + methodStr);
-                }
-            }
-            
-            // Set confidence
-            double confidence = rs.getDouble("confidence");
-            if (!rs.wasNull()) {
-                record.setConfidence(confidence);
-            }
-            
-            // Set notes
-            String notes = rs.getString("notes");
-            if (notes != null) {
-                record.setNotes(notes);
+        }
+        
+        // Set timestamp
+        Timestamp timestamp = rs.getTimestamp("timestamp");
+        if (timestamp != null) {
+            record.setTimestamp(timestamp.toLocalDateTime());
+        }
+        
+        // Set marking method
+        String methodStr = rs.getString("markingmethod");
+        if (methodStr != null) {
+            try {
+                record.setMarkingMethod(AttendanceRecord.MarkingMethod.valueOf(methodStr));
+            } catch (IllegalArgumentException e) {
+                AppLogger.warn("Invalid marking method value: " + methodStr);
             }
-            
-            return record;
-            
-        } catch (SQLException e) {
-            AppLogger.error("Error mapping ResultSet to AttendanceRecord with JOINs: " + e.getMessage(), e);
-            throw e;
         }
+        
+        // Set confidence
+        double confidence = rs.getDouble("confidence");
+        if (!rs.wasNull()) {
+            record.setConfidence(confidence);
+        }
+        
+        // Set notes
+        String notes = rs.getString("notes");
+        if (notes != null) {
+            record.setNotes(notes);
+        }
+    }
+    
+    /**
+     * Maps a row of {@link #SELECT_WITH_PARENTS}, sharing one Session and one
+     * Student object between rows that reference the same parent. Rows whose
+     * session or student no longer exists are skipped.
+     */
+    private AttendanceRecord mapJoinedRow(ResultSet rs, Map<String, Session> sessions,
+            Map<String, Student> students) throws SQLException {
+        String studentId = rs.getString("studentid");
+        if (rs.getObject("session_id") == null || rs.getString("student_id") == null) {
+            AppLogger.warn("Could not load student or session for attendance record " + rs.getInt("id"));
+            return null;
+        }
+        
+        String sessionId = Integer.toString(rs.getInt("session_id"));
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            session = SessionRepositoryInstance.mapSession(sessionId, rs);
+            sessions.put(sessionId, session);
+        }
+        Student student = students.get(studentId);
+        if (student == null) {
+            student = new Student(studentId, rs.getString("student_name"),
+                    rs.getString("student_email"), rs.getString("student_phone"));
+            students.put(studentId, student);
+        }
+        
+        AttendanceRecord record = new AttendanceRecord(student, session);
+        readRecordColumns(record, rs);
+        return record;
     }
 }
 
@@ -0,0 +1,333 @@
+package repository;
+
+import config.AppLogger;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import util.LatencyHistogram;
+import util.PipelineMetrics;
+
+/**
+ * ConnectionPool - Bounded pool of JDBC connections, so repository calls stop
+ * paying a TCP + TLS + authentication handshake each.
+ *
+ * Callers get a wrapper whose {@code close()} hands the connection back
+ * instead of closing it, so the usual try-with-resources code is unchanged.
+ * Statements left open by the caller are closed and the session state they may
+ * have changed (auto-commit, read-only, pending transaction) is reset on
+ * return. A connection idle for longer than {@link #VALIDATION_BYPASS_MS} is
+ * validated before it is handed out; connections are retired after
+ * {@code maxLifetimeMs} and evicted after {@code idleTimeoutMs} unused.
+ *
+ * Waiting time is recorded in the {@code db.pool.wait} histogram and the pool
+ * size in {@code db.pool.*} gauges of {@link PipelineMetrics}.
+ */
+final class ConnectionPool {
+    private static final long VALIDATION_BYPASS_MS = 500;
+    private static final int VALIDATION_TIMEOUT_S = 2;
+    private static final long HOUSEKEEPING_INTERVAL_S = 30;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long connectionTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long maxLifetimeMs;
+
+    // Permits bound the connections that exist, idle or borrowed
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger borrowed = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LatencyHistogram waitTimes;
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    ConnectionPool(String url, String user, String password, int maxSize, long connectionTimeoutMs,
+            long idleTimeoutMs, long maxLifetimeMs) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = Math.max(1, maxSize);
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.permits = new Semaphore(this.maxSize, true);
+        this.waitTimes = metrics.histogram("db.pool.wait");
+
+        metrics.registerGauge("db.pool.max", () -> this.maxSize);
+        metrics.registerGauge("db.pool.active", borrowed::get);
+        metrics.registerGauge("db.pool.idle", idle::size);
+        metrics.registerGauge("db.pool.waiting", waiting::get);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DBPoolHousekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::evictIdle, HOUSEKEEPING_INTERVAL_S, HOUSEKEEPING_INTERVAL_S,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the connection timeout for one to be
+     * returned when the pool is at its limit.
+     */
+    Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is shut down");
+        }
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+        if (!acquired) {
+            waitTimes.record(System.nanoTime() - start);
+            metrics.increment("db.pool.timeouts");
+            throw new SQLTransientConnectionException("No database connection available within "
+                    + connectionTimeoutMs + " ms (" + maxSize + " in use)");
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = open();
+            }
+            waitTimes.record(System.nanoTime() - start);
+            borrowed.incrementAndGet();
+            return pooled.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes idle connections and stops housekeeping; borrowed connections are
+     * closed as they are returned.
+     */
+    void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closeQuietly();
+        }
+    }
+
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        // Most recently used first: it is the one least likely to have been dropped by the server
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (isExpired(pooled, now)) {
+                pooled.closeQuietly();
+                continue;
+            }
+            if (now - pooled.lastUsedAt > VALIDATION_BYPASS_MS && !pooled.isValid()) {
+                metrics.increment("db.pool.validation_failures");
+                pooled.closeQuietly();
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        metrics.increment("db.pool.created");
+        return new PooledConnection(raw);
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        borrowed.decrementAndGet();
+        try {
+            if (closed || isExpired(pooled, System.currentTimeMillis()) || !pooled.reset()) {
+                pooled.closeQuietly();
+            } else {
+                pooled.lastUsedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeMs > 0 && now - pooled.createdAt >= maxLifetimeMs;
+    }
+
+    private void evictIdle() {
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                boolean stale = idleTimeoutMs > 0 && now - pooled.lastUsedAt >= idleTimeoutMs;
+                if ((stale || isExpired(pooled, now)) && idle.removeFirstOccurrence(pooled)) {
+                    metrics.increment("db.pool.evicted");
+                    pooled.closeQuietly();
+                }
+            }
+        } catch (RuntimeException e) {
+            AppLogger.warn("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A physical connection and its bookkeeping while it belongs to the pool.
+     */
+    private final class PooledConnection {
+        private final Connection raw;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastUsedAt = createdAt;
+        private final List<Statement> statements = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean dirtyState;
+
+        private PooledConnection(Connection raw) {
+            this.raw = raw;
+        }
+
+        private Connection lease() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[] { Connection.class }, new Lease(this));
+        }
+
+        private boolean isValid() {
+            try {
+                return raw.isValid(VALIDATION_TIMEOUT_S);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Undoes what a borrower may have left behind; false if the connection
+         * is no longer usable.
+         */
+        private boolean reset() {
+            try {
+                synchronized (statements) {
+                    for (Statement statement : statements) {
+                        statement.close();
+                    }
+                    statements.clear();
+                }
+                if (raw.isClosed()) {
+                    return false;
+                }
+                if (dirtyState) {
+                    if (!raw.getAutoCommit()) {
+                        raw.rollback();
+                        raw.setAutoCommit(true);
+                    }
+                    raw.setReadOnly(false);
+                    dirtyState = false;
+                }
+                raw.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                AppLogger.warn("Discarding pooled connection: " + e.getMessage());
+                return false;
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                raw.close();
+            } catch (SQLException e) {
+                AppLogger.warn("Failed to close pooled connection: " + e.getMessage());
+            }
+            metrics.increment("db.pool.closed");
+        }
+    }
+
+    /**
+     * The borrower's view of a pooled connection; closing it returns the
+     * connection once, after which every call fails.
+     */
+    private final class Lease implements InvocationHandler {
+        private PooledConnection pooled;
+
+        private Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    synchronized (this) {
+                        if (pooled != null) {
+                            PooledConnection returning = pooled;
+                            pooled = null;
+                            giveBack(returning);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        if (pooled == null) {
+                            return true;
+                        }
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+                default:
+                    break;
+            }
+
+            PooledConnection current;
+            synchronized (this) {
+                current = pooled;
+            }
+            if (current == null) {
+                throw new SQLException("Connection is closed");
+            }
+            if (name.equals("setAutoCommit") || name.equals("setReadOnly")) {
+                current.dirtyState = true;
+            }
+            try {
+                Object result = method.invoke(current.raw, args);
+                if (result instanceof Statement) {
+                    current.statements.add((Statement) result);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
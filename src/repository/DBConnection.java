@@ -1,21 +1,84 @@
 package repository;
 
 import config.AppConfig;
+import config.AppLogger;
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Hands out pooled connections to the repositories; see {@link ConnectionPool}.
+ * Closing a connection returns it to the pool.
+ *
+ * At JVM exit a single hook first runs the tasks registered with
+ * {@link #runBeforeShutdown(Runnable)}, then closes the pool, since the JVM
+ * starts separate shutdown hooks in no particular order.
+ */
 public class DBConnection {
     private static final String URL = AppConfig.getInstance().getDatabaseURL();
     private static final String USER = AppConfig.getInstance().getDatabaseUser();
     private static final String PASSWORD = AppConfig.getInstance().getDatabasePassword();
 
+    private static ConnectionPool pool = null;
+    private static boolean shutdownHookAdded = false;
+    private static final List<Runnable> beforeShutdown = new ArrayList<>();
+
     public static Connection getConnection() throws SQLException{
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return pool().borrow();
     }
-}
-
-
 
+    /**
+     * Runs {@code task} at JVM exit while the pool is still open, in the order
+     * registered; for work that still needs the database, such as flushing
+     * queued writes.
+     */
+    public static synchronized void runBeforeShutdown(Runnable task) {
+        beforeShutdown.add(task);
+        addShutdownHook();
+    }
 
+    /**
+     * Closes the idle connections; called at JVM exit.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
 
+    private static synchronized ConnectionPool pool() {
+        if (pool == null) {
+            AppConfig config = AppConfig.getInstance();
+            pool = new ConnectionPool(URL, USER, PASSWORD, config.getDatabasePoolMaxSize(),
+                    config.getDatabasePoolConnectionTimeoutMs(),
+                    config.getDatabasePoolIdleTimeoutSeconds() * 1000L,
+                    config.getDatabasePoolMaxLifetimeSeconds() * 1000L);
+            addShutdownHook();
+        }
+        return pool;
+    }
 
+    private static synchronized void addShutdownHook() {
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(DBConnection::runShutdown, "DBPoolShutdown"));
+            shutdownHookAdded = true;
+        }
+    }
 
+    private static void runShutdown() {
+        List<Runnable> tasks;
+        // Not run under the class lock: the tasks borrow connections through pool()
+        synchronized (DBConnection.class) {
+            tasks = new ArrayList<>(beforeShutdown);
+        }
+        for (Runnable task : tasks) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                AppLogger.error("Shutdown task failed: " + e.getMessage(), e);
+            }
+        }
+        shutdown();
+    }
+}
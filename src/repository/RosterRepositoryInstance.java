@@ -68,11 +68,7 @@ public class RosterRepositoryInstance implements RosterRepository {
             ps.setInt(1, Integer.parseInt(rosterId));
             ResultSet rs = ps.executeQuery();
             if (rs.next()) {
-                String courseCode = rs.getString("coursecode");
-                String location = rs.getString("location");
-                LocalTime startTime = rs.getTime("starttime").toLocalTime();
-                LocalTime endTime = rs.getTime("endtime").toLocalTime();
-                return new Roster(rosterId, courseCode, startTime, endTime, location);
+                return mapRoster(rosterId, rs);
             }
         } catch (SQLException e) {
             System.out.println("Error while finding roster by ID: " + e.getMessage());
@@ -88,17 +84,23 @@ public class RosterRepositoryInstance implements RosterRepository {
                 PreparedStatement ps = con.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery();) {
             while (rs.next()) {
-                String rosterId = Integer.toString(rs.getInt("rosterid"));
-                String courseCode = rs.getString("coursecode");
-                String location = rs.getString("location");
-                LocalTime startTime = rs.getTime("starttime").toLocalTime();
-                LocalTime endTime = rs.getTime("endtime").toLocalTime();
-                Roster roster = new Roster(rosterId, courseCode, startTime, endTime, location);
-                rosters.add(roster);
+                rosters.add(mapRoster(Integer.toString(rs.getInt("rosterid")), rs));
             }
         } catch (SQLException e) {
             System.out.println("Error while finding all rosters: " + e.getMessage());
         }
         return rosters;
     }
+
+    /**
+     * Builds a Roster from the current row's roster columns; also used by the
+     * JOIN queries of RosterStuRepositoryInstance.
+     */
+    static Roster mapRoster(String rosterId, ResultSet rs) throws SQLException {
+        String courseCode = rs.getString("coursecode");
+        String location = rs.getString("location");
+        LocalTime startTime = rs.getTime("starttime").toLocalTime();
+        LocalTime endTime = rs.getTime("endtime").toLocalTime();
+        return new Roster(rosterId, courseCode, startTime, endTime, location);
+    }
 }
@@ -5,6 +5,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 
 import entity.Roster;
 import entity.RosterStudent;
@@ -12,6 +14,14 @@ import entity.Student;
 
 public class RosterStuRepositoryInstance implements RosterStuRepository {
 
+    // One round trip per list: each row carries its roster and student
+    private static final String SELECT_WITH_PARENTS =
+        "SELECT ro.rosterid AS roster_id, ro.coursecode, ro.location, ro.starttime, ro.endtime, " +
+        "st.id AS student_id, st.name AS student_name, st.email AS student_email, st.phone AS student_phone " +
+        "FROM rosterstudents rs " +
+        "LEFT JOIN rosters ro ON ro.rosterid = rs.rosterid " +
+        "LEFT JOIN students st ON st.id = rs.studentid ";
+
     //base interface method not applicable for composite key relation
     @Override
     public boolean delete(String id) {
@@ -88,49 +98,66 @@ public class RosterStuRepositoryInstance implements RosterStuRepository {
     }
     @Override
     public ArrayList<RosterStudent> findByRosterId(int rosterId){
-        ArrayList<RosterStudent> studentRoster = new ArrayList<>();
-        String sql = "SELECT * FROM rosterstudents WHERE rosterid = ?";
+        String sql = SELECT_WITH_PARENTS + "WHERE rs.rosterid = ?";
 
         try (
             Connection con =  DBConnection.getConnection();
             PreparedStatement ps = con.prepareStatement(sql); ) {
             ps.setInt(1, rosterId);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()){
-                Roster roster = new RosterRepositoryInstance().findById(Integer.toString(rosterId));
-                Student student = new StudentRepositoryInstance().findById(rs.getString("studentid"));
-                RosterStudent rosterStudent = new RosterStudent(roster, student);
-                studentRoster.add(rosterStudent);
-            }
+            return mapJoinedRows(ps);
         }
         catch (SQLException e){
             System.out.println("Error finding students in roster with id: " + rosterId);
             return null;
         }
-        return studentRoster;
     }
 
     @Override
     public ArrayList<RosterStudent> findAll(){
-        ArrayList<RosterStudent> studentRoster = new ArrayList<>();
-        String sql = "SELECT * FROM rosterstudents";
-
         try (
             Connection con =  DBConnection.getConnection();
-            PreparedStatement ps = con.prepareStatement(sql); ) {
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()){
-                Roster roster = new RosterRepositoryInstance().findById(Integer.toString(rs.getInt("rosterid")));
-                Student student = new StudentRepositoryInstance().findById(rs.getString("studentid"));
-                RosterStudent rosterStudent = new RosterStudent(roster, student);
-                studentRoster.add(rosterStudent);
-            }
+            PreparedStatement ps = con.prepareStatement(SELECT_WITH_PARENTS); ) {
+            return mapJoinedRows(ps);
         }
         catch (SQLException e){
             System.out.println("Error finding all rosterstudents");
             return null;
         }
-        return studentRoster;
     }
 
+    /**
+     * Maps rows of {@link #SELECT_WITH_PARENTS}, sharing one Roster and one
+     * Student object between rows that reference the same parent.
+     */
+    private ArrayList<RosterStudent> mapJoinedRows(PreparedStatement ps) throws SQLException {
+        ArrayList<RosterStudent> studentRoster = new ArrayList<>();
+        Map<String, Roster> rosters = new HashMap<>();
+        Map<String, Student> students = new HashMap<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()){
+                // LEFT JOINs keep rows whose parent is gone, with a null parent as before
+                Roster roster = null;
+                if (rs.getObject("roster_id") != null) {
+                    String rosterId = Integer.toString(rs.getInt("roster_id"));
+                    roster = rosters.get(rosterId);
+                    if (roster == null) {
+                        roster = RosterRepositoryInstance.mapRoster(rosterId, rs);
+                        rosters.put(rosterId, roster);
+                    }
+                }
+                Student student = null;
+                String studentId = rs.getString("student_id");
+                if (studentId != null) {
+                    student = students.get(studentId);
+                    if (student == null) {
+                        student = new Student(studentId, rs.getString("student_name"),
+                                rs.getString("student_email"), rs.getString("student_phone"));
+                        students.put(studentId, student);
+                    }
+                }
+                studentRoster.add(new RosterStudent(roster, student));
+            }
+        }
+        return studentRoster;
+    }
 }
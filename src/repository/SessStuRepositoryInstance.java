@@ -9,6 +9,15 @@ import config.*;
 
 public class SessStuRepositoryInstance implements SessStuRepository {
 
+    // One round trip per list: each row carries its session and student
+    private static final String SELECT_WITH_PARENTS =
+        "SELECT ss.status, ss.notes, " +
+        "se.id AS session_id, se.sessionname, se.sessiondate, se.starttime, se.endtime, se.location, se.active, " +
+        "st.id AS student_id, st.name AS student_name, st.email AS student_email, st.phone AS student_phone " +
+        "FROM sessionstudents ss " +
+        "LEFT JOIN sessions se ON se.id = ss.sessionid " +
+        "LEFT JOIN students st ON st.id = ss.studentid ";
+
     //base interface method not applicable for composite key relation
     @Override
     public boolean delete(String id) {
@@ -106,52 +115,65 @@ public class SessStuRepositoryInstance implements SessStuRepository {
     }
     @Override
     public ArrayList<SessionStudent> findBySessionId(int sessionId) {
-        ArrayList<SessionStudent> sessStuList = new ArrayList<>();
-        String sql = "SELECT * FROM sessionstudents WHERE sessionid = ?";
+        String sql = SELECT_WITH_PARENTS + "WHERE ss.sessionid = ?";
         try (
             Connection con = DBConnection.getConnection();
             PreparedStatement ps = con.prepareStatement(sql);) {
             ps.setInt(1, sessionId);
-            ResultSet rs = ps.executeQuery();
-            while (rs.next()) {
-                Session session = new SessionRepositoryInstance().findById(Integer.toString(sessionId));
-                Student student = new StudentRepositoryInstance().findById(rs.getString("studentid"));
-                SessionStudent sessStu = new SessionStudent(session, student);
-                sessStu.setStatus(rs.getString("status"));
-                sessStu.setNotes(rs.getString("notes"));
-                sessStuList.add(sessStu);
-            }
+            return mapJoinedRows(ps);
         } catch (SQLException e) {
             AppLogger.error("Error while retrieving sessionstudents by session ID: " + e.getMessage());
         }
-        return sessStuList;
+        return new ArrayList<>();
     }
     @Override
     public ArrayList<SessionStudent> findAll() {
-        ArrayList<SessionStudent> sessStuList = new ArrayList<>();
-        String sql = "SELECT * FROM sessionstudents";
         try (
             Connection con = DBConnection.getConnection();
-            PreparedStatement ps = con.prepareStatement(sql);
-            ResultSet rs = ps.executeQuery();) {
+            PreparedStatement ps = con.prepareStatement(SELECT_WITH_PARENTS);) {
+            return mapJoinedRows(ps);
+        } catch (SQLException e) {
+            AppLogger.error("Error while retrieving all sessionstudents: " + e.getMessage());
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Maps rows of {@link #SELECT_WITH_PARENTS}, sharing one Session and one
+     * Student object between rows that reference the same parent.
+     */
+    private ArrayList<SessionStudent> mapJoinedRows(PreparedStatement ps) throws SQLException {
+        ArrayList<SessionStudent> sessStuList = new ArrayList<>();
+        Map<String, Session> sessions = new HashMap<>();
+        Map<String, Student> students = new HashMap<>();
+        try (ResultSet rs = ps.executeQuery()) {
             while (rs.next()) {
-                Session session = new SessionRepositoryInstance().findById(Integer.toString(rs.getInt("sessionid")));
-                Student student = new StudentRepositoryInstance().findById(rs.getString("studentid"));
+                // LEFT JOINs keep rows whose parent is gone, with a null parent as before
+                Session session = null;
+                if (rs.getObject("session_id") != null) {
+                    String sessionId = Integer.toString(rs.getInt("session_id"));
+                    session = sessions.get(sessionId);
+                    if (session == null) {
+                        session = SessionRepositoryInstance.mapSession(sessionId, rs);
+                        sessions.put(sessionId, session);
+                    }
+                }
+                Student student = null;
+                String studentId = rs.getString("student_id");
+                if (studentId != null) {
+                    student = students.get(studentId);
+                    if (student == null) {
+                        student = new Student(studentId, rs.getString("student_name"),
+                                rs.getString("student_email"), rs.getString("student_phone"));
+                        students.put(studentId, student);
+                    }
+                }
                 SessionStudent sessStu = new SessionStudent(session, student);
                 sessStu.setStatus(rs.getString("status"));
                 sessStu.setNotes(rs.getString("notes"));
                 sessStuList.add(sessStu);
             }
-        } catch (SQLException e) {
-            AppLogger.error("Error while retrieving all sessionstudents: " + e.getMessage());
         }
         return sessStuList;
     }
 }
-
-
-
-
-
-
-
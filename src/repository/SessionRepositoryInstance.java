@@ -77,21 +77,7 @@ public class SessionRepositoryInstance implements SessionRepository {
                 ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                int sessionId = rs.getInt("id");
-                String name = rs.getString("sessionName");
-                LocalDate date = rs.getDate("sessionDate").toLocalDate();
-                LocalTime startTime = rs.getTime("startTime").toLocalTime();
-                LocalTime endTime = rs.getTime("endTime").toLocalTime();
-                String location = rs.getString("location");
-                boolean active = rs.getBoolean("active");
-
-                Session session = new Session(Integer.toString(sessionId), name, date, startTime, endTime, location);
-                if (active) {
-                    session.open();
-                } else {
-                    session.close();
-                }
-                sessions.add(session);
+                sessions.add(mapSession(Integer.toString(rs.getInt("id")), rs));
             }
             return sessions;
 
@@ -109,20 +95,7 @@ public class SessionRepositoryInstance implements SessionRepository {
             ps.setInt(1, Integer.parseInt(sessionId));
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    String name = rs.getString("sessionName");
-                    LocalDate date = rs.getDate("sessionDate").toLocalDate();
-                    LocalTime startTime = rs.getTime("startTime").toLocalTime();
-                    LocalTime endTime = rs.getTime("endTime").toLocalTime();
-                    String location = rs.getString("location");
-                    boolean active = rs.getBoolean("active");
-
-                    Session session = new Session(sessionId, name, date, startTime, endTime, location);
-                    if (active) {
-                        session.open();
-                    } else {
-                        session.close();
-                    }
-                    return session;
+                    return mapSession(sessionId, rs);
                 } else {
                     return null;
                 }
@@ -133,11 +106,25 @@ public class SessionRepositoryInstance implements SessionRepository {
             return null;
         }
     }
-}
-
-
-
-
-
-
 
+    /**
+     * Builds a Session from the current row's session columns; also used by
+     * the JOIN queries of the association repositories.
+     */
+    static Session mapSession(String sessionId, ResultSet rs) throws SQLException {
+        String name = rs.getString("sessionName");
+        LocalDate date = rs.getDate("sessionDate").toLocalDate();
+        LocalTime startTime = rs.getTime("startTime").toLocalTime();
+        LocalTime endTime = rs.getTime("endTime").toLocalTime();
+        String location = rs.getString("location");
+        boolean active = rs.getBoolean("active");
+
+        Session session = new Session(sessionId, name, date, startTime, endTime, location);
+        if (active) {
+            session.open();
+        } else {
+            session.close();
+        }
+        return session;
+    }
+}
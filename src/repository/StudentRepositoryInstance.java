@@ -129,6 +129,19 @@ public class StudentRepositoryInstance implements StudentRepository {
 
     @Override
     public ArrayList<Student> findAll() {
+        try {
+            return loadAll();
+        } catch (SQLException e) {
+            AppLogger.error("Error while getting all students: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Same as {@link #findAll()}, but a failed query throws instead of
+     * looking like an empty student table.
+     */
+    public ArrayList<Student> loadAll() throws SQLException {
         ArrayList<Student> results = new ArrayList<>();
         String sql = "SELECT * FROM students";
         try (
@@ -143,9 +156,6 @@ public class StudentRepositoryInstance implements StudentRepository {
 
                 results.add(new Student(studentId, name, email, phone));
             }
-
-        } catch (SQLException e) {
-            AppLogger.error("Error while getting all students: " + e.getMessage());
         }
         return results;
     }
@@ -0,0 +1,406 @@
+package service.attendance;
+
+import config.AppLogger;
+import entity.AttendanceRecord;
+import entity.Session;
+import entity.SessionStudent;
+import entity.Student;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import util.PipelineMetrics;
+
+/**
+ * AttendanceJournal - Append-only local file of attendance marks that
+ * {@link AttendanceWriteBehind} has not yet written to the database, so marks
+ * survive a lost network link and a restart.
+ *
+ * Appends only encode into memory; a background thread writes what has
+ * accumulated and fsyncs it every {@link #SYNC_INTERVAL_MS}, so one fsync
+ * covers a burst of marks and the caller never waits on the disk. The queue
+ * settles each mark on its own: {@link #markApplied(long)} once it is in the
+ * database or superseded, {@link #discard(long, AttendanceRecord)} once it is
+ * given up on. When no appended mark is left unsettled the file is
+ * truncated. {@link #replay(ReplaySink)} reads the file back on start-up,
+ * keeping the newest mark per (student, session) and leaving out discarded
+ * ones; replaying is idempotent because the marks are upserted by that key.
+ * A torn record at the tail, from a crash mid-write, is detected by its CRC
+ * and cut off.
+ *
+ * Record layout: {@code int length, payload, int crc32(payload)}. A mark's
+ * payload is its kind, session ID, student ID, status, marking method,
+ * timestamp, confidence, notes and, if the roster row is written too, its
+ * status; a discard's is its kind, session ID and student ID.
+ */
+final class AttendanceJournal {
+    private static final byte MARK_RECORD = 1;
+    private static final byte DISCARD_RECORD = 2;
+    private static final long SYNC_INTERVAL_MS = 100;
+    private static final int MAX_PAYLOAD_BYTES = 256 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final FileLock fileLock;
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+    private final ScheduledExecutorService syncer;
+
+    // Guarded by "this": encoded records not yet handed to the syncer, and
+    // the sequence numbers of marks not yet settled
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private long appendedSeq;
+    private final Set<Long> unsettled = new HashSet<>();
+
+    // Guarded by ioLock: only replay, the syncer and close() touch the file
+    private final Object ioLock = new Object();
+    private volatile long fileBytes;
+    private boolean closed;
+
+    AttendanceJournal(Path path) throws IOException {
+        this.path = path;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Attendance journal " + path + " is in use by another process");
+        }
+        this.fileLock = lock;
+        this.fileBytes = channel.size();
+
+        metrics.registerGauge("attendance.journal_bytes", this::size);
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "AttendanceJournalSync");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Receives the marks read back by {@link #replay(ReplaySink)}.
+     */
+    interface ReplaySink {
+        void accept(long seq, AttendanceRecord record, SessionStudent sessionStudent);
+    }
+
+    /**
+     * Feeds the newest intact, undiscarded mark per (student, session) to
+     * {@code sink}, in the order they were appended, cuts off a torn tail and
+     * starts syncing. Call it once, before the first {@link #append}.
+     *
+     * @return the number of marks replayed; later appends are numbered after them
+     */
+    int replay(ReplaySink sink) throws IOException {
+        synchronized (ioLock) {
+            Map<String, Session> sessions = new HashMap<>();
+            Map<String, Student> students = new HashMap<>();
+            Map<String, ReplayedMark> marks = new LinkedHashMap<>();
+            long good = 0;
+            InputStream stream = Channels.newInputStream(channel.position(0));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            try {
+                while (good < fileBytes) {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_PAYLOAD_BYTES) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if ((int) crc.getValue() != in.readInt()) {
+                        break;
+                    }
+                    decode(payload, sessions, students, marks);
+                    good += 8L + length;
+                }
+            } catch (EOFException e) {
+                // Torn tail; handled below
+            } catch (IOException | RuntimeException e) {
+                AppLogger.warn("Stopped replaying attendance journal " + path + " at byte " + good + ": "
+                        + e.getMessage());
+            }
+
+            if (good < fileBytes) {
+                AppLogger.warn("Discarding " + (fileBytes - good) + " unreadable bytes at the end of " + path);
+                channel.truncate(good);
+                channel.force(true);
+                fileBytes = good;
+            }
+            int count = 0;
+            for (ReplayedMark mark : marks.values()) {
+                long seq;
+                synchronized (this) {
+                    seq = ++appendedSeq;
+                    unsettled.add(seq);
+                }
+                sink.accept(seq, mark.record, mark.sessionStudent);
+                count++;
+            }
+            metrics.add("attendance.journal_replayed", count);
+            syncer.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MS, SYNC_INTERVAL_MS,
+                    TimeUnit.MILLISECONDS);
+            return count;
+        }
+    }
+
+    /**
+     * Adds a mark to the journal; {@code sessionStudent} may be null.
+     *
+     * @return the sequence number of the mark, to settle it with later
+     */
+    synchronized long append(AttendanceRecord record, SessionStudent sessionStudent) {
+        try {
+            write(encode(record, sessionStudent));
+        } catch (IOException | RuntimeException e) {
+            // Only an oversized or malformed mark gets here; it is still queued in memory
+            metrics.increment("attendance.journal_failures");
+            AppLogger.warn("Cannot journal attendance mark for " + record.getStudent().getStudentId() + ": "
+                    + e.getMessage());
+        }
+        long seq = ++appendedSeq;
+        unsettled.add(seq);
+        return seq;
+    }
+
+    /**
+     * Settles mark {@code seq}: it is in the database, or a newer mark for
+     * the same student and session replaced it.
+     */
+    synchronized void markApplied(long seq) {
+        unsettled.remove(seq);
+    }
+
+    /**
+     * Settles mark {@code seq} as given up on, so it is not replayed on the
+     * next start-up. Only call it while no newer mark for the same student
+     * and session is queued: replay drops every mark for that pair appended
+     * before the discard.
+     */
+    synchronized void discard(long seq, AttendanceRecord record) {
+        unsettled.remove(seq);
+        // Written even when nothing is left unsettled: a mark appended before the
+        // next sync would stop it truncating the file, and the discarded mark
+        // would be replayed
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(DISCARD_RECORD);
+            out.writeInt(Integer.parseInt(record.getSession().getSessionId()));
+            out.writeUTF(record.getStudent().getStudentId());
+            out.flush();
+            write(bytes.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            // A mark that cannot be encoded never reached the journal in the first place
+            AppLogger.warn("No discard journalled for " + record.getStudent().getStudentId() + ": "
+                    + e.getMessage());
+        }
+    }
+
+    private void write(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes out what is buffered and closes the file.
+     */
+    void close() {
+        syncer.shutdownNow();
+        synchronized (ioLock) {
+            if (closed) {
+                return;
+            }
+            syncLocked();
+            closed = true;
+            try {
+                fileLock.release();
+                channel.close();
+            } catch (IOException e) {
+                AppLogger.warn("Failed to close attendance journal " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private long size() {
+        synchronized (this) {
+            return fileBytes + buffer.size();
+        }
+    }
+
+    private void sync() {
+        synchronized (ioLock) {
+            if (!closed) {
+                syncLocked();
+            }
+        }
+    }
+
+    private void syncLocked() {
+        byte[] pending;
+        boolean checkpoint;
+        synchronized (this) {
+            checkpoint = unsettled.isEmpty();
+            pending = checkpoint ? null : buffer.toByteArray();
+            buffer = new ByteArrayOutputStream();
+        }
+        try {
+            if (checkpoint) {
+                // Every mark appended so far is settled
+                if (fileBytes > 0) {
+                    channel.truncate(0);
+                    channel.force(true);
+                    fileBytes = 0;
+                    metrics.increment("attendance.journal_checkpoints");
+                }
+            } else if (pending.length > 0) {
+                ByteBuffer bytes = ByteBuffer.wrap(pending);
+                long position = fileBytes;
+                while (bytes.hasRemaining()) {
+                    position += channel.write(bytes, position);
+                }
+                channel.force(false);
+                fileBytes = position;
+                metrics.increment("attendance.journal_syncs");
+            }
+        } catch (IOException e) {
+            metrics.increment("attendance.journal_failures");
+            AppLogger.error("Failed to write attendance journal " + path + ": " + e.getMessage(), e);
+            if (pending != null && pending.length > 0) {
+                requeue(pending);
+            }
+        }
+    }
+
+    /**
+     * Puts bytes that could not be written back in front of the buffer and
+     * drops any part of them that did reach the file.
+     */
+    private void requeue(byte[] pending) {
+        try {
+            channel.truncate(fileBytes);
+        } catch (IOException e) {
+            AppLogger.warn("Failed to trim attendance journal " + path + ": " + e.getMessage());
+        }
+        synchronized (this) {
+            ByteArrayOutputStream restored = new ByteArrayOutputStream(pending.length + buffer.size());
+            restored.write(pending, 0, pending.length);
+            restored.write(buffer.toByteArray(), 0, buffer.size());
+            buffer = restored;
+        }
+    }
+
+    private static byte[] encode(AttendanceRecord record, SessionStudent sessionStudent) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(MARK_RECORD);
+        out.writeInt(Integer.parseInt(record.getSession().getSessionId()));
+        out.writeUTF(record.getStudent().getStudentId());
+        out.writeByte(record.getStatus() != null ? record.getStatus().ordinal() : -1);
+        out.writeByte(record.getMarkingMethod() != null ? record.getMarkingMethod().ordinal() : -1);
+        LocalDateTime timestamp = record.getTimestamp();
+        out.writeBoolean(timestamp != null);
+        if (timestamp != null) {
+            out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(timestamp.getNano());
+        }
+        out.writeDouble(record.getConfidence() != null ? record.getConfidence() : Double.NaN);
+        out.writeUTF(record.getNotes() != null ? record.getNotes() : "");
+        out.writeBoolean(sessionStudent != null);
+        if (sessionStudent != null) {
+            out.writeUTF(sessionStudent.getStatus() != null ? sessionStudent.getStatus() : "Pending");
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Applies one record to {@code marks}, which maps "session|student" to
+     * the newest mark for that pair.
+     */
+    private static void decode(byte[] payload, Map<String, Session> sessions, Map<String, Student> students,
+            Map<String, ReplayedMark> marks) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte kind = in.readByte();
+        if (kind != MARK_RECORD && kind != DISCARD_RECORD) {
+            throw new IOException("unknown journal record kind " + kind);
+        }
+        String sessionId = String.valueOf(in.readInt());
+        String studentId = in.readUTF();
+        String key = sessionId + "|" + studentId;
+        if (kind == DISCARD_RECORD) {
+            marks.remove(key);
+            return;
+        }
+        int status = in.readByte();
+        int method = in.readByte();
+        LocalDateTime timestamp = null;
+        if (in.readBoolean()) {
+            timestamp = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        }
+        double confidence = in.readDouble();
+        String notes = in.readUTF();
+        String rosterStatus = in.readBoolean() ? in.readUTF() : null;
+
+        // The upserts only need the IDs, so the parents are placeholders
+        Session session = sessions.computeIfAbsent(sessionId, id -> new Session(id, null, null, null, null, null));
+        Student student = students.computeIfAbsent(studentId, id -> new Student(id, null));
+        AttendanceRecord record = new AttendanceRecord(student, session,
+                status >= 0 ? AttendanceRecord.Status.values()[status] : AttendanceRecord.Status.PENDING,
+                timestamp,
+                method >= 0 ? AttendanceRecord.MarkingMethod.values()[method] : null);
+        record.setConfidence(Double.isNaN(confidence) ? null : confidence);
+        record.setNotes(notes);
+        SessionStudent sessionStudent = rosterStatus != null
+                ? new SessionStudent(session, student, rosterStatus, notes)
+                : null;
+        // Re-inserting keeps marks in the order they were last appended
+        marks.remove(key);
+        marks.put(key, new ReplayedMark(record, sessionStudent));
+    }
+
+    private static final class ReplayedMark {
+        private final AttendanceRecord record;
+        private final SessionStudent sessionStudent;
+
+        private ReplayedMark(AttendanceRecord record, SessionStudent sessionStudent) {
+            this.record = record;
+            this.sessionStudent = sessionStudent;
+        }
+    }
+}
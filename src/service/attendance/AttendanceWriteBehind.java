@@ -0,0 +1,457 @@
+package service.attendance;
+
+import config.AppConfig;
+import config.AppLogger;
+import entity.AttendanceRecord;
+import entity.SessionStudent;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import repository.AttendanceRecordRepository;
+import repository.AttendanceRecordRepositoryInstance;
+import repository.DBConnection;
+import util.LatencyHistogram;
+import util.PipelineMetrics;
+
+/**
+ * AttendanceWriteBehind - Queue that takes attendance marks off the
+ * recognition and UI threads and writes them to the database in batches.
+ *
+ * Each mark is snapshotted and keyed by (session, student); a later mark for
+ * the same student replaces one that has not been written yet, so a burst of
+ * re-marks costs one row. A single writer thread writes up to
+ * {@link #BATCH_SIZE} attendance records and their session roster rows in
+ * one transaction.
+ *
+ * When the database cannot be reached, the whole batch is put back (unless a
+ * newer mark arrived meanwhile) and retried with exponential backoff for as
+ * long as it takes. When the database rejects the batch, the marks are
+ * retried one at a time so the others still go through; a mark rejected
+ * {@link #MAX_ATTEMPTS} times is logged and moved to {@link #deadLetters()}.
+ *
+ * Every mark is also appended to an {@link AttendanceJournal}, which is
+ * replayed into the queue when the queue is created at start-up, so marks
+ * taken while offline survive a restart. Callers that need the marks in the
+ * database, e.g. at session end, call {@link #flush(long)}.
+ *
+ * Queue depth is the {@code attendance.write_queue} gauge of
+ * {@link PipelineMetrics}; batch latency is the {@code attendance.write_batch}
+ * histogram.
+ */
+public final class AttendanceWriteBehind {
+    private static final int BATCH_SIZE = 500;
+    private static final long LINGER_MS = 50;
+    private static final long INITIAL_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    private static final long SHUTDOWN_FLUSH_MS = 5_000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int MAX_DEAD_LETTERS = 1_000;
+
+    private static AttendanceWriteBehind instance = null;
+
+    private final AttendanceRecordRepository attendanceRepository;
+    private final AttendanceJournal journal;
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+    private final LatencyHistogram batchTimes;
+
+    // Guarded by "this"; insertion order is the order marks are written in
+    private final Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    private int inFlight;
+    private int flushWaiters;
+    private final List<AttendanceRecord> deadLetters = new ArrayList<>();
+
+    private AttendanceWriteBehind(AttendanceRecordRepository attendanceRepository, AttendanceJournal journal) {
+        this.attendanceRepository = attendanceRepository;
+        this.journal = journal;
+        this.batchTimes = metrics.histogram("attendance.write_batch");
+        metrics.registerGauge("attendance.write_queue", this::depth);
+
+        if (journal != null) {
+            try {
+                int replayed = journal.replay((seq, record, sessionStudent) ->
+                        put(new PendingWrite(record, sessionStudent, seq)));
+                if (replayed > 0) {
+                    AppLogger.info("Replaying " + replayed + " journalled attendance marks");
+                }
+            } catch (IOException e) {
+                AppLogger.error("Cannot replay attendance journal: " + e.getMessage(), e);
+            }
+        }
+
+        Thread writer = new Thread(this::runWriter, "AttendanceWriteBehind");
+        writer.setDaemon(true);
+        writer.start();
+        // Part of the pool's own shutdown, so the pool is still open while the queue drains
+        DBConnection.runBeforeShutdown(() -> {
+            if (!flush(SHUTDOWN_FLUSH_MS)) {
+                AppLogger.warn("Exiting with " + depth() + " attendance writes not in the database"
+                        + (journal != null ? "; they stay in the journal" : ""));
+            }
+            if (journal != null) {
+                journal.close();
+            }
+        });
+    }
+
+    public static synchronized AttendanceWriteBehind getInstance() {
+        if (instance == null) {
+            instance = new AttendanceWriteBehind(new AttendanceRecordRepositoryInstance(), openJournal());
+        }
+        return instance;
+    }
+
+    /**
+     * Creates the queue on a background thread, so marks journalled by an
+     * earlier run are replayed and written at start-up rather than when an
+     * attendance window first asks for the queue.
+     */
+    public static void startInBackground() {
+        Thread starter = new Thread(AttendanceWriteBehind::getInstance, "AttendanceWriteBehindStart");
+        starter.setDaemon(true);
+        starter.start();
+    }
+
+    /**
+     * Queues the current state of {@code record} and, when not null, of the
+     * roster row {@code sessionStudent}. Both are copied, so the caller may
+     * keep changing them.
+     */
+    public void enqueue(AttendanceRecord record, SessionStudent sessionStudent) {
+        if (record == null || record.getStudent() == null || record.getSession() == null) {
+            AppLogger.warn("Cannot queue attendance write: record, student, or session is null");
+            return;
+        }
+        AttendanceRecord recordCopy = copyOf(record);
+        SessionStudent sessionStudentCopy = sessionStudent != null
+                ? new SessionStudent(sessionStudent.getSession(), sessionStudent.getStudent(),
+                        sessionStudent.getStatus(), sessionStudent.getNotes())
+                : null;
+
+        synchronized (this) {
+            long seq = journal != null ? journal.append(recordCopy, sessionStudentCopy) : 0;
+            put(new PendingWrite(recordCopy, sessionStudentCopy, seq));
+            notifyAll();
+        }
+        metrics.increment("attendance.writes_queued");
+    }
+
+    /**
+     * Waits until everything queued so far has been written.
+     *
+     * @return false if writes were still pending after {@code timeoutMs}
+     */
+    public boolean flush(long timeoutMs) {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        synchronized (this) {
+            flushWaiters++;
+            notifyAll();
+            try {
+                while (!pending.isEmpty() || inFlight > 0) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait(remaining);
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                flushWaiters--;
+            }
+        }
+    }
+
+    /**
+     * Whether queued marks are also journalled, so they survive a restart.
+     */
+    public boolean isJournalled() {
+        return journal != null;
+    }
+
+    /**
+     * Marks queued or being written.
+     */
+    public synchronized int depth() {
+        return pending.size() + inFlight;
+    }
+
+    /**
+     * Marks given up on after {@link #MAX_ATTEMPTS} rejected writes, oldest
+     * first; only the most recent {@link #MAX_DEAD_LETTERS} are kept.
+     */
+    public synchronized List<AttendanceRecord> deadLetters() {
+        return new ArrayList<>(deadLetters);
+    }
+
+    private synchronized void put(PendingWrite write) {
+        // Re-inserting moves the key to the back, behind marks that were queued before this one
+        PendingWrite replaced = pending.remove(write.key);
+        if (replaced != null) {
+            metrics.increment("attendance.writes_coalesced");
+            settle(replaced);
+        }
+        pending.put(write.key, write);
+    }
+
+    private void runWriter() {
+        long backoffMs = INITIAL_BACKOFF_MS;
+        while (true) {
+            try {
+                List<PendingWrite> batch = takeBatch();
+                BatchOutcome outcome = new BatchOutcome();
+                try {
+                    write(batch, outcome);
+                } catch (RuntimeException e) {
+                    // Not expected from write() itself; keep whatever it had not sorted yet
+                    AppLogger.error("Attendance write-behind failed: " + e.getMessage(), e);
+                    outcome.retryUnsorted(batch);
+                    outcome.unreachable = true;
+                }
+                finishBatch(outcome);
+                if (outcome.unreachable) {
+                    AppLogger.warn("Attendance write of " + outcome.retry.size() + " marks failed, retrying in "
+                            + backoffMs + " ms");
+                    Thread.sleep(backoffMs);
+                    backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+                } else {
+                    backoffMs = INITIAL_BACKOFF_MS;
+                    if (!outcome.retry.isEmpty()) {
+                        // Only rejected marks are left to retry; pause briefly, the database is up
+                        Thread.sleep(INITIAL_BACKOFF_MS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private synchronized List<PendingWrite> takeBatch() throws InterruptedException {
+        while (pending.isEmpty()) {
+            wait();
+        }
+        // Give a burst of marks a moment to arrive so they share a round trip
+        long lingerUntil = System.currentTimeMillis() + LINGER_MS;
+        while (pending.size() < BATCH_SIZE && flushWaiters == 0) {
+            long remaining = lingerUntil - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            wait(remaining);
+        }
+        List<PendingWrite> batch = new ArrayList<>(Math.min(pending.size(), BATCH_SIZE));
+        Iterator<PendingWrite> it = pending.values().iterator();
+        while (it.hasNext() && batch.size() < BATCH_SIZE) {
+            batch.add(it.next());
+            it.remove();
+        }
+        inFlight = batch.size();
+        return batch;
+    }
+
+    /**
+     * Writes {@code batch} and sorts every mark in it into {@code outcome}.
+     * Marks that were rejected before are written on their own, so they
+     * cannot sink the batch a second time.
+     */
+    private void write(List<PendingWrite> batch, BatchOutcome outcome) {
+        List<PendingWrite> fresh = new ArrayList<>(batch.size());
+        List<PendingWrite> singles = new ArrayList<>();
+        for (PendingWrite write : batch) {
+            (write.attempts == 0 ? fresh : singles).add(write);
+        }
+
+        if (!fresh.isEmpty()) {
+            Exception failure = tryWrite(fresh);
+            if (failure == null) {
+                outcome.written.addAll(fresh);
+            } else if (isTransient(failure)) {
+                // Nothing will get through until the database is back
+                outcome.retry.addAll(batch);
+                outcome.unreachable = true;
+                return;
+            } else if (fresh.size() == 1) {
+                outcome.rejected(fresh.get(0), failure);
+            } else {
+                // Find the marks the database rejects by writing them one at a time
+                singles.addAll(0, fresh);
+            }
+        }
+
+        for (int i = 0; i < singles.size(); i++) {
+            PendingWrite write = singles.get(i);
+            Exception failure = tryWrite(List.of(write));
+            if (failure == null) {
+                outcome.written.add(write);
+            } else if (isTransient(failure)) {
+                outcome.retry.addAll(singles.subList(i, singles.size()));
+                outcome.unreachable = true;
+                return;
+            } else {
+                outcome.rejected(write, failure);
+            }
+        }
+    }
+
+    /**
+     * @return null if the marks are in the database, otherwise why not
+     */
+    private Exception tryWrite(List<PendingWrite> writes) {
+        List<AttendanceRecord> records = new ArrayList<>(writes.size());
+        List<SessionStudent> sessionStudents = new ArrayList<>(writes.size());
+        for (PendingWrite write : writes) {
+            records.add(write.record);
+            if (write.sessionStudent != null) {
+                sessionStudents.add(write.sessionStudent);
+            }
+        }
+        long start = System.nanoTime();
+        try {
+            attendanceRepository.writeMarks(records, sessionStudents);
+            return null;
+        } catch (SQLException | RuntimeException e) {
+            return e;
+        } finally {
+            batchTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Whether a failed write may succeed later unchanged: the connection or
+     * the server was unavailable, or the transaction lost a conflict.
+     * Anything else, such as a constraint violation or a malformed ID, is
+     * blamed on the marks.
+     */
+    private static boolean isTransient(Exception failure) {
+        if (!(failure instanceof SQLException)) {
+            return false;
+        }
+        if (failure instanceof SQLTransientException || failure instanceof SQLRecoverableException) {
+            return true;
+        }
+        String state = ((SQLException) failure).getSQLState();
+        // No state: the pool itself failed (shut down, interrupted). 08: connection exception,
+        // 40: serialization failure or deadlock, 53: insufficient resources, 57P: server shutting down
+        return state == null || state.startsWith("08") || state.startsWith("40") || state.startsWith("53")
+                || state.startsWith("57P");
+    }
+
+    private synchronized void finishBatch(BatchOutcome outcome) {
+        metrics.add("attendance.writes_flushed", outcome.written.size());
+        for (PendingWrite write : outcome.written) {
+            settle(write);
+        }
+
+        if (!outcome.retry.isEmpty() || !outcome.deadLetters.isEmpty()) {
+            metrics.increment("attendance.write_failures");
+        }
+        for (PendingWrite write : outcome.retry) {
+            // A newer mark queued while this one was in flight wins
+            if (pending.putIfAbsent(write.key, write) != null) {
+                settle(write);
+            }
+        }
+
+        for (PendingWrite write : outcome.deadLetters) {
+            if (pending.containsKey(write.key)) {
+                // Superseded by a newer mark, which gets its own attempts
+                settle(write);
+                continue;
+            }
+            metrics.increment("attendance.write_dead_letters");
+            AppLogger.error("Giving up on attendance mark for student " + write.record.getStudent().getStudentId()
+                    + " in session " + write.record.getSession().getSessionId() + " (" + write.record.getStatus()
+                    + ") after " + write.attempts + " attempts: " + write.lastError);
+            if (deadLetters.size() == MAX_DEAD_LETTERS) {
+                deadLetters.remove(0);
+            }
+            deadLetters.add(write.record);
+            if (journal != null && write.journalSeq > 0) {
+                journal.discard(write.journalSeq, write.record);
+            }
+        }
+
+        inFlight = 0;
+        notifyAll();
+    }
+
+    /**
+     * Tells the journal a mark no longer needs replaying.
+     */
+    private void settle(PendingWrite write) {
+        if (journal != null && write.journalSeq > 0) {
+            journal.markApplied(write.journalSeq);
+        }
+    }
+
+    private static AttendanceJournal openJournal() {
+        String path = AppConfig.getInstance().getAttendanceJournalPath();
+        try {
+            return new AttendanceJournal(Paths.get(path));
+        } catch (IOException e) {
+            AppLogger.error("Attendance journal " + path + " unavailable, marks are kept in memory only: "
+                    + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private static AttendanceRecord copyOf(AttendanceRecord record) {
+        AttendanceRecord copy = new AttendanceRecord(record.getStudent(), record.getSession(),
+                record.getStatus(), record.getTimestamp(), record.getMarkingMethod());
+        copy.setConfidence(record.getConfidence());
+        copy.setNotes(record.getNotes());
+        return copy;
+    }
+
+    private static final class PendingWrite {
+        private final String key;
+        private final AttendanceRecord record;
+        private final SessionStudent sessionStudent;
+        private final long journalSeq;
+        // Only touched by the writer thread
+        private int attempts;
+        private String lastError;
+
+        private PendingWrite(AttendanceRecord record, SessionStudent sessionStudent, long journalSeq) {
+            this.key = record.getSession().getSessionId() + "|" + record.getStudent().getStudentId();
+            this.record = record;
+            this.sessionStudent = sessionStudent;
+            this.journalSeq = journalSeq;
+        }
+    }
+
+    /**
+     * Where each mark of a batch ended up.
+     */
+    private static final class BatchOutcome {
+        private final List<PendingWrite> written = new ArrayList<>();
+        private final List<PendingWrite> retry = new ArrayList<>();
+        private final List<PendingWrite> deadLetters = new ArrayList<>();
+        // Whether marks are being retried because the database could not be reached
+        private boolean unreachable;
+
+        private void rejected(PendingWrite write, Exception failure) {
+            write.attempts++;
+            write.lastError = failure.getMessage();
+            (write.attempts >= MAX_ATTEMPTS ? deadLetters : retry).add(write);
+        }
+
+        private void retryUnsorted(List<PendingWrite> batch) {
+            for (PendingWrite write : batch) {
+                if (!written.contains(write) && !retry.contains(write) && !deadLetters.contains(write)) {
+                    retry.add(write);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package service.camera;
+
+import config.AppLogger;
+import org.opencv.core.Mat;
+import util.ModuleLoader;
+
+/**
+ * Shared plumbing for replay sources: pacing, looping, end-of-stream tracking
+ * and serialised access. Subclasses only implement {@link #grab(Mat)} and
+ * {@link #rewind()}.
+ */
+abstract class AbstractFrameSource implements CameraService {
+
+    private final Object sourceLock = new Object();
+    private final FramePacer pacer;
+    private final boolean loop;
+    private boolean endOfStream = false;
+    private boolean released = false;
+    private long framesDelivered = 0L;
+
+    protected AbstractFrameSource(FramePacer pacer, boolean loop) {
+        ModuleLoader.ensureOpenCVLoaded();
+        this.pacer = pacer != null ? pacer : FramePacer.unpaced();
+        this.loop = loop;
+    }
+
+    /**
+     * Decode the next frame into {@code target}; false when the source is exhausted.
+     */
+    protected abstract boolean grab(Mat target);
+
+    /**
+     * Restart from the first frame; false if the source cannot rewind.
+     */
+    protected abstract boolean rewind();
+
+    protected abstract boolean isOpen();
+
+    protected abstract void close();
+
+    @Override
+    public boolean readFrame(Mat target) {
+        synchronized (sourceLock) {
+            if (released || endOfStream || !isOpen()) {
+                return false;
+            }
+            if (!pacer.awaitNextFrame()) {
+                return false;
+            }
+            boolean ok = grab(target);
+            if (!ok && loop && framesDelivered > 0 && rewind()) {
+                pacer.reset();
+                ok = grab(target);
+            }
+            if (!ok) {
+                endOfStream = true;
+                AppLogger.info(getDescription() + " reached end of stream after " + framesDelivered + " frames");
+                return false;
+            }
+            framesDelivered++;
+            return true;
+        }
+    }
+
+    @Override
+    public Mat getCurrentFrame() {
+        Mat frame = new Mat();
+        if (!readFrame(frame)) {
+            frame.release();
+            return new Mat();
+        }
+        return frame;
+    }
+
+    @Override
+    public boolean isCameraAvailable() {
+        synchronized (sourceLock) {
+            return !released && !endOfStream && isOpen();
+        }
+    }
+
+    @Override
+    public boolean isEndOfStream() {
+        synchronized (sourceLock) {
+            return endOfStream;
+        }
+    }
+
+    public long getFramesDelivered() {
+        synchronized (sourceLock) {
+            return framesDelivered;
+        }
+    }
+
+    @Override
+    public void release() {
+        synchronized (sourceLock) {
+            if (released) {
+                return;
+            }
+            released = true;
+            close();
+        }
+    }
+}
@@ -1,34 +1,160 @@
 package service.camera;
 
+import config.AppConfig;
 import config.AppLogger;
 import org.opencv.core.CvException;
 import org.opencv.core.Mat;
 import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
 import util.ModuleLoader;
 
 /**
  * Low-level camera hardware abstraction implementing CameraService interface
  */
 public class CameraManager implements CameraService {
+    private static final long PROBE_WARMUP_MS = 300;
+    private static final int PROBE_READ_ATTEMPTS = 3;
+
     private VideoCapture camera;
+    private final int deviceIndex;
     private final Object cameraLock = new Object();
     private static final boolean DEBUG_LOGS = Boolean.parseBoolean(
             System.getProperty("app.faceDetectionDebug", "false"));
 
+    /**
+     * Opens the device configured as {@code camera.index} (0 by default).
+     */
     public CameraManager() {
+        this(AppConfig.getInstance().getCameraIndex());
+    }
+
+    public CameraManager(int deviceIndex) {
         ModuleLoader.ensureOpenCVLoaded();
+        this.deviceIndex = deviceIndex;
         initializeCamera();
     }
 
     private void initializeCamera() {
         synchronized (cameraLock) {
-            camera = new VideoCapture(0);
+            camera = new VideoCapture(deviceIndex, Videoio.CAP_ANY);
             if (camera.isOpened()) {
-                AppLogger.info("Camera initialized successfully");
+                AppLogger.info("Camera initialized successfully at index " + deviceIndex);
             } else {
-                AppLogger.error("Camera failed to initialize");
+                AppLogger.error("Camera failed to initialize at index " + deviceIndex);
+            }
+        }
+    }
+
+    /**
+     * Opens the preferred device and falls back to the other of indices 0/1 when
+     * it cannot be opened or does not deliver frames. The returned manager may
+     * still be unavailable if no device works; check {@link #isCameraAvailable()}.
+     */
+    public static CameraManager openWithFallback(int preferredIndex) {
+        AppLogger.info("Starting camera detection...");
+        int fallbackIndex = preferredIndex == 0 ? 1 : 0;
+        for (int index : new int[] { preferredIndex, fallbackIndex }) {
+            CameraManager manager = new CameraManager(index);
+            if (manager.probe()) {
+                AppLogger.info("Camera detected and working at index " + index);
+                return manager;
             }
+            AppLogger.warn("No working camera at index " + index);
+            manager.release();
         }
+        AppLogger.error("No working camera found. Please check:\n" +
+            "  • Camera is connected\n" +
+            "  • Camera is not in use by another application\n" +
+            "  • Camera permissions are granted\n" +
+            "  • Camera drivers are installed");
+        return new CameraManager(preferredIndex);
+    }
+
+    /**
+     * Reads a few test frames, giving the device a moment to start streaming.
+     */
+    private boolean probe() {
+        synchronized (cameraLock) {
+            if (camera == null || !camera.isOpened()) {
+                return false;
+            }
+            Mat testFrame = new Mat();
+            try {
+                Thread.sleep(PROBE_WARMUP_MS);
+                for (int attempt = 0; attempt < PROBE_READ_ATTEMPTS; attempt++) {
+                    if (camera.read(testFrame) && !testFrame.empty()) {
+                        return true;
+                    }
+                    Thread.sleep(100);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                AppLogger.warn("Camera initialization interrupted");
+            } finally {
+                testFrame.release();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Requests a capture resolution and frame rate, optionally with MJPEG
+     * encoding. Non-critical: unsupported settings are logged and ignored.
+     */
+    public void configure(int width, int height, double fps, boolean mjpeg) {
+        synchronized (cameraLock) {
+            if (camera == null || !camera.isOpened()) {
+                AppLogger.warn("Cannot configure camera: capture is not opened");
+                return;
+            }
+            try {
+                camera.set(Videoio.CAP_PROP_FRAME_WIDTH, width);
+                camera.set(Videoio.CAP_PROP_FRAME_HEIGHT, height);
+                if (fps > 0) {
+                    camera.set(Videoio.CAP_PROP_FPS, fps);
+                }
+                boolean codecSet = mjpeg && camera.set(Videoio.CAP_PROP_FOURCC,
+                        fourcc('M', 'J', 'P', 'G'));
+                if (mjpeg && !codecSet) {
+                    AppLogger.info("MJPEG codec not supported, using default codec");
+                }
+
+                double actualWidth = camera.get(Videoio.CAP_PROP_FRAME_WIDTH);
+                double actualHeight = camera.get(Videoio.CAP_PROP_FRAME_HEIGHT);
+                double actualFps = camera.get(Videoio.CAP_PROP_FPS);
+                AppLogger.info(String.format("Camera configured: %.0fx%.0f @ %.0ffps (MJPEG: %s)",
+                        actualWidth, actualHeight, actualFps, codecSet ? "yes" : "no"));
+                if (actualWidth <= 0 || actualHeight <= 0) {
+                    AppLogger.warn("Camera reported invalid resolution, configuration may have failed");
+                }
+            } catch (Exception e) {
+                AppLogger.warn("Camera configuration failed (non-critical): " + e.getMessage());
+            }
+        }
+    }
+
+    private static int fourcc(char c1, char c2, char c3, char c4) {
+        return ((int) c1) | (((int) c2) << 8) | (((int) c3) << 16) | (((int) c4) << 24);
+    }
+
+    @Override
+    public boolean readFrame(Mat target) {
+        synchronized (cameraLock) {
+            if (camera == null || !camera.isOpened()) {
+                return false;
+            }
+            try {
+                return camera.read(target) && !target.empty();
+            } catch (RuntimeException ex) {
+                AppLogger.error("Camera read encountered an error: " + ex.getMessage(), ex);
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "Camera " + deviceIndex;
     }
 
     @Override
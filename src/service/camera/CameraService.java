@@ -1,7 +1,13 @@
 package service.camera;
 
+import org.opencv.core.Mat;
+
 /**
- * Interface for camera operations - separates hardware abstraction from business logic
+ * Interface for camera operations - separates hardware abstraction from business logic.
+ *
+ * Implementations include the hardware-backed {@link CameraManager} and the replay
+ * sources ({@link VideoFileSource}, {@link ImageSequenceSource},
+ * {@link SyntheticFrameSource}); see {@link CameraSources} for picking one from config.
  */
 public interface CameraService {
     /**
@@ -18,10 +24,38 @@ public interface CameraService {
      * Release camera resources
      */
     void release();
-}
-
-
-
 
+    /**
+     * Read the next frame into {@code target}, reusing its buffer where possible.
+     * Returns false when no frame could be read.
+     */
+    default boolean readFrame(Mat target) {
+        Mat frame = getCurrentFrame();
+        try {
+            if (frame == null || frame.empty()) {
+                return false;
+            }
+            frame.copyTo(target);
+            return true;
+        } finally {
+            if (frame != null) {
+                frame.release();
+            }
+        }
+    }
 
+    /**
+     * True once a finite source (video file, image directory) has delivered its
+     * last frame. A failed read on a live camera is not end of stream.
+     */
+    default boolean isEndOfStream() {
+        return false;
+    }
 
+    /**
+     * Short human-readable description for logs.
+     */
+    default String getDescription() {
+        return getClass().getSimpleName();
+    }
+}
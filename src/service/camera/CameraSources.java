@@ -0,0 +1,99 @@
+package service.camera;
+
+import config.AppConfig;
+import config.AppLogger;
+
+/**
+ * Creates {@link CameraService} frame sources from a short spec string so the
+ * recognition and attendance pipelines never open devices themselves.
+ *
+ * Supported specs:
+ * <ul>
+ * <li>{@code camera} - the configured {@code camera.index}, falling back to the other of 0/1</li>
+ * <li>{@code camera:<index>} - exactly that device</li>
+ * <li>{@code video:<file>} - replay a recorded video</li>
+ * <li>{@code images:<directory>} - replay still images in file-name order</li>
+ * <li>{@code synthetic} or {@code synthetic:<width>x<height>} - generated frames</li>
+ * </ul>
+ * Replay sources honour {@code camera.source.pacing} ({@code realtime} or
+ * {@code fast}) and {@code camera.source.loop}.
+ */
+public final class CameraSources {
+
+    private static final int DEFAULT_WIDTH = 640;
+    private static final int DEFAULT_HEIGHT = 480;
+
+    private CameraSources() {
+        // Utility class
+    }
+
+    /**
+     * Opens the source configured by {@code camera.source} (system property or
+     * app.properties), defaulting to the hardware camera.
+     */
+    public static CameraService fromConfig() {
+        AppConfig config = AppConfig.getInstance();
+        return open(config.getCameraSource(), config.isCameraSourceRealTime(), config.isCameraSourceLoop());
+    }
+
+    public static CameraService open(String spec, boolean realTime, boolean loop) {
+        String value = spec == null || spec.isBlank() ? "camera" : spec.trim();
+        int separator = value.indexOf(':');
+        String kind = (separator >= 0 ? value.substring(0, separator) : value).toLowerCase();
+        String argument = separator >= 0 ? value.substring(separator + 1).trim() : "";
+
+        CameraService source;
+        switch (kind) {
+            case "camera":
+                source = openCamera(argument);
+                break;
+            case "video":
+                source = new VideoFileSource(argument, realTime, loop);
+                break;
+            case "images":
+                source = new ImageSequenceSource(argument, realTime, loop);
+                break;
+            case "synthetic":
+                source = openSynthetic(argument, realTime, loop);
+                break;
+            default:
+                AppLogger.warn("Unknown camera source '" + value + "', using the default camera");
+                source = openCamera("");
+                break;
+        }
+        AppLogger.info("Frame source: " + source.getDescription()
+                + (kind.equals("camera") ? "" : realTime ? " (real-time)" : " (as fast as possible)"));
+        return source;
+    }
+
+    private static CameraService openCamera(String argument) {
+        CameraManager camera;
+        if (argument.isEmpty()) {
+            camera = CameraManager.openWithFallback(AppConfig.getInstance().getCameraIndex());
+        } else {
+            camera = new CameraManager(parseInt(argument, 0));
+        }
+        camera.configure(DEFAULT_WIDTH, DEFAULT_HEIGHT, 30, true);
+        return camera;
+    }
+
+    private static CameraService openSynthetic(String argument, boolean realTime, boolean loop) {
+        int width = DEFAULT_WIDTH;
+        int height = DEFAULT_HEIGHT;
+        int x = argument.toLowerCase().indexOf('x');
+        if (x > 0) {
+            width = parseInt(argument.substring(0, x), DEFAULT_WIDTH);
+            height = parseInt(argument.substring(x + 1), DEFAULT_HEIGHT);
+        }
+        return new SyntheticFrameSource(width, height, 0, realTime, loop);
+    }
+
+    private static int parseInt(String text, int fallback) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            AppLogger.warn("Invalid number in camera source spec: " + text);
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package service.camera;
+
+/**
+ * Paces a replay source to a target frame rate, or lets it run as fast as the
+ * consumer reads. Deadlines are absolute, so a slow consumer does not make the
+ * stream drift further behind on each frame.
+ */
+public final class FramePacer {
+
+    private final long frameIntervalNanos;
+    private long nextFrameAt = 0L;
+
+    private FramePacer(long frameIntervalNanos) {
+        this.frameIntervalNanos = frameIntervalNanos;
+    }
+
+    public static FramePacer realTime(double fps) {
+        double safeFps = fps > 0 && fps < 1000 ? fps : 30.0;
+        return new FramePacer((long) (1_000_000_000L / safeFps));
+    }
+
+    public static FramePacer unpaced() {
+        return new FramePacer(0L);
+    }
+
+    public boolean isPaced() {
+        return frameIntervalNanos > 0;
+    }
+
+    /**
+     * Blocks until the next frame is due. Returns false if the thread was
+     * interrupted; the interrupt flag is preserved.
+     */
+    public boolean awaitNextFrame() {
+        if (frameIntervalNanos <= 0) {
+            return !Thread.currentThread().isInterrupted();
+        }
+        long now = System.nanoTime();
+        if (nextFrameAt == 0L || now - nextFrameAt > frameIntervalNanos * 4) {
+            // First frame, or the consumer stalled: resynchronise instead of bursting
+            nextFrameAt = now;
+        }
+        long waitNanos = nextFrameAt - now;
+        nextFrameAt += frameIntervalNanos;
+        if (waitNanos > 0) {
+            try {
+                Thread.sleep(waitNanos / 1_000_000L, (int) (waitNanos % 1_000_000L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void reset() {
+        nextFrameAt = 0L;
+    }
+}
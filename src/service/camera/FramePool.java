@@ -0,0 +1,169 @@
+package service.camera;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.opencv.core.Mat;
+import util.PipelineMetrics;
+
+/**
+ * Fixed pool of reusable camera frames with a lock-free "latest frame" slot.
+ *
+ * The capture thread borrows an idle frame, reads the camera straight into its
+ * Mat and publishes it. Consumers (detection, recognition) retain whatever is
+ * newest at the moment they start work instead of receiving a copy, so stale
+ * frames are simply overwritten rather than queued. Frames are reference
+ * counted; a frame returns to the idle list once the slot and every consumer
+ * have released it. When no frame is idle the producer drops the frame.
+ */
+public final class FramePool {
+
+    private final ConcurrentLinkedQueue<Frame> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Frame> latest = new AtomicReference<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final Frame[] frames;
+    private volatile boolean closed = false;
+
+    public FramePool(int capacity) {
+        int size = Math.max(2, capacity);
+        frames = new Frame[size];
+        for (int i = 0; i < size; i++) {
+            frames[i] = new Frame(this);
+            idle.offer(frames[i]);
+        }
+    }
+
+    /**
+     * Borrow an idle frame for writing, or {@code null} if every frame is in
+     * use. The caller owns one reference and must either {@link #publish} it or
+     * {@link Frame#close()} it.
+     */
+    public Frame acquireForWrite() {
+        if (closed) {
+            return null;
+        }
+        Frame frame = idle.poll();
+        if (frame == null) {
+            droppedFrames.incrementAndGet();
+            PipelineMetrics.getInstance().increment(PipelineMetrics.FRAMES_DROPPED);
+            return null;
+        }
+        frame.refCount.set(1);
+        return frame;
+    }
+
+    /**
+     * Make {@code frame} the newest frame. Ownership of the caller's reference
+     * moves to the slot; the frame it replaces is released.
+     */
+    public void publish(Frame frame) {
+        frame.sequence = sequence.incrementAndGet();
+        Frame previous = latest.getAndSet(frame);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Retain and return the newest frame, or {@code null} if nothing has been
+     * published yet. The caller must close the returned frame.
+     */
+    public Frame latest() {
+        while (true) {
+            Frame frame = latest.get();
+            if (frame == null) {
+                return null;
+            }
+            if (frame.tryRetain()) {
+                if (latest.get() == frame) {
+                    return frame;
+                }
+                // Replaced (and possibly re-borrowed by the producer) before we retained it
+                frame.close();
+            } else if (latest.get() == frame) {
+                return null;
+            }
+        }
+    }
+
+    public long latestSequence() {
+        Frame frame = latest.get();
+        return frame != null ? frame.sequence : 0L;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    public int getCapacity() {
+        return frames.length;
+    }
+
+    /**
+     * Clears the latest slot and releases native memory for every frame.
+     * Frames still held by consumers are released when those consumers close
+     * them.
+     */
+    public void close() {
+        closed = true;
+        Frame previous = latest.getAndSet(null);
+        if (previous != null) {
+            previous.close();
+        }
+        Frame frame;
+        while ((frame = idle.poll()) != null) {
+            frame.mat.release();
+        }
+    }
+
+    private void recycle(Frame frame) {
+        if (closed) {
+            frame.mat.release();
+            return;
+        }
+        idle.offer(frame);
+    }
+
+    /**
+     * A pooled frame. Closing drops one reference.
+     */
+    public static final class Frame implements AutoCloseable {
+        private final FramePool pool;
+        private final Mat mat = new Mat();
+        private final AtomicInteger refCount = new AtomicInteger(0);
+        private volatile long sequence;
+
+        private Frame(FramePool pool) {
+            this.pool = pool;
+        }
+
+        public Mat mat() {
+            return mat;
+        }
+
+        public long sequence() {
+            return sequence;
+        }
+
+        private boolean tryRetain() {
+            while (true) {
+                int current = refCount.get();
+                if (current <= 0) {
+                    return false;
+                }
+                if (refCount.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            if (refCount.decrementAndGet() == 0) {
+                pool.recycle(this);
+            }
+        }
+    }
+}
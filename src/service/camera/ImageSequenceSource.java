@@ -0,0 +1,93 @@
+package service.camera;
+
+import config.AppLogger;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.opencv.core.Mat;
+import org.opencv.imgcodecs.Imgcodecs;
+
+/**
+ * Replays a directory of still images (sorted by file name) as a camera.
+ * Files that fail to decode are skipped.
+ */
+public class ImageSequenceSource extends AbstractFrameSource {
+
+    private static final double DEFAULT_FPS = 30.0;
+    private static final String[] IMAGE_EXTENSIONS = { ".jpg", ".jpeg", ".png", ".bmp" };
+
+    private final String directory;
+    private final List<File> frames;
+    private int nextIndex = 0;
+
+    public ImageSequenceSource(String directory, boolean realTime, boolean loop) {
+        this(directory, realTime ? DEFAULT_FPS : 0, loop);
+    }
+
+    /**
+     * @param fps delivery rate; zero or less runs as fast as the consumer reads
+     */
+    public ImageSequenceSource(String directory, double fps, boolean loop) {
+        super(fps > 0 ? FramePacer.realTime(fps) : FramePacer.unpaced(), loop);
+        this.directory = directory;
+        this.frames = listImages(directory);
+        AppLogger.info("Image sequence source opened: " + directory + " (" + frames.size() + " images)");
+    }
+
+    private static List<File> listImages(String directory) {
+        List<File> images = new ArrayList<>();
+        File[] files = directory != null ? new File(directory).listFiles() : null;
+        if (files == null) {
+            AppLogger.error("Image sequence directory not found: " + directory);
+            return images;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName().toLowerCase();
+            if (file.isFile() && Arrays.stream(IMAGE_EXTENSIONS).anyMatch(name::endsWith)) {
+                images.add(file);
+            }
+        }
+        return images;
+    }
+
+    @Override
+    protected boolean grab(Mat target) {
+        while (nextIndex < frames.size()) {
+            File file = frames.get(nextIndex++);
+            Mat image = Imgcodecs.imread(file.getAbsolutePath());
+            try {
+                if (!image.empty()) {
+                    image.copyTo(target);
+                    return true;
+                }
+                AppLogger.warn("Skipping unreadable image: " + file);
+            } finally {
+                image.release();
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean rewind() {
+        nextIndex = 0;
+        return !frames.isEmpty();
+    }
+
+    @Override
+    protected boolean isOpen() {
+        return !frames.isEmpty();
+    }
+
+    @Override
+    protected void close() {
+        frames.clear();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Image sequence " + directory;
+    }
+}
@@ -0,0 +1,90 @@
+package service.camera;
+
+import org.opencv.core.Core;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Point;
+import org.opencv.core.Scalar;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * Generates deterministic frames without any hardware or files: a textured
+ * background with a few face-like ellipses drifting across it. Intended for
+ * throughput measurements and smoke tests, not for recognition accuracy.
+ */
+public class SyntheticFrameSource extends AbstractFrameSource {
+
+    private static final double DEFAULT_FPS = 30.0;
+    private static final int FACE_COUNT = 2;
+
+    private final int width;
+    private final int height;
+    private final long frameLimit;
+    private final Mat background;
+    private long frameIndex = 0L;
+
+    /**
+     * @param frameLimit number of frames before end of stream; zero or less for unlimited
+     */
+    public SyntheticFrameSource(int width, int height, long frameLimit, boolean realTime, boolean loop) {
+        super(realTime ? FramePacer.realTime(DEFAULT_FPS) : FramePacer.unpaced(), loop);
+        this.width = Math.max(64, width);
+        this.height = Math.max(64, height);
+        this.frameLimit = frameLimit;
+        this.background = new Mat(this.height, this.width, CvType.CV_8UC3);
+        Core.randu(background, 40, 90);
+        Imgproc.GaussianBlur(background, background, new Size(9, 9), 0);
+    }
+
+    @Override
+    protected boolean grab(Mat target) {
+        if (frameLimit > 0 && frameIndex >= frameLimit) {
+            return false;
+        }
+        background.copyTo(target);
+        int faceSize = Math.min(width, height) / 4;
+        for (int i = 0; i < FACE_COUNT; i++) {
+            double phase = (frameIndex + i * 37) * 0.04;
+            int cx = (int) (width * (0.3 + 0.4 * i) + Math.sin(phase) * width * 0.1);
+            int cy = (int) (height * 0.5 + Math.cos(phase * 0.7) * height * 0.1);
+            drawFace(target, new Point(cx, cy), faceSize);
+        }
+        frameIndex++;
+        return true;
+    }
+
+    private static void drawFace(Mat frame, Point center, int size) {
+        Scalar skin = new Scalar(120, 160, 210);
+        Scalar feature = new Scalar(40, 40, 60);
+        Imgproc.ellipse(frame, center, new Size(size * 0.4, size * 0.5), 0, 0, 360, skin, -1);
+        int eyeOffsetX = (int) (size * 0.15);
+        int eyeOffsetY = (int) (size * 0.1);
+        int eyeRadius = Math.max(2, size / 20);
+        Imgproc.circle(frame, new Point(center.x - eyeOffsetX, center.y - eyeOffsetY), eyeRadius, feature, -1);
+        Imgproc.circle(frame, new Point(center.x + eyeOffsetX, center.y - eyeOffsetY), eyeRadius, feature, -1);
+        Imgproc.ellipse(frame, new Point(center.x, center.y + size * 0.2), new Size(size * 0.12, size * 0.04),
+                0, 0, 360, feature, -1);
+    }
+
+    @Override
+    protected boolean rewind() {
+        frameIndex = 0L;
+        return true;
+    }
+
+    @Override
+    protected boolean isOpen() {
+        return !background.empty();
+    }
+
+    @Override
+    protected void close() {
+        background.release();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Synthetic " + width + "x" + height;
+    }
+}
@@ -0,0 +1,68 @@
+package service.camera;
+
+import config.AppLogger;
+import java.io.File;
+import org.opencv.core.Mat;
+import org.opencv.videoio.VideoCapture;
+import org.opencv.videoio.Videoio;
+import util.ModuleLoader;
+
+/**
+ * Replays a recorded video file as a camera. In real-time mode frames are
+ * delivered at the file's native frame rate.
+ */
+public class VideoFileSource extends AbstractFrameSource {
+
+    private final String path;
+    private final VideoCapture capture;
+
+    public VideoFileSource(String path, boolean realTime, boolean loop) {
+        this(path, openCapture(path), realTime, loop);
+    }
+
+    private VideoFileSource(String path, VideoCapture capture, boolean realTime, boolean loop) {
+        super(realTime ? FramePacer.realTime(capture.get(Videoio.CAP_PROP_FPS)) : FramePacer.unpaced(), loop);
+        this.path = path;
+        this.capture = capture;
+        if (capture.isOpened()) {
+            AppLogger.info(String.format("Video source opened: %s (%.0f frames @ %.1f fps)", path,
+                    capture.get(Videoio.CAP_PROP_FRAME_COUNT), capture.get(Videoio.CAP_PROP_FPS)));
+        } else {
+            AppLogger.error("Failed to open video source: " + path);
+        }
+    }
+
+    private static VideoCapture openCapture(String path) {
+        ModuleLoader.ensureOpenCVLoaded();
+        if (path == null || !new File(path).isFile()) {
+            AppLogger.error("Video file not found: " + path);
+            return new VideoCapture();
+        }
+        return new VideoCapture(path);
+    }
+
+    @Override
+    protected boolean grab(Mat target) {
+        return capture.read(target) && !target.empty();
+    }
+
+    @Override
+    protected boolean rewind() {
+        return capture.set(Videoio.CAP_PROP_POS_FRAMES, 0);
+    }
+
+    @Override
+    protected boolean isOpen() {
+        return capture.isOpened();
+    }
+
+    @Override
+    protected void close() {
+        capture.release();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Video file " + path;
+    }
+}
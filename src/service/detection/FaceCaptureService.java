@@ -10,10 +10,11 @@ import java.util.ArrayList;
 import java.util.List;
 import model.FaceCaptureResult;
 import model.FaceDetectionResult;
+import model.FaceFolderIndex;
 import org.opencv.core.Mat;
 import org.opencv.core.Rect;
 import org.opencv.imgcodecs.Imgcodecs;
-import service.camera.CameraManager;
+import service.camera.CameraService;
 import service.embedding.FaceEmbeddingGenerator;
 import util.ImageProcessor;
 
@@ -24,12 +25,12 @@ public class FaceCaptureService {
             System.getProperty("app.faceDetectionDebug", "false"));
 
     private final FaceDetector faceDetector;
-    private final CameraManager cameraManager;
+    private final CameraService cameraManager;
     private final FaceRegionProcessor faceRegionProcessor;
     private final FaceEmbeddingGenerator embeddingGenerator;
     private final ImageProcessor imageProcessor;
 
-    public FaceCaptureService(FaceDetector faceDetector, CameraManager cameraManager,
+    public FaceCaptureService(FaceDetector faceDetector, CameraService cameraManager,
             FaceRegionProcessor faceRegionProcessor, FaceEmbeddingGenerator embeddingGenerator,
             ImageProcessor imageProcessor) {
         this.faceDetector = faceDetector;
@@ -124,6 +125,8 @@ public class FaceCaptureService {
             }
         }
 
+        // Before the callback, so whatever it triggers lists the new images
+        FaceFolderIndex.getInstance().invalidate(folderPath);
         callback.onCaptureCompleted();
 
         FaceEmbeddingGenerator.BatchProcessingResult batchResult = null;
@@ -162,6 +165,8 @@ public class FaceCaptureService {
                     .processCapturedImages(capturedImages, null, imageProcessor, progressCallback);
 
             logDebug("Embedding processing result: " + batchResult.getMessage());
+            // New embeddings: the recognition gallery reloads on its next use
+            FaceFolderIndex.getInstance().invalidate(folderPath);
         }
 
         boolean success = capturedCount >= Math.min(10, numberOfImages);
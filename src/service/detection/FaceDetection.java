@@ -6,8 +6,10 @@ import model.FaceCandidate;
 import model.FaceCaptureResult;
 import model.FaceData;
 import model.FaceDetectionResult;
+import model.FaceFolderIndex;
 import org.opencv.core.*;
 import service.camera.CameraManager;
+import service.camera.CameraService;
 import service.embedding.FaceEmbeddingGenerator;
 import util.ImageProcessor;
 
@@ -16,21 +18,29 @@ import util.ImageProcessor;
  * This class coordinates all face detection services and maintains backward compatibility.
  *
  * Architecture:
- * - FaceDetector: Core DNN detection logic
+ * - FaceDetector: Shared core DNN detection engine
  * - CameraManager: Camera hardware operations
  * - FaceRegionProcessor: Face region extraction and processing
  * - FaceCaptureService: Capture workflow orchestration
  */
 public class FaceDetection {
     private final FaceDetector faceDetector;
-    private final CameraManager cameraManager;
+    private final CameraService cameraManager;
     private final FaceRegionProcessor faceRegionProcessor;
     private final FaceCaptureService faceCaptureService;
 
     public FaceDetection() {
+        this(new CameraManager());
+    }
+
+    /**
+     * Enrollment always captures from a real device by default; pass a replay
+     * source here to drive capture from recorded frames.
+     */
+    public FaceDetection(CameraService cameraService) {
         // Initialize all service components
-        this.faceDetector = new FaceDetector();
-        this.cameraManager = new CameraManager();
+        this.faceDetector = FaceDetector.getInstance();
+        this.cameraManager = cameraService;
         this.faceRegionProcessor = new FaceRegionProcessor();
 
         // Initialize supporting components
@@ -87,7 +97,9 @@ public class FaceDetection {
                     file.delete();
                 }
             }
-            return folder.delete();
+            boolean deleted = folder.delete();
+            FaceFolderIndex.getInstance().invalidate(folder.toPath());
+            return deleted;
         }
         return true;
     }
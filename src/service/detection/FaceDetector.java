@@ -5,39 +5,82 @@ import config.AppLogger;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import model.FaceCandidate;
 import model.FaceDetectionResult;
 import org.opencv.core.*;
 import org.opencv.dnn.Dnn;
 import org.opencv.dnn.Net;
 import org.opencv.imgproc.Imgproc;
+import util.FrameContext;
+import util.ModelRegistry;
 import util.ModuleLoader;
-
+import util.PipelineEvents;
+
+/**
+ * Process-wide SSD face detection engine shared by the live recognition
+ * viewer, the attendance window, the enrollment preview and face capture.
+ *
+ * The model files are read once through {@link ModelRegistry} and a small pool
+ * of {@link Net} instances is built from those bytes on demand, so concurrent callers never
+ * share a Net and never re-read the model from disk. Each pooled slot keeps
+ * its own output buffers, so parsing a frame does not allocate per detection.
+ */
 public class FaceDetector {
     private static final double MIN_CONFIDENCE_SCORE = 0.6;
     private static final double MIN_FACE_SIZE = 32.0;
     private static final double MAX_FACE_SIZE = 400.0;
+    private static final double RAW_CONFIDENCE_FLOOR = 0.05;
+    private static final int DETECTION_FIELDS = 7;
+    private static final int NET_POOL_SIZE = Math.max(1, Integer.getInteger("app.faceDetectorPoolSize",
+            Math.min(3, Runtime.getRuntime().availableProcessors())));
+    private static final Size DNN_INPUT_SIZE = new Size(300, 300);
+    private static final Scalar DNN_MEAN_SUBTRACTION = new Scalar(104.0, 177.0, 123.0);
     private static final boolean DEBUG_LOGS = Boolean.parseBoolean(
             System.getProperty("app.faceDetectionDebug", "false"));
 
-    private Net dnnFaceDetector;
+    private static FaceDetector instance = null;
+
+    private final BlockingQueue<DetectorSlot> idleSlots = new ArrayBlockingQueue<>(NET_POOL_SIZE);
+    private final AtomicInteger createdSlots = new AtomicInteger(0);
+    private MatOfByte modelWeights;
+    private MatOfByte modelConfiguration;
 
-    public FaceDetector() {
+    private FaceDetector() {
         ModuleLoader.ensureOpenCVLoaded();
         initializeDetector();
     }
 
+    /**
+     * Returns the shared detector, loading the model on first use.
+     */
+    public static synchronized FaceDetector getInstance() {
+        if (instance == null) {
+            instance = new FaceDetector();
+        }
+        return instance;
+    }
+
     private void initializeDetector() {
         try {
-            String modelConfiguration = AppConfig.getInstance().getDetectionModelConfigurationPath();
-            String modelWeights = AppConfig.getInstance().getDetectionModelWeightsPath();
-
-            if (new File(modelConfiguration).exists() && new File(modelWeights).exists()) {
-                dnnFaceDetector = Dnn.readNetFromTensorflow(modelWeights, modelConfiguration);
-                AppLogger.info("DNN face detector loaded successfully");
+            String configurationPath = AppConfig.getInstance().getDetectionModelConfigurationPath();
+            String weightsPath = AppConfig.getInstance().getDetectionModelWeightsPath();
+
+            if (new File(configurationPath).exists() && new File(weightsPath).exists()) {
+                ModelRegistry registry = ModelRegistry.getInstance();
+                modelWeights = registry.modelBytes(weightsPath);
+                modelConfiguration = registry.modelBytes(configurationPath);
+                if (modelWeights == null || modelConfiguration == null) {
+                    throw new IllegalStateException("DNN model files could not be read");
+                }
+                idleSlots.offer(createSlot());
+                AppLogger.info("DNN face detector loaded successfully (pool size " + NET_POOL_SIZE + ")");
             } else {
                 AppLogger.error("DNN model files not found; face detection unavailable");
-                dnnFaceDetector = null;
+                modelWeights = null;
+                modelConfiguration = null;
             }
         } catch (Exception e) {
             AppLogger.error("Face detector initialization failed: " + e.getMessage());
@@ -45,6 +88,180 @@ public class FaceDetector {
         }
     }
 
+    public boolean isAvailable() {
+        return modelWeights != null;
+    }
+
+    private DetectorSlot createSlot() {
+        createdSlots.incrementAndGet();
+        return new DetectorSlot(Dnn.readNetFromTensorflow(modelWeights, modelConfiguration));
+    }
+
+    private DetectorSlot acquireSlot() throws InterruptedException {
+        DetectorSlot slot = idleSlots.poll();
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (createdSlots) {
+            if (createdSlots.get() < NET_POOL_SIZE) {
+                logDebug("Growing face detector pool to " + (createdSlots.get() + 1));
+                return createSlot();
+            }
+        }
+        return idleSlots.take();
+    }
+
+    private void releaseSlot(DetectorSlot slot) {
+        if (slot != null) {
+            idleSlots.offer(slot);
+        }
+    }
+
+    /**
+     * Faces suitable for live recognition: candidates at or above
+     * {@code minConfidence}, at least {@code minSizePx} on both sides,
+     * {@code minWidthPx} wide and no narrower than {@code minAspectRatio}
+     * (width / height).
+     */
+    public List<Rect> detectRecognizableFaces(Mat frame, double minConfidence, int minSizePx,
+            int minWidthPx, double minAspectRatio) {
+        if (frame == null || frame.empty()) {
+            return new ArrayList<>();
+        }
+        return filterRecognizable(detectCandidates(frame), minConfidence, minSizePx, minWidthPx, minAspectRatio);
+    }
+
+    /**
+     * Same as {@link #detectRecognizableFaces(Mat, double, int, int, double)},
+     * building the network input from the frame context's shared downscale.
+     */
+    public List<Rect> detectRecognizableFaces(FrameContext context, double minConfidence, int minSizePx,
+            int minWidthPx, double minAspectRatio) {
+        if (context == null || context.frame().empty()) {
+            return new ArrayList<>();
+        }
+        return filterRecognizable(detectCandidates(context), minConfidence, minSizePx, minWidthPx,
+                minAspectRatio);
+    }
+
+    private static List<Rect> filterRecognizable(List<FaceCandidate> candidates, double minConfidence,
+            int minSizePx, int minWidthPx, double minAspectRatio) {
+        List<Rect> faces = new ArrayList<>();
+        for (FaceCandidate candidate : candidates) {
+            int width = candidate.rect.width;
+            int height = candidate.rect.height;
+            if (candidate.confidence < minConfidence
+                    || width < minSizePx || height < minSizePx
+                    || width < minWidthPx) {
+                continue;
+            }
+            double aspect = (double) width / Math.max(1, height);
+            if (aspect < minAspectRatio) {
+                continue;
+            }
+            faces.add(candidate.rect);
+        }
+        return faces;
+    }
+
+    /**
+     * Runs the SSD network once and returns every box above a minimal
+     * confidence floor, clamped to the frame. Callers apply their own
+     * confidence, size and shape policy on top of this list.
+     */
+    public List<FaceCandidate> detectCandidates(Mat frame) {
+        return detectCandidates(frame, frame);
+    }
+
+    /**
+     * Same as {@link #detectCandidates(Mat)}; the blob is built from the
+     * smallest pyramid level that still covers the network input, so the
+     * resize inside blobFromImage starts from a fraction of the pixels.
+     */
+    public List<FaceCandidate> detectCandidates(FrameContext context) {
+        if (context == null) {
+            return new ArrayList<>();
+        }
+        return detectCandidates(context.frame(), context.downscaledToCover(
+                (int) DNN_INPUT_SIZE.width, (int) DNN_INPUT_SIZE.height));
+    }
+
+    /**
+     * Boxes are predicted in normalised coordinates, so they are mapped back
+     * to {@code frame} whatever resolution {@code blobSource} has.
+     */
+    private List<FaceCandidate> detectCandidates(Mat frame, Mat blobSource) {
+        List<FaceCandidate> candidates = new ArrayList<>();
+        if (!isAvailable() || frame == null || frame.empty()) {
+            return candidates;
+        }
+
+        DetectorSlot slot = null;
+        Mat blob = null;
+        Mat detections = null;
+        PipelineEvents.Detection event = new PipelineEvents.Detection();
+        event.begin();
+        try {
+            slot = acquireSlot();
+            blob = Dnn.blobFromImage(blobSource, 1.0, DNN_INPUT_SIZE, DNN_MEAN_SUBTRACTION);
+            slot.net.setInput(blob);
+            detections = slot.net.forward();
+
+            Mat detectionsFloat = detections;
+            if (detections.type() != CvType.CV_32F) {
+                detections.convertTo(slot.detectionsFloat, CvType.CV_32F);
+                detectionsFloat = slot.detectionsFloat;
+            }
+
+            int numDetections = (int) detectionsFloat.size(2);
+            int dims = (int) detectionsFloat.size(3);
+            if (numDetections <= 0 || dims < DETECTION_FIELDS) {
+                return candidates;
+            }
+
+            float[] values = slot.buffer(numDetections * dims);
+            detectionsFloat.get(new int[] { 0, 0, 0, 0 }, values);
+
+            for (int i = 0; i < numDetections; i++) {
+                int offset = i * dims;
+                float confidence = values[offset + 2];
+                if (confidence < RAW_CONFIDENCE_FLOOR) {
+                    continue;
+                }
+
+                int x1 = (int) Math.round(values[offset + 3] * frame.cols());
+                int y1 = (int) Math.round(values[offset + 4] * frame.rows());
+                int x2 = (int) Math.round(values[offset + 5] * frame.cols());
+                int y2 = (int) Math.round(values[offset + 6] * frame.rows());
+
+                x1 = Math.max(0, Math.min(x1, frame.cols() - 1));
+                y1 = Math.max(0, Math.min(y1, frame.rows() - 1));
+                x2 = Math.max(0, Math.min(x2, frame.cols() - 1));
+                y2 = Math.max(0, Math.min(y2, frame.rows() - 1));
+
+                if (x2 <= x1 || y2 <= y1) {
+                    continue;
+                }
+
+                candidates.add(new FaceCandidate(new Rect(x1, y1, x2 - x1, y2 - y1), confidence));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            AppLogger.error("DNN detection failed: " + e.getMessage(), e);
+        } finally {
+            if (blob != null) {
+                blob.release();
+            }
+            if (detections != null) {
+                detections.release();
+            }
+            releaseSlot(slot);
+            event.complete(frame.cols(), frame.rows(), blobSource.cols(), candidates.size());
+        }
+        return candidates;
+    }
+
     public FaceDetectionResult detectFaceForPreview(Mat frame) {
         if (frame.empty()) {
             return new FaceDetectionResult(new ArrayList<>());
@@ -53,7 +270,24 @@ public class FaceDetector {
     }
 
     public List<Rect> detectFaces(Mat frame) {
-        FaceDetectionResult result = detectFaceForPreview(frame);
+        return logDetectedFaces(frame, detectFaceForPreview(frame));
+    }
+
+    /**
+     * Same as {@link #detectFaces(Mat)}, using the frame context's shared
+     * downscale for the network input.
+     */
+    public List<Rect> detectFaces(FrameContext context) {
+        Mat frame = context.frame();
+        if (frame.empty() || !isAvailable()) {
+            return new ArrayList<>();
+        }
+        List<FaceCandidate> raw = detectCandidates(context);
+        return logDetectedFaces(frame, new FaceDetectionResult(
+                raw.isEmpty() ? raw : selectConfiguredCandidates(frame, raw)));
+    }
+
+    private List<Rect> logDetectedFaces(Mat frame, FaceDetectionResult result) {
         List<Rect> faces = new ArrayList<>();
 
         for (FaceCandidate candidate : result.getFaces()) {
@@ -85,44 +319,27 @@ public class FaceDetector {
     }
 
     private FaceDetectionResult detectFaceWithConfidence(Mat frame) {
-        if (dnnFaceDetector != null) {
-            return detectFaceWithDNN(frame);
+        if (isAvailable()) {
+            return new FaceDetectionResult(selectConfiguredCandidates(frame));
         }
         return new FaceDetectionResult(new ArrayList<>());
     }
 
-    private FaceDetectionResult detectFaceWithDNN(Mat frame) {
-        try {
-            Size size = new Size(300, 300);
-            Mat blob = Dnn.blobFromImage(frame, 1.0, size, new Scalar(104.0, 177.0, 123.0));
-
-            dnnFaceDetector.setInput(blob);
-            Mat detections = dnnFaceDetector.forward();
-
-            Mat detectionsFloat = new Mat();
-            detections.convertTo(detectionsFloat, CvType.CV_32F);
-
-            int numDetections = (int) detectionsFloat.size(2);
-            int dims = (int) detectionsFloat.size(3);
-
-            double configuredMinConfidence = Math.max(0.05,
-                    Math.min(0.99, AppConfig.getInstance().getDnnConfidence()));
-            double configuredMinSize = Math.max(20.0, AppConfig.getInstance().getDetectionMinSize());
-
-            List<FaceCandidate> faces = selectCandidatesWithFallback(frame, detectionsFloat, numDetections, dims,
-                    configuredMinConfidence, configuredMinSize);
+    private List<FaceCandidate> selectConfiguredCandidates(Mat frame) {
+        List<FaceCandidate> raw = detectCandidates(frame);
+        if (raw.isEmpty()) {
+            return raw;
+        }
+        return selectConfiguredCandidates(frame, raw);
+    }
 
-            blob.release();
-            detections.release();
-            detectionsFloat.release();
+    private List<FaceCandidate> selectConfiguredCandidates(Mat frame, List<FaceCandidate> raw) {
 
-            return new FaceDetectionResult(faces);
+        double configuredMinConfidence = Math.max(0.05,
+                Math.min(0.99, AppConfig.getInstance().getDnnConfidence()));
+        double configuredMinSize = Math.max(20.0, AppConfig.getInstance().getDetectionMinSize());
 
-        } catch (Exception e) {
-            AppLogger.error("DNN detection failed: " + e.getMessage());
-            e.printStackTrace();
-            return new FaceDetectionResult(new ArrayList<>());
-        }
+        return selectCandidatesWithFallback(frame, raw, configuredMinConfidence, configuredMinSize);
     }
 
     public Mat drawFaceOverlay(Mat frame, FaceDetectionResult result) {
@@ -160,29 +377,12 @@ public class FaceDetector {
     }
 
     public Rect detectFaceInImage(Mat image) {
-        if (dnnFaceDetector == null || image.empty()) {
+        if (!isAvailable() || image.empty()) {
             return null;
         }
 
         try {
-            Size size = new Size(300, 300);
-            Mat blob = Dnn.blobFromImage(image, 1.0, size, new Scalar(104.0, 117.0, 123.0));
-
-            dnnFaceDetector.setInput(blob);
-            Mat detections = dnnFaceDetector.forward();
-
-            Mat detectionsFloat = new Mat();
-            detections.convertTo(detectionsFloat, CvType.CV_32F);
-
-            int numDetections = (int) detectionsFloat.size(2);
-            int dims = (int) detectionsFloat.size(3);
-
-            double configuredMinConfidence = Math.max(0.05,
-                    Math.min(0.99, AppConfig.getInstance().getDnnConfidence()));
-            double configuredMinSize = Math.max(20.0, AppConfig.getInstance().getDetectionMinSize());
-
-            List<FaceCandidate> faces = selectCandidatesWithFallback(image, detectionsFloat, numDetections, dims,
-                    configuredMinConfidence, configuredMinSize);
+            List<FaceCandidate> faces = selectConfiguredCandidates(image);
 
             Rect bestFace = null;
             double bestConfidence = 0.0;
@@ -193,10 +393,6 @@ public class FaceDetector {
                 }
             }
 
-            blob.release();
-            detections.release();
-            detectionsFloat.release();
-
             return bestFace;
 
         } catch (Exception e) {
@@ -205,12 +401,11 @@ public class FaceDetector {
         }
     }
 
-    private List<FaceCandidate> selectCandidatesWithFallback(Mat frame, Mat detectionsFloat, int numDetections,
-            int dims, double configuredMinConfidence, double configuredMinSize) {
+    private List<FaceCandidate> selectCandidatesWithFallback(Mat frame, List<FaceCandidate> raw,
+            double configuredMinConfidence, double configuredMinSize) {
         double normalizedMinSize = normalizeConfiguredMinSize(frame, configuredMinSize);
     double maxFaceSize = Math.max(MAX_FACE_SIZE, normalizedMinSize * 6.0);
-        List<FaceCandidate> faces = filterDetections(frame, detectionsFloat, numDetections, dims,
-                configuredMinConfidence, normalizedMinSize, maxFaceSize);
+        List<FaceCandidate> faces = filterDetections(raw, configuredMinConfidence, normalizedMinSize, maxFaceSize);
 
         if (!faces.isEmpty()) {
             return faces;
@@ -227,7 +422,7 @@ public class FaceDetector {
         }
 
         double fallbackMaxFaceSize = Math.max(MAX_FACE_SIZE, fallbackMinSize * 6.0);
-    List<FaceCandidate> relaxedFaces = filterDetections(frame, detectionsFloat, numDetections, dims,
+    List<FaceCandidate> relaxedFaces = filterDetections(raw,
                 canRelaxConfidence ? fallbackConfidence : configuredMinConfidence,
                 canRelaxSize ? fallbackMinSize : normalizedMinSize, fallbackMaxFaceSize);
 
@@ -258,32 +453,14 @@ public class FaceDetector {
         return normalized;
     }
 
-    private List<FaceCandidate> filterDetections(Mat frame, Mat detectionsFloat, int numDetections, int dims,
-            double minConfidence, double minSize, double maxFaceSize) {
+    private List<FaceCandidate> filterDetections(List<FaceCandidate> raw, double minConfidence, double minSize,
+            double maxFaceSize) {
         List<FaceCandidate> faces = new ArrayList<>();
 
-        for (int i = 0; i < numDetections; i++) {
-            float[] detection = new float[dims];
-            detectionsFloat.get(new int[] { 0, 0, i, 0 }, detection);
-
-            float confidence = detection[2];
-
-            int x1 = (int) Math.round(detection[3] * frame.cols());
-            int y1 = (int) Math.round(detection[4] * frame.rows());
-            int x2 = (int) Math.round(detection[5] * frame.cols());
-            int y2 = (int) Math.round(detection[6] * frame.rows());
-
-            x1 = Math.max(0, Math.min(x1, frame.cols() - 1));
-            y1 = Math.max(0, Math.min(y1, frame.rows() - 1));
-            x2 = Math.max(0, Math.min(x2, frame.cols() - 1));
-            y2 = Math.max(0, Math.min(y2, frame.rows() - 1));
-
-            if (x2 <= x1 || y2 <= y1) {
-                continue;
-            }
-
-            int width = x2 - x1;
-            int height = y2 - y1;
+        for (FaceCandidate candidate : raw) {
+            double confidence = candidate.confidence;
+            int width = candidate.rect.width;
+            int height = candidate.rect.height;
 
             double effectiveMinConfidence = minConfidence;
             if (width < minSize * 1.25 || height < minSize * 1.25) {
@@ -304,10 +481,10 @@ public class FaceDetector {
                 continue;
             }
 
-            Rect face = new Rect(x1, y1, width, height);
+            Rect face = candidate.rect;
             logDebug(String.format("DNN candidate accepted: conf=%.2f rect=[%d,%d,%d,%d]", confidence, face.x,
                     face.y, face.width, face.height));
-            faces.add(new FaceCandidate(face, confidence));
+            faces.add(candidate);
         }
 
         return faces;
@@ -318,4 +495,21 @@ public class FaceDetector {
             AppLogger.info(message);
         }
     }
+
+    private static final class DetectorSlot {
+        private final Net net;
+        private final Mat detectionsFloat = new Mat();
+        private float[] values = new float[0];
+
+        private DetectorSlot(Net net) {
+            this.net = net;
+        }
+
+        private float[] buffer(int length) {
+            if (values.length != length) {
+                values = new float[length];
+            }
+            return values;
+        }
+    }
 }
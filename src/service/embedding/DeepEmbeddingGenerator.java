@@ -11,20 +11,29 @@ import org.opencv.dnn.Dnn;
 import org.opencv.dnn.Net;
 import org.opencv.imgproc.Imgproc;
 import util.FaceAligner;
+import util.MatPool;
+import util.ModelRegistry;
 import util.ModuleLoader;
+import util.NetPool;
 import config.*;
 
 /**
  * Handles deep-learning based embedding generation using ArcFace.
+ *
+ * Every generator in the process shares one {@link NetPool} of the model, so
+ * recognition workers running in parallel each get their own network.
  */
 public class DeepEmbeddingGenerator {
+    private static final int NET_POOL_SIZE = Math.max(1, Integer.getInteger("app.embeddingNetPoolSize",
+            Math.min(3, Runtime.getRuntime().availableProcessors())));
 
     private final int embeddingSize;
     private final Size inputSize;
     private final boolean debugLogs;
 
-    private Net embeddingNet;
-    private boolean initialized;
+    // Cleared by release() while another thread may still be generating
+    private volatile ModelRegistry.Lease<NetPool> embeddingLease;
+    private volatile boolean initialized;
     private final FaceAligner aligner;
 
     public DeepEmbeddingGenerator(boolean debugLogs) {
@@ -41,9 +50,12 @@ public class DeepEmbeddingGenerator {
         try {
             String modelPath = AppConfig.getInstance().getEmbeddingModelPath();
             if (new java.io.File(modelPath).exists()) {
-                embeddingNet = Dnn.readNetFromONNX(modelPath);
-                initialized = true;
-                AppLogger.info("✅ ArcFace ResNet100 model loaded successfully");
+                // Shared with every other generator; the ONNX file is only read once per process
+                embeddingLease = ModelRegistry.getInstance().acquireOnnxNetPool(modelPath, NET_POOL_SIZE);
+                initialized = embeddingLease != null;
+                if (initialized) {
+                    AppLogger.info("✅ ArcFace ResNet100 model ready");
+                }
             } else {
                 AppLogger.info("⚠️ ArcFace model not found, using feature-based embeddings");
                 initialized = false;
@@ -73,12 +85,11 @@ public class DeepEmbeddingGenerator {
 
             logAlignedStats(aligned);
 
-            Mat blobNHWC = createAlignedBlob(aligned);
-            aligned.release();
-
-            embeddingNet.setInput(blobNHWC);
-            Mat embedding = embeddingNet.forward();
-            blobNHWC.release();
+            Mat embedding;
+            try (MatPool.Lease blobNHWC = createAlignedBlob(aligned)) {
+                aligned.release();
+                embedding = forward(blobNHWC.mat());
+            }
 
             logEmbeddingStats(embedding);
 
@@ -100,15 +111,11 @@ public class DeepEmbeddingGenerator {
         try {
             printBlobStats(preprocessedBlob, "External blob input (NCHW)");
 
-            Mat convertedBlob = new Mat();
-            MatOfInt nchwToNhwc = new MatOfInt(0, 2, 3, 1);
-            Core.transposeND(preprocessedBlob, nchwToNhwc, convertedBlob);
-            nchwToNhwc.release();
-            preprocessedBlob.release();
-
-            embeddingNet.setInput(convertedBlob);
-            Mat embedding = embeddingNet.forward();
-            convertedBlob.release();
+            Mat embedding;
+            try (MatPool.Lease convertedBlob = toNhwc(preprocessedBlob)) {
+                preprocessedBlob.release();
+                embedding = forward(convertedBlob.mat());
+            }
 
             byte[] result = matToByteArray(embedding);
             embedding.release();
@@ -123,7 +130,34 @@ public class DeepEmbeddingGenerator {
 
     public void release() {
         aligner.release();
-        embeddingNet = null;
+        initialized = false;
+        ModelRegistry.Lease<NetPool> lease = embeddingLease;
+        embeddingLease = null;
+        if (lease != null) {
+            lease.close();
+        }
+    }
+
+    private Mat forward(Mat blob) {
+        // Read once: release() may clear the field meanwhile, and the lease's pool stays usable
+        ModelRegistry.Lease<NetPool> lease = embeddingLease;
+        if (lease == null) {
+            throw new IllegalStateException("embedding model released");
+        }
+        NetPool pool = lease.get();
+        Net net;
+        try {
+            net = pool.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for an embedding network", e);
+        }
+        try {
+            net.setInput(blob);
+            return net.forward();
+        } finally {
+            pool.giveBack(net);
+        }
     }
 
     private Mat ensureThreeChannels(Mat faceImage) {
@@ -139,16 +173,27 @@ public class DeepEmbeddingGenerator {
         return temp;
     }
 
-    private Mat createAlignedBlob(Mat aligned) {
+    private MatPool.Lease createAlignedBlob(Mat aligned) {
         Scalar arcFaceMean = new Scalar(127.5, 127.5, 127.5);
         Mat blobNCHW = Dnn.blobFromImage(aligned, 1.0 / 128.0, inputSize, arcFaceMean, true, false);
         printBlobStats(blobNCHW, "Aligned face blob (NCHW)");
 
-        Mat blobNHWC = new Mat();
+        MatPool.Lease blobNHWC = toNhwc(blobNCHW);
+        blobNCHW.release();
+        return blobNHWC;
+    }
+
+    /**
+     * Transposes an NCHW blob into a pooled NHWC Mat; the model input shape
+     * is fixed, so after the first call this reuses the same buffer.
+     */
+    private MatPool.Lease toNhwc(Mat blobNCHW) {
+        MatPool.Lease blobNHWC = MatPool.getInstance().lease(
+                new int[] { blobNCHW.size(0), blobNCHW.size(2), blobNCHW.size(3), blobNCHW.size(1) },
+                blobNCHW.type());
         MatOfInt nchwToNhwc = new MatOfInt(0, 2, 3, 1);
-        Core.transposeND(blobNCHW, nchwToNhwc, blobNHWC);
+        Core.transposeND(blobNCHW, nchwToNhwc, blobNHWC.mat());
         nchwToNhwc.release();
-        blobNCHW.release();
         return blobNHWC;
     }
 
@@ -155,4 +155,8 @@ public class EmbeddingBatchProcessor {
                 && rect.x + rect.width <= imageWidth
                 && rect.y + rect.height <= imageHeight;
     }
+
+    public void release() {
+        facePreprocessor.release();
+    }
 }
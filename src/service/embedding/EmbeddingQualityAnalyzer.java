@@ -6,6 +6,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import model.FaceFolderIndex;
 import service.embedding.FaceEmbeddingGenerator.ProgressCallback;
 import config.*;
 /**
@@ -210,6 +211,7 @@ public class EmbeddingQualityAnalyzer {
         try {
             if (Files.exists(path)) {
                 Files.delete(path);
+                FaceFolderIndex.getInstance().invalidate(path.toAbsolutePath().getParent());
                 log("  ✗ Deleted " + label + ": " + path.getFileName());
                 return true;
             }
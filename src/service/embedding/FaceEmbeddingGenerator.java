@@ -79,6 +79,7 @@ public class FaceEmbeddingGenerator {
 
     public void release() {
         deepEmbeddingGenerator.release();
+        embeddingBatchProcessor.release();
     }
     // Inner classes
 
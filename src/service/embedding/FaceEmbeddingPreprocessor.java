@@ -95,14 +95,25 @@ public class FaceEmbeddingPreprocessor {
      * suitable for {@link FaceEmbeddingGenerator#generateEmbeddingFromBlob(Mat)}.
      */
     public Mat preprocessForEmbedding(Mat faceROI) {
+        return preprocessForEmbedding(faceROI, null);
+    }
+
+    /**
+     * Same as {@link #preprocessForEmbedding(Mat)}, passing a grayscale version
+     * of the ROI to the aligner so it does not convert again; {@code grayROI}
+     * may be {@code null}.
+     */
+    public Mat preprocessForEmbedding(Mat faceROI, Mat grayROI) {
         if (faceROI == null || faceROI.empty()) {
             AppLogger.warn("FaceEmbeddingPreprocessor received empty ROI");
             return new Mat();
         }
 
         try {
+            // The aligner only reads its input, so a 3-channel ROI is used as is
             Mat processed;
-            if (faceROI.channels() != 3) {
+            boolean ownsProcessed = faceROI.channels() != 3;
+            if (ownsProcessed) {
                 Mat temp = new Mat();
                 if (faceROI.channels() == 1) {
                     Imgproc.cvtColor(faceROI, temp, Imgproc.COLOR_GRAY2BGR);
@@ -111,17 +122,19 @@ public class FaceEmbeddingPreprocessor {
                 }
                 processed = temp;
             } else {
-                processed = faceROI.clone();
+                processed = faceROI;
             }
 
-            Mat aligned = aligner.align(processed, null);
+            Mat aligned = aligner.align(processed, null, grayROI);
             if (aligned == null || aligned.empty()) {
                 AppLogger.warn("Face alignment failed; falling back to simple resize");
                 aligned = new Mat();
                 Imgproc.resize(processed, aligned, INPUT_SIZE, 0, 0, Imgproc.INTER_CUBIC);
             }
 
-            processed.release();
+            if (ownsProcessed) {
+                processed.release();
+            }
 
             Mat blob = Dnn.blobFromImage(aligned, 1.0 / 128.0, INPUT_SIZE,
                     ARC_FACE_MEAN, true, false);
@@ -12,12 +12,15 @@ import org.opencv.core.Rect;
 import org.opencv.core.Size;
 import org.opencv.imgproc.Imgproc;
 import org.opencv.imgproc.Moments;
+import util.MatPool;
 import config.*;
 /**
  * Provides the hand-crafted feature embedding fallback when deep learning model is unavailable.
  */
 public class FeatureEmbeddingGenerator {
 
+    private static final int FEATURE_SIZE = 64;
+
     private final int embeddingSize;
     private final boolean debugLogs;
 
@@ -30,17 +33,17 @@ public class FeatureEmbeddingGenerator {
         if (faceImage == null || faceImage.empty()) {
             return null;
         }
-        try {
+        MatPool pool = MatPool.getInstance();
+        try (MatPool.Lease resized = pool.lease(FEATURE_SIZE, FEATURE_SIZE, faceImage.type());
+                MatPool.Lease grayLease = pool.lease(FEATURE_SIZE, FEATURE_SIZE, CvType.CV_8UC1)) {
             double[] features = new double[embeddingSize];
 
-            Mat resized = new Mat();
-            Imgproc.resize(faceImage, resized, new Size(64, 64));
+            Imgproc.resize(faceImage, resized.mat(), new Size(FEATURE_SIZE, FEATURE_SIZE));
 
-            Mat gray = new Mat();
-            if (resized.channels() > 1) {
-                Imgproc.cvtColor(resized, gray, Imgproc.COLOR_BGR2GRAY);
-            } else {
-                gray = resized.clone();
+            Mat gray = resized.mat();
+            if (gray.channels() > 1) {
+                Imgproc.cvtColor(resized.mat(), grayLease.mat(), Imgproc.COLOR_BGR2GRAY);
+                gray = grayLease.mat();
             }
 
             extractHistogramFeatures(gray, features, 0);
@@ -48,9 +51,6 @@ public class FeatureEmbeddingGenerator {
             extractGeometricFeatures(gray, features, 64);
             extractGradientFeatures(gray, features, 96);
 
-            gray.release();
-            resized.release();
-
             byte[] result = normalizeAndConvert(features);
             debugEmbedding(result, "Feature-based embedding");
             return result;
@@ -74,27 +74,33 @@ public class FeatureEmbeddingGenerator {
     }
 
     private void extractHistogramFeatures(Mat image, double[] features, int offset) {
-        Mat hist = new Mat();
+        MatPool.Lease histLease = MatPool.getInstance().lease(32, 1, CvType.CV_32F);
+        Mat hist = histLease.mat();
+        Mat noMask = new Mat();
         MatOfInt channels = new MatOfInt(0);
         MatOfInt histSize = new MatOfInt(32);
         MatOfFloat ranges = new MatOfFloat(0f, 256f);
 
-        Imgproc.calcHist(Arrays.asList(image), channels, new Mat(), hist, histSize, ranges);
+        Imgproc.calcHist(Arrays.asList(image), channels, noMask, hist, histSize, ranges);
         Core.normalize(hist, hist, 0, 1, Core.NORM_MINMAX);
 
         for (int i = 0; i < 32 && i < hist.rows(); i++) {
             features[offset + i] = hist.get(i, 0)[0];
         }
 
-        hist.release();
+        histLease.close();
+        noMask.release();
         channels.release();
         histSize.release();
         ranges.release();
     }
 
     private void extractTextureFeatures(Mat image, double[] features, int offset) {
-        Mat gradX = new Mat();
-        Mat gradY = new Mat();
+        MatPool pool = MatPool.getInstance();
+        MatPool.Lease gradXLease = pool.lease(image.rows(), image.cols(), CvType.CV_64F);
+        MatPool.Lease gradYLease = pool.lease(image.rows(), image.cols(), CvType.CV_64F);
+        Mat gradX = gradXLease.mat();
+        Mat gradY = gradYLease.mat();
         Imgproc.Sobel(image, gradX, CvType.CV_64F, 1, 0, 3);
         Imgproc.Sobel(image, gradY, CvType.CV_64F, 0, 1, 3);
 
@@ -130,10 +136,12 @@ public class FeatureEmbeddingGenerator {
             stdX.release();
             meanY.release();
             stdY.release();
+            regionGradX.release();
+            regionGradY.release();
         }
 
-        gradX.release();
-        gradY.release();
+        gradXLease.close();
+        gradYLease.close();
     }
 
     private void extractGeometricFeatures(Mat image, double[] features, int offset) {
@@ -157,25 +165,31 @@ public class FeatureEmbeddingGenerator {
     }
 
     private void extractGradientFeatures(Mat image, double[] features, int offset) {
-        Mat gradX = new Mat();
-        Mat gradY = new Mat();
+        MatPool pool = MatPool.getInstance();
+        MatPool.Lease gradXLease = pool.lease(image.rows(), image.cols(), CvType.CV_64F);
+        MatPool.Lease gradYLease = pool.lease(image.rows(), image.cols(), CvType.CV_64F);
+        MatPool.Lease magnitudeLease = pool.lease(image.rows(), image.cols(), CvType.CV_64F);
+        MatPool.Lease angleLease = pool.lease(image.rows(), image.cols(), CvType.CV_64F);
+        Mat gradX = gradXLease.mat();
+        Mat gradY = gradYLease.mat();
         Imgproc.Sobel(image, gradX, CvType.CV_64F, 1, 0, 3);
         Imgproc.Sobel(image, gradY, CvType.CV_64F, 0, 1, 3);
 
-        Mat magnitude = new Mat();
-        Mat angle = new Mat();
+        Mat magnitude = magnitudeLease.mat();
+        Mat angle = angleLease.mat();
         Core.cartToPolar(gradX, gradY, magnitude, angle, true);
 
         int numBins = 16;
         double[] hogFeatures = new double[numBins];
 
-        for (int y = 0; y < angle.rows(); y++) {
-            for (int x = 0; x < angle.cols(); x++) {
-                double ang = angle.get(y, x)[0];
-                double mag = magnitude.get(y, x)[0];
-                int bin = (int) (ang / (360.0 / numBins)) % numBins;
-                hogFeatures[bin] += mag;
-            }
+        // One bulk copy each instead of a JNI call per pixel
+        double[] angles = new double[(int) angle.total()];
+        double[] magnitudes = new double[(int) magnitude.total()];
+        angle.get(0, 0, angles);
+        magnitude.get(0, 0, magnitudes);
+        for (int i = 0; i < angles.length; i++) {
+            int bin = (int) (angles[i] / (360.0 / numBins)) % numBins;
+            hogFeatures[bin] += magnitudes[i];
         }
 
         double sum = Arrays.stream(hogFeatures).sum();
@@ -185,10 +199,10 @@ public class FeatureEmbeddingGenerator {
             }
         }
 
-        gradX.release();
-        gradY.release();
-        magnitude.release();
-        angle.release();
+        gradXLease.close();
+        gradYLease.close();
+        magnitudeLease.close();
+        angleLease.close();
     }
 
     private void debugEmbedding(byte[] embedding, String label) {
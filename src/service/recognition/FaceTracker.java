@@ -0,0 +1,209 @@
+package service.recognition;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.opencv.core.Rect;
+
+/**
+ * Greedy centroid tracker that gives each face a stable id across frames, so
+ * recognition history can be kept per person rather than per frame.
+ *
+ * A detection joins the nearest unmatched track whose centre lies within
+ * {@code max(distanceThreshold, 0.6 * track size)}; otherwise it starts a new
+ * track. Tracks unseen for more than {@code missTolerance} frames are dropped.
+ * Not thread-safe: drive it from the frame loop.
+ *
+ * @param <T> per-track state kept by the caller (e.g. the last recognition outcome)
+ */
+public final class FaceTracker<T> {
+
+    private final double distanceThreshold;
+    private final int missTolerance;
+    private final Map<String, Track<T>> activeTracks = new LinkedHashMap<>();
+    private int nextTrackId = 0;
+
+    public FaceTracker(double distanceThreshold, int missTolerance) {
+        this.distanceThreshold = distanceThreshold;
+        this.missTolerance = missTolerance;
+    }
+
+    /**
+     * Assigns this frame's detections to tracks. The returned list is aligned
+     * with {@code detections}: element {@code i} is the track for detection {@code i}.
+     */
+    public List<Track<T>> update(List<Rect> detections) {
+        for (Track<T> track : activeTracks.values()) {
+            track.framesSinceSeen++;
+        }
+
+        List<Track<T>> assigned = new ArrayList<>(detections.size());
+        Set<String> matchedTrackIds = new HashSet<>();
+        for (Rect rect : detections) {
+            Track<T> track = findOrCreateTrack(rect, matchedTrackIds);
+            matchedTrackIds.add(track.id);
+            assigned.add(track);
+        }
+        return assigned;
+    }
+
+    /**
+     * Removes and returns tracks that have not been seen for longer than the
+     * miss tolerance.
+     */
+    public List<Track<T>> removeStaleTracks() {
+        List<Track<T>> removed = new ArrayList<>();
+        Iterator<Track<T>> iterator = activeTracks.values().iterator();
+        while (iterator.hasNext()) {
+            Track<T> track = iterator.next();
+            if (track.framesSinceSeen > missTolerance) {
+                iterator.remove();
+                removed.add(track);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Tracks matched by the most recent {@link #update}, i.e. the faces
+     * currently in view. Used on frames where detection is skipped.
+     */
+    public List<Track<T>> visibleTracks() {
+        List<Track<T>> visible = new ArrayList<>();
+        for (Track<T> track : activeTracks.values()) {
+            if (track.framesSinceSeen == 0) {
+                visible.add(track);
+            }
+        }
+        return visible;
+    }
+
+    public int size() {
+        return activeTracks.size();
+    }
+
+    public void clear() {
+        activeTracks.clear();
+    }
+
+    private Track<T> findOrCreateTrack(Rect rect, Set<String> matchedTrackIds) {
+        Track<T> bestMatch = null;
+        double bestDistance = Double.MAX_VALUE;
+
+        double rectCenterX = rect.x + rect.width / 2.0;
+        double rectCenterY = rect.y + rect.height / 2.0;
+
+        for (Track<T> candidate : activeTracks.values()) {
+            if (matchedTrackIds.contains(candidate.id)) {
+                continue;
+            }
+
+            double distance = candidate.distanceTo(rectCenterX, rectCenterY);
+            double dynamicThreshold = Math.max(distanceThreshold, candidate.averageSize() * 0.6);
+
+            if (distance < dynamicThreshold && distance < bestDistance) {
+                bestDistance = distance;
+                bestMatch = candidate;
+            }
+        }
+
+        if (bestMatch == null) {
+            nextTrackId++;
+            bestMatch = new Track<>("track-" + nextTrackId, rect);
+            activeTracks.put(bestMatch.id, bestMatch);
+        } else {
+            bestMatch.updateRect(rect);
+        }
+
+        bestMatch.framesSinceSeen = 0;
+        bestMatch.hits++;
+        return bestMatch;
+    }
+
+    public static final class Track<T> {
+        private final String id;
+        private Rect lastRect;
+        private int framesSinceSeen = 0;
+        private int hits = 0;
+        private T state;
+        private long lastRecognizedAtMs = 0L;
+        private boolean identified = false;
+        private double lastConfidence = 0.0;
+
+        private Track(String id, Rect rect) {
+            this.id = id;
+            this.lastRect = rect.clone();
+        }
+
+        private void updateRect(Rect rect) {
+            this.lastRect = rect.clone();
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public Rect rect() {
+            return lastRect;
+        }
+
+        /**
+         * Number of frames in which this track was matched, including the first.
+         */
+        public int hits() {
+            return hits;
+        }
+
+        public T getState() {
+            return state;
+        }
+
+        public void setState(T state) {
+            this.state = state;
+        }
+
+        /**
+         * Records the outcome of a recognition attempt, used to prioritise the
+         * next ones (see {@link LatencyBudgetScheduler}).
+         */
+        public void markRecognized(boolean identified, double confidence, long nowMs) {
+            this.identified = identified;
+            this.lastConfidence = confidence;
+            this.lastRecognizedAtMs = nowMs;
+        }
+
+        public boolean hasBeenRecognized() {
+            return lastRecognizedAtMs > 0;
+        }
+
+        public boolean isIdentified() {
+            return identified;
+        }
+
+        public double getLastConfidence() {
+            return lastConfidence;
+        }
+
+        public long getLastRecognizedAtMs() {
+            return lastRecognizedAtMs;
+        }
+
+        public int framesSinceSeen() {
+            return framesSinceSeen;
+        }
+
+        private double distanceTo(double x, double y) {
+            double dx = lastRect.x + lastRect.width / 2.0 - x;
+            double dy = lastRect.y + lastRect.height / 2.0 - y;
+            return Math.hypot(dx, dy);
+        }
+
+        private double averageSize() {
+            return (lastRect.width + lastRect.height) / 2.0;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package service.recognition;
+
+import config.AppConfig;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import util.FrameContext;
+import util.ImageProcessor;
+
+/**
+ * Keeps the best few crops of each tracked face over a short window, so
+ * recognition embeds the sharpest, most frontal, largest view a track has
+ * offered recently instead of whichever frame it happened to be scheduled on.
+ *
+ * Crops are ranked with {@link ImageProcessor#measureFaceQuality}; only crops
+ * that make it into a track's top {@code capacity} are copied out of the frame.
+ * Thread-safe; one instance per pipeline, keyed by track id.
+ */
+public final class FrameQualityReservoir {
+    private static final int DEFAULT_CAPACITY = 3;
+    private static final long DEFAULT_WINDOW_MS = 1500;
+    private static final double PADDING_RATIO = 0.15;
+    private static final double SHARPNESS_WEIGHT = 0.45;
+    private static final double SYMMETRY_WEIGHT = 0.35;
+    private static final double SIZE_WEIGHT = 0.20;
+    // Face width at which the size term saturates
+    private static final double FULL_SIZE_WIDTH_PX = 160.0;
+
+    private final int capacity;
+    private final long windowMs;
+    private final double referenceSharpness;
+    private final double minBrightness;
+    private final double maxBrightness;
+    private final ImageProcessor imageProcessor = new ImageProcessor();
+    private final Map<String, List<Candidate>> candidatesByTrack = new HashMap<>();
+
+    public FrameQualityReservoir() {
+        this(DEFAULT_CAPACITY, DEFAULT_WINDOW_MS);
+    }
+
+    public FrameQualityReservoir(int capacity, long windowMs) {
+        this.capacity = Math.max(1, capacity);
+        this.windowMs = Math.max(1, windowMs);
+        AppConfig config = AppConfig.getInstance();
+        // Sharpness is measured on the padded crop at frame resolution, the same
+        // crop and scale the recognition quality gate checks against this threshold
+        this.referenceSharpness = Math.max(1.0, config.getPreprocessingMinSharpnessThreshold() * 2.0);
+        this.minBrightness = config.getPreprocessingMinBrightness();
+        this.maxBrightness = config.getPreprocessingMaxBrightness();
+    }
+
+    /**
+     * Scores the face at {@code faceRect} in {@code frame} and keeps a copy if
+     * it ranks among the track's best recent crops. Returns the score.
+     */
+    public double offer(String trackId, Mat frame, Rect faceRect) {
+        if (trackId == null || frame == null || frame.empty() || !isValid(faceRect)) {
+            return 0.0;
+        }
+        Rect paddedRect = RecognitionGeometry.paddedFaceRect(frame.size(), faceRect, PADDING_RATIO);
+        if (paddedRect.width <= 0 || paddedRect.height <= 0) {
+            return 0.0;
+        }
+        Mat view = new Mat(frame, paddedRect);
+        try {
+            return offer(trackId, view, view, faceRect, paddedRect, frame.cols(), frame.rows());
+        } finally {
+            view.release();
+        }
+    }
+
+    /**
+     * Same as {@link #offer(String, Mat, Rect)}, scoring on the frame
+     * context's shared grayscale frame.
+     */
+    public double offer(String trackId, FrameContext context, Rect faceRect) {
+        if (trackId == null || context == null || context.frame().empty() || !isValid(faceRect)) {
+            return 0.0;
+        }
+        Rect paddedRect = RecognitionGeometry.paddedFaceRect(context.frame().size(), faceRect, PADDING_RATIO);
+        if (paddedRect.width <= 0 || paddedRect.height <= 0) {
+            return 0.0;
+        }
+        return offer(trackId, context.crop(paddedRect), context.grayCrop(paddedRect), faceRect, paddedRect,
+                context.width(), context.height());
+    }
+
+    private double offer(String trackId, Mat colorCrop, Mat scoringCrop, Rect faceRect, Rect paddedRect,
+            int frameWidth, int frameHeight) {
+        long nowMs = System.currentTimeMillis();
+        double score = score(imageProcessor.measureFaceQuality(scoringCrop), faceRect);
+        synchronized (this) {
+            List<Candidate> candidates = candidatesByTrack.computeIfAbsent(trackId, id -> new ArrayList<>());
+            evictExpired(candidates, nowMs);
+            int worst = worstIndex(candidates);
+            if (candidates.size() >= capacity && candidates.get(worst).score >= score) {
+                return score;
+            }
+            if (candidates.size() >= capacity) {
+                candidates.remove(worst).release();
+            }
+            candidates.add(new Candidate(colorCrop.clone(), faceRect.clone(), paddedRect,
+                    frameWidth, frameHeight, score, nowMs));
+        }
+        return score;
+    }
+
+    /**
+     * Removes and returns the track's best crop from the current window, or
+     * {@code null} if it has none. The caller owns the candidate and must
+     * {@link Candidate#release()} it.
+     */
+    public synchronized Candidate takeBest(String trackId) {
+        List<Candidate> candidates = candidatesByTrack.get(trackId);
+        if (candidates == null) {
+            return null;
+        }
+        evictExpired(candidates, System.currentTimeMillis());
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        int best = 0;
+        for (int i = 1; i < candidates.size(); i++) {
+            if (candidates.get(i).score > candidates.get(best).score) {
+                best = i;
+            }
+        }
+        return candidates.remove(best);
+    }
+
+    public synchronized void discard(String trackId) {
+        List<Candidate> candidates = candidatesByTrack.remove(trackId);
+        if (candidates != null) {
+            candidates.forEach(Candidate::release);
+        }
+    }
+
+    public synchronized void clear() {
+        for (List<Candidate> candidates : candidatesByTrack.values()) {
+            candidates.forEach(Candidate::release);
+        }
+        candidatesByTrack.clear();
+    }
+
+    private double score(ImageProcessor.FaceQualityMetrics metrics, Rect faceRect) {
+        double sharpness = Math.min(1.0, metrics.getSharpness() / referenceSharpness);
+        double size = Math.min(1.0, faceRect.width / FULL_SIZE_WIDTH_PX);
+        double score = SHARPNESS_WEIGHT * sharpness
+                + SYMMETRY_WEIGHT * metrics.getSymmetry()
+                + SIZE_WEIGHT * size;
+        if (metrics.getBrightness() < minBrightness || metrics.getBrightness() > maxBrightness) {
+            score *= 0.5;
+        }
+        return score;
+    }
+
+    private static boolean isValid(Rect faceRect) {
+        return faceRect != null && faceRect.width > 0 && faceRect.height > 0;
+    }
+
+    private void evictExpired(List<Candidate> candidates, long nowMs) {
+        Iterator<Candidate> iterator = candidates.iterator();
+        while (iterator.hasNext()) {
+            Candidate candidate = iterator.next();
+            if (nowMs - candidate.capturedAtMs > windowMs) {
+                iterator.remove();
+                candidate.release();
+            }
+        }
+    }
+
+    private static int worstIndex(List<Candidate> candidates) {
+        int worst = 0;
+        for (int i = 1; i < candidates.size(); i++) {
+            if (candidates.get(i).score < candidates.get(worst).score) {
+                worst = i;
+            }
+        }
+        return worst;
+    }
+
+    /**
+     * A padded face crop copied out of its frame, with the geometry recognition
+     * needs to treat it like the original detection.
+     */
+    public static final class Candidate {
+        private final Mat crop;
+        private final Rect faceRect;
+        private final Rect paddedRect;
+        private final int frameWidth;
+        private final int frameHeight;
+        private final double score;
+        private final long capturedAtMs;
+
+        private Candidate(Mat crop, Rect faceRect, Rect paddedRect, int frameWidth, int frameHeight,
+                double score, long capturedAtMs) {
+            this.crop = crop;
+            this.faceRect = faceRect;
+            this.paddedRect = paddedRect;
+            this.frameWidth = frameWidth;
+            this.frameHeight = frameHeight;
+            this.score = score;
+            this.capturedAtMs = capturedAtMs;
+        }
+
+        public Mat crop() { return crop; }
+        public Rect faceRect() { return faceRect; }
+        public Rect paddedRect() { return paddedRect; }
+        public int frameWidth() { return frameWidth; }
+        public int frameHeight() { return frameHeight; }
+        public double score() { return score; }
+        public long capturedAtMs() { return capturedAtMs; }
+
+        public void release() {
+            crop.release();
+        }
+    }
+}
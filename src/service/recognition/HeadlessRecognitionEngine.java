@@ -0,0 +1,319 @@
+package service.recognition;
+
+import config.AppConfig;
+import config.AppLogger;
+import java.util.List;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import service.camera.CameraService;
+import service.detection.FaceDetector;
+import util.FrameContext;
+import util.LatencyRecorder;
+import util.PipelineMetrics;
+
+/**
+ * Runs detection, tracking and recognition over a frame source with no GUI:
+ * no rendering, no EDT and no pacing beyond what the source itself applies.
+ * Used for throughput runs; per-stage latencies are collected in
+ * {@link RunStats} and each recognition attempt is reported to a listener.
+ *
+ * Detection thresholds and the recognition cadence follow the live viewer
+ * (AppConfig detection/recognition settings and a {@link LatencyBudgetScheduler})
+ * unless overridden.
+ */
+public final class HeadlessRecognitionEngine {
+    private static final double MIN_ASPECT_RATIO = 0.7;
+    private static final double TRACKING_DISTANCE_THRESHOLD = 80.0;
+    private static final int TRACK_MISS_TOLERANCE = 10;
+    // A source that keeps failing to deliver frames is retried with a growing
+    // pause and given up on after this many failures in a row
+    private static final int MAX_CONSECUTIVE_READ_FAILURES = 50;
+    private static final long READ_RETRY_INITIAL_MS = 5;
+    private static final long READ_RETRY_MAX_MS = 500;
+
+    /**
+     * Receives one event per recognition attempt, on the engine thread.
+     */
+    public interface RecognitionListener {
+        void onRecognition(RecognitionEvent event);
+    }
+
+    private final CameraService frameSource;
+    private final FaceDetector faceDetector;
+    private final LiveRecognitionService recognitionService;
+    private final FaceTracker<LiveRecognitionService.DetailedRecognitionResult> tracker =
+            new FaceTracker<>(TRACKING_DISTANCE_THRESHOLD, TRACK_MISS_TOLERANCE);
+
+    private final FrameQualityReservoir frameReservoir = new FrameQualityReservoir();
+
+    private long maxFrames = 0;
+    private long maxDurationMs = 0;
+    private int recognitionInterval = 0;
+    private boolean bestFrameSelection = true;
+    private volatile boolean running = false;
+
+    public HeadlessRecognitionEngine(CameraService frameSource, FaceDetector faceDetector,
+            LiveRecognitionService recognitionService) {
+        this.frameSource = frameSource;
+        this.faceDetector = faceDetector;
+        this.recognitionService = recognitionService;
+    }
+
+    /**
+     * Stop after this many frames; zero or less runs until the source ends.
+     */
+    public void setMaxFrames(long maxFrames) {
+        this.maxFrames = maxFrames;
+    }
+
+    /**
+     * Stop after this much wall time; zero or less means no limit.
+     */
+    public void setMaxDurationMs(long maxDurationMs) {
+        this.maxDurationMs = maxDurationMs;
+    }
+
+    /**
+     * Detect on every frame and recognise all tracks every {@code n}th; zero or less
+     * schedules against {@code recognition.latency_target_ms} like the live viewer.
+     */
+    public void setRecognitionInterval(int n) {
+        this.recognitionInterval = n;
+    }
+
+    /**
+     * Embed each track's best recent crop ({@link FrameQualityReservoir})
+     * rather than the current frame. On by default.
+     */
+    public void setBestFrameSelection(boolean enabled) {
+        this.bestFrameSelection = enabled;
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Processes frames until the source ends or keeps failing to deliver frames,
+     * a limit is hit or {@link #stop()} is called. Blocks the calling thread.
+     */
+    public RunStats run(RecognitionListener listener) {
+        AppConfig config = AppConfig.getInstance();
+        double minConfidence = Math.max(0.05, Math.min(0.99, config.getDnnConfidence()));
+        int minDetectionSize = Math.max(20, Math.min(260, config.getDetectionMinSize()));
+        int minRecognitionWidth = Math.max(minDetectionSize,
+                Math.max(32, Math.min(260, config.getRecognitionMinFaceWidthPx())));
+
+        // A fixed interval recognises every track on every n-th frame; otherwise a
+        // latency-budget scheduler decides per frame what to detect and recognise
+        LatencyBudgetScheduler scheduler = recognitionInterval > 0
+                ? null
+                : new LatencyBudgetScheduler(config.getRecognitionLatencyTargetMs());
+        RunStats stats = new RunStats();
+        PipelineMetrics metrics = PipelineMetrics.getInstance();
+        Mat frame = new Mat();
+        running = true;
+        long startedAt = System.nanoTime();
+        long deadline = maxDurationMs > 0 ? startedAt + maxDurationMs * 1_000_000L : Long.MAX_VALUE;
+        int consecutiveReadFailures = 0;
+        long readRetryMs = READ_RETRY_INITIAL_MS;
+
+        try {
+            while (running) {
+                if (maxFrames > 0 && stats.frames >= maxFrames) {
+                    break;
+                }
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+
+                long frameStart = System.nanoTime();
+                if (!frameSource.readFrame(frame)) {
+                    if (frameSource.isEndOfStream() || !frameSource.isCameraAvailable()) {
+                        break;
+                    }
+                    stats.readFailures++;
+                    if (++consecutiveReadFailures >= MAX_CONSECUTIVE_READ_FAILURES) {
+                        AppLogger.warn("Headless recognition giving up after " + consecutiveReadFailures
+                                + " consecutive frame read failures");
+                        break;
+                    }
+                    Thread.sleep(readRetryMs);
+                    readRetryMs = Math.min(READ_RETRY_MAX_MS, readRetryMs * 2);
+                    continue;
+                }
+                consecutiveReadFailures = 0;
+                readRetryMs = READ_RETRY_INITIAL_MS;
+                long afterRead = System.nanoTime();
+                stats.read.record(afterRead - frameStart);
+                stats.frames++;
+                metrics.record(PipelineMetrics.Stage.CAPTURE, afterRead - frameStart);
+                metrics.increment(PipelineMetrics.FRAMES_CAPTURED);
+
+                try (FrameContext context = new FrameContext(frame)) {
+                    boolean detect = scheduler == null || scheduler.shouldDetect();
+                    List<FaceTracker.Track<LiveRecognitionService.DetailedRecognitionResult>> tracks;
+                    long afterDetect = afterRead;
+                    if (detect) {
+                        List<Rect> faces = faceDetector.detectRecognizableFaces(context, minConfidence,
+                                minDetectionSize, minRecognitionWidth, MIN_ASPECT_RATIO);
+                        afterDetect = System.nanoTime();
+                        stats.detect.record(afterDetect - afterRead);
+                        stats.facesDetected += faces.size();
+                        metrics.record(PipelineMetrics.Stage.DETECT, afterDetect - afterRead);
+                        metrics.add(PipelineMetrics.FACES_DETECTED, faces.size());
+                        tracks = tracker.update(faces);
+                        if (bestFrameSelection) {
+                            for (FaceTracker.Track<?> track : tracks) {
+                                frameReservoir.offer(track.id(), context, track.rect());
+                            }
+                        }
+                        for (FaceTracker.Track<?> stale : tracker.removeStaleTracks()) {
+                            recognitionService.discardSession(stale.id());
+                            frameReservoir.discard(stale.id());
+                        }
+                    } else {
+                        tracks = tracker.visibleTracks();
+                    }
+                    long afterTrack = System.nanoTime();
+                    stats.track.record(afterTrack - afterDetect);
+                    metrics.record(PipelineMetrics.Stage.TRACK, afterTrack - afterDetect);
+
+                    List<FaceTracker.Track<LiveRecognitionService.DetailedRecognitionResult>> toRecognize;
+                    if (scheduler != null) {
+                        if (detect) {
+                            scheduler.recordDetection(afterDetect - afterRead);
+                        }
+                        toRecognize = scheduler.selectForRecognition(tracks,
+                                scheduler.remainingBudgetNanos(frameStart));
+                    } else {
+                        toRecognize = stats.frames % recognitionInterval == 0 ? tracks : List.of();
+                    }
+
+                    long recognitionNanos = 0;
+                    for (FaceTracker.Track<LiveRecognitionService.DetailedRecognitionResult> track : toRecognize) {
+                        Rect rect = track.rect();
+                        long recognizeStart = System.nanoTime();
+                        LiveRecognitionService.DetailedRecognitionResult result;
+                        FrameQualityReservoir.Candidate best = bestFrameSelection
+                                ? frameReservoir.takeBest(track.id())
+                                : null;
+                        if (best != null) {
+                            rect = best.faceRect();
+                            result = recognitionService.analyzeFaceDetailed(best, track.id());
+                            best.release();
+                        } else {
+                            result = recognitionService.analyzeFaceDetailed(context, rect, track.id());
+                        }
+                        long recognizeNanos = System.nanoTime() - recognizeStart;
+                        recognitionNanos += recognizeNanos;
+                        stats.recognize.record(recognizeNanos);
+                        stats.facesRecognized++;
+                        if (result != null && result.isRecognized()) {
+                            stats.facesAccepted++;
+                        }
+                        track.setState(result);
+                        if (scheduler != null) {
+                            scheduler.recordRecognition(recognizeNanos);
+                            track.markRecognized(result != null && result.isRecognized(),
+                                    result != null ? result.getConfidence() : 0.0, System.currentTimeMillis());
+                        }
+
+                        if (listener != null) {
+                            listener.onRecognition(new RecognitionEvent(stats.frames, System.currentTimeMillis(),
+                                    track.id(), rect, result, recognizeNanos));
+                        }
+                    }
+                    if (scheduler != null) {
+                        scheduler.recordFrameOverhead(System.nanoTime() - afterDetect - recognitionNanos
+                                + (afterRead - frameStart));
+                    }
+                }
+
+                stats.frame.record(System.nanoTime() - frameStart);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            AppLogger.error("Headless recognition stopped on error: " + e.getMessage(), e);
+        } finally {
+            running = false;
+            stats.elapsedNanos = System.nanoTime() - startedAt;
+            frame.release();
+            tracker.clear();
+            frameReservoir.clear();
+        }
+        return stats;
+    }
+
+    /**
+     * A single recognition attempt on a tracked face.
+     */
+    public static final class RecognitionEvent {
+        private final long frameIndex;
+        private final long timestampMs;
+        private final String trackId;
+        private final Rect rect;
+        private final String studentId;
+        private final double confidence;
+        private final boolean recognized;
+        private final long latencyNanos;
+
+        private RecognitionEvent(long frameIndex, long timestampMs, String trackId, Rect rect,
+                LiveRecognitionService.DetailedRecognitionResult result, long latencyNanos) {
+            this.frameIndex = frameIndex;
+            this.timestampMs = timestampMs;
+            this.trackId = trackId;
+            this.rect = rect;
+            this.studentId = result != null ? result.getStudentId() : null;
+            this.confidence = result != null ? result.getConfidence() : 0.0;
+            this.recognized = result != null && result.isRecognized();
+            this.latencyNanos = latencyNanos;
+        }
+
+        public long getFrameIndex() { return frameIndex; }
+        public long getTimestampMs() { return timestampMs; }
+        public String getTrackId() { return trackId; }
+        public Rect getRect() { return rect; }
+        public String getStudentId() { return studentId; }
+        public double getConfidence() { return confidence; }
+        public boolean isRecognized() { return recognized; }
+        public long getLatencyNanos() { return latencyNanos; }
+    }
+
+    /**
+     * Totals and per-stage latencies for one run.
+     */
+    public static final class RunStats {
+        private final LatencyRecorder read = new LatencyRecorder("read");
+        private final LatencyRecorder detect = new LatencyRecorder("detect");
+        private final LatencyRecorder track = new LatencyRecorder("track");
+        private final LatencyRecorder recognize = new LatencyRecorder("recognize");
+        private final LatencyRecorder frame = new LatencyRecorder("frame");
+        private long frames;
+        private long readFailures;
+        private long facesDetected;
+        private long facesRecognized;
+        private long facesAccepted;
+        private long elapsedNanos;
+
+        public long getFrames() { return frames; }
+        public long getReadFailures() { return readFailures; }
+        public long getFacesDetected() { return facesDetected; }
+        public long getFacesRecognized() { return facesRecognized; }
+        public long getFacesAccepted() { return facesAccepted; }
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        public double getFps() {
+            return elapsedNanos > 0 ? frames * 1e9 / elapsedNanos : 0.0;
+        }
+
+        public double getFacesPerSecond() {
+            return elapsedNanos > 0 ? facesRecognized * 1e9 / elapsedNanos : 0.0;
+        }
+
+        public List<LatencyRecorder> getStages() {
+            return List.of(read, detect, track, recognize, frame);
+        }
+    }
+}
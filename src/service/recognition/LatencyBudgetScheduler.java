@@ -0,0 +1,167 @@
+package service.recognition;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides, frame by frame, how much of the pipeline to run so that one frame
+ * stays within a configured end-to-end latency target
+ * ({@code recognition.latency_target_ms}).
+ *
+ * Stage costs are measured as the pipeline runs and smoothed with an EWMA.
+ * Detection runs on every frame while it fits in half the budget, otherwise on
+ * every n-th frame (frames in between only reuse the tracked boxes). Whatever
+ * budget is left after detection goes to recognition, spent on the tracks that
+ * need it most: never-recognised first, then unidentified or low-confidence
+ * ones, then periodic refreshes of identified ones.
+ *
+ * Thread-safe; one instance per frame source.
+ */
+public final class LatencyBudgetScheduler {
+    private static final double EWMA_ALPHA = 0.2;
+    private static final int MAX_DETECT_STRIDE = 5;
+    private static final double DETECT_BUDGET_SHARE = 0.5;
+    private static final double LOW_CONFIDENCE = 0.6;
+    // Package-visible: LiveRecognitionService allows for this gap between recognitions of a face
+    static final long IDENTIFIED_REFRESH_MS = 2000;
+    private static final long MIN_FRAME_INTERVAL_NANOS = 1_000_000_000L / 30;
+
+    private final long targetNanos;
+    private double detectNanos = 0;
+    private double recognizeNanos = 0;
+    private double overheadNanos = 0;
+    private long framesSinceDetect = Long.MAX_VALUE / 2;
+
+    public LatencyBudgetScheduler(long latencyTargetMs) {
+        this.targetNanos = Math.max(1, latencyTargetMs) * 1_000_000L;
+    }
+
+    public long getTargetNanos() {
+        return targetNanos;
+    }
+
+    public synchronized void recordDetection(long nanos) {
+        detectNanos = smooth(detectNanos, nanos);
+    }
+
+    public synchronized void recordRecognition(long nanos) {
+        recognizeNanos = smooth(recognizeNanos, nanos);
+    }
+
+    /**
+     * Per-frame cost outside detection and recognition (read, track, render).
+     */
+    public synchronized void recordFrameOverhead(long nanos) {
+        overheadNanos = smooth(overheadNanos, nanos);
+    }
+
+    public synchronized double getDetectionCostMillis() {
+        return detectNanos / 1e6;
+    }
+
+    public synchronized double getRecognitionCostMillis() {
+        return recognizeNanos / 1e6;
+    }
+
+    /**
+     * Whether the current frame should run detection. Call once per frame.
+     */
+    public synchronized boolean shouldDetect() {
+        framesSinceDetect++;
+        if (framesSinceDetect >= detectStride()) {
+            framesSinceDetect = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Frames between detections under the current cost estimate (1 = every frame).
+     */
+    public synchronized int detectStride() {
+        double available = targetNanos * DETECT_BUDGET_SHARE - overheadNanos;
+        if (detectNanos <= 0 || detectNanos <= available) {
+            return 1;
+        }
+        if (available <= 0) {
+            return MAX_DETECT_STRIDE;
+        }
+        return (int) Math.min(MAX_DETECT_STRIDE, Math.ceil(detectNanos / available));
+    }
+
+    /**
+     * Picks the tracks to recognise this frame, highest priority first, as
+     * many as the estimated recognition cost allows within {@code budgetNanos}.
+     * A track that has never been recognised is always taken, so new faces are
+     * not starved when the budget is already spent.
+     */
+    public <T> List<FaceTracker.Track<T>> selectForRecognition(List<FaceTracker.Track<T>> tracks,
+            long budgetNanos) {
+        long nowMs = System.currentTimeMillis();
+        long retryGapMs = targetNanos / 1_000_000L;
+        List<FaceTracker.Track<T>> due = new ArrayList<>();
+        for (FaceTracker.Track<T> track : tracks) {
+            if (priority(track, nowMs, retryGapMs) < 3) {
+                due.add(track);
+            }
+        }
+        if (due.isEmpty()) {
+            return due;
+        }
+        due.sort(Comparator.<FaceTracker.Track<T>>comparingInt(t -> priority(t, nowMs, retryGapMs))
+                .thenComparingLong(FaceTracker.Track::getLastRecognizedAtMs));
+
+        int affordable;
+        synchronized (this) {
+            affordable = recognizeNanos <= 0
+                    ? due.size()
+                    : (int) Math.max(0, budgetNanos / recognizeNanos);
+        }
+        if (affordable == 0 && !due.get(0).hasBeenRecognized()) {
+            affordable = 1;
+        }
+        return due.size() <= affordable ? due : new ArrayList<>(due.subList(0, affordable));
+    }
+
+    /**
+     * Budget left for recognition in a frame that started at {@code frameStartNanos}.
+     */
+    public long remainingBudgetNanos(long frameStartNanos) {
+        return Math.max(0, targetNanos - (System.nanoTime() - frameStartNanos));
+    }
+
+    /**
+     * How long a loop may idle before the next frame: the rest of a 30 fps
+     * frame interval, or nothing if the frame already took longer.
+     */
+    public long idleNanos(long frameStartNanos) {
+        return Math.max(0, MIN_FRAME_INTERVAL_NANOS - (System.nanoTime() - frameStartNanos));
+    }
+
+    public synchronized void reset() {
+        detectNanos = 0;
+        recognizeNanos = 0;
+        overheadNanos = 0;
+        framesSinceDetect = Long.MAX_VALUE / 2;
+    }
+
+    /**
+     * 0 = never recognised, 1 = unidentified / low confidence and due for a
+     * retry, 2 = identified and due for a refresh, 3 = not due.
+     */
+    private static int priority(FaceTracker.Track<?> track, long nowMs, long retryGapMs) {
+        if (!track.hasBeenRecognized()) {
+            return 0;
+        }
+        long sinceLast = nowMs - track.getLastRecognizedAtMs();
+        if (!track.isIdentified() || track.getLastConfidence() < LOW_CONFIDENCE) {
+            return sinceLast >= retryGapMs ? 1 : 3;
+        }
+        return sinceLast >= IDENTIFIED_REFRESH_MS ? 2 : 3;
+    }
+
+    private static double smooth(double current, long sample) {
+        return current <= 0 ? sample : current + EWMA_ALPHA * (sample - current);
+    }
+}
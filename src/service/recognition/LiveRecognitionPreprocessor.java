@@ -25,9 +25,17 @@ public class LiveRecognitionPreprocessor {
      * @return a blob ready to be fed to the ArcFace ONNX model
      */
     public Mat preprocessForLiveRecognition(Mat faceROI, Rect faceRect) {
+        return preprocessForLiveRecognition(faceROI, faceRect, null);
+    }
+
+    /**
+     * @param grayROI grayscale version of {@code faceROI} if already computed,
+     *                otherwise {@code null}
+     */
+    public Mat preprocessForLiveRecognition(Mat faceROI, Rect faceRect, Mat grayROI) {
         AppLogger.info("=== STAGE 1: Face Detection & Preprocessing ===");
         AppLogger.info("Face ROI size: " + (faceROI != null ? faceROI.size() : "null"));
-        return preprocessor.preprocessForEmbedding(faceROI);
+        return preprocessor.preprocessForEmbedding(faceROI, grayROI);
     }
 
     public void release() {
@@ -5,12 +5,18 @@ import config.AppLogger;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
 import org.opencv.core.Rect;
 import org.opencv.core.Scalar;
+import org.opencv.imgproc.Imgproc;
 import service.embedding.FaceEmbeddingGenerator;
+import util.FrameContext;
 import util.ImageProcessor;
 import util.ImageProcessor.ImageQualityResult;
+import util.MatPool;
+import util.PipelineEvents;
+import util.PipelineMetrics;
 
 /**
  * Coordinates the live face recognition workflow by delegating to specialised
@@ -23,19 +29,22 @@ public class LiveRecognitionService {
     private static final Scalar REJECT_COLOR = new Scalar(0, 0, 255);
 
     private static final long SESSION_TIMEOUT_MILLIS = 5_000;
-    private static final long FRAME_LAG_RESET_MS = 900;
+    // The scheduler refreshes an identified face only every IDENTIFIED_REFRESH_MS, so a gap is
+    // only a lost cadence once it is well past that
+    private static final long FRAME_LAG_RESET_MS = 2 * LatencyBudgetScheduler.IDENTIFIED_REFRESH_MS;
 
     private final ImageProcessor imageProcessor = new ImageProcessor();
     private final FaceEmbeddingGenerator embeddingGenerator = new FaceEmbeddingGenerator();
     private final LiveRecognitionPreprocessor livePreprocessor = new LiveRecognitionPreprocessor();
-    private final RecognitionDatasetRepository datasetRepository = new RecognitionDatasetRepository(embeddingGenerator);
+    private final RecognitionDatasetRepository datasetRepository = RecognitionDatasetRepository.getInstance();
     private final RecognitionScorer scorer = new RecognitionScorer(datasetRepository, embeddingGenerator);
     private final RecognitionDecisionEngine decisionEngine = new RecognitionDecisionEngine();
     private final RecognitionConfidenceCalibrator confidenceCalibrator = new RecognitionConfidenceCalibrator();
     private final Map<String, RecognitionSession> sessions = new ConcurrentHashMap<>();
 
     public LiveRecognitionService() {
-        reloadDataset();
+        // Usually already loaded by RecognitionWarmup
+        datasetRepository.ensureLoaded();
     }
 
     public void reloadDataset() {
@@ -47,22 +56,57 @@ public class LiveRecognitionService {
         if (frame == null || frame.empty() || faceRect == null) {
             return RecognitionOutcome.rejected();
         }
+        long cropStart = System.nanoTime();
 
-        String key = (sessionId == null || sessionId.isBlank()) ? "default" : sessionId;
-        RecognitionSession session = sessionFor(key);
-        long frameTimestamp = System.currentTimeMillis();
-        session.touch();
-        cleanupStaleSessions();
+        Rect paddedRect = RecognitionGeometry.paddedFaceRect(frame.size(), faceRect, 0.15);
+        // A view is enough: the crop is only read and the frame outlives the call
+        Mat faceColor = frame.submat(paddedRect);
+        try {
+            return analyzeFaceCrop(faceColor, null, faceRect, paddedRect, frame.cols(), frame.rows(), sessionId,
+                    cropStart);
+        } finally {
+            faceColor.release();
+        }
+    }
 
-        if (session.registerFrame(frameTimestamp, FRAME_LAG_RESET_MS)) {
-            AppLogger.info("Frame cadence gap detected; resetting recognition history for session " + key);
-            session.history.reset();
+    /**
+     * Like {@link #analyzeFace(Mat, Rect, String)}, for a crop kept by a
+     * {@link FrameQualityReservoir}. The candidate stays owned by the caller.
+     */
+    public RecognitionOutcome analyzeFace(FrameQualityReservoir.Candidate candidate, String sessionId) {
+        if (candidate == null || candidate.crop().empty()) {
+            return RecognitionOutcome.rejected();
         }
+        return analyzeFaceCrop(candidate.crop(), null, candidate.faceRect(), candidate.paddedRect(),
+                candidate.frameWidth(), candidate.frameHeight(), sessionId, System.nanoTime());
+    }
 
-        Rect paddedRect = RecognitionGeometry.paddedFaceRect(frame.size(), faceRect, 0.15);
-        Mat faceColor = new Mat(frame, paddedRect).clone();
+    /**
+     * Like {@link #analyzeFace(Mat, Rect, String)}, borrowing the crop and its
+     * grayscale version from the frame's shared {@link FrameContext}.
+     */
+    public RecognitionOutcome analyzeFace(FrameContext context, Rect faceRect, String sessionId) {
+        if (context == null || context.frame().empty() || faceRect == null) {
+            return RecognitionOutcome.rejected();
+        }
+        long cropStart = System.nanoTime();
+        Rect paddedRect = RecognitionGeometry.paddedFaceRect(context.frame().size(), faceRect, 0.15);
+        return analyzeFaceCrop(context.crop(paddedRect), context.grayCrop(paddedRect), faceRect, paddedRect,
+                context.width(), context.height(), sessionId, cropStart);
+    }
+
+    private RecognitionOutcome analyzeFaceCrop(Mat faceColor, Mat faceGray, Rect faceRect, Rect paddedRect,
+            int frameWidth, int frameHeight, String sessionId, long cropStart) {
+        RecognitionSession session = openSession(sessionId);
+        MatPool.Lease ownedGray = faceGray == null ? toGray(faceColor) : null;
+        if (ownedGray != null) {
+            faceGray = ownedGray.mat();
+        }
+        PipelineMetrics.StageTimer timer = new PipelineMetrics.StageTimer(cropStart);
+        timer.lap(PipelineMetrics.Stage.CROP);
         try {
-            ImageQualityResult qualityResult = imageProcessor.validateImageQualityDetailed(faceColor);
+            ImageQualityResult qualityResult = imageProcessor.validateImageQualityDetailed(faceColor, faceGray);
+            timer.lap(PipelineMetrics.Stage.QUALITY);
             if (!qualityResult.isGoodQuality()) {
                 AppLogger.info("[Reject] Face rejected: Poor image quality. " + qualityResult.getFeedback());
                 return RecognitionOutcome.rejected();
@@ -72,14 +116,24 @@ public class LiveRecognitionService {
                 AppLogger.info("[Warn] Borderline image quality accepted: " + qualityResult.getFeedback());
             }
 
-            Mat preprocessedBlob = livePreprocessor.preprocessForLiveRecognition(faceColor, paddedRect);
+            timer.restart();
+            PipelineEvents.Alignment alignEvent = new PipelineEvents.Alignment();
+            alignEvent.begin();
+            Mat preprocessedBlob = livePreprocessor.preprocessForLiveRecognition(faceColor, paddedRect, faceGray);
+            alignEvent.complete(sessionId, faceRect.width, faceRect.height,
+                    preprocessedBlob != null && !preprocessedBlob.empty());
+            timer.lap(PipelineMetrics.Stage.ALIGN);
             if (preprocessedBlob == null || preprocessedBlob.empty()) {
                 AppLogger.info("[Reject] Face rejected: Preprocessing failed.");
                 return RecognitionOutcome.rejected();
             }
 
+            PipelineEvents.Inference inferenceEvent = new PipelineEvents.Inference();
+            inferenceEvent.begin();
             byte[] queryEmbedding = embeddingGenerator.generateEmbeddingFromBlob(preprocessedBlob);
             preprocessedBlob.release();
+            inferenceEvent.complete(sessionId, embeddingGenerator.isDeepLearningAvailable(), queryEmbedding);
+            timer.lap(PipelineMetrics.Stage.INFER);
 
             if (queryEmbedding == null) {
                 AppLogger.info("[Reject] Face rejected: Embedding generation failed.");
@@ -91,7 +145,17 @@ public class LiveRecognitionService {
             history.recordEmbedding(queryEmbedding);
             byte[] smoothedEmbedding = history.buildSmoothedEmbedding(embeddingGenerator);
 
+            PipelineEvents.Scoring scoringEvent = new PipelineEvents.Scoring();
+            scoringEvent.begin();
             RecognitionScorer.ScoreResult scoreResult = scorer.score(queryEmbedding, smoothedEmbedding);
+            scoringEvent.complete(sessionId, scoreResult.scores().size(), scoreResult.prefilterSkipped(),
+                    scoreResult.bestScore());
+            timer.lap(PipelineMetrics.Stage.SCORE);
+            PipelineEvents.Decision decisionEvent = new PipelineEvents.Decision();
+            decisionEvent.begin();
+            if (scoreResult.prefilterSkipped() > 0) {
+                PipelineMetrics.getInstance().add(PipelineMetrics.PREFILTER_SKIPPED, scoreResult.prefilterSkipped());
+            }
             if (scoreResult.isEmpty() || scoreResult.bestIndex() < 0) {
                 AppLogger.info("[Reject] Face rejected: No viable matches.");
                 return RecognitionOutcome.rejected();
@@ -104,8 +168,8 @@ public class LiveRecognitionService {
             }
 
             RecognitionFrameMetrics frameMetrics = RecognitionFrameMetrics.from(
-                    frame.cols(),
-                    frame.rows(),
+                    frameWidth,
+                    frameHeight,
                     faceRect,
                     paddedRect,
                     qualityResult);
@@ -129,6 +193,11 @@ public class LiveRecognitionService {
                     history.minimumConsistencyCount());
 
             history.recordPrediction(decision.accepted() ? scoreResult.bestIndex() : -1);
+            timer.lap(PipelineMetrics.Stage.DECIDE);
+            decisionEvent.complete(sessionId, decision.label(), decision.accepted(), decision.confidence());
+            PipelineMetrics.getInstance().increment(decision.accepted()
+                    ? PipelineMetrics.RECOGNITIONS_ACCEPTED
+                    : PipelineMetrics.RECOGNITIONS_REJECTED);
 
             if (decision.accepted()) {
                 String displayText = String.format("%s (%.2f)", decision.label(), decision.confidence());
@@ -137,7 +206,7 @@ public class LiveRecognitionService {
                         decision.label(), decision.rawScore(), decision.confidence(), decision.margin(),
                         decision.reason()));
                 logDecisionAdjustments(decision);
-                return RecognitionOutcome.accept(displayText);
+                return RecognitionOutcome.accept(displayText, effectiveConfidence(decision, scoreResult));
             }
 
             AppLogger.info(String.format(
@@ -149,12 +218,14 @@ public class LiveRecognitionService {
                     decision.margin(),
                     decision.reason()));
             logDecisionAdjustments(decision);
-            return RecognitionOutcome.rejected();
+            return RecognitionOutcome.rejected(effectiveConfidence(decision, scoreResult));
         } catch (Exception e) {
             AppLogger.error("Recognition error: " + e.getMessage(), e);
             return RecognitionOutcome.rejected();
         } finally {
-            faceColor.release();
+            if (ownedGray != null) {
+                ownedGray.close();
+            }
         }
     }
 
@@ -171,40 +242,85 @@ public class LiveRecognitionService {
         if (frame == null || frame.empty() || faceRect == null) {
             return new DetailedRecognitionResult(null, 0.0, false);
         }
+        long cropStart = System.nanoTime();
 
-        String key = (sessionId == null || sessionId.isBlank()) ? "default" : sessionId;
-        RecognitionSession session = sessionFor(key);
-        long frameTimestamp = System.currentTimeMillis();
-        session.touch();
-        cleanupStaleSessions();
+        Rect paddedRect = RecognitionGeometry.paddedFaceRect(frame.size(), faceRect, 0.15);
+        Mat faceColor = frame.submat(paddedRect);
+        try {
+            return analyzeFaceCropDetailed(faceColor, null, faceRect, paddedRect, frame.cols(), frame.rows(),
+                    sessionId, cropStart);
+        } finally {
+            faceColor.release();
+        }
+    }
 
-        if (session.registerFrame(frameTimestamp, FRAME_LAG_RESET_MS)) {
-            AppLogger.info("Frame cadence gap detected; resetting recognition history for session " + key);
-            session.history.reset();
+    /**
+     * Like {@link #analyzeFaceDetailed(Mat, Rect, String)}, for a crop kept by a
+     * {@link FrameQualityReservoir}. The candidate stays owned by the caller.
+     */
+    public DetailedRecognitionResult analyzeFaceDetailed(FrameQualityReservoir.Candidate candidate,
+            String sessionId) {
+        if (candidate == null || candidate.crop().empty()) {
+            return new DetailedRecognitionResult(null, 0.0, false);
         }
+        return analyzeFaceCropDetailed(candidate.crop(), null, candidate.faceRect(), candidate.paddedRect(),
+                candidate.frameWidth(), candidate.frameHeight(), sessionId, System.nanoTime());
+    }
 
-        Rect paddedRect = RecognitionGeometry.paddedFaceRect(frame.size(), faceRect, 0.15);
-        Mat faceColor = new Mat(frame, paddedRect).clone();
+    /**
+     * Like {@link #analyzeFaceDetailed(Mat, Rect, String)}, borrowing the crop
+     * and its grayscale version from the frame's shared {@link FrameContext}.
+     */
+    public DetailedRecognitionResult analyzeFaceDetailed(FrameContext context, Rect faceRect, String sessionId) {
+        if (context == null || context.frame().empty() || faceRect == null) {
+            return new DetailedRecognitionResult(null, 0.0, false);
+        }
+        long cropStart = System.nanoTime();
+        Rect paddedRect = RecognitionGeometry.paddedFaceRect(context.frame().size(), faceRect, 0.15);
+        return analyzeFaceCropDetailed(context.crop(paddedRect), context.grayCrop(paddedRect), faceRect,
+                paddedRect, context.width(), context.height(), sessionId, cropStart);
+    }
+
+    private DetailedRecognitionResult analyzeFaceCropDetailed(Mat faceColor, Mat faceGray, Rect faceRect,
+            Rect paddedRect, int frameWidth, int frameHeight, String sessionId, long cropStart) {
+        RecognitionSession session = openSession(sessionId);
+        MatPool.Lease ownedGray = faceGray == null ? toGray(faceColor) : null;
+        if (ownedGray != null) {
+            faceGray = ownedGray.mat();
+        }
+        PipelineMetrics.StageTimer timer = new PipelineMetrics.StageTimer(cropStart);
+        timer.lap(PipelineMetrics.Stage.CROP);
         try {
-            ImageQualityResult qualityResult = imageProcessor.validateImageQualityDetailed(faceColor);
+            ImageQualityResult qualityResult = imageProcessor.validateImageQualityDetailed(faceColor, faceGray);
+            timer.lap(PipelineMetrics.Stage.QUALITY);
             if (!qualityResult.isGoodQuality()) {
                 return new DetailedRecognitionResult(null, 0.0, false);
             }
 
             RecognitionFrameMetrics frameMetrics = RecognitionFrameMetrics.from(
-                    frame.cols(),
-                    frame.rows(),
+                    frameWidth,
+                    frameHeight,
                     faceRect,
                     paddedRect,
                     qualityResult);
 
-            Mat preprocessedBlob = livePreprocessor.preprocessForLiveRecognition(faceColor, paddedRect);
+            timer.restart();
+            PipelineEvents.Alignment alignEvent = new PipelineEvents.Alignment();
+            alignEvent.begin();
+            Mat preprocessedBlob = livePreprocessor.preprocessForLiveRecognition(faceColor, paddedRect, faceGray);
+            alignEvent.complete(sessionId, faceRect.width, faceRect.height,
+                    preprocessedBlob != null && !preprocessedBlob.empty());
+            timer.lap(PipelineMetrics.Stage.ALIGN);
             if (preprocessedBlob == null || preprocessedBlob.empty()) {
                 return new DetailedRecognitionResult(null, 0.0, false);
             }
 
+            PipelineEvents.Inference inferenceEvent = new PipelineEvents.Inference();
+            inferenceEvent.begin();
             byte[] queryEmbedding = embeddingGenerator.generateEmbeddingFromBlob(preprocessedBlob);
             preprocessedBlob.release();
+            inferenceEvent.complete(sessionId, embeddingGenerator.isDeepLearningAvailable(), queryEmbedding);
+            timer.lap(PipelineMetrics.Stage.INFER);
 
             if (queryEmbedding == null) {
                 return new DetailedRecognitionResult(null, 0.0, false);
@@ -214,7 +330,17 @@ public class LiveRecognitionService {
             history.recordEmbedding(queryEmbedding);
             byte[] smoothedEmbedding = history.buildSmoothedEmbedding(embeddingGenerator);
 
+            PipelineEvents.Scoring scoringEvent = new PipelineEvents.Scoring();
+            scoringEvent.begin();
             RecognitionScorer.ScoreResult scoreResult = scorer.score(queryEmbedding, smoothedEmbedding);
+            scoringEvent.complete(sessionId, scoreResult.scores().size(), scoreResult.prefilterSkipped(),
+                    scoreResult.bestScore());
+            timer.lap(PipelineMetrics.Stage.SCORE);
+            PipelineEvents.Decision decisionEvent = new PipelineEvents.Decision();
+            decisionEvent.begin();
+            if (scoreResult.prefilterSkipped() > 0) {
+                PipelineMetrics.getInstance().add(PipelineMetrics.PREFILTER_SKIPPED, scoreResult.prefilterSkipped());
+            }
             if (scoreResult.isEmpty() || scoreResult.bestIndex() < 0) {
                 return new DetailedRecognitionResult(null, 0.0, false);
             }
@@ -241,6 +367,11 @@ public class LiveRecognitionService {
                     history.minimumConsistencyCount());
 
             history.recordPrediction(decision.accepted() ? scoreResult.bestIndex() : -1);
+            timer.lap(PipelineMetrics.Stage.DECIDE);
+            decisionEvent.complete(sessionId, decision.label(), decision.accepted(), decision.confidence());
+            PipelineMetrics.getInstance().increment(decision.accepted()
+                    ? PipelineMetrics.RECOGNITIONS_ACCEPTED
+                    : PipelineMetrics.RECOGNITIONS_REJECTED);
 
             // Extract student ID from profile's displayLabel (format: "S12345 - Name")
             // Use profile label instead of decision label, as decision label might be "unknown" when rejected
@@ -260,18 +391,39 @@ public class LiveRecognitionService {
             
             // Return result even if not accepted, so we can use confidence for attendance marking
             // This allows the attendance window to show recognition results even with lower confidence
-            // Use the higher of decision confidence or a normalized raw score
-        double effectiveConfidence = Math.max(
-            decision.confidence(),
-            Math.min(1.0, rawScore + decision.thresholdRelief()));
-            return new DetailedRecognitionResult(studentId, effectiveConfidence, decision.accepted());
+            return new DetailedRecognitionResult(studentId, effectiveConfidence(decision, scoreResult),
+                    decision.accepted());
         } catch (Exception e) {
             AppLogger.error("Recognition error in analyzeFaceDetailed: " + e.getMessage(), e);
             return new DetailedRecognitionResult(null, 0.0, false);
         } finally {
-            faceColor.release();
+            if (ownedGray != null) {
+                ownedGray.close();
+            }
         }
     }
+
+    /**
+     * The confidence reported for a decision: the higher of the decision's own
+     * confidence and the raw similarity adjusted by the threshold relief.
+     */
+    private static double effectiveConfidence(RecognitionDecisionEngine.RecognitionDecision decision,
+            RecognitionScorer.ScoreResult scoreResult) {
+        return Math.max(decision.confidence(),
+                Math.min(1.0, scoreResult.bestScore() + decision.thresholdRelief()));
+    }
+
+    /**
+     * Pooled grayscale copy of a BGR crop, or {@code null} if it is already single-channel.
+     */
+    private static MatPool.Lease toGray(Mat faceColor) {
+        if (faceColor == null || faceColor.empty() || faceColor.channels() == 1) {
+            return null;
+        }
+        MatPool.Lease gray = MatPool.getInstance().lease(faceColor.rows(), faceColor.cols(), CvType.CV_8UC1);
+        Imgproc.cvtColor(faceColor, gray.mat(), Imgproc.COLOR_BGR2GRAY);
+        return gray;
+    }
     
     private String extractStudentIdFromLabel(String label) {
         if (label == null || label.isEmpty() || label.equals("unknown")) {
@@ -323,6 +475,7 @@ public class LiveRecognitionService {
 
     public void release() {
         livePreprocessor.release();
+        embeddingGenerator.release();
         sessions.clear();
     }
 
@@ -332,6 +485,16 @@ public class LiveRecognitionService {
         }
     }
 
+    /**
+     * Drops every session whose id starts with {@code prefix}, e.g. all
+     * per-track sessions of one camera.
+     */
+    public void discardSessionsWithPrefix(String prefix) {
+        if (prefix != null) {
+            sessions.keySet().removeIf(key -> key.startsWith(prefix));
+        }
+    }
+
     private void logScores(RecognitionScorer.ScoreResult scoreResult,
             RecognitionConfidenceCalibrator.Calibration calibration) {
         List<RecognitionScorer.ProfileScore> scores = scoreResult.scores();
@@ -413,19 +576,29 @@ public class LiveRecognitionService {
         private final String displayText;
         private final Scalar displayColor;
         private final boolean accepted;
+        private final double confidence;
 
-        private RecognitionOutcome(String displayText, Scalar displayColor, boolean accepted) {
+        private RecognitionOutcome(String displayText, Scalar displayColor, boolean accepted, double confidence) {
             this.displayText = displayText;
             this.displayColor = displayColor;
             this.accepted = accepted;
+            this.confidence = confidence;
         }
 
-        public static RecognitionOutcome accept(String labelText) {
-            return new RecognitionOutcome(labelText, ACCEPT_COLOR, true);
+        public static RecognitionOutcome accept(String labelText, double confidence) {
+            return new RecognitionOutcome(labelText, ACCEPT_COLOR, true, confidence);
         }
 
         public static RecognitionOutcome rejected() {
-            return new RecognitionOutcome("unknown", REJECT_COLOR, false);
+            return rejected(0.0);
+        }
+
+        /**
+         * A face matched against the gallery but not accepted, with the
+         * confidence of its best match.
+         */
+        public static RecognitionOutcome rejected(double confidence) {
+            return new RecognitionOutcome("unknown", REJECT_COLOR, false, confidence);
         }
 
         public String displayText() {
@@ -439,6 +612,28 @@ public class LiveRecognitionService {
         public boolean accepted() {
             return accepted;
         }
+
+        /**
+         * Same scale as {@link DetailedRecognitionResult#getConfidence()}; 0 when
+         * the face never reached scoring.
+         */
+        public double confidence() {
+            return confidence;
+        }
+    }
+
+    private RecognitionSession openSession(String sessionId) {
+        String key = (sessionId == null || sessionId.isBlank()) ? "default" : sessionId;
+        RecognitionSession session = sessionFor(key);
+        long frameTimestamp = System.currentTimeMillis();
+        session.touch();
+        cleanupStaleSessions();
+
+        if (session.registerFrame(frameTimestamp, FRAME_LAG_RESET_MS)) {
+            AppLogger.debug("Frame cadence gap detected; resetting recognition history for session " + key);
+            session.history.reset();
+        }
+        return session;
     }
 
     private RecognitionSession sessionFor(String sessionId) {
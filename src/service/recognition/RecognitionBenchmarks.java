@@ -0,0 +1,166 @@
+package service.recognition;
+
+import config.AppConfig;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import service.embedding.FaceEmbeddingGenerator;
+import util.MicroBenchmark;
+
+/**
+ * Benchmarks for the CPU side of recognition on synthetic galleries: single
+ * similarity, embedding decode, history smoothing, exemplar tightness, full
+ * gallery scoring (with and without a smoothed query) and dataset reload.
+ *
+ * Galleries come from {@link SyntheticGallery} with its default spreads and
+ * hold {@code profiles x exemplars} embeddings of the configured size in the
+ * format the active embedding generator produces, so the centroid pre-filter
+ * behaves as it does on real galleries.
+ * Run through {@code app.RecognitionBenchmarkApp}.
+ */
+public final class RecognitionBenchmarks {
+    private static final long SEED = 42L;
+
+    private final MicroBenchmark harness;
+    private final int[] gallerySizes;
+    private final int exemplars;
+    private final int reloadMaxProfiles;
+    private final Pattern filter;
+    private final PrintStream progress;
+    private final FaceEmbeddingGenerator embeddingGenerator = new FaceEmbeddingGenerator();
+    private final int dimension = Math.max(1, AppConfig.getInstance().getEmbeddingSize());
+
+    /**
+     * @param gallerySizes      profile counts to benchmark scoring and reload at
+     * @param exemplars         embeddings per profile
+     * @param reloadMaxProfiles largest gallery written to disk for the reload benchmark
+     * @param filter            only benchmarks whose name matches run; {@code null} runs all
+     * @param progress          receives one line per finished benchmark; may be {@code null}
+     */
+    public RecognitionBenchmarks(MicroBenchmark harness, int[] gallerySizes, int exemplars, int reloadMaxProfiles,
+            Pattern filter, PrintStream progress) {
+        this.harness = harness;
+        this.gallerySizes = gallerySizes.clone();
+        this.exemplars = Math.max(1, exemplars);
+        this.reloadMaxProfiles = reloadMaxProfiles;
+        this.filter = filter;
+        this.progress = progress;
+    }
+
+    public List<MicroBenchmark.Result> runAll() throws Exception {
+        List<MicroBenchmark.Result> results = new ArrayList<>();
+        boolean floatFormat = embeddingGenerator.isDeepLearningAvailable();
+        SyntheticGallery person = gallery(1, floatFormat);
+        List<byte[]> exemplarSet = person.exemplars(0);
+        byte[] a = exemplarSet.get(0);
+        byte[] b = exemplarSet.get(Math.min(1, exemplarSet.size() - 1));
+        byte[][] queries = person.queries(16, 0.0).stream().map(SyntheticGallery.Query::getEmbedding)
+                .toArray(byte[][]::new);
+
+        run(results, "similarity", params(), () -> embeddingGenerator.calculateSimilarity(a, b));
+        run(results, "decode", params(), () -> RecognitionEmbeddingUtils.decodeToDouble(a));
+        RecognitionHistory history = new RecognitionHistory();
+        int[] next = { 0 };
+        run(results, "historySmoothing", params(), () -> {
+            history.recordEmbedding(queries[next[0]++ & (queries.length - 1)]);
+            return history.buildSmoothedEmbedding(embeddingGenerator);
+        });
+        RecognitionDatasetRepository repository = new RecognitionDatasetRepository(embeddingGenerator);
+        run(results, "tightness", params("exemplars", exemplars), () -> repository.computeTightness(exemplarSet));
+
+        for (int size : gallerySizes) {
+            boolean scoring = matches("score") || matches("scoreSmoothed");
+            boolean reload = matches("reload") && size <= reloadMaxProfiles;
+            if (!scoring && !reload) {
+                continue;
+            }
+            SyntheticGallery gallery = gallery(size, floatFormat);
+            // Queries belong to a person in the gallery, as they would in a classroom
+            List<SyntheticGallery.Query> stream = gallery.queries(2, 0.0);
+            byte[] query = stream.get(1).getEmbedding();
+            RecognitionHistory queryHistory = new RecognitionHistory();
+            queryHistory.recordEmbedding(stream.get(0).getEmbedding());
+            queryHistory.recordEmbedding(query);
+            byte[] smoothed = queryHistory.buildSmoothedEmbedding(embeddingGenerator);
+
+            if (scoring) {
+                repository.loadFromMemory(gallery.toMap());
+                RecognitionScorer scorer = new RecognitionScorer(repository, embeddingGenerator);
+                run(results, "score", params("profiles", size, "exemplars", exemplars),
+                        () -> scorer.score(query, null));
+                run(results, "scoreSmoothed", params("profiles", size, "exemplars", exemplars),
+                        () -> scorer.score(query, smoothed));
+                repository.loadFromMemory(Map.of());
+            }
+            if (reload) {
+                runReload(results, size, gallery);
+            }
+        }
+        return results;
+    }
+
+    private void runReload(List<MicroBenchmark.Result> results, int size, SyntheticGallery gallery)
+            throws Exception {
+        AppConfig config = AppConfig.getInstance();
+        String originalPath = config.getDatabaseStoragePath();
+        Path root = Files.createTempDirectory("gallery-bench-");
+        try {
+            gallery.writeTo(root);
+            config.setDatabaseStoragePath(root.toString());
+            RecognitionDatasetRepository repository = new RecognitionDatasetRepository(embeddingGenerator);
+            run(results, "reload", params("profiles", size, "exemplars", exemplars), () -> {
+                repository.reload();
+                return repository.size();
+            });
+        } finally {
+            config.setDatabaseStoragePath(originalPath);
+            deleteRecursively(root);
+        }
+    }
+
+    private void run(List<MicroBenchmark.Result> results, String name, Map<String, String> params,
+            MicroBenchmark.Operation operation) throws Exception {
+        if (!matches(name)) {
+            return;
+        }
+        MicroBenchmark.Result result = harness.measure(getClass().getName() + "." + name, params, operation);
+        results.add(result);
+        if (progress != null) {
+            progress.println(result);
+        }
+    }
+
+    private boolean matches(String name) {
+        return filter == null || filter.matcher(name).find();
+    }
+
+    private Map<String, String> params(Object... keyValues) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            params.put(String.valueOf(keyValues[i]), String.valueOf(keyValues[i + 1]));
+        }
+        params.put("dim", String.valueOf(dimension));
+        return params;
+    }
+
+    private SyntheticGallery gallery(int size, boolean floatFormat) {
+        return new SyntheticGallery(size, exemplars, SyntheticGallery.DEFAULT_INTRA_SIMILARITY,
+                SyntheticGallery.DEFAULT_INTER_SIMILARITY, SEED, floatFormat);
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}
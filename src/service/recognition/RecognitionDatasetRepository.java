@@ -6,12 +6,19 @@ import java.io.File;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import model.FaceFolderIndex;
 import service.embedding.FaceEmbeddingGenerator;
+import util.PipelineEvents;
+import util.PipelineMetrics;
 
 /**
  * Loads and models the face embedding dataset present on disk. The repository
  * is responsible for discovering folders, validating embeddings, and computing
  * per-person statistics needed for downstream recognition steps.
+ *
+ * Live recognition and the startup warm-up share one gallery through
+ * {@link #getInstance()}; benchmarks build their own.
  */
 final class RecognitionDatasetRepository {
 
@@ -21,12 +28,59 @@ final class RecognitionDatasetRepository {
     private final FaceEmbeddingGenerator embeddingGenerator;
     private final List<RecognitionProfile> profiles = new ArrayList<>();
     private final Object lock = new Object();
+    // Serialises loads; guards the fields below
+    private final Object loadLock = new Object();
+    private boolean loaded;
+    private String loadedPath;
+    private long loadedGeneration;
+
+    private static RecognitionDatasetRepository instance = null;
 
     RecognitionDatasetRepository(FaceEmbeddingGenerator embeddingGenerator) {
         this.embeddingGenerator = embeddingGenerator;
     }
 
+    /**
+     * The gallery shared by every {@link LiveRecognitionService}, loaded on
+     * first use by whichever of the warm-up or a service gets there first.
+     */
+    static synchronized RecognitionDatasetRepository getInstance() {
+        if (instance == null) {
+            instance = new RecognitionDatasetRepository(new FaceEmbeddingGenerator());
+        }
+        return instance;
+    }
+
+    /**
+     * Loads the gallery from disk unless it is loaded and the face data has
+     * not changed since ({@link FaceFolderIndex#generation()}, storage path);
+     * a caller arriving during a load waits for it instead of loading again.
+     */
+    void ensureLoaded() {
+        synchronized (loadLock) {
+            if (!loaded
+                    || loadedGeneration != FaceFolderIndex.getInstance().generation()
+                    || !AppConfig.getInstance().getDatabaseStoragePath().equals(loadedPath)) {
+                reload();
+            }
+        }
+    }
+
     void reload() {
+        synchronized (loadLock) {
+            // Read first, so a change made during the scan still counts as newer
+            long generation = FaceFolderIndex.getInstance().generation();
+            String path = AppConfig.getInstance().getDatabaseStoragePath();
+            reloadFromDisk();
+            loaded = true;
+            loadedGeneration = generation;
+            loadedPath = path;
+        }
+    }
+
+    private void reloadFromDisk() {
+        PipelineEvents.GalleryReload event = new PipelineEvents.GalleryReload();
+        event.begin();
         String databaseRoot = AppConfig.getInstance().getDatabaseStoragePath();
         File root = new File(databaseRoot);
         File[] directories = root.listFiles(File::isDirectory);
@@ -36,6 +90,9 @@ final class RecognitionDatasetRepository {
             synchronized (lock) {
                 profiles.clear();
             }
+            PipelineMetrics.getInstance().setGauge(PipelineMetrics.GALLERY_PERSONS, 0);
+            PipelineMetrics.getInstance().setGauge(PipelineMetrics.GALLERY_EMBEDDINGS, 0);
+            event.complete(0, 0);
             return;
         }
 
@@ -56,61 +113,93 @@ final class RecognitionDatasetRepository {
         List<RecognitionProfile> refreshedProfiles = new ArrayList<>();
 
         for (File dir : directories) {
-            String displayLabel = buildDisplayLabel(dir.getName());
-            List<byte[]> embeddings = loadEmbeddings(dir);
-            double[] centroid = computeCentroid(embeddings);
-            double tightness = computeTightness(embeddings);
-            double stdDev = computeStdDev(embeddings, centroid);
-
-            double baseAbsolute = deepLearning ? 0.60 : 0.55;
-            double baseMargin = deepLearning ? 0.10 : 0.12;
-
-            boolean likelyHasGlasses = stdDev > 0.12;
-
-            if (likelyHasGlasses) {
-                double relaxationFactor = Math.max(0.88, 0.95 - (stdDev * 0.5));
-                baseAbsolute *= relaxationFactor;
-                baseMargin *= 0.85;
-                AppLogger.info(String.format(
-                        "  [Glasses Mode] %s variation stdDev=%.3f -> relaxed thresholds by %.1f%%",
-                        displayLabel,
-                        stdDev,
-                        (1.0 - relaxationFactor) * 100));
-            }
+            refreshedProfiles.add(buildProfile(dir.getAbsolutePath(), dir.getName(), loadEmbeddings(dir),
+                    deepLearning));
+        }
+        install(refreshedProfiles);
+        event.complete(refreshedProfiles.size(), countEmbeddings(refreshedProfiles));
+    }
 
-            double trainingAbsoluteThreshold = baseAbsolute + ((1.0 - tightness) * 0.10);
-            double liveAbsoluteThreshold = Math.max(
-                    MIN_LIVE_ABSOLUTE_THRESHOLD,
-                    trainingAbsoluteThreshold * LIVE_THRESHOLD_RELAXATION);
-            double relativeMargin = baseMargin + ((1.0 - tightness) * 0.10);
+    /**
+     * Replaces the gallery with in-memory embeddings keyed by folder name
+     * ({@code <ID>_<Name>}), skipping the disk; for benchmarks and tests.
+     */
+    void loadFromMemory(Map<String, List<byte[]>> embeddingsByFolder) {
+        boolean deepLearning = embeddingGenerator.isDeepLearningAvailable();
+        List<RecognitionProfile> refreshedProfiles = new ArrayList<>();
+        for (Map.Entry<String, List<byte[]>> entry : embeddingsByFolder.entrySet()) {
+            refreshedProfiles.add(buildProfile(entry.getKey(), entry.getKey(), entry.getValue(), deepLearning));
+        }
+        install(refreshedProfiles);
+    }
 
-            RecognitionProfile profile = new RecognitionProfile(
-                    dir.getAbsolutePath(),
-                    displayLabel,
-                    embeddings,
-                    centroid,
-                    tightness,
-                    liveAbsoluteThreshold,
-                    relativeMargin,
-                    stdDev);
+    private RecognitionProfile buildProfile(String folderPath, String folderName, List<byte[]> embeddings,
+            boolean deepLearning) {
+        String displayLabel = buildDisplayLabel(folderName);
+        double[] centroid = computeCentroid(embeddings);
+        double tightness = computeTightness(embeddings);
+        double stdDev = computeStdDev(embeddings, centroid);
+
+        double baseAbsolute = deepLearning ? 0.60 : 0.55;
+        double baseMargin = deepLearning ? 0.10 : 0.12;
 
-            refreshedProfiles.add(profile);
+        boolean likelyHasGlasses = stdDev > 0.12;
 
+        if (likelyHasGlasses) {
+            double relaxationFactor = Math.max(0.88, 0.95 - (stdDev * 0.5));
+            baseAbsolute *= relaxationFactor;
+            baseMargin *= 0.85;
             AppLogger.info(String.format(
-                    "Person %s: tightness=%.3f, stdDev=%.3f, absThresh.live=%.3f (training=%.3f), margin=%.3f",
-                    profile.displayLabel(),
-                    tightness,
+                    "  [Glasses Mode] %s variation stdDev=%.3f -> relaxed thresholds by %.1f%%",
+                    displayLabel,
                     stdDev,
-                    liveAbsoluteThreshold,
-                    trainingAbsoluteThreshold,
-                    relativeMargin));
+                    (1.0 - relaxationFactor) * 100));
         }
 
+        double trainingAbsoluteThreshold = baseAbsolute + ((1.0 - tightness) * 0.10);
+        double liveAbsoluteThreshold = Math.max(
+                MIN_LIVE_ABSOLUTE_THRESHOLD,
+                trainingAbsoluteThreshold * LIVE_THRESHOLD_RELAXATION);
+        double relativeMargin = baseMargin + ((1.0 - tightness) * 0.10);
+
+        RecognitionProfile profile = new RecognitionProfile(
+                folderPath,
+                displayLabel,
+                embeddings,
+                centroid,
+                tightness,
+                liveAbsoluteThreshold,
+                relativeMargin,
+                stdDev);
+
+        AppLogger.info(String.format(
+                "Person %s: tightness=%.3f, stdDev=%.3f, absThresh.live=%.3f (training=%.3f), margin=%.3f",
+                profile.displayLabel(),
+                tightness,
+                stdDev,
+                liveAbsoluteThreshold,
+                trainingAbsoluteThreshold,
+                relativeMargin));
+        return profile;
+    }
+
+    private void install(List<RecognitionProfile> refreshedProfiles) {
         synchronized (lock) {
             profiles.clear();
             profiles.addAll(refreshedProfiles);
             debugCentroidLocked();
         }
+        PipelineMetrics.getInstance().setGauge(PipelineMetrics.GALLERY_PERSONS, refreshedProfiles.size());
+        PipelineMetrics.getInstance().setGauge(PipelineMetrics.GALLERY_EMBEDDINGS,
+                countEmbeddings(refreshedProfiles));
+    }
+
+    private static int countEmbeddings(List<RecognitionProfile> profiles) {
+        int embeddingCount = 0;
+        for (RecognitionProfile profile : profiles) {
+            embeddingCount += profile.embeddings().size();
+        }
+        return embeddingCount;
     }
 
     List<RecognitionProfile> profiles() {
@@ -175,7 +264,7 @@ final class RecognitionDatasetRepository {
         return embeddings;
     }
 
-    private double computeTightness(List<byte[]> embeddings) {
+    double computeTightness(List<byte[]> embeddings) {
         if (embeddings == null || embeddings.size() < 2) {
             return 1.0;
         }
@@ -0,0 +1,174 @@
+package service.recognition;
+
+import config.AppConfig;
+import config.AppLogger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.swing.SwingUtilities;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Scalar;
+import service.detection.FaceDetector;
+import service.embedding.FaceEmbeddingGenerator;
+import service.embedding.FaceEmbeddingPreprocessor;
+import util.ModuleLoader;
+
+/**
+ * Startup warm-up for the recognition pipeline.
+ *
+ * Loads the face detector, ArcFace and the on-disk gallery in parallel, runs a
+ * few dummy forward passes and scoring rounds so native graph initialisation
+ * and JIT compilation happen before the first real face, and exposes a
+ * readiness future the recognition and attendance windows wait on. The warm-up
+ * keeps its model leases for the lifetime of the process so later windows
+ * always find the models resident.
+ */
+public final class RecognitionWarmup {
+
+    private static final long MAX_WAIT_MS = 10_000;
+    private static final int SCORING_WARMUP_ROUNDS = 200;
+    private static final int DETECTOR_WARMUP_PASSES = 2;
+
+    private static CompletableFuture<Void> readiness = null;
+    private static FaceEmbeddingGenerator retainedGenerator;
+    private static FaceEmbeddingPreprocessor retainedPreprocessor;
+
+    private RecognitionWarmup() {
+        // Utility class
+    }
+
+    /**
+     * Starts the warm-up if it has not been started yet and returns the
+     * readiness future. Safe to call from any thread.
+     */
+    public static synchronized CompletableFuture<Void> start() {
+        if (readiness != null) {
+            return readiness;
+        }
+
+        AtomicInteger threadCounter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(3, r -> {
+            Thread t = new Thread(r, "RecognitionWarmup-" + threadCounter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        long startedAt = System.currentTimeMillis();
+
+        CompletableFuture<Void> detector = CompletableFuture.runAsync(RecognitionWarmup::warmDetector, executor);
+        CompletableFuture<FaceEmbeddingGenerator> embedding = CompletableFuture
+                .supplyAsync(RecognitionWarmup::warmEmbedding, executor);
+        CompletableFuture<RecognitionDatasetRepository> gallery = CompletableFuture
+                .supplyAsync(RecognitionWarmup::loadGallery, executor);
+        // Scoring needs both the generator and the loaded gallery
+        CompletableFuture<Void> scoring = embedding
+                .thenAcceptBothAsync(gallery, RecognitionWarmup::warmScoring, executor);
+
+        readiness = CompletableFuture.allOf(detector, scoring)
+                .whenComplete((ignored, error) -> {
+                    executor.shutdown();
+                    if (error != null) {
+                        AppLogger.warn("Recognition warm-up finished with errors: " + error.getMessage());
+                    } else {
+                        AppLogger.info("Recognition warm-up completed in "
+                                + (System.currentTimeMillis() - startedAt) + " ms");
+                    }
+                });
+        return readiness;
+    }
+
+    /**
+     * The readiness future, starting the warm-up on first use.
+     */
+    public static CompletableFuture<Void> readiness() {
+        return start();
+    }
+
+    public static synchronized boolean isReady() {
+        return readiness != null && readiness.isDone();
+    }
+
+    /**
+     * Runs {@code action} on the EDT once the pipeline is warm. A failed or
+     * slow warm-up never blocks the caller for longer than {@link #MAX_WAIT_MS};
+     * the window then simply pays the remaining cost itself.
+     */
+    public static void whenReady(Runnable action) {
+        readiness()
+                .handle((ignored, error) -> (Void) null)
+                .completeOnTimeout(null, MAX_WAIT_MS, TimeUnit.MILLISECONDS)
+                .thenRun(() -> SwingUtilities.invokeLater(action));
+    }
+
+    private static void warmDetector() {
+        ModuleLoader.ensureOpenCVLoaded();
+        long t0 = System.currentTimeMillis();
+        FaceDetector detector = FaceDetector.getInstance();
+        Mat dummyFrame = new Mat(480, 640, CvType.CV_8UC3, new Scalar(96, 96, 96));
+        try {
+            for (int i = 0; i < DETECTOR_WARMUP_PASSES; i++) {
+                detector.detectCandidates(dummyFrame);
+            }
+        } finally {
+            dummyFrame.release();
+        }
+        AppLogger.info("[Warmup] Face detector ready in " + (System.currentTimeMillis() - t0) + " ms");
+    }
+
+    private static FaceEmbeddingGenerator warmEmbedding() {
+        ModuleLoader.ensureOpenCVLoaded();
+        long t0 = System.currentTimeMillis();
+        FaceEmbeddingGenerator generator = new FaceEmbeddingGenerator();
+        FaceEmbeddingPreprocessor preprocessor = new FaceEmbeddingPreprocessor();
+        synchronized (RecognitionWarmup.class) {
+            retainedGenerator = generator;
+            retainedPreprocessor = preprocessor;
+        }
+
+        if (generator.isDeepLearningAvailable()) {
+            int inputSize = AppConfig.getInstance().getEmbeddingInputSize();
+            Mat dummyFace = new Mat(inputSize, inputSize, CvType.CV_8UC3, new Scalar(128, 128, 128));
+            try {
+                Mat blob = preprocessor.preprocessForEmbedding(dummyFace);
+                generator.generateEmbeddingFromBlob(blob);
+            } finally {
+                dummyFace.release();
+            }
+        }
+        AppLogger.info("[Warmup] Embedding model ready in " + (System.currentTimeMillis() - t0) + " ms");
+        return generator;
+    }
+
+    private static RecognitionDatasetRepository loadGallery() {
+        long t0 = System.currentTimeMillis();
+        // The gallery every LiveRecognitionService reads, so the first window finds it loaded
+        RecognitionDatasetRepository repository = RecognitionDatasetRepository.getInstance();
+        repository.ensureLoaded();
+        AppLogger.info(String.format("[Warmup] Gallery of %d profiles loaded in %d ms",
+                repository.size(), System.currentTimeMillis() - t0));
+        return repository;
+    }
+
+    private static void warmScoring(FaceEmbeddingGenerator generator, RecognitionDatasetRepository repository) {
+        if (repository.isEmpty()) {
+            return;
+        }
+        long t0 = System.currentTimeMillis();
+        int dimensions = Math.max(1, AppConfig.getInstance().getEmbeddingSize());
+        double[] probe = new double[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            probe[i] = ((i * 31) % 17) - 8.0;
+        }
+        RecognitionEmbeddingUtils.normalizeL2InPlace(probe);
+        byte[] probeEmbedding = RecognitionEmbeddingUtils.encodeFromDouble(probe, true);
+
+        RecognitionScorer scorer = new RecognitionScorer(repository, generator);
+        for (int i = 0; i < SCORING_WARMUP_ROUNDS; i++) {
+            scorer.score(probeEmbedding, probeEmbedding);
+        }
+        AppLogger.info(String.format("[Warmup] Gallery scoring warmed in %d ms", System.currentTimeMillis() - t0));
+    }
+}
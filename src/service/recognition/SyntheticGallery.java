@@ -0,0 +1,274 @@
+package service.recognition;
+
+import config.AppConfig;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * SyntheticGallery - Deterministic generator of enrolled galleries and query
+ * streams for scale and soak testing without real faces.
+ *
+ * Every person is a unit-length centre made of a component shared by all
+ * persons plus a direction of their own; the shared weight sets the expected
+ * cosine between two centres ({@code interSimilarity}). Embeddings of a person
+ * are the centre plus isotropic noise, normalised, with the noise level set so
+ * two embeddings of the same person have an expected cosine of
+ * {@code intraSimilarity}. The noise level varies a little per person, as some
+ * people enrol more consistently than others.
+ *
+ * Everything derives from the seed, so a person's centre and exemplars are the
+ * same however large the gallery is, and queries can be scored against known
+ * ground truth: genuine queries are fresh samples of an enrolled person,
+ * impostor queries come from persons that were never enrolled.
+ *
+ * {@link #writeTo(Path)} produces the {@code <ID>_<Name>/<ID>_NNN.emb} layout
+ * {@link RecognitionDatasetRepository} reads; {@link #toMap()} feeds
+ * {@code loadFromMemory} directly. Run from the command line through
+ * {@code app.SyntheticGalleryApp}.
+ */
+public final class SyntheticGallery {
+    public static final double DEFAULT_INTRA_SIMILARITY = 0.56;
+    public static final double DEFAULT_INTER_SIMILARITY = 0.25;
+
+    private static final double SPREAD_JITTER = 0.15;
+    private static final long SHARED_STREAM = -1L;
+    private static final long QUERY_SALT = 0x5DEECE66DL;
+
+    private final int persons;
+    private final int exemplars;
+    private final double intraSimilarity;
+    private final double interSimilarity;
+    private final long seed;
+    private final boolean floatFormat;
+    private final int dimension = Math.max(1, AppConfig.getInstance().getEmbeddingSize());
+    private final double[] shared;
+
+    /**
+     * @param persons         enrolled persons
+     * @param exemplars       embeddings per person
+     * @param intraSimilarity expected cosine between two embeddings of one person, in (0, 1]
+     * @param interSimilarity expected cosine between two person centres, in [0, 1)
+     * @param floatFormat     write float embeddings (deep model) rather than double (fallback)
+     */
+    public SyntheticGallery(int persons, int exemplars, double intraSimilarity, double interSimilarity, long seed,
+            boolean floatFormat) {
+        if (persons < 0 || exemplars < 1) {
+            throw new IllegalArgumentException("persons must be >= 0 and exemplars >= 1");
+        }
+        if (!(intraSimilarity > 0.0 && intraSimilarity <= 1.0)) {
+            throw new IllegalArgumentException("intra-person similarity must be in (0, 1]: " + intraSimilarity);
+        }
+        if (!(interSimilarity >= 0.0 && interSimilarity < 1.0)) {
+            throw new IllegalArgumentException("inter-person similarity must be in [0, 1): " + interSimilarity);
+        }
+        this.persons = persons;
+        this.exemplars = exemplars;
+        this.intraSimilarity = intraSimilarity;
+        this.interSimilarity = interSimilarity;
+        this.seed = seed;
+        this.floatFormat = floatFormat;
+        this.shared = randomUnit(streamRandom(SHARED_STREAM));
+    }
+
+    public int getPersons() {
+        return persons;
+    }
+
+    public int getExemplars() {
+        return exemplars;
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public boolean isFloatFormat() {
+        return floatFormat;
+    }
+
+    /**
+     * Student ID of the person at {@code index}, e.g. {@code S00001}.
+     */
+    public String studentId(int index) {
+        return String.format("S%05d", index + 1);
+    }
+
+    /**
+     * Folder name of the person at {@code index}, e.g. {@code S00001_Synthetic00001}.
+     */
+    public String folderName(int index) {
+        return String.format("%s_Synthetic%05d", studentId(index), index + 1);
+    }
+
+    /**
+     * The enrolled embeddings of the person at {@code index}.
+     */
+    public List<byte[]> exemplars(int index) {
+        Random random = streamRandom(index);
+        double[] center = center(random);
+        double spread = spread(random);
+        List<byte[]> embeddings = new ArrayList<>(exemplars);
+        for (int e = 0; e < exemplars; e++) {
+            embeddings.add(encode(sample(random, center, spread)));
+        }
+        return embeddings;
+    }
+
+    /**
+     * The whole gallery keyed by folder name, in enrolment order.
+     */
+    public Map<String, List<byte[]>> toMap() {
+        Map<String, List<byte[]>> gallery = new LinkedHashMap<>();
+        for (int p = 0; p < persons; p++) {
+            gallery.put(folderName(p), exemplars(p));
+        }
+        return gallery;
+    }
+
+    /**
+     * Writes one folder per person under {@code root}; returns the number of
+     * embedding files written. Persons are generated one at a time, so the
+     * gallery never has to fit in memory.
+     */
+    public int writeTo(Path root) throws IOException {
+        Files.createDirectories(root);
+        int written = 0;
+        for (int p = 0; p < persons; p++) {
+            Path folder = Files.createDirectories(root.resolve(folderName(p)));
+            List<byte[]> embeddings = exemplars(p);
+            for (int e = 0; e < embeddings.size(); e++) {
+                Files.write(folder.resolve(String.format("%s_%03d.emb", studentId(p), e + 1)), embeddings.get(e));
+                written++;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * A reproducible stream of {@code count} queries; a fraction
+     * {@code impostorRate} of them come from persons outside the gallery.
+     */
+    public List<Query> queries(int count, double impostorRate) {
+        Random random = new Random(seed ^ QUERY_SALT);
+        List<Query> queries = new ArrayList<>(Math.max(0, count));
+        for (int q = 0; q < count; q++) {
+            boolean impostor = persons == 0 || random.nextDouble() < impostorRate;
+            // Impostors are persons past the end of the gallery, so they share its statistics
+            int index = impostor ? persons + random.nextInt(Math.max(1, persons)) : random.nextInt(persons);
+            Random personRandom = streamRandom(index);
+            double[] center = center(personRandom);
+            double spread = spread(personRandom);
+            byte[] embedding = encode(sample(random, center, spread));
+            queries.add(new Query(q, impostor ? null : folderName(index), embedding));
+        }
+        return queries;
+    }
+
+    /**
+     * Writes queries as {@code query_NNNNNN.emb} files plus a
+     * {@code ground_truth.csv} mapping each file to its expected folder name
+     * (empty for impostors). Keep this directory outside the gallery root.
+     */
+    public void writeQueries(Path directory, List<Query> queries) throws IOException {
+        Files.createDirectories(directory);
+        try (BufferedWriter truth = Files.newBufferedWriter(directory.resolve("ground_truth.csv"),
+                StandardCharsets.UTF_8)) {
+            truth.write("file,expected");
+            truth.newLine();
+            for (Query query : queries) {
+                String file = String.format("query_%06d.emb", query.getSequence() + 1);
+                Files.write(directory.resolve(file), query.getEmbedding());
+                truth.write(file + "," + (query.isEnrolled() ? query.getExpectedFolder() : ""));
+                truth.newLine();
+            }
+        }
+    }
+
+    private Random streamRandom(long stream) {
+        // Random scrambles its seed, so distinct inputs give independent streams
+        return new Random(seed * 0x9E3779B97F4A7C15L + stream);
+    }
+
+    private double[] center(Random random) {
+        double[] own = randomUnit(random);
+        double sharedWeight = Math.sqrt(interSimilarity);
+        double ownWeight = Math.sqrt(1.0 - interSimilarity);
+        double[] center = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            center[i] = sharedWeight * shared[i] + ownWeight * own[i];
+        }
+        RecognitionEmbeddingUtils.normalizeL2InPlace(center);
+        return center;
+    }
+
+    private double spread(Random random) {
+        // Unit noise of length s around a unit centre gives a pairwise cosine of 1 / (1 + s^2)
+        double base = Math.sqrt(1.0 / intraSimilarity - 1.0);
+        return base * Math.exp(SPREAD_JITTER * random.nextGaussian());
+    }
+
+    private double[] sample(Random random, double[] center, double spread) {
+        double[] noise = randomUnit(random);
+        double[] vector = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = center[i] + spread * noise[i];
+        }
+        RecognitionEmbeddingUtils.normalizeL2InPlace(vector);
+        return vector;
+    }
+
+    private double[] randomUnit(Random random) {
+        double[] vector = new double[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = random.nextGaussian();
+        }
+        RecognitionEmbeddingUtils.normalizeL2InPlace(vector);
+        return vector;
+    }
+
+    private byte[] encode(double[] vector) {
+        return RecognitionEmbeddingUtils.encodeFromDouble(vector, floatFormat);
+    }
+
+    /**
+     * One query embedding with its ground truth.
+     */
+    public static final class Query {
+        private final int sequence;
+        private final String expectedFolder;
+        private final byte[] embedding;
+
+        private Query(int sequence, String expectedFolder, byte[] embedding) {
+            this.sequence = sequence;
+            this.expectedFolder = expectedFolder;
+            this.embedding = embedding;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Folder name of the enrolled person, or {@code null} for an impostor.
+         */
+        public String getExpectedFolder() {
+            return expectedFolder;
+        }
+
+        public boolean isEnrolled() {
+            return expectedFolder != null;
+        }
+
+        public byte[] getEmbedding() {
+            return embedding;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package service.student;
+
+import entity.Student;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import repository.StudentRepository;
+import repository.StudentRepositoryInstance;
+import util.PipelineMetrics;
+
+/**
+ * StudentDirectory - Process-wide read-through cache of students by ID for
+ * the live attendance path, where every recognised face needs its student.
+ *
+ * Attendance windows preload their session roster, so label resolution and
+ * marking are a hash lookup; other IDs are read from the database once and
+ * kept. IDs the database does not know are remembered for {@link #MISS_TTL_MS}
+ * so an unenrolled gallery folder does not cost a query per frame.
+ * {@link StudentManager} invalidates entries when it enrols, updates or
+ * deletes a student. Returned students are shared: treat them as read-only.
+ */
+public final class StudentDirectory {
+    private static final long MISS_TTL_MS = 30_000L;
+
+    private static StudentDirectory instance = null;
+
+    private final StudentRepository repository;
+    private final Map<String, Student> students = new ConcurrentHashMap<>();
+    private final Map<String, Long> misses = new ConcurrentHashMap<>();
+    // Bumped on every invalidation, so a load that raced with one is not cached
+    private final AtomicLong generation = new AtomicLong();
+    private final PipelineMetrics metrics = PipelineMetrics.getInstance();
+
+    private StudentDirectory(StudentRepository repository) {
+        this.repository = repository;
+        metrics.registerGauge("students.cached", students::size);
+    }
+
+    public static synchronized StudentDirectory getInstance() {
+        if (instance == null) {
+            instance = new StudentDirectory(new StudentRepositoryInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * The student with {@code studentId}, or {@code null} if there is none.
+     */
+    public Student find(String studentId) {
+        if (studentId == null) {
+            return null;
+        }
+        Student cached = students.get(studentId);
+        if (cached != null) {
+            metrics.increment("students.cache_hits");
+            return cached;
+        }
+        Long missedAt = misses.get(studentId);
+        if (missedAt != null && System.currentTimeMillis() - missedAt < MISS_TTL_MS) {
+            metrics.increment("students.cache_hits");
+            return null;
+        }
+
+        metrics.increment("students.cache_misses");
+        long loadGeneration = generation.get();
+        Student loaded = repository.findById(studentId);
+        if (generation.get() == loadGeneration) {
+            if (loaded != null) {
+                students.put(studentId, loaded);
+                misses.remove(studentId);
+            } else {
+                misses.put(studentId, System.currentTimeMillis());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Adds students that were already loaded, e.g. a session roster.
+     */
+    public void preload(Collection<Student> loaded) {
+        for (Student student : loaded) {
+            if (student != null && student.getStudentId() != null) {
+                students.put(student.getStudentId(), student);
+                misses.remove(student.getStudentId());
+            }
+        }
+    }
+
+    public void invalidate(String studentId) {
+        generation.incrementAndGet();
+        if (studentId != null) {
+            students.remove(studentId);
+            misses.remove(studentId);
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        students.clear();
+        misses.clear();
+    }
+
+    public int size() {
+        return students.size();
+    }
+}
@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.stream.Stream;
 import model.FaceData;
+import model.FaceFolderIndex;
 import repository.StudentRepository;
 import repository.StudentRepositoryInstance;
 
@@ -60,6 +61,7 @@ public class StudentManager {
             }
 
             boolean success = studentRepository.save(student);
+            StudentDirectory.getInstance().invalidate(student.getStudentId());
             return success;
 
         } catch (Exception e) {
@@ -102,6 +104,7 @@ public class StudentManager {
             }
 
             boolean updated = studentRepository.update(student);
+            StudentDirectory.getInstance().invalidate(student.getStudentId());
             if (!updated && renameNeeded) {
                 // Attempt to move the face data back to its original location to keep filesystem consistent
                 if (!moveFaceDataDirectory(newPath, oldPath, student.getStudentId())) {
@@ -132,6 +135,7 @@ public class StudentManager {
 
             AppLogger.info("Calling repository.delete() for student ID: " + studentId);
             boolean result = studentRepository.delete(studentId);
+            StudentDirectory.getInstance().invalidate(studentId);
             AppLogger.info("Repository delete operation completed. Result: " + result);
 
             if (result) {
@@ -162,6 +166,26 @@ public class StudentManager {
         }
     }
 
+    /**
+     * Cached lookup for the live attendance path; see {@link StudentDirectory}.
+     * The returned student is shared, so edit a copy from {@link #findStudentById}.
+     */
+    public Student findStudentCached(String studentId) {
+        try {
+            return StudentDirectory.getInstance().find(studentId);
+        } catch (Exception e) {
+            System.err.println("Error finding student: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Seeds the student cache with students that are already loaded.
+     */
+    public void preloadStudents(List<Student> students) {
+        StudentDirectory.getInstance().preload(students);
+    }
+
     public List<Student> getAllStudents() {
         try {
             return studentRepository.findAll();
@@ -310,6 +334,8 @@ public class StudentManager {
                 Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
             }
 
+            FaceFolderIndex.getInstance().invalidate(source);
+            FaceFolderIndex.getInstance().invalidate(target);
             AppLogger.info("Moved face data directory for student " + studentId + " from " + source + " to " + target);
             return true;
         } catch (IOException moveException) {
@@ -338,6 +364,7 @@ public class StudentManager {
                     throw new RuntimeException(deletionException);
                 }
             });
+            FaceFolderIndex.getInstance().invalidate(folder);
             AppLogger.info("Deleted face data directory for student " + studentId + ": " + folder);
             return true;
         } catch (RuntimeException | IOException deletionFailure) {
@@ -8,6 +8,9 @@ public class FaceAligner {
     private CascadeClassifier eyeDetector;
     private CascadeClassifier noseDetector;
     private CascadeClassifier mouthDetector;
+    private ModelRegistry.Lease<CascadeClassifier> eyeLease;
+    private ModelRegistry.Lease<CascadeClassifier> noseLease;
+    private ModelRegistry.Lease<CascadeClassifier> mouthLease;
     private boolean isInitialized = false;
     
     private static final Point LEFT_EYE_TARGET = new Point(38.2946, 51.6963);
@@ -32,9 +35,14 @@ public class FaceAligner {
             String noseCascadePath = "data/resources/haarcascade_mcs_nose.xml";
             String mouthCascadePath = "data/resources/haarcascade_mcs_mouth.xml";
 
-            eyeDetector = new CascadeClassifier(eyeCascadePath);
-            noseDetector = new CascadeClassifier(noseCascadePath);
-            mouthDetector = new CascadeClassifier(mouthCascadePath);
+            // Cascades are shared across every aligner through the model registry
+            ModelRegistry registry = ModelRegistry.getInstance();
+            eyeLease = registry.acquireCascade(eyeCascadePath);
+            noseLease = registry.acquireCascade(noseCascadePath);
+            mouthLease = registry.acquireCascade(mouthCascadePath);
+            eyeDetector = eyeLease.get();
+            noseDetector = noseLease.get();
+            mouthDetector = mouthLease.get();
 
             if (eyeDetector.empty()) {
                 System.err.println("ERROR: Could not load eye cascade from: " + eyeCascadePath);
@@ -60,6 +68,14 @@ public class FaceAligner {
     }
 
     public Mat align(Mat faceImage, Rect faceRect) {
+        return align(faceImage, faceRect, null);
+    }
+
+    /**
+     * Aligns {@code faceImage}, reusing its grayscale version when the caller
+     * already has one ({@code grayFace} may be {@code null}).
+     */
+    public Mat align(Mat faceImage, Rect faceRect, Mat grayFace) {
         if (!isInitialized) {
             return heuristicFallbackAlignment(faceImage);
         }
@@ -74,15 +90,21 @@ public class FaceAligner {
         }
 
         try {
-            Mat gray = new Mat();
-            if (faceImage.channels() == 3) {
-                Imgproc.cvtColor(faceImage, gray, Imgproc.COLOR_BGR2GRAY);
-            } else {
-                gray = faceImage.clone();
+            Mat gray = grayFace;
+            boolean ownsGray = gray == null || gray.empty();
+            if (ownsGray) {
+                gray = new Mat();
+                if (faceImage.channels() == 3) {
+                    Imgproc.cvtColor(faceImage, gray, Imgproc.COLOR_BGR2GRAY);
+                } else {
+                    gray = faceImage.clone();
+                }
             }
 
             Point[] landmarks = detect5Landmarks(gray, faceImage.width(), faceImage.height());
-            gray.release();
+            if (ownsGray) {
+                gray.release();
+            }
 
             if (landmarks != null && isValidLandmarkConfiguration(landmarks, faceImage.width(), faceImage.height())) {
                 if (debugMode) {
@@ -147,9 +169,11 @@ public class FaceAligner {
             Rect topHalf = new Rect(0, 0, width, (int)(height * 0.6));
             Mat grayTop = new Mat(gray, topHalf);
             MatOfRect eyes = new MatOfRect();
-            eyeDetector.detectMultiScale(grayTop, eyes, 1.1, 3, 0,
-                    new Size(width * 0.1, height * 0.1),
-                    new Size(width * 0.4, height * 0.4));
+            synchronized (eyeLease.lock()) {
+                eyeDetector.detectMultiScale(grayTop, eyes, 1.1, 3, 0,
+                        new Size(width * 0.1, height * 0.1),
+                        new Size(width * 0.4, height * 0.4));
+            }
 
             Rect[] eyeArray = eyes.toArray();
             grayTop.release();
@@ -223,9 +247,11 @@ public class FaceAligner {
             Mat grayNose = new Mat(gray, noseRegion);
 
             MatOfRect noses = new MatOfRect();
-            noseDetector.detectMultiScale(grayNose, noses, 1.1, 3, 0,
-                    new Size(searchW * 0.2, searchH * 0.2),
-                    new Size(searchW * 0.6, searchH * 0.6));
+            synchronized (noseLease.lock()) {
+                noseDetector.detectMultiScale(grayNose, noses, 1.1, 3, 0,
+                        new Size(searchW * 0.2, searchH * 0.2),
+                        new Size(searchW * 0.6, searchH * 0.6));
+            }
 
             Rect[] noseArray = noses.toArray();
             grayNose.release();
@@ -266,9 +292,11 @@ public class FaceAligner {
             Mat grayMouth = new Mat(gray, mouthRegion);
 
             MatOfRect mouths = new MatOfRect();
-            mouthDetector.detectMultiScale(grayMouth, mouths, 1.1, 3, 0,
-                    new Size(searchW * 0.3, searchH * 0.2),
-                    new Size(searchW * 0.9, searchH * 0.8));
+            synchronized (mouthLease.lock()) {
+                mouthDetector.detectMultiScale(grayMouth, mouths, 1.1, 3, 0,
+                        new Size(searchW * 0.3, searchH * 0.2),
+                        new Size(searchW * 0.9, searchH * 0.8));
+            }
 
             Rect[] mouthArray = mouths.toArray();
             grayMouth.release();
@@ -424,9 +452,19 @@ public class FaceAligner {
     }
 
     public void release() {
+        isInitialized = false;
         eyeDetector = null;
         noseDetector = null;
         mouthDetector = null;
+        if (eyeLease != null) {
+            eyeLease.close();
+        }
+        if (noseLease != null) {
+            noseLease.close();
+        }
+        if (mouthLease != null) {
+            mouthLease.close();
+        }
     }
 }
 
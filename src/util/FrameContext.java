@@ -0,0 +1,144 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+/**
+ * FrameContext - Derived images for one camera frame, computed on first use
+ * and shared by every stage that processes the frame (detection, quality
+ * scoring, alignment), so the grayscale conversion and downscales happen once
+ * per frame instead of once per face per stage.
+ *
+ * The frame itself is borrowed and must stay unchanged until the context is
+ * closed; everything returned by the context is owned by it and is released
+ * by {@link #close()} (derived images go back to the {@link MatPool}, so the
+ * next frame of the same size reuses their buffers). Crops are views into the frame (no copy), so clone them
+ * if they must outlive the frame.
+ */
+public final class FrameContext implements AutoCloseable {
+    private final Mat frame;
+    private final List<Mat> pyramid = new ArrayList<>();
+    private final List<MatPool.Lease> leases = new ArrayList<>();
+    private final Map<Rect, Mat> crops = new HashMap<>();
+    private final Map<Rect, Mat> grayCrops = new HashMap<>();
+    private Mat gray;
+    private boolean closed = false;
+
+    public FrameContext(Mat frame) {
+        this.frame = frame;
+        pyramid.add(frame);
+    }
+
+    public Mat frame() {
+        return frame;
+    }
+
+    public int width() {
+        return frame.cols();
+    }
+
+    public int height() {
+        return frame.rows();
+    }
+
+    /**
+     * Whole frame in grayscale.
+     */
+    public synchronized Mat gray() {
+        ensureOpen();
+        if (gray == null) {
+            if (frame.channels() == 1) {
+                gray = frame;
+            } else {
+                gray = pooled(frame.rows(), frame.cols(), CvType.CV_8UC1);
+                Imgproc.cvtColor(frame, gray, frame.channels() == 4
+                        ? Imgproc.COLOR_BGRA2GRAY
+                        : Imgproc.COLOR_BGR2GRAY);
+            }
+        }
+        return gray;
+    }
+
+    /**
+     * Gaussian pyramid level of the colour frame; level 0 is the frame itself
+     * and each further level halves both sides.
+     */
+    public synchronized Mat pyramidLevel(int level) {
+        ensureOpen();
+        int target = Math.max(0, level);
+        while (pyramid.size() <= target) {
+            Mat previous = pyramid.get(pyramid.size() - 1);
+            Mat next = pooled((previous.rows() + 1) / 2, (previous.cols() + 1) / 2, previous.type());
+            Imgproc.pyrDown(previous, next);
+            pyramid.add(next);
+        }
+        return pyramid.get(target);
+    }
+
+    /**
+     * Smallest pyramid level that still covers {@code minWidth} x
+     * {@code minHeight}, so a later resize to that size starts from as few
+     * pixels as possible without upsampling.
+     */
+    public synchronized Mat downscaledToCover(int minWidth, int minHeight) {
+        int level = 0;
+        int width = frame.cols();
+        int height = frame.rows();
+        while (width / 2 >= minWidth && height / 2 >= minHeight) {
+            width /= 2;
+            height /= 2;
+            level++;
+        }
+        return pyramidLevel(level);
+    }
+
+    /**
+     * View of {@code rect} in the colour frame.
+     */
+    public synchronized Mat crop(Rect rect) {
+        ensureOpen();
+        return crops.computeIfAbsent(rect.clone(), r -> frame.submat(r));
+    }
+
+    /**
+     * View of {@code rect} in the grayscale frame.
+     */
+    public synchronized Mat grayCrop(Rect rect) {
+        Mat source = gray();
+        return grayCrops.computeIfAbsent(rect.clone(), r -> source.submat(r));
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        crops.values().forEach(Mat::release);
+        grayCrops.values().forEach(Mat::release);
+        crops.clear();
+        grayCrops.clear();
+        pyramid.clear();
+        gray = null;
+        leases.forEach(MatPool.Lease::close);
+        leases.clear();
+    }
+
+    private Mat pooled(int rows, int cols, int type) {
+        MatPool.Lease lease = MatPool.getInstance().lease(rows, cols, type);
+        leases.add(lease);
+        return lease.mat();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("FrameContext already closed");
+        }
+    }
+}
@@ -18,6 +18,7 @@ public class ImageProcessor {
     private static final double MIN_CONTRAST = AppConfig.getInstance().getPreprocessingMinContrast();
     private static final int crop_size = AppConfig.KEY_RECOGNITION_CROP_SIZE_PX;
     private static final Size STANDARD_SIZE = new Size(crop_size, crop_size);
+    private static final Size QUALITY_PROBE_SIZE = new Size(96, 96);
 
     public Mat preprocessFaceImage(Mat faceImage) {
         if (faceImage.empty()) {
@@ -34,6 +35,15 @@ public class ImageProcessor {
     }
 
     public ImageQualityResult validateImageQualityDetailed(Mat image) {
+        return validateImageQualityDetailed(image, null);
+    }
+
+    /**
+     * Same as {@link #validateImageQualityDetailed(Mat)}, reusing a grayscale
+     * version of {@code image} the caller already has (e.g. from a
+     * {@link FrameContext}); {@code grayImage} may be {@code null}.
+     */
+    public ImageQualityResult validateImageQualityDetailed(Mat image, Mat grayImage) {
         if (image.empty()) {
             return new ImageQualityResult(false, 0, "Image is empty", false);
         }
@@ -42,17 +52,23 @@ public class ImageProcessor {
             return new ImageQualityResult(false, 0, "Image too small (minimum 50x50 pixels)", false);
         }
 
-        Mat grayImage = new Mat();
-        if (image.channels() > 1) {
-            Imgproc.cvtColor(image, grayImage, Imgproc.COLOR_BGR2GRAY);
-        } else {
-            grayImage = image.clone();
+        MatPool.Lease ownedGray = null;
+        if (grayImage == null || grayImage.empty()) {
+            if (image.channels() > 1) {
+                ownedGray = MatPool.getInstance().lease(image.rows(), image.cols(), CvType.CV_8UC1);
+                Imgproc.cvtColor(image, ownedGray.mat(), Imgproc.COLOR_BGR2GRAY);
+                grayImage = ownedGray.mat();
+            } else {
+                grayImage = image;
+            }
         }
 
         double sharpness = calculateSharpness(grayImage);
         double brightness = calculateBrightness(grayImage);
         double contrast = calculateContrast(grayImage);
-        grayImage.release();
+        if (ownedGray != null) {
+            ownedGray.close();
+        }
 
         StringBuilder feedback = new StringBuilder();
         boolean isQualityGood = true;
@@ -167,17 +183,69 @@ public class ImageProcessor {
         return criteriaPassed >= 2;
     }
 
+    /**
+     * Cheap per-frame quality metrics for ranking several crops of the same
+     * face. Sharpness is measured on the crop as given, the resolution
+     * {@link #validateImageQualityDetailed} and
+     * {@code preprocessing.min_sharpness_threshold} work at; brightness,
+     * contrast and symmetry on a fixed 96x96 probe. Accepts a BGR or an
+     * already grayscale crop.
+     */
+    public FaceQualityMetrics measureFaceQuality(Mat faceImage) {
+        if (faceImage == null || faceImage.empty()) {
+            return new FaceQualityMetrics(0, 0, 0, 0);
+        }
+
+        MatPool pool = MatPool.getInstance();
+        int probeSize = (int) QUALITY_PROBE_SIZE.width;
+        try (MatPool.Lease normalized = pool.lease(probeSize, probeSize, CvType.CV_8UC1)) {
+            double sharpness;
+            if (faceImage.channels() > 1) {
+                try (MatPool.Lease grayImage = pool.lease(faceImage.rows(), faceImage.cols(), CvType.CV_8UC1)) {
+                    Imgproc.cvtColor(faceImage, grayImage.mat(), Imgproc.COLOR_BGR2GRAY);
+                    sharpness = calculateSharpness(grayImage.mat());
+                    Imgproc.resize(grayImage.mat(), normalized.mat(), QUALITY_PROBE_SIZE, 0, 0,
+                            Imgproc.INTER_AREA);
+                }
+            } else {
+                sharpness = calculateSharpness(faceImage);
+                Imgproc.resize(faceImage, normalized.mat(), QUALITY_PROBE_SIZE, 0, 0, Imgproc.INTER_AREA);
+            }
+
+            double brightness = calculateBrightness(normalized.mat());
+            double contrast = calculateContrast(normalized.mat());
+            double symmetry = calculateSymmetry(normalized.mat());
+            return new FaceQualityMetrics(sharpness, brightness, contrast, symmetry);
+        }
+    }
+
+    /**
+     * Left/right mirror similarity in [0, 1]; turned faces score low.
+     */
+    private double calculateSymmetry(Mat image) {
+        MatPool pool = MatPool.getInstance();
+        try (MatPool.Lease mirrored = pool.lease(image.rows(), image.cols(), image.type());
+                MatPool.Lease difference = pool.lease(image.rows(), image.cols(), image.type())) {
+            Core.flip(image, mirrored.mat(), 1);
+            Core.absdiff(image, mirrored.mat(), difference.mat());
+            double meanDifference = Core.mean(difference.mat()).val[0];
+            return Math.max(0.0, 1.0 - meanDifference / 64.0);
+        }
+    }
+
     private double calculateSharpness(Mat image) {
-        Mat laplacian = new Mat();
-        Imgproc.Laplacian(image, laplacian, CvType.CV_64F);
-        MatOfDouble mean = new MatOfDouble();
-        MatOfDouble stddev = new MatOfDouble();
-        Core.meanStdDev(laplacian, mean, stddev);
-        double variance = Math.pow(stddev.get(0, 0)[0], 2);
-        laplacian.release();
-        mean.release();
-        stddev.release();
-        return variance;
+        // 8-bit input keeps the Laplacian within float range exactly, so CV_32F
+        // gives the same variance as CV_64F at half the memory traffic
+        try (MatPool.Lease laplacian = MatPool.getInstance().lease(image.rows(), image.cols(), CvType.CV_32F)) {
+            Imgproc.Laplacian(image, laplacian.mat(), CvType.CV_32F);
+            MatOfDouble mean = new MatOfDouble();
+            MatOfDouble stddev = new MatOfDouble();
+            Core.meanStdDev(laplacian.mat(), mean, stddev);
+            double variance = Math.pow(stddev.get(0, 0)[0], 2);
+            mean.release();
+            stddev.release();
+            return variance;
+        }
     }
 
     private double calculateBrightness(Mat image) {
@@ -262,11 +330,34 @@ public class ImageProcessor {
                     goodQuality ? "Good" : "Poor", qualityScore, feedback);
         }
     }
-}
-
-
 
+    public static class FaceQualityMetrics {
+        private final double sharpness;
+        private final double brightness;
+        private final double contrast;
+        private final double symmetry;
+
+        public FaceQualityMetrics(double sharpness, double brightness, double contrast, double symmetry) {
+            this.sharpness = sharpness;
+            this.brightness = brightness;
+            this.contrast = contrast;
+            this.symmetry = symmetry;
+        }
 
+        public double getSharpness() {
+            return sharpness;
+        }
 
+        public double getBrightness() {
+            return brightness;
+        }
 
+        public double getContrast() {
+            return contrast;
+        }
 
+        public double getSymmetry() {
+            return symmetry;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram - Fixed-size, lock-free histogram of durations in
+ * nanoseconds, for always-on recording in the live pipeline.
+ *
+ * Buckets are log-linear in the style of HdrHistogram: values below 128 ns
+ * get one bucket each, and every further power of two is split into 64
+ * buckets, so a percentile is within ~1.6% of the true value. Values from
+ * 0 to ~68 s fit in under 2000 counters (16 KB); larger values are clamped.
+ * Recording never allocates. Unlike {@link LatencyRecorder} it keeps no raw
+ * samples, so it is safe to leave running for a whole session.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_HALF = 1 << (SUB_BUCKET_BITS - 1);
+    private static final int MAX_VALUE_BITS = 36;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, Math.min(MAX_VALUE, nanos));
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        total.add(value);
+        long previous = max.get();
+        while (value > previous && !max.compareAndSet(previous, value)) {
+            previous = max.get();
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : total.sum() / (double) n / 1_000_000.0;
+    }
+
+    public double getMaxMillis() {
+        return max.get() / 1_000_000.0;
+    }
+
+    /**
+     * Percentile in milliseconds, {@code p} in [0, 100]; the midpoint of the
+     * bucket holding the nearest-rank sample.
+     */
+    public double percentileMillis(double p) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.max(0.0, Math.min(100.0, p)) / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(midpointOf(i), max.get()) / 1_000_000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Clears the histogram. Samples recorded concurrently may be lost or kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    private static int indexOf(long value) {
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    private static long midpointOf(int index) {
+        int shift = index < 2 * SUB_BUCKET_HALF ? 0 : index / SUB_BUCKET_HALF - 1;
+        long lower = (long) (index - shift * SUB_BUCKET_HALF) << shift;
+        return lower + ((1L << shift) >> 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-10s n=%-7d mean=%7.2fms p50=%7.2fms p95=%7.2fms p99=%7.2fms max=%7.2fms",
+                name, getCount(), getMeanMillis(), percentileMillis(50), percentileMillis(95),
+                percentileMillis(99), getMaxMillis());
+    }
+}
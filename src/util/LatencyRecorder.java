@@ -0,0 +1,85 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * LatencyRecorder - Collects raw duration samples (nanoseconds) and reports
+ * exact percentiles. Meant for bounded runs such as throughput measurements;
+ * once {@code maxSamples} is reached further samples only update the count,
+ * mean and max.
+ */
+public final class LatencyRecorder {
+    private static final int DEFAULT_MAX_SAMPLES = 1_000_000;
+
+    private final String name;
+    private final int maxSamples;
+    private long[] samples = new long[1024];
+    private int stored = 0;
+    private long count = 0;
+    private long total = 0;
+    private long max = 0;
+
+    public LatencyRecorder(String name) {
+        this(name, DEFAULT_MAX_SAMPLES);
+    }
+
+    public LatencyRecorder(String name, int maxSamples) {
+        this.name = name;
+        this.maxSamples = Math.max(1, maxSamples);
+    }
+
+    public synchronized void record(long nanos) {
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+        if (stored < maxSamples) {
+            if (stored == samples.length) {
+                samples = Arrays.copyOf(samples, Math.min(maxSamples, samples.length * 2));
+            }
+            samples[stored++] = nanos;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized double getMeanMillis() {
+        return count == 0 ? 0.0 : total / (double) count / 1_000_000.0;
+    }
+
+    public synchronized double getMaxMillis() {
+        return max / 1_000_000.0;
+    }
+
+    /**
+     * Nearest-rank percentile in milliseconds, {@code p} in [0, 100].
+     */
+    public synchronized double percentileMillis(double p) {
+        if (stored == 0) {
+            return 0.0;
+        }
+        long[] sorted = Arrays.copyOf(samples, stored);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(Math.max(0.0, Math.min(100.0, p)) / 100.0 * stored);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+
+    public synchronized void reset() {
+        stored = 0;
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-10s n=%-7d mean=%7.2fms p50=%7.2fms p95=%7.2fms p99=%7.2fms max=%7.2fms",
+                name, getCount(), getMeanMillis(), percentileMillis(50), percentileMillis(95),
+                percentileMillis(99), getMaxMillis());
+    }
+}
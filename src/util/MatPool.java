@@ -0,0 +1,287 @@
+package util;
+
+import config.AppLogger;
+import java.lang.ref.Cleaner;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import org.opencv.core.Mat;
+
+/**
+ * MatPool - Process-wide pool of scratch Mats for the vision pipeline, keyed by
+ * shape and type, with accounting of the native memory it owns.
+ *
+ * Callers take a {@link Lease} for the shape they are about to write and close
+ * it (try-with-resources) when done; the Mat goes back to the pool and the next
+ * lease of the same shape reuses its buffer instead of allocating. OpenCV
+ * reallocates a destination whose shape does not match, so a lease is always
+ * safe to pass as an output; the Mat is re-keyed by its actual shape on return.
+ *
+ * A lease that is garbage-collected without being closed is counted as leaked
+ * and its Mat is released. Idle Mats are capped per shape and in total bytes
+ * ({@code -Dapp.matPoolMaxMb}, default 64).
+ */
+public final class MatPool {
+    private static final int MAX_IDLE_PER_SHAPE = 8;
+    private static final long MAX_IDLE_BYTES = Math.max(0, Long.getLong("app.matPoolMaxMb", 64)) * 1024L * 1024L;
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static MatPool instance = null;
+
+    private final Map<String, Deque<Mat>> idle = new HashMap<>();
+    private long idleBytes = 0;
+    private long idleCount = 0;
+    private long liveAllocations = 0;
+    private long liveBytes = 0;
+    private long leased = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long leaked = 0;
+
+    private MatPool() {
+        ModuleLoader.ensureOpenCVLoaded();
+    }
+
+    public static synchronized MatPool getInstance() {
+        if (instance == null) {
+            instance = new MatPool();
+        }
+        return instance;
+    }
+
+    /**
+     * Lease a 2-D Mat of {@code rows x cols} and {@code type}, reusing an idle
+     * one of the same shape when available. Contents are undefined.
+     */
+    public Lease lease(int rows, int cols, int type) {
+        return lease(new int[] { rows, cols }, type);
+    }
+
+    /**
+     * Lease an n-dimensional Mat (e.g. an NCHW blob). Contents are undefined.
+     */
+    public Lease lease(int[] dims, int type) {
+        String key = key(dims, type);
+        Mat mat;
+        synchronized (this) {
+            Deque<Mat> shelf = idle.get(key);
+            mat = shelf != null ? shelf.pollFirst() : null;
+            if (mat != null) {
+                long bytes = bytesOf(mat);
+                idleBytes -= bytes;
+                idleCount--;
+                hits++;
+            } else {
+                misses++;
+            }
+            leased++;
+        }
+        if (mat == null) {
+            mat = new Mat(dims, type);
+            long bytes = bytesOf(mat);
+            synchronized (this) {
+                liveAllocations++;
+                liveBytes += bytes;
+            }
+        }
+        return new Lease(this, mat);
+    }
+
+    public synchronized Stats snapshot() {
+        return new Stats(liveAllocations, liveBytes, idleCount, idleBytes, leased, hits, misses, leaked);
+    }
+
+    /**
+     * Releases every idle Mat; outstanding leases are unaffected.
+     */
+    public synchronized void trim() {
+        for (Deque<Mat> shelf : idle.values()) {
+            for (Mat mat : shelf) {
+                liveAllocations--;
+                liveBytes -= bytesOf(mat);
+                mat.release();
+            }
+        }
+        idle.clear();
+        idleBytes = 0;
+        idleCount = 0;
+    }
+
+    private synchronized void giveBack(Mat mat, long leasedBytes) {
+        leased--;
+        long bytes = bytesOf(mat);
+        // The caller may have written a different shape into the Mat
+        liveBytes += bytes - leasedBytes;
+        if (mat.empty() || mat.dims() < 2) {
+            drop(mat, bytes);
+            return;
+        }
+        Deque<Mat> shelf = idle.computeIfAbsent(key(shapeOf(mat), mat.type()), k -> new ArrayDeque<>());
+        if (shelf.size() >= MAX_IDLE_PER_SHAPE || idleBytes + bytes > MAX_IDLE_BYTES) {
+            drop(mat, bytes);
+            return;
+        }
+        shelf.addFirst(mat);
+        idleBytes += bytes;
+        idleCount++;
+    }
+
+    private synchronized void forget(Mat mat, long leasedBytes) {
+        leased--;
+        liveAllocations--;
+        liveBytes -= leasedBytes;
+    }
+
+    private synchronized void recordLeak(Mat mat, long leasedBytes) {
+        leaked++;
+        leased--;
+        liveAllocations--;
+        liveBytes -= leasedBytes;
+        mat.release();
+        if (leaked == 1 || leaked % 100 == 0) {
+            AppLogger.warn("MatPool: " + leaked + " lease(s) were never closed; their Mats were released by GC");
+        }
+    }
+
+    private void drop(Mat mat, long bytes) {
+        liveAllocations--;
+        liveBytes -= bytes;
+        mat.release();
+    }
+
+    private static int[] shapeOf(Mat mat) {
+        int[] dims = new int[mat.dims()];
+        for (int i = 0; i < dims.length; i++) {
+            dims[i] = mat.size(i);
+        }
+        return dims;
+    }
+
+    private static String key(int[] dims, int type) {
+        return Arrays.toString(dims) + "/" + type;
+    }
+
+    private static long bytesOf(Mat mat) {
+        return mat.empty() ? 0 : mat.total() * mat.elemSize();
+    }
+
+    /**
+     * A Mat borrowed from the pool. Close it to return the Mat, or
+     * {@link #detach()} it to keep the Mat beyond the lease.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final LeaseState state;
+        private final Cleaner.Cleanable cleanable;
+
+        private Lease(MatPool pool, Mat mat) {
+            this.state = new LeaseState(pool, mat, bytesOf(mat));
+            this.cleanable = CLEANER.register(this, state);
+        }
+
+        public Mat mat() {
+            return state.mat;
+        }
+
+        /**
+         * Hands the Mat to the caller, who must release it; the pool stops
+         * accounting for it.
+         */
+        public Mat detach() {
+            state.outcome = LeaseState.DETACHED;
+            cleanable.clean();
+            return state.mat;
+        }
+
+        @Override
+        public void close() {
+            if (state.outcome == LeaseState.PENDING) {
+                state.outcome = LeaseState.RETURNED;
+            }
+            cleanable.clean();
+        }
+    }
+
+    /**
+     * Cleanup action for a lease; holds no reference to the lease itself.
+     */
+    private static final class LeaseState implements Runnable {
+        private static final int PENDING = 0;
+        private static final int RETURNED = 1;
+        private static final int DETACHED = 2;
+
+        private final MatPool pool;
+        private final Mat mat;
+        private final long leasedBytes;
+        private volatile int outcome = PENDING;
+
+        private LeaseState(MatPool pool, Mat mat, long leasedBytes) {
+            this.pool = pool;
+            this.mat = mat;
+            this.leasedBytes = leasedBytes;
+        }
+
+        @Override
+        public void run() {
+            switch (outcome) {
+                case RETURNED:
+                    pool.giveBack(mat, leasedBytes);
+                    break;
+                case DETACHED:
+                    pool.forget(mat, leasedBytes);
+                    break;
+                default:
+                    pool.recordLeak(mat, leasedBytes);
+            }
+        }
+    }
+
+    /**
+     * Point-in-time pool counters. {@code liveAllocations}/{@code liveBytes}
+     * cover every Mat the pool owns, leased or idle.
+     */
+    public static final class Stats {
+        private final long liveAllocations;
+        private final long liveBytes;
+        private final long idleCount;
+        private final long idleBytes;
+        private final long leased;
+        private final long hits;
+        private final long misses;
+        private final long leaked;
+
+        private Stats(long liveAllocations, long liveBytes, long idleCount, long idleBytes, long leased,
+                long hits, long misses, long leaked) {
+            this.liveAllocations = liveAllocations;
+            this.liveBytes = liveBytes;
+            this.idleCount = idleCount;
+            this.idleBytes = idleBytes;
+            this.leased = leased;
+            this.hits = hits;
+            this.misses = misses;
+            this.leaked = leaked;
+        }
+
+        public long getLiveAllocations() { return liveAllocations; }
+        public long getLiveBytes() { return liveBytes; }
+        public long getIdleCount() { return idleCount; }
+        public long getIdleBytes() { return idleBytes; }
+        public long getLeased() { return leased; }
+        public long getHits() { return hits; }
+        public long getMisses() { return misses; }
+        public long getLeaked() { return leaked; }
+
+        public double getHitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : hits / (double) total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("live=%d (%.1f MB), idle=%d (%.1f MB), leased=%d, hit rate=%.1f%%, leaked=%d",
+                    liveAllocations, liveBytes / 1048576.0, idleCount, idleBytes / 1048576.0, leased,
+                    getHitRate() * 100.0, leaked);
+        }
+    }
+}
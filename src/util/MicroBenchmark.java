@@ -0,0 +1,252 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * MicroBenchmark - Small in-process benchmark harness measuring average time
+ * per operation, for code paths that have no JMH module to live in.
+ *
+ * Each benchmark runs warm-up iterations (which also size the batch of
+ * operations timed between clock reads), then timed iterations; the score is
+ * the mean microseconds per operation across iterations, with a 99.9%
+ * Student-t confidence interval. {@link #toJson(List)} writes results in the
+ * JMH JSON result format ({@code -rf json}), so they load into the same
+ * comparison tools. Unlike JMH there is no forking: run each suite in a fresh
+ * JVM and keep other load off the machine.
+ */
+public final class MicroBenchmark {
+    // Student t quantiles for a two-sided 99.9% interval, indexed by degrees of freedom
+    private static final double[] T_999 = {
+            Double.NaN, 636.619, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781, 4.587,
+            4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850,
+            3.819, 3.792, 3.768, 3.745, 3.725, 3.707, 3.690, 3.674, 3.659, 3.646 };
+    private static final double T_999_LARGE = 3.291;
+    private static final long TARGET_BATCH_NANOS = 1_000_000L;
+    private static final double[] PERCENTILES = { 0.0, 50.0, 90.0, 95.0, 99.0, 99.9, 99.99, 99.999, 99.9999, 100.0 };
+
+    // Results are folded in here so the JIT cannot drop the measured work
+    private static volatile long sink;
+
+    /**
+     * One operation under test. The returned value is consumed.
+     */
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationMillis;
+
+    public MicroBenchmark(int warmupIterations, int measurementIterations, long iterationMillis) {
+        this.warmupIterations = Math.max(0, warmupIterations);
+        this.measurementIterations = Math.max(1, measurementIterations);
+        this.iterationMillis = Math.max(1, iterationMillis);
+    }
+
+    /**
+     * Measures {@code operation}; {@code params} are reported with the result.
+     */
+    public Result measure(String benchmark, Map<String, String> params, Operation operation) throws Exception {
+        long iterationNanos = iterationMillis * 1_000_000L;
+        long batch = 1;
+        long folded = 0;
+        for (int i = 0; i < warmupIterations; i++) {
+            long deadline = System.nanoTime() + iterationNanos;
+            while (System.nanoTime() < deadline) {
+                long start = System.nanoTime();
+                for (long op = 0; op < batch; op++) {
+                    folded += consume(operation.run());
+                }
+                if (System.nanoTime() - start < TARGET_BATCH_NANOS && batch < (1L << 30)) {
+                    batch *= 2;
+                }
+            }
+        }
+
+        double[] scores = new double[measurementIterations];
+        for (int i = 0; i < measurementIterations; i++) {
+            long ops = 0;
+            long start = System.nanoTime();
+            long deadline = start + iterationNanos;
+            long now;
+            do {
+                for (long op = 0; op < batch; op++) {
+                    folded += consume(operation.run());
+                }
+                ops += batch;
+                now = System.nanoTime();
+            } while (now < deadline);
+            scores[i] = (now - start) / 1000.0 / ops;
+        }
+        sink += folded;
+        return new Result(benchmark, params, scores, warmupIterations, iterationMillis);
+    }
+
+    private static long consume(Object value) {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    /**
+     * Results as a JMH-style JSON array.
+     */
+    public static String toJson(List<Result> results) {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < results.size(); i++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            results.get(i).appendJson(json);
+        }
+        return json.append("\n]\n").toString();
+    }
+
+    /**
+     * Average time per operation over the measurement iterations, in us/op.
+     */
+    public static final class Result {
+        private final String benchmark;
+        private final Map<String, String> params;
+        private final double[] scores;
+        private final int warmupIterations;
+        private final long iterationMillis;
+
+        private Result(String benchmark, Map<String, String> params, double[] scores, int warmupIterations,
+                long iterationMillis) {
+            this.benchmark = benchmark;
+            this.params = params == null ? Map.of() : new LinkedHashMap<>(params);
+            this.scores = scores.clone();
+            this.warmupIterations = warmupIterations;
+            this.iterationMillis = iterationMillis;
+        }
+
+        public String getBenchmark() {
+            return benchmark;
+        }
+
+        public Map<String, String> getParams() {
+            return params;
+        }
+
+        public double getScore() {
+            return Arrays.stream(scores).average().orElse(0.0);
+        }
+
+        /**
+         * Half-width of the 99.9% confidence interval; NaN with a single iteration.
+         */
+        public double getScoreError() {
+            int n = scores.length;
+            if (n < 2) {
+                return Double.NaN;
+            }
+            double mean = getScore();
+            double sumSquares = 0.0;
+            for (double score : scores) {
+                sumSquares += (score - mean) * (score - mean);
+            }
+            double stdDev = Math.sqrt(sumSquares / (n - 1));
+            double t = n - 1 < T_999.length ? T_999[n - 1] : T_999_LARGE;
+            return t * stdDev / Math.sqrt(n);
+        }
+
+        private double percentile(double p) {
+            double[] sorted = scores.clone();
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+        }
+
+        private void appendJson(StringBuilder json) {
+            double score = getScore();
+            double error = getScoreError();
+            json.append("  {\n");
+            json.append("    \"jmhVersion\" : \"n/a (util.MicroBenchmark)\",\n");
+            json.append("    \"benchmark\" : ").append(quote(benchmark)).append(",\n");
+            json.append("    \"mode\" : \"avgt\",\n");
+            json.append("    \"threads\" : 1,\n");
+            json.append("    \"forks\" : 0,\n");
+            json.append("    \"jvm\" : ").append(quote(System.getProperty("java.home") + "/bin/java")).append(",\n");
+            json.append("    \"jvmArgs\" : [");
+            List<String> jvmArgs = new ArrayList<>(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            for (int i = 0; i < jvmArgs.size(); i++) {
+                json.append(i > 0 ? ", " : "").append(quote(jvmArgs.get(i)));
+            }
+            json.append("],\n");
+            json.append("    \"jdkVersion\" : ").append(quote(System.getProperty("java.version"))).append(",\n");
+            json.append("    \"vmName\" : ").append(quote(System.getProperty("java.vm.name"))).append(",\n");
+            json.append("    \"vmVersion\" : ").append(quote(System.getProperty("java.vm.version"))).append(",\n");
+            json.append("    \"warmupIterations\" : ").append(warmupIterations).append(",\n");
+            json.append("    \"warmupTime\" : \"").append(iterationMillis).append(" ms\",\n");
+            json.append("    \"warmupBatchSize\" : 1,\n");
+            json.append("    \"measurementIterations\" : ").append(scores.length).append(",\n");
+            json.append("    \"measurementTime\" : \"").append(iterationMillis).append(" ms\",\n");
+            json.append("    \"measurementBatchSize\" : 1,\n");
+            json.append("    \"params\" : {");
+            boolean first = true;
+            for (Map.Entry<String, String> param : params.entrySet()) {
+                json.append(first ? "\n" : ",\n");
+                json.append("      ").append(quote(param.getKey())).append(" : ").append(quote(param.getValue()));
+                first = false;
+            }
+            json.append(first ? "},\n" : "\n    },\n");
+            json.append("    \"primaryMetric\" : {\n");
+            json.append("      \"score\" : ").append(number(score)).append(",\n");
+            json.append("      \"scoreError\" : ").append(number(error)).append(",\n");
+            json.append("      \"scoreConfidence\" : [").append(number(score - error)).append(", ")
+                    .append(number(score + error)).append("],\n");
+            json.append("      \"scorePercentiles\" : {");
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                json.append(i > 0 ? ", " : "").append(String.format(Locale.ROOT, "\"%s\" : ", PERCENTILES[i]))
+                        .append(number(percentile(PERCENTILES[i])));
+            }
+            json.append("},\n");
+            json.append("      \"scoreUnit\" : \"us/op\",\n");
+            json.append("      \"rawData\" : [[");
+            for (int i = 0; i < scores.length; i++) {
+                json.append(i > 0 ? ", " : "").append(number(scores[i]));
+            }
+            json.append("]]\n");
+            json.append("    },\n");
+            json.append("    \"secondaryMetrics\" : {}\n");
+            json.append("  }");
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder label = new StringBuilder(benchmark);
+            if (!params.isEmpty()) {
+                label.append(params);
+            }
+            return String.format(Locale.ROOT, "%-60s %14.3f +- %10.3f us/op", label, getScore(),
+                    Double.isNaN(getScoreError()) ? 0.0 : getScoreError());
+        }
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) || Double.isInfinite(value) ? "\"NaN\"" : String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,213 @@
+package util;
+
+import config.AppLogger;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import org.opencv.core.MatOfByte;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+import org.opencv.objdetect.CascadeClassifier;
+
+/**
+ * ModelRegistry - Process-wide cache for the DNN and cascade models used by the
+ * vision pipeline.
+ *
+ * Each model is loaded lazily the first time it is requested and then shared by
+ * every pipeline instance that asks for the same file. Users hold a
+ * {@link Lease}; when the last lease for a model is closed the native weights
+ * are dropped so a later request reloads them. Loaded models are read-only, but
+ * OpenCV does not guarantee concurrent inference on one instance: ONNX
+ * networks are therefore shared as a {@link NetPool}, and callers of the other
+ * models run inference while holding {@link Lease#lock()}.
+ */
+public final class ModelRegistry {
+    private static ModelRegistry instance = null;
+
+    private final Map<String, SharedModel<NetPool>> onnxNets = new HashMap<>();
+    private final Map<String, SharedModel<CascadeClassifier>> cascades = new HashMap<>();
+    private final Map<String, MatOfByte> modelBytes = new HashMap<>();
+
+    private ModelRegistry() {
+        ModuleLoader.ensureOpenCVLoaded();
+    }
+
+    public static synchronized ModelRegistry getInstance() {
+        if (instance == null) {
+            instance = new ModelRegistry();
+        }
+        return instance;
+    }
+
+    /**
+     * Lease a pool of up to {@code poolSize} instances of an ONNX network,
+     * loading the first on first use; later callers share that pool whatever
+     * size they ask for. Returns {@code null} when the model file is missing
+     * or cannot be parsed.
+     */
+    public synchronized Lease<NetPool> acquireOnnxNetPool(String modelPath, int poolSize) {
+        String key = normalize(modelPath);
+        SharedModel<NetPool> shared = onnxNets.get(key);
+        if (shared == null) {
+            MatOfByte bytes = modelBytes(modelPath);
+            if (bytes == null) {
+                return null;
+            }
+            try {
+                Net net = Dnn.readNetFromONNX(bytes);
+                if (net.empty()) {
+                    AppLogger.error("ONNX model at " + modelPath + " produced an empty network");
+                    return null;
+                }
+                shared = new SharedModel<>(key, new NetPool(bytes, net, poolSize));
+                onnxNets.put(key, shared);
+                AppLogger.info("Model registry loaded ONNX network: " + modelPath);
+            } catch (Exception e) {
+                AppLogger.error("Model registry failed to load ONNX network " + modelPath + ": " + e.getMessage(), e);
+                return null;
+            }
+        }
+        return new Lease<>(this, shared);
+    }
+
+    /**
+     * Lease a Haar cascade. An empty classifier is returned (never {@code null})
+     * when the file is missing, matching {@link CascadeClassifier}'s own
+     * behaviour so callers can keep using {@code empty()} checks.
+     */
+    public synchronized Lease<CascadeClassifier> acquireCascade(String cascadePath) {
+        String key = normalize(cascadePath);
+        SharedModel<CascadeClassifier> shared = cascades.get(key);
+        if (shared == null) {
+            CascadeClassifier classifier = new CascadeClassifier(cascadePath);
+            shared = new SharedModel<>(key, classifier);
+            cascades.put(key, shared);
+            if (!classifier.empty()) {
+                AppLogger.info("Model registry loaded cascade: " + cascadePath);
+            }
+        }
+        return new Lease<>(this, shared);
+    }
+
+    /**
+     * Raw model file contents, read from disk once. Used by callers that build
+     * several independent networks from the same weights (e.g. a Net pool).
+     */
+    public synchronized MatOfByte modelBytes(String modelPath) {
+        String key = normalize(modelPath);
+        MatOfByte bytes = modelBytes.get(key);
+        if (bytes != null) {
+            return bytes;
+        }
+        if (modelPath == null || !new File(modelPath).exists()) {
+            AppLogger.warn("Model file not found: " + modelPath);
+            return null;
+        }
+        try {
+            bytes = new MatOfByte(Files.readAllBytes(Paths.get(modelPath)));
+            modelBytes.put(key, bytes);
+            return bytes;
+        } catch (IOException e) {
+            AppLogger.error("Failed to read model file " + modelPath + ": " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public synchronized int getReferenceCount(String modelPath) {
+        String key = normalize(modelPath);
+        SharedModel<?> shared = onnxNets.get(key);
+        if (shared == null) {
+            shared = cascades.get(key);
+        }
+        return shared != null ? shared.refCount : 0;
+    }
+
+    public synchronized String getStatusSummary() {
+        StringBuilder summary = new StringBuilder("Model Registry:\n");
+        for (SharedModel<NetPool> shared : onnxNets.values()) {
+            summary.append("ONNX ").append(shared.key).append(" refs=").append(shared.refCount)
+                    .append(" nets=").append(shared.model.size()).append("/").append(shared.model.maxSize())
+                    .append("\n");
+        }
+        for (SharedModel<CascadeClassifier> shared : cascades.values()) {
+            summary.append("Cascade ").append(shared.key).append(" refs=").append(shared.refCount).append("\n");
+        }
+        return summary.toString();
+    }
+
+    private synchronized void retain(SharedModel<?> shared) {
+        shared.refCount++;
+    }
+
+    private synchronized void release(SharedModel<?> shared) {
+        shared.refCount = Math.max(0, shared.refCount - 1);
+        if (shared.refCount > 0) {
+            return;
+        }
+        if (onnxNets.get(shared.key) == shared) {
+            onnxNets.remove(shared.key);
+            modelBytes.remove(shared.key);
+            AppLogger.info("Model registry unloaded ONNX network: " + shared.key);
+        } else if (cascades.get(shared.key) == shared) {
+            cascades.remove(shared.key);
+        }
+    }
+
+    private static String normalize(String path) {
+        if (path == null) {
+            return "";
+        }
+        return Paths.get(path).toAbsolutePath().normalize().toString();
+    }
+
+    private static final class SharedModel<T> {
+        private final String key;
+        private final T model;
+        private final Object lock = new Object();
+        private int refCount = 0;
+
+        private SharedModel(String key, T model) {
+            this.key = key;
+            this.model = model;
+        }
+    }
+
+    /**
+     * A counted reference to a shared model. Closing a lease more than once is
+     * harmless.
+     */
+    public static final class Lease<T> implements AutoCloseable {
+        private final ModelRegistry registry;
+        private final SharedModel<T> shared;
+        private boolean closed = false;
+
+        private Lease(ModelRegistry registry, SharedModel<T> shared) {
+            this.registry = registry;
+            this.shared = shared;
+            registry.retain(shared);
+        }
+
+        public T get() {
+            return shared.model;
+        }
+
+        /**
+         * Monitor to hold while running inference on the shared model.
+         */
+        public Object lock() {
+            return shared.lock;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            registry.release(shared);
+        }
+    }
+}
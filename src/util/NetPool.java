@@ -0,0 +1,62 @@
+package util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.opencv.core.MatOfByte;
+import org.opencv.dnn.Dnn;
+import org.opencv.dnn.Net;
+
+/**
+ * NetPool - Independent instances of one ONNX network, built from the same
+ * model bytes, so concurrent callers each run inference on their own
+ * {@link Net} instead of queueing behind a single one. Instances are created
+ * on demand up to the pool size; a single-threaded caller only ever builds
+ * one.
+ */
+public final class NetPool {
+    private final MatOfByte modelBytes;
+    private final int maxSize;
+    private final BlockingQueue<Net> idle;
+    // Guarded by "this"
+    private int created;
+
+    NetPool(MatOfByte modelBytes, Net first, int maxSize) {
+        this.modelBytes = modelBytes;
+        this.maxSize = Math.max(1, maxSize);
+        this.idle = new ArrayBlockingQueue<>(this.maxSize);
+        this.idle.offer(first);
+        this.created = 1;
+    }
+
+    /**
+     * Takes an idle network, building another if the pool is not full yet,
+     * otherwise waiting for one to be given back.
+     */
+    public Net borrow() throws InterruptedException {
+        Net net = idle.poll();
+        if (net != null) {
+            return net;
+        }
+        synchronized (this) {
+            if (created < maxSize) {
+                created++;
+                return Dnn.readNetFromONNX(modelBytes);
+            }
+        }
+        return idle.take();
+    }
+
+    public void giveBack(Net net) {
+        if (net != null) {
+            idle.offer(net);
+        }
+    }
+
+    public synchronized int size() {
+        return created;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+}
@@ -0,0 +1,241 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * PipelineEvents - Java Flight Recorder events for the recognition pipeline,
+ * so a recording shows detection, alignment, inference, scoring, decisions,
+ * gallery reloads and attendance writes next to GC and native frames in JMC.
+ *
+ * Each event is timed with {@code begin()} and finished with its
+ * {@code complete(...)} method, which only fills the fields when the event
+ * will be recorded. When no recording is running the cost is a flag check.
+ * Events are enabled with no threshold by default; narrow them with a .jfc
+ * setting on {@code faceattendance.*}.
+ */
+public final class PipelineEvents {
+    private static final String CATEGORY = "Face Attendance";
+    private static final String RECOGNITION_KEY_DESCRIPTION =
+            "Recognition history the face was scored under: the track id, prefixed by session and camera in attendance";
+
+    private PipelineEvents() {
+    }
+
+    @Name("faceattendance.Detection")
+    @Label("Face Detection")
+    @Description("One pass of the SSD face detector over a frame")
+    @Category({ CATEGORY, "Recognition" })
+    @StackTrace(false)
+    public static final class Detection extends Event {
+        @Label("Frame Width")
+        int frameWidth;
+
+        @Label("Frame Height")
+        int frameHeight;
+
+        @Label("Blob Source Width")
+        @Description("Width of the pyramid level the network input was built from")
+        int blobSourceWidth;
+
+        @Label("Face Count")
+        @Description("Boxes above the raw confidence floor, before size and shape filtering")
+        int faceCount;
+
+        public void complete(int frameWidth, int frameHeight, int blobSourceWidth, int faceCount) {
+            end();
+            if (shouldCommit()) {
+                this.frameWidth = frameWidth;
+                this.frameHeight = frameHeight;
+                this.blobSourceWidth = blobSourceWidth;
+                this.faceCount = faceCount;
+                commit();
+            }
+        }
+    }
+
+    @Name("faceattendance.Alignment")
+    @Label("Face Alignment")
+    @Description("Alignment and preprocessing of one face crop into the embedding blob")
+    @Category({ CATEGORY, "Recognition" })
+    @StackTrace(false)
+    public static final class Alignment extends Event {
+        @Label("Recognition Key")
+        @Description(RECOGNITION_KEY_DESCRIPTION)
+        String recognitionKey;
+
+        @Label("Face Width")
+        int faceWidth;
+
+        @Label("Face Height")
+        int faceHeight;
+
+        @Label("Succeeded")
+        boolean succeeded;
+
+        public void complete(String recognitionKey, int faceWidth, int faceHeight, boolean succeeded) {
+            end();
+            if (shouldCommit()) {
+                this.recognitionKey = recognitionKey;
+                this.faceWidth = faceWidth;
+                this.faceHeight = faceHeight;
+                this.succeeded = succeeded;
+                commit();
+            }
+        }
+    }
+
+    @Name("faceattendance.Inference")
+    @Label("Embedding Inference")
+    @Description("Embedding generation for one aligned face")
+    @Category({ CATEGORY, "Recognition" })
+    @StackTrace(false)
+    public static final class Inference extends Event {
+        @Label("Recognition Key")
+        @Description(RECOGNITION_KEY_DESCRIPTION)
+        String recognitionKey;
+
+        @Label("Deep Model")
+        @Description("False when the handcrafted fallback embedding was used")
+        boolean deepModel;
+
+        @Label("Embedding Size")
+        @DataAmount
+        int embeddingBytes;
+
+        public void complete(String recognitionKey, boolean deepModel, byte[] embedding) {
+            end();
+            if (shouldCommit()) {
+                this.recognitionKey = recognitionKey;
+                this.deepModel = deepModel;
+                this.embeddingBytes = embedding != null ? embedding.length : 0;
+                commit();
+            }
+        }
+    }
+
+    @Name("faceattendance.Scoring")
+    @Label("Gallery Scoring")
+    @Description("Scoring of one query embedding against the enrolled gallery")
+    @Category({ CATEGORY, "Recognition" })
+    @StackTrace(false)
+    public static final class Scoring extends Event {
+        @Label("Recognition Key")
+        @Description(RECOGNITION_KEY_DESCRIPTION)
+        String recognitionKey;
+
+        @Label("Profile Count")
+        int profileCount;
+
+        @Label("Pre-filter Skipped")
+        @Description("Profiles skipped by the centroid pre-filter")
+        int prefilterSkipped;
+
+        @Label("Best Score")
+        double bestScore;
+
+        public void complete(String recognitionKey, int profileCount, int prefilterSkipped, double bestScore) {
+            end();
+            if (shouldCommit()) {
+                this.recognitionKey = recognitionKey;
+                this.profileCount = profileCount;
+                this.prefilterSkipped = prefilterSkipped;
+                this.bestScore = bestScore;
+                commit();
+            }
+        }
+    }
+
+    @Name("faceattendance.Decision")
+    @Label("Recognition Decision")
+    @Description("Calibration and accept/reject decision for one scored face")
+    @Category({ CATEGORY, "Recognition" })
+    @StackTrace(false)
+    public static final class Decision extends Event {
+        @Label("Recognition Key")
+        @Description(RECOGNITION_KEY_DESCRIPTION)
+        String recognitionKey;
+
+        @Label("Label")
+        String label;
+
+        @Label("Accepted")
+        boolean accepted;
+
+        @Label("Confidence")
+        double confidence;
+
+        public void complete(String recognitionKey, String label, boolean accepted, double confidence) {
+            end();
+            if (shouldCommit()) {
+                this.recognitionKey = recognitionKey;
+                this.label = label;
+                this.accepted = accepted;
+                this.confidence = confidence;
+                commit();
+            }
+        }
+    }
+
+    @Name("faceattendance.GalleryReload")
+    @Label("Gallery Reload")
+    @Description("Reload of the enrolled embedding gallery from disk")
+    @Category({ CATEGORY, "Recognition" })
+    @StackTrace(false)
+    public static final class GalleryReload extends Event {
+        @Label("Profile Count")
+        int profileCount;
+
+        @Label("Embedding Count")
+        int embeddingCount;
+
+        public void complete(int profileCount, int embeddingCount) {
+            end();
+            if (shouldCommit()) {
+                this.profileCount = profileCount;
+                this.embeddingCount = embeddingCount;
+                commit();
+            }
+        }
+    }
+
+    @Name("faceattendance.AttendanceWrite")
+    @Label("Attendance Write")
+    @Description("Insert or update of one attendance record in the database")
+    @Category({ CATEGORY, "Database" })
+    @StackTrace(false)
+    public static final class AttendanceWrite extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Student ID")
+        String studentId;
+
+        @Label("Session ID")
+        String sessionId;
+
+        @Label("Status")
+        String status;
+
+        @Label("Succeeded")
+        boolean succeeded;
+
+        public void complete(String operation, String studentId, String sessionId, String status,
+                boolean succeeded) {
+            end();
+            if (shouldCommit()) {
+                this.operation = operation;
+                this.studentId = studentId;
+                this.sessionId = sessionId;
+                this.status = status;
+                this.succeeded = succeeded;
+                commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,373 @@
+package util;
+
+import config.AppConfig;
+import config.AppLogger;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * PipelineMetrics - Process-wide registry of recognition pipeline metrics:
+ * a {@link LatencyHistogram} per {@link Stage}, named histograms for work
+ * outside the per-face pipeline (database connection waits), monotonically
+ * increasing counters (captured / dropped frames, recognitions) and gauges
+ * (queue depths, gallery size, native Mat pool).
+ *
+ * Recording is lock-free and allocation-free, so the pipeline records
+ * unconditionally. The registry is published over JMX
+ * ({@code FaceAttendance:type=PipelineStage,name=<stage>},
+ * {@code FaceAttendance:type=Histogram,name=<name>} and
+ * {@code FaceAttendance:type=Pipeline}) and, unless
+ * {@code metrics.snapshot_interval_s} is zero, rewritten as JSON to
+ * {@code metrics.snapshot_path} periodically and at exit.
+ */
+public final class PipelineMetrics {
+    private static final String JMX_DOMAIN = "FaceAttendance";
+
+    public static final String FRAMES_CAPTURED = "frames.captured";
+    public static final String FRAMES_DROPPED = "frames.dropped";
+    public static final String FACES_DETECTED = "faces.detected";
+    public static final String RECOGNITIONS_ACCEPTED = "recognitions.accepted";
+    public static final String RECOGNITIONS_REJECTED = "recognitions.rejected";
+    public static final String PREFILTER_SKIPPED = "gallery.prefilter_skipped";
+    public static final String WORK_REJECTED = "work.rejected";
+
+    public static final String GALLERY_PERSONS = "gallery.persons";
+    public static final String GALLERY_EMBEDDINGS = "gallery.embeddings";
+
+    /**
+     * Stages of the per-face pipeline, in processing order.
+     */
+    public enum Stage {
+        CAPTURE, DETECT, TRACK, CROP, QUALITY, ALIGN, INFER, SCORE, DECIDE;
+
+        public String metricName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static PipelineMetrics instance = null;
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final long startedAtMs = System.currentTimeMillis();
+
+    private PipelineMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = new LatencyHistogram(stage.metricName());
+        }
+        registerMatPoolGauges();
+    }
+
+    public static synchronized PipelineMetrics getInstance() {
+        if (instance == null) {
+            instance = new PipelineMetrics();
+            instance.registerMBeans();
+            instance.startSnapshots();
+        }
+        return instance;
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    public LatencyHistogram stage(Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * The named histogram, created (and published over JMX) on first use.
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram != null) {
+            return histogram;
+        }
+        LatencyHistogram created = new LatencyHistogram(name);
+        histogram = histograms.putIfAbsent(name, created);
+        if (histogram == null) {
+            registerMBean(JMX_DOMAIN + ":type=Histogram,name=" + name,
+                    new StandardMBean(new StageBean(created), StageMXBean.class, true));
+            return created;
+        }
+        return histogram;
+    }
+
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public void add(String counter, long delta) {
+        counters.computeIfAbsent(counter, name -> new LongAdder()).add(delta);
+    }
+
+    public long counter(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    /**
+     * Registers (or replaces) a gauge sampled whenever metrics are read.
+     */
+    public void registerGauge(String gauge, LongSupplier supplier) {
+        gauges.put(gauge, supplier);
+    }
+
+    /**
+     * Sets a gauge to a fixed value until it is set again.
+     */
+    public void setGauge(String gauge, long value) {
+        gauges.put(gauge, () -> value);
+    }
+
+    public void removeGauge(String gauge) {
+        gauges.remove(gauge);
+    }
+
+    public Map<String, Long> counters() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        counters.forEach((name, adder) -> values.put(name, adder.sum()));
+        return values;
+    }
+
+    public Map<String, Long> gauges() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        gauges.forEach((name, supplier) -> {
+            try {
+                values.put(name, supplier.getAsLong());
+            } catch (RuntimeException | LinkageError e) {
+                values.put(name, -1L);
+            }
+        });
+        return values;
+    }
+
+    /**
+     * Clears every histogram and counter; gauges are left alone.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : stages) {
+            histogram.reset();
+        }
+        histograms.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(2048);
+        json.append(String.format(Locale.ROOT, "{\"timestamp\":\"%s\",\"uptimeMs\":%d,\"stages\":{",
+                Instant.now(), System.currentTimeMillis() - startedAtMs));
+        appendJson(json, Arrays.asList(stages));
+        json.append("},\"histograms\":{");
+        appendJson(json, histograms.values());
+        json.append("},\"counters\":");
+        appendJson(json, counters());
+        json.append(",\"gauges\":");
+        appendJson(json, gauges());
+        return json.append('}').toString();
+    }
+
+    /**
+     * Rewrites the snapshot file now; a no-op when snapshots are disabled.
+     */
+    public void writeSnapshot() {
+        String configured = AppConfig.getInstance().getMetricsSnapshotPath();
+        if (configured.isEmpty()) {
+            return;
+        }
+        Path target = Paths.get(configured).toAbsolutePath().normalize();
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+            // Write then rename, so readers never see a half-written file
+            Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.write(temp, toJson().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            AppLogger.warn("Failed to write metrics snapshot to " + target + ": " + e.getMessage());
+        }
+    }
+
+    private static void appendJson(StringBuilder json, Iterable<LatencyHistogram> values) {
+        boolean first = true;
+        for (LatencyHistogram histogram : values) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append(String.format(Locale.ROOT,
+                    "\"%s\":{\"n\":%d,\"meanMs\":%.3f,\"p50Ms\":%.3f,\"p95Ms\":%.3f,\"p99Ms\":%.3f,\"maxMs\":%.3f}",
+                    histogram.getName(), histogram.getCount(), histogram.getMeanMillis(),
+                    histogram.percentileMillis(50), histogram.percentileMillis(95), histogram.percentileMillis(99),
+                    histogram.getMaxMillis()));
+        }
+    }
+
+    private static void appendJson(StringBuilder json, Map<String, Long> values) {
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+        }
+        json.append('}');
+    }
+
+    private void registerMatPoolGauges() {
+        registerGauge("matpool.live_allocations", () -> MatPool.getInstance().snapshot().getLiveAllocations());
+        registerGauge("matpool.live_bytes", () -> MatPool.getInstance().snapshot().getLiveBytes());
+        registerGauge("matpool.leased", () -> MatPool.getInstance().snapshot().getLeased());
+        registerGauge("matpool.leaked", () -> MatPool.getInstance().snapshot().getLeaked());
+    }
+
+    private void registerMBeans() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (LatencyHistogram histogram : stages) {
+                ObjectName name = new ObjectName(JMX_DOMAIN + ":type=PipelineStage,name=" + histogram.getName());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(new StandardMBean(new StageBean(histogram), StageMXBean.class, true), name);
+                }
+            }
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=Pipeline");
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(new PipelineBean(), PipelineMXBean.class, true), name);
+            }
+        } catch (JMException | RuntimeException e) {
+            AppLogger.warn("Pipeline metrics are not available over JMX: " + e.getMessage());
+        }
+    }
+
+    private static void registerMBean(String objectName, StandardMBean bean) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(objectName);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(bean, name);
+            }
+        } catch (JMException | RuntimeException e) {
+            AppLogger.warn("Metric " + objectName + " is not available over JMX: " + e.getMessage());
+        }
+    }
+
+    private void startSnapshots() {
+        int intervalSeconds = AppConfig.getInstance().getMetricsSnapshotIntervalSeconds();
+        if (intervalSeconds <= 0 || AppConfig.getInstance().getMetricsSnapshotPath().isEmpty()) {
+            return;
+        }
+        ScheduledExecutorService snapshotWriter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "MetricsSnapshotWriter");
+            t.setDaemon(true);
+            return t;
+        });
+        snapshotWriter.scheduleWithFixedDelay(this::writeSnapshot, intervalSeconds, intervalSeconds,
+                TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::writeSnapshot, "MetricsSnapshotFlush"));
+    }
+
+    /**
+     * Times consecutive stages of one unit of work: each lap records the time
+     * since the previous lap (or the start / last restart) against a stage.
+     */
+    public static final class StageTimer {
+        private final PipelineMetrics metrics = getInstance();
+        private long lapStart;
+
+        public StageTimer() {
+            this(System.nanoTime());
+        }
+
+        public StageTimer(long startNanos) {
+            this.lapStart = startNanos;
+        }
+
+        /**
+         * Starts the next lap now, leaving the time since the last lap unrecorded.
+         */
+        public void restart() {
+            lapStart = System.nanoTime();
+        }
+
+        public long lap(Stage stage) {
+            long now = System.nanoTime();
+            long elapsed = now - lapStart;
+            metrics.record(stage, elapsed);
+            lapStart = now;
+            return elapsed;
+        }
+    }
+
+    /**
+     * JMX view of one stage histogram.
+     */
+    public interface StageMXBean {
+        long getCount();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP95Millis();
+        double getP99Millis();
+        double getMaxMillis();
+        void reset();
+    }
+
+    /**
+     * JMX view of the counters and gauges.
+     */
+    public interface PipelineMXBean {
+        Map<String, Long> getCounters();
+        Map<String, Long> getGauges();
+        String getSnapshotJson();
+        void reset();
+        void writeSnapshot();
+    }
+
+    private static final class StageBean implements StageMXBean {
+        private final LatencyHistogram histogram;
+
+        private StageBean(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override public long getCount() { return histogram.getCount(); }
+        @Override public double getMeanMillis() { return histogram.getMeanMillis(); }
+        @Override public double getP50Millis() { return histogram.percentileMillis(50); }
+        @Override public double getP95Millis() { return histogram.percentileMillis(95); }
+        @Override public double getP99Millis() { return histogram.percentileMillis(99); }
+        @Override public double getMaxMillis() { return histogram.getMaxMillis(); }
+        @Override public void reset() { histogram.reset(); }
+    }
+
+    private final class PipelineBean implements PipelineMXBean {
+        @Override public Map<String, Long> getCounters() { return counters(); }
+        @Override public Map<String, Long> getGauges() { return gauges(); }
+        @Override public String getSnapshotJson() { return toJson(); }
+        @Override public void reset() { PipelineMetrics.this.reset(); }
+        @Override public void writeSnapshot() { PipelineMetrics.this.writeSnapshot(); }
+    }
+}